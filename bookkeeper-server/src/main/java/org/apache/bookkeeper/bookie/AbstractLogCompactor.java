@@ -62,6 +62,13 @@ public abstract class AbstractLogCompactor {
      */
     public void cleanUpAndRecover() {}
 
+    /**
+     * Whether {@link #compact(EntryLogMetadata)} can be called for several entry logs concurrently.
+     */
+    public boolean supportsParallelCompaction() {
+        return false;
+    }
+
     /**
      * class Throttler.
      */
@@ -69,6 +76,7 @@ public abstract class AbstractLogCompactor {
         private final RateLimiter rateLimiter;
         private final boolean isThrottleByBytes;
         private final AtomicBoolean cancelled = new AtomicBoolean(false);
+        private volatile CompactionRateController rateController;
 
         Throttler(ServerConfiguration conf) {
             this.isThrottleByBytes  = conf.getIsThrottleByBytes();
@@ -76,8 +84,23 @@ public abstract class AbstractLogCompactor {
                 ? conf.getCompactionRateByBytes() : conf.getCompactionRateByEntries());
         }
 
+        /**
+         * Let the rate of this throttler follow the rate of the given controller instead of staying at the
+         * configured rate.
+         */
+        void setRateController(CompactionRateController rateController) {
+            this.rateController = rateController;
+        }
+
         // acquire. if bybytes: bytes of this entry; if byentries: 1.
         boolean tryAcquire(int permits, long timeout, TimeUnit unit) {
+            CompactionRateController controller = rateController;
+            if (controller != null) {
+                double rate = controller.getRate();
+                if (rate != rateLimiter.getRate()) {
+                    rateLimiter.setRate(rate);
+                }
+            }
             return rateLimiter.tryAcquire(this.isThrottleByBytes ? permits : 1, timeout, unit);
         }
 
@@ -38,6 +38,7 @@ public interface BookKeeperServerStats {
 
     // Stats
     String CHANNEL_WRITE = "CHANNEL_WRITE";
+    String CHANNEL_FRAMES_PER_FLUSH = "CHANNEL_FRAMES_PER_FLUSH";
 
     //
     // Server Operations
@@ -116,6 +117,10 @@ public interface BookKeeperServerStats {
     String JOURNAL_CREATION_LATENCY = "JOURNAL_CREATION_LATENCY";
     String JOURNAL_MEMORY_MAX = "JOURNAL_MEMORY_MAX";
     String JOURNAL_MEMORY_USED = "JOURNAL_MEMORY_USED";
+    String JOURNAL_GROUP_COMMIT_WAIT_MICROS = "JOURNAL_GROUP_COMMIT_WAIT_MICROS";
+    String JOURNAL_GROUP_COMMIT_ENTRIES_THRESHOLD = "JOURNAL_GROUP_COMMIT_ENTRIES_THRESHOLD";
+    String JOURNAL_GROUP_COMMIT_BYTES_THRESHOLD = "JOURNAL_GROUP_COMMIT_BYTES_THRESHOLD";
+    String JOURNAL_GROUP_COMMIT_FSYNC_LATENCY_MICROS = "JOURNAL_GROUP_COMMIT_FSYNC_LATENCY_MICROS";
 
     // Ledger Storage Stats
     String STORAGE_GET_OFFSET = "STORAGE_GET_OFFSET";
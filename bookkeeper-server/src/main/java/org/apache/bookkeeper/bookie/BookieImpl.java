@@ -32,6 +32,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.FileRegion;
 import io.netty.util.ReferenceCountUtil;
 import java.io.File;
 import java.io.FilenameFilter;
@@ -79,6 +80,7 @@ import org.apache.bookkeeper.util.DiskChecker;
 import org.apache.bookkeeper.util.IOUtils;
 import org.apache.bookkeeper.util.MathUtils;
 import org.apache.bookkeeper.util.collections.ConcurrentLongHashMap;
+import org.apache.bookkeeper.util.collections.ConcurrentLongLongHashMap;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.mutable.MutableBoolean;
 import org.slf4j.Logger;
@@ -117,6 +119,9 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
     private final ConcurrentLongHashMap<byte[]> masterKeyCache =
             ConcurrentLongHashMap.<byte[]>newBuilder().autoShrink(true).build();
 
+    // journal index assigned to each ledger, null if journals are selected by ledger id
+    private final ConcurrentLongLongHashMap ledgerJournals;
+
     protected StateManager stateManager;
 
     // Expose Stats
@@ -432,15 +437,42 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
                 () -> BookieImpl.this.triggerBookieShutdown(ExitCode.BOOKIE_EXCEPTION);
         // instantiate the journals
         journals = Lists.newArrayList();
-        for (int i = 0; i < journalDirectories.size(); i++) {
-            journals.add(new Journal(i, journalDirectories.get(i),
+        List<File> journalStripeDirectories =
+                Journal.getJournalStripeDirectories(journalDirectories, conf.getJournalsPerDirectory());
+        for (int i = 0; i < journalStripeDirectories.size(); i++) {
+            File journalDirectory = journalStripeDirectories.get(i);
+            if (!journalDirectory.exists() && !journalDirectory.mkdirs()) {
+                throw new IOException("Unable to create journal directory " + journalDirectory);
+            }
+            journals.add(new Journal(i, journalDirectory,
                     conf, ledgerDirsManager, statsLogger.scope(JOURNAL_SCOPE), allocator, journalAliveListener));
         }
+        // the journals of the stripe directories left by a larger journalsPerDirectory are not replayed, refuse to
+        // start while one of them still holds entries which were not checkpointed
+        for (Map.Entry<Integer, File> orphan : Journal.getOrphanedJournalStripeDirectories(
+                journalDirectories, conf.getJournalsPerDirectory()).entrySet()) {
+            Journal orphanedJournal = new Journal(orphan.getKey(), orphan.getValue(), conf, ledgerDirsManager);
+            if (orphanedJournal.hasEntriesAfterLastMark()) {
+                throw new IOException("Journal directory " + orphan.getValue() + " holds entries which were not"
+                        + " checkpointed, restart the bookie with journalsPerDirectory set to at least "
+                        + (orphan.getKey() / journalDirectories.size() + 1) + " to replay them");
+            }
+        }
+        // The ledger to journal assignment is only kept in memory, a restart may move a ledger to another journal.
+        // The replay does not depend on it: every journal is replayed from its own last log mark, and the master
+        // key of a ledger whose key entry is not replayed is read from the ledger storage, which persisted it
+        // before a last log mark moved past that key entry.
+        this.ledgerJournals = conf.getJournalLoadAwareAssignment() && journals.size() > 1
+                ? ConcurrentLongLongHashMap.newBuilder().autoShrink(true).build()
+                : null;
 
         this.entryLogPerLedgerEnabled = conf.isEntryLogPerLedgerEnabled();
         CheckpointSource checkpointSource = new CheckpointSourceList(journals);
 
         this.ledgerStorage = storage;
+        for (Journal journal : journals) {
+            journal.setAddLatencyListener(ledgerStorage::recordAddLatency);
+        }
         boolean isDbLedgerStorage = ledgerStorage instanceof DbLedgerStorage;
 
         /*
@@ -483,6 +515,9 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
             @Override
             public void ledgerDeleted(long ledgerId) {
                 masterKeyCache.remove(ledgerId);
+                if (ledgerJournals != null && ledgerId >= 0) {
+                    ledgerJournals.remove(ledgerId);
+                }
             }
         };
 
@@ -906,7 +941,41 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
     }
 
     private Journal getJournal(long ledgerId) {
-        return journals.get(MathUtils.signSafeMod(ledgerId, journals.size()));
+        if (ledgerJournals == null || ledgerId < 0) {
+            return journals.get(MathUtils.signSafeMod(ledgerId, journals.size()));
+        }
+        // Keep all the writes of a ledger in the same journal, a force ledger request must cover the entries
+        // previously added and the journal replay must find the master key before the entries
+        return journals.get((int) ledgerJournals.computeIfAbsent(ledgerId, this::selectLeastLoadedJournal));
+    }
+
+    private long selectLeastLoadedJournal(long ledgerId) {
+        return selectLeastLoadedJournal(journals, ledgerId);
+    }
+
+    /**
+     * Select the journal with the fewest queued bytes, then the shortest queue, starting from the journal the
+     * ledger id hashes to so that ties do not all land on the first journal.
+     */
+    @VisibleForTesting
+    static int selectLeastLoadedJournal(List<Journal> journals, long ledgerId) {
+        int numJournals = journals.size();
+        int first = MathUtils.signSafeMod(ledgerId, numJournals);
+        int selected = first;
+        long minQueuedBytes = Long.MAX_VALUE;
+        int minQueueLength = Integer.MAX_VALUE;
+        for (int i = 0; i < numJournals; i++) {
+            int idx = (first + i) % numJournals;
+            Journal journal = journals.get(idx);
+            long queuedBytes = journal.getMemoryUsage();
+            int queueLength = journal.getJournalQueueLength();
+            if (queuedBytes < minQueuedBytes || (queuedBytes == minQueuedBytes && queueLength < minQueueLength)) {
+                selected = idx;
+                minQueuedBytes = queuedBytes;
+                minQueueLength = queueLength;
+            }
+        }
+        return selected;
     }
 
     @VisibleForTesting
@@ -923,8 +992,8 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
     /**
      * Add an entry to a ledger as specified by handle.
      */
-    private void addEntryInternal(LedgerDescriptor handle, ByteBuf entry,
-                                  boolean ackBeforeSync, WriteCallback cb, Object ctx, byte[] masterKey)
+    private void addEntryInternal(LedgerDescriptor handle, ByteBuf entry, boolean ackBeforeSync,
+                                  WriteCallback cb, Object ctx, byte[] masterKey, long requestNanos)
             throws IOException, BookieException, InterruptedException {
         long ledgerId = handle.getLedgerId();
         long entryId = handle.addEntry(entry);
@@ -933,6 +1002,24 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
 
         // journal `addEntry` should happen after the entry is added to ledger storage.
         // otherwise the journal entry can potentially be rolled before the ledger is created in ledger storage.
+        logMasterKeyIfAbsent(ledgerId, masterKey);
+
+        if (!writeDataToJournal) {
+            ledgerStorage.recordAddLatency(MathUtils.elapsedNanos(requestNanos));
+            cb.writeComplete(0, ledgerId, entryId, null, ctx);
+            if (ctx instanceof BookieRequestHandler) {
+                ((BookieRequestHandler) ctx).flushPendingResponse();
+            }
+            return;
+        }
+
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("Adding {}@{}", entryId, ledgerId);
+        }
+        getJournal(ledgerId).logAddEntry(entry, ackBeforeSync, cb, ctx, requestNanos);
+    }
+
+    private void logMasterKeyIfAbsent(long ledgerId, byte[] masterKey) throws InterruptedException {
         if (masterKeyCache.get(ledgerId) == null) {
             // Force the load into masterKey cache
             byte[] oldValue = masterKeyCache.putIfAbsent(ledgerId, masterKey);
@@ -946,19 +1033,6 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
                 }
             }
         }
-
-        if (!writeDataToJournal) {
-            cb.writeComplete(0, ledgerId, entryId, null, ctx);
-            if (ctx instanceof BookieRequestHandler) {
-                ((BookieRequestHandler) ctx).flushPendingResponse();
-            }
-            return;
-        }
-
-        if (LOG.isTraceEnabled()) {
-            LOG.trace("Adding {}@{}", entryId, ledgerId);
-        }
-        getJournal(ledgerId).logAddEntry(entry, ackBeforeSync, cb, ctx);
     }
 
     /**
@@ -976,7 +1050,7 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
             LedgerDescriptor handle = getLedgerForEntry(entry, masterKey);
             synchronized (handle) {
                 entrySize = entry.readableBytes();
-                addEntryInternal(handle, entry, false /* ackBeforeSync */, cb, ctx, masterKey);
+                addEntryInternal(handle, entry, false /* ackBeforeSync */, cb, ctx, masterKey, requestNanos);
             }
             success = true;
         } catch (NoWritableLedgerDirException e) {
@@ -1070,7 +1144,7 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
                             .create(BookieException.Code.LedgerFencedException);
                 }
                 entrySize = entry.readableBytes();
-                addEntryInternal(handle, entry, ackBeforeSync, cb, ctx, masterKey);
+                addEntryInternal(handle, entry, ackBeforeSync, cb, ctx, masterKey, requestNanos);
             }
             success = true;
         } catch (NoWritableLedgerDirException e) {
@@ -1090,6 +1164,73 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
         }
     }
 
+    /**
+     * Add several consecutive entries to a ledger. The entries are added to the ledger storage
+     * under a single acquisition of the ledger handle and then logged with a single journal
+     * submission. The callback is invoked once for each entry.
+     */
+    public void addEntries(List<ByteBuf> entries, boolean ackBeforeSync, WriteCallback cb, Object ctx,
+                           byte[] masterKey)
+            throws IOException, BookieException, InterruptedException {
+        long requestNanos = MathUtils.nowInNano();
+        boolean success = false;
+        int entriesSize = 0;
+        try {
+            LedgerDescriptor handle = getLedgerForEntry(entries.get(0), masterKey);
+            long ledgerId = handle.getLedgerId();
+            for (int i = 0; i < entries.size(); i++) {
+                ByteBuf entry = entries.get(i);
+                if (entry.getLong(entry.readerIndex()) != ledgerId) {
+                    throw new IllegalArgumentException("Batched entries must belong to ledger " + ledgerId);
+                }
+            }
+            synchronized (handle) {
+                if (handle.isFenced()) {
+                    throw BookieException
+                            .create(BookieException.Code.LedgerFencedException);
+                }
+                for (int i = 0; i < entries.size(); i++) {
+                    ByteBuf entry = entries.get(i);
+                    handle.addEntry(entry);
+                    entriesSize += entry.readableBytes();
+                }
+                bookieStats.getWriteBytes().addCount(entriesSize);
+
+                logMasterKeyIfAbsent(ledgerId, masterKey);
+
+                if (!writeDataToJournal) {
+                    ledgerStorage.recordAddLatency(MathUtils.elapsedNanos(requestNanos));
+                    for (int i = 0; i < entries.size(); i++) {
+                        ByteBuf entry = entries.get(i);
+                        cb.writeComplete(0, ledgerId, entry.getLong(entry.readerIndex() + 8), null, ctx);
+                    }
+                    if (ctx instanceof BookieRequestHandler) {
+                        ((BookieRequestHandler) ctx).flushPendingResponse();
+                    }
+                } else {
+                    getJournal(ledgerId).logAddEntries(entries, ackBeforeSync, cb, ctx, requestNanos);
+                }
+            }
+            success = true;
+        } catch (NoWritableLedgerDirException e) {
+            stateManager.transitionToReadOnlyMode();
+            throw new IOException(e);
+        } finally {
+            long elapsedNanos = MathUtils.elapsedNanos(requestNanos);
+            if (success) {
+                bookieStats.getAddEntryStats().registerSuccessfulEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+                bookieStats.getAddBytesStats().registerSuccessfulValue(entriesSize);
+            } else {
+                bookieStats.getAddEntryStats().registerFailedEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+                bookieStats.getAddBytesStats().registerFailedValue(entriesSize);
+            }
+
+            for (int i = 0; i < entries.size(); i++) {
+                ReferenceCountUtil.release(entries.get(i));
+            }
+        }
+    }
+
     /**
      * Fences a ledger. From this point on, clients will be unable to
      * write to this ledger. Only recoveryAddEntry will be
@@ -1131,6 +1272,25 @@ public class BookieImpl extends BookieCriticalThread implements Bookie {
         }
     }
 
+    /**
+     * Locate an entry on disk so that it can be sent without copying it through user space.
+     *
+     * @return the file region of the entry, or null if the caller should use {@link #readEntry(long, long)}
+     */
+    public FileRegion readEntryRegion(long ledgerId, long entryId, int minSize)
+            throws IOException, NoLedgerException, BookieException {
+        long requestNanos = MathUtils.nowInNano();
+        LedgerDescriptor handle = handles.getReadOnlyHandle(ledgerId);
+        FileRegion region = handle.readEntryRegion(entryId, minSize);
+        if (region != null) {
+            bookieStats.getReadBytes().addCount(region.count());
+            bookieStats.getReadEntryStats().registerSuccessfulEvent(MathUtils.elapsedNanos(requestNanos),
+                    TimeUnit.NANOSECONDS);
+            bookieStats.getReadBytesStats().registerSuccessfulValue(region.count());
+        }
+        return region;
+    }
+
     public long readLastAddConfirmed(long ledgerId) throws IOException, BookieException {
         LedgerDescriptor handle = handles.getReadOnlyHandle(ledgerId);
         return handle.getLastAddConfirmed();
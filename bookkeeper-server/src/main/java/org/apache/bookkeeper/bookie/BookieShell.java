@@ -2076,6 +2076,8 @@ public class BookieShell implements Tool {
 
         public RebuildDbLedgerLocationsIndexCmd() {
             super(CMD_REBUILD_DB_LEDGER_LOCATIONS_INDEX);
+            opts.addOption("m", "migrate", false, "Convert the existing index to the storage set in"
+                    + " dbStorage_entryLocationIndexType, instead of scanning the entry logs");
         }
 
         @Override
@@ -2090,13 +2092,16 @@ public class BookieShell implements Tool {
 
         @Override
         String getUsage() {
-            return CMD_REBUILD_DB_LEDGER_LOCATIONS_INDEX;
+            return CMD_REBUILD_DB_LEDGER_LOCATIONS_INDEX + " [-m]";
         }
 
         @Override
         int runCmd(CommandLine cmdLine) throws Exception {
+            RebuildDBLedgerLocationsIndexCommand.RebuildLocationsIndexFlags flags =
+                    new RebuildDBLedgerLocationsIndexCommand.RebuildLocationsIndexFlags();
+            flags.migrate(cmdLine.hasOption("m"));
             RebuildDBLedgerLocationsIndexCommand cmd = new RebuildDBLedgerLocationsIndexCommand();
-            cmd.apply(bkConf, new CliFlags());
+            cmd.apply(bkConf, flags);
             return 0;
         }
     }
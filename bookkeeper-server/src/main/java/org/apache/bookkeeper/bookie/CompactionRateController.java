@@ -0,0 +1,111 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.apache.bookkeeper.util.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adapts the compaction rate to the latency of the foreground operations of the bookie.
+ *
+ * <p>The bookie reports the latency of its adds, journal included, and the ledger storage the latency of its
+ * reads. Once per adjustment interval the average latency is compared with the target: above it, the compaction
+ * rate is halved, down to a floor of 1/20th of the configured rate; otherwise the rate grows back by 20%, up to
+ * the configured rate. Compaction so backs off quickly when it hurts foreground traffic and catches up when the
+ * disks are idle.
+ */
+public class CompactionRateController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompactionRateController.class);
+
+    static final long ADJUST_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final double INCREASE_FACTOR = 1.2;
+    private static final int MIN_RATE_DIVISOR = 20;
+
+    private final double maxRate;
+    private final double minRate;
+    private final long targetLatencyNanos;
+    private final LongSupplier nanoClock;
+
+    private final LongAdder latencySum = new LongAdder();
+    private final LongAdder latencyCount = new LongAdder();
+    private volatile double rate;
+    private volatile long lastAdjustTime;
+
+    public CompactionRateController(double maxRate, long targetLatencyMillis) {
+        this(maxRate, targetLatencyMillis, MathUtils::nowInNano);
+    }
+
+    @VisibleForTesting
+    CompactionRateController(double maxRate, long targetLatencyMillis, LongSupplier nanoClock) {
+        this.maxRate = maxRate;
+        this.minRate = Math.max(1, maxRate / MIN_RATE_DIVISOR);
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+        this.nanoClock = nanoClock;
+        this.rate = maxRate;
+        this.lastAdjustTime = nanoClock.getAsLong();
+    }
+
+    /**
+     * Record the latency of a foreground add, journal included, or read of the ledger storage.
+     */
+    public void recordForegroundLatency(long latencyNanos) {
+        latencySum.add(latencyNanos);
+        latencyCount.increment();
+    }
+
+    /**
+     * @return the compaction rate to apply now, adjusted first if the adjustment interval has elapsed
+     */
+    public double getRate() {
+        long now = nanoClock.getAsLong();
+        if (now - lastAdjustTime >= ADJUST_INTERVAL_NANOS) {
+            adjust(now);
+        }
+        return rate;
+    }
+
+    private synchronized void adjust(long now) {
+        if (now - lastAdjustTime < ADJUST_INTERVAL_NANOS) {
+            return;
+        }
+        lastAdjustTime = now;
+        long count = latencyCount.sumThenReset();
+        long sum = latencySum.sumThenReset();
+        double previousRate = rate;
+        if (count > 0 && sum / count > targetLatencyNanos) {
+            rate = Math.max(minRate, previousRate * DECREASE_FACTOR);
+        } else {
+            rate = Math.min(maxRate, previousRate * INCREASE_FACTOR);
+        }
+        if (LOG.isDebugEnabled() && rate != previousRate) {
+            LOG.debug("Compaction rate changed from {} to {}, average foreground latency {} ns over {} operations",
+                    previousRate, rate, count > 0 ? sum / count : 0, count);
+        }
+    }
+}
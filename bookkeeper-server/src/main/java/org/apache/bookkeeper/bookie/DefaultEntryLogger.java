@@ -31,6 +31,8 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.FileRegion;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.FastThreadLocal;
 import java.io.BufferedReader;
@@ -854,6 +856,58 @@ public class DefaultEntryLogger implements EntryLogger {
         return data;
     }
 
+    /**
+     * Locate an entry in its entry log file and return a {@link FileRegion} covering its bytes, so that it can
+     * be written to a socket with a zero-copy file transfer.
+     *
+     * <p>Each region opens its own file channel, which is closed when the region is released. That keeps the
+     * region readable even if the entry log is garbage collected while the transfer is in progress.
+     *
+     * @return the file region for the entry, or null if the entry is smaller than <i>minSize</i>,
+     *         or it's not yet flushed to the entry log file
+     */
+    public FileRegion readEntryRegion(long ledgerId, long entryId, long location, int minSize)
+            throws IOException {
+        long entryLogId = logIdForOffset(location);
+        long pos = posForOffset(location);
+
+        int entrySize;
+        try {
+            BufferedReadChannel fc = getFCForEntryInternal(ledgerId, entryId, entryLogId, pos);
+            ByteBuf sizeBuff = readEntrySize(ledgerId, entryId, entryLogId, pos, fc);
+            entrySize = sizeBuff.getInt(0);
+            validateEntry(ledgerId, entryId, entryLogId, pos, sizeBuff);
+        } catch (EntryLookupException e) {
+            throw new IOException("Bad entry read from log file id: " + entryLogId, e);
+        }
+        if (entrySize < minSize) {
+            return null;
+        }
+
+        BufferedLogChannel bc = entryLogManager.getCurrentLogIfPresent(entryLogId);
+        if (null != bc) {
+            synchronized (bc) {
+                if (pos + entrySize > bc.getFileChannelPosition()) {
+                    // Part of the entry is still in the write buffer
+                    return null;
+                }
+            }
+        }
+
+        FileChannel channel;
+        try {
+            channel = new RandomAccessFile(findFile(entryLogId), "r").getChannel();
+        } catch (FileNotFoundException e) {
+            // The entry log was removed after the lookup, let the regular read path report it
+            return null;
+        }
+        if (channel.size() < pos + entrySize) {
+            channel.close();
+            return null;
+        }
+        return new DefaultFileRegion(channel, pos, entrySize);
+    }
+
     /**
      * Read the header of an entry log.
      */
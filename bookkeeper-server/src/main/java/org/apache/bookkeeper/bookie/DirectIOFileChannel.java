@@ -0,0 +1,414 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import static org.apache.bookkeeper.common.util.ExceptionMessageHelper.exMsg;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import org.apache.bookkeeper.common.util.nativeio.NativeIO;
+import org.apache.bookkeeper.common.util.nativeio.NativeIOException;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link BookieFileChannel} which performs sequential writes with O_DIRECT through the native-io module.
+ *
+ * <p>Direct I/O requires the memory address, the file offset and the length of every write to be aligned.
+ * Writes are copied into an aligned native buffer and always cover whole {@link #ALIGNMENT} blocks: the last
+ * partially filled block is kept in the buffer and rewritten, together with the new data, by the next write.
+ * Since the channel is meant for append-only journal files, the bytes following a write in its last block
+ * are not preserved and are written as zeros.
+ * Reads, positional writes (used for pre-allocation) and the force of any buffered write go through a regular
+ * {@link FileChannel} on the same file.
+ */
+public class DirectIOFileChannel implements BookieFileChannel {
+    private static final Logger LOG = LoggerFactory.getLogger(DirectIOFileChannel.class);
+
+    static final int ALIGNMENT = 4096;
+    static final int BUFFER_SIZE = 256 * 1024;
+
+    private static volatile boolean directIOAvailable = true;
+
+    private final File file;
+    private final ServerConfiguration configuration;
+    private final NativeIO nativeIO;
+    private RandomAccessFile randomAccessFile;
+    private FileChannel fileChannel;
+
+    DirectIOFileChannel(File file, ServerConfiguration configuration, NativeIO nativeIO) {
+        this.file = file;
+        this.configuration = configuration;
+        this.nativeIO = nativeIO;
+    }
+
+    @Override
+    public FileChannel getFileChannel() throws IOException {
+        synchronized (this) {
+            if (fileChannel == null) {
+                randomAccessFile = new RandomAccessFile(file, "rw");
+                fileChannel = randomAccessFile.getChannel();
+                if (directIOAvailable) {
+                    int fd = openDirect();
+                    if (fd >= 0) {
+                        try {
+                            fileChannel = new AlignedWriteChannel(file.getPath(), nativeIO, fd, fileChannel,
+                                    configuration.getJournalDirectIODsync());
+                        } catch (IOException e) {
+                            LOG.warn("Unable to use direct I/O for {}, falling back to buffered writes: {}",
+                                    file, e.getMessage());
+                            closeQuietly(fd);
+                        }
+                    }
+                }
+            }
+            return fileChannel;
+        }
+    }
+
+    private int openDirect() {
+        int flags = NativeIO.O_WRONLY | NativeIO.O_DIRECT;
+        if (configuration.getJournalDirectIODsync()) {
+            flags |= NativeIO.O_DSYNC;
+        }
+        try {
+            return nativeIO.open(file.getPath(), flags, 00644);
+        } catch (NativeIOException e) {
+            LOG.warn("Unable to open {} with O_DIRECT (errno {}), falling back to buffered writes",
+                    file, e.getErrno());
+        } catch (LinkageError | RuntimeException e) {
+            // native library not available on this platform
+            LOG.warn("Native IO is not available, falling back to buffered journal writes: {}", e.getMessage());
+            directIOAvailable = false;
+        }
+        return -1;
+    }
+
+    private void closeQuietly(int fd) {
+        try {
+            nativeIO.close(fd);
+        } catch (NativeIOException e) {
+            LOG.warn("Failed to close {} (errno {})", file, e.getErrno());
+        }
+    }
+
+    @Override
+    public boolean fileExists(File file) {
+        return file.exists();
+    }
+
+    @Override
+    public FileDescriptor getFD() throws IOException {
+        synchronized (this) {
+            if (randomAccessFile == null) {
+                throw new IOException("randomAccessFile is null, please initialize it by calling getFileChannel");
+            }
+            return randomAccessFile.getFD();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (fileChannel != null) {
+                fileChannel.close();
+            }
+            if (randomAccessFile != null) {
+                randomAccessFile.close();
+            }
+        }
+    }
+
+    static long alignDown(long value) {
+        return value & ~(ALIGNMENT - 1L);
+    }
+
+    static int alignUp(int value) {
+        return (value + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+    }
+
+    /**
+     * File channel writing sequentially with O_DIRECT and delegating everything else to a regular channel.
+     */
+    static class AlignedWriteChannel extends FileChannel {
+        private final String filename;
+        private final NativeIO nativeIO;
+        private final int fd;
+        private final FileChannel delegate;
+        private final boolean dsync;
+
+        private final ByteBuf buffer;
+        private final ByteBuffer alignedBuffer;
+        private final long pointer;
+
+        private long position;
+        // whether the buffer holds the content of the block containing the current position
+        private boolean tailLoaded;
+        // whether some data was written through the delegate and is not yet forced
+        private volatile boolean pendingBufferedWrites;
+
+        AlignedWriteChannel(String filename, NativeIO nativeIO, int fd, FileChannel delegate, boolean dsync)
+                throws IOException {
+            this.filename = filename;
+            this.nativeIO = nativeIO;
+            this.fd = fd;
+            this.delegate = delegate;
+            this.dsync = dsync;
+            this.position = delegate.position();
+
+            ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer(BUFFER_SIZE + ALIGNMENT);
+            if (!buf.hasMemoryAddress()) {
+                buf.release();
+                throw new IOException("Direct buffers have no accessible memory address");
+            }
+            long addr = buf.memoryAddress();
+            int alignOffset = (int) ((ALIGNMENT - (addr & (ALIGNMENT - 1))) & (ALIGNMENT - 1));
+            this.buffer = buf;
+            this.pointer = addr + alignOffset;
+            this.alignedBuffer = buf.nioBuffer(alignOffset, BUFFER_SIZE);
+        }
+
+        @Override
+        public synchronized int write(ByteBuffer src) throws IOException {
+            int written = 0;
+            while (src.hasRemaining()) {
+                long blockStart = alignDown(position);
+                int tail = (int) (position - blockStart);
+                if (tail > 0 && !tailLoaded) {
+                    loadTail(blockStart, tail);
+                }
+
+                int toCopy = Math.min(src.remaining(), BUFFER_SIZE - tail);
+                ByteBuffer chunk = src.duplicate();
+                chunk.limit(chunk.position() + toCopy);
+                alignedBuffer.clear();
+                alignedBuffer.position(tail);
+                alignedBuffer.put(chunk);
+                src.position(src.position() + toCopy);
+
+                int end = tail + toCopy;
+                int writeSize = alignUp(end);
+                while (alignedBuffer.position() < writeSize) {
+                    alignedBuffer.put((byte) 0);
+                }
+                pwrite(writeSize, blockStart);
+
+                position += toCopy;
+                written += toCopy;
+
+                // Keep the last partial block at the beginning of the buffer, it will be rewritten with the next
+                // write
+                int newTail = end & (ALIGNMENT - 1);
+                if (newTail > 0 && end - newTail > 0) {
+                    ByteBuffer last = alignedBuffer.duplicate();
+                    last.limit(end).position(end - newTail);
+                    alignedBuffer.clear();
+                    alignedBuffer.put(last);
+                }
+                tailLoaded = true;
+            }
+            return written;
+        }
+
+        private void loadTail(long blockStart, int tail) throws IOException {
+            ByteBuffer dst = alignedBuffer.duplicate();
+            dst.clear().limit(tail);
+            while (dst.hasRemaining()) {
+                if (delegate.read(dst, blockStart + dst.position()) < 0) {
+                    throw new IOException(exMsg("Unexpected end of file reading last block")
+                            .kv("filename", filename)
+                            .kv("offset", blockStart)
+                            .kv("size", tail)
+                            .toString());
+                }
+            }
+            tailLoaded = true;
+        }
+
+        private void pwrite(int size, long offset) throws IOException {
+            try {
+                int ret = nativeIO.pwrite(fd, pointer, size, offset);
+                if (ret != size) {
+                    throw new IOException(exMsg("Incomplete write")
+                            .kv("filename", filename)
+                            .kv("offset", offset)
+                            .kv("writeSize", size)
+                            .kv("bytesWritten", ret)
+                            .toString());
+                }
+            } catch (NativeIOException ne) {
+                throw new IOException(exMsg("Write error")
+                        .kv("filename", filename)
+                        .kv("offset", offset)
+                        .kv("writeSize", size)
+                        .kv("errno", ne.getErrno())
+                        .toString(), ne);
+            }
+        }
+
+        @Override
+        public synchronized int write(ByteBuffer src, long pos) throws IOException {
+            invalidateTail(pos, src.remaining());
+            int written = delegate.write(src, pos);
+            pendingBufferedWrites = true;
+            return written;
+        }
+
+        private void invalidateTail(long pos, long count) {
+            long blockStart = alignDown(position);
+            if (pos < blockStart + ALIGNMENT && pos + count > blockStart) {
+                // overlapping with the block kept in the buffer
+                tailLoaded = false;
+            }
+        }
+
+        @Override
+        public synchronized long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            long written = 0;
+            for (int i = offset; i < offset + length; i++) {
+                written += write(srcs[i]);
+            }
+            return written;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (!dsync || metaData || pendingBufferedWrites) {
+                pendingBufferedWrites = false;
+                delegate.force(metaData);
+            }
+        }
+
+        @Override
+        public synchronized int read(ByteBuffer dst) throws IOException {
+            int read = delegate.read(dst, position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public synchronized long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            long read = 0;
+            for (int i = offset; i < offset + length; i++) {
+                int r = read(dsts[i]);
+                if (r < 0) {
+                    return read > 0 ? read : -1;
+                }
+                read += r;
+                if (dsts[i].hasRemaining()) {
+                    break;
+                }
+            }
+            return read;
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long pos) throws IOException {
+            return delegate.read(dst, pos);
+        }
+
+        @Override
+        public synchronized long position() {
+            return position;
+        }
+
+        @Override
+        public synchronized FileChannel position(long newPosition) {
+            if (alignDown(newPosition) != alignDown(position)) {
+                tailLoaded = false;
+            }
+            position = newPosition;
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public synchronized FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            position = Math.min(position, size);
+            tailLoaded = false;
+            return this;
+        }
+
+        @Override
+        public long transferTo(long pos, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(pos, count, target);
+        }
+
+        @Override
+        public synchronized long transferFrom(ReadableByteChannel src, long pos, long count) throws IOException {
+            invalidateTail(pos, count);
+            long transferred = delegate.transferFrom(src, pos, count);
+            if (transferred > 0) {
+                pendingBufferedWrites = true;
+            }
+            return transferred;
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long pos, long size) throws IOException {
+            return delegate.map(mode, pos, size);
+        }
+
+        @Override
+        public FileLock lock(long pos, long size, boolean shared) throws IOException {
+            return delegate.lock(pos, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long pos, long size, boolean shared) throws IOException {
+            return delegate.tryLock(pos, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            try {
+                nativeIO.close(fd);
+            } catch (NativeIOException ne) {
+                throw new IOException(exMsg("Close error")
+                        .kv("filename", filename)
+                        .kv("errno", ne.getErrno())
+                        .toString(), ne);
+            } finally {
+                buffer.release();
+                delegate.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.bookkeeper.common.util.nativeio.NativeIO;
+import org.apache.bookkeeper.common.util.nativeio.NativeIOImpl;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+
+/**
+ * A journal channel provider which writes the journal with O_DIRECT aligned writes through the native-io
+ * module, bypassing the OS page cache.
+ *
+ * <p>When {@link ServerConfiguration#getJournalDirectIODsync()} is enabled, files are also opened with
+ * O_DSYNC so that every write is durable when it returns and a journal force write does not need a
+ * separate fdatasync.
+ *
+ * <p>If direct I/O is not available (e.g. unsupported platform or filesystem) the provider falls back to
+ * the regular buffered channels.
+ */
+public class DirectIOFileChannelProvider implements FileChannelProvider {
+
+    private final NativeIO nativeIO = new NativeIOImpl();
+
+    @Override
+    public BookieFileChannel open(File file, ServerConfiguration configuration) throws IOException {
+        return new DirectIOFileChannel(file, configuration, nativeIO);
+    }
+
+    @Override
+    public void close(BookieFileChannel bookieFileChannel) throws IOException {
+        bookieFileChannel.close();
+    }
+
+    @Override
+    public void close() {
+
+    }
+}
@@ -25,6 +25,8 @@ import io.netty.buffer.ByteBuf;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.apache.bookkeeper.bookie.storage.EntryLogScanner;
 import org.apache.bookkeeper.bookie.storage.EntryLogger;
 import org.apache.bookkeeper.conf.ServerConfiguration;
@@ -35,15 +37,23 @@ import org.slf4j.LoggerFactory;
  * This is the basic entry log compactor to compact entry logs.
  * The compaction is done by scanning the old entry log file, copy the active ledgers to the
  * current entry logger and remove the old entry log when the scan is over.
+ *
+ * <p>Several entry logs can be compacted concurrently: each compaction has its own scanner, the
+ * entry logger serializes the re-added entries, and the location index updates of the concurrent
+ * compactions are batched together so that one entry logger flush covers all of them.
  */
 public class EntryLogCompactor extends AbstractLogCompactor {
     private static final Logger LOG = LoggerFactory.getLogger(EntryLogCompactor.class);
 
-    final CompactionScannerFactory scannerFactory = new CompactionScannerFactory();
     final EntryLogger entryLogger;
     final CompactableLedgerStorage ledgerStorage;
     private final int maxOutstandingRequests;
 
+    private final Object flushLock = new Object();
+    // guarded by this
+    private List<EntryLocation> pendingLocations = new ArrayList<>();
+    private List<CompletableFuture<Void>> pendingFlushes = new ArrayList<>();
+
     public EntryLogCompactor(
             ServerConfiguration conf,
             EntryLogger entryLogger,
@@ -55,8 +65,14 @@ public class EntryLogCompactor extends AbstractLogCompactor {
         this.ledgerStorage = ledgerStorage;
     }
 
+    @Override
+    public boolean supportsParallelCompaction() {
+        return true;
+    }
+
     @Override
     public boolean compact(EntryLogMetadata entryLogMeta) {
+        CompactionScannerFactory scannerFactory = new CompactionScannerFactory();
         try {
             entryLogger.scanEntryLog(entryLogMeta.getEntryLogId(),
                 scannerFactory.newScanner(entryLogMeta));
@@ -114,15 +130,54 @@ public class EntryLogCompactor extends AbstractLogCompactor {
                 return;
             }
 
-            // Before updating the index, we want to wait until all the compacted entries are flushed into the
-            // entryLog
             try {
-                entryLogger.flush();
-                ledgerStorage.updateEntriesLocations(offsets);
-                ledgerStorage.flushEntriesLocationsIndex();
+                flushLocations(offsets);
             } finally {
                 offsets.clear();
             }
         }
     }
+
+    /**
+     * Update the location index with the new locations of compacted entries, once they are flushed into
+     * the entry log. Concurrent callers are batched: whoever gets the flush lock first flushes the entry
+     * logger and updates the locations of all the callers waiting at that time.
+     */
+    private void flushLocations(List<EntryLocation> locations) throws IOException {
+        CompletableFuture<Void> flushed = new CompletableFuture<>();
+        synchronized (this) {
+            pendingLocations.addAll(locations);
+            pendingFlushes.add(flushed);
+        }
+        synchronized (flushLock) {
+            if (!flushed.isDone()) {
+                List<EntryLocation> batch;
+                List<CompletableFuture<Void>> batchFlushes;
+                synchronized (this) {
+                    batch = pendingLocations;
+                    batchFlushes = pendingFlushes;
+                    pendingLocations = new ArrayList<>();
+                    pendingFlushes = new ArrayList<>();
+                }
+                try {
+                    // Before updating the index, we want to wait until all the compacted entries are flushed
+                    // into the entryLog
+                    entryLogger.flush();
+                    ledgerStorage.updateEntriesLocations(batch);
+                    ledgerStorage.flushEntriesLocationsIndex();
+                    batchFlushes.forEach(f -> f.complete(null));
+                } catch (IOException | RuntimeException e) {
+                    batchFlushes.forEach(f -> f.completeExceptionally(e));
+                }
+            }
+        }
+        try {
+            flushed.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to update the locations of compacted entries", e.getCause());
+        }
+    }
 }
@@ -613,8 +613,8 @@ class EntryLogManagerForEntryLogPerLedger extends EntryLogManagerBase {
 
     @Override
     public BufferedLogChannel createNewLogForCompaction() throws IOException {
-        throw new UnsupportedOperationException(
-                "When entryLogPerLedger is enabled, transactional compaction should have been disabled");
+        // only used by the merging of small entrylogs, transactional compaction is disabled
+        return entryLoggerAllocator.createNewLogForCompaction(selectDirForNextEntryLog());
     }
 
     @Override
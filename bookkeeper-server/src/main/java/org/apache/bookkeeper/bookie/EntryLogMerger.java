@@ -0,0 +1,179 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.apache.bookkeeper.bookie.storage.CompactionEntryLog;
+import org.apache.bookkeeper.bookie.storage.EntryLogScanner;
+import org.apache.bookkeeper.bookie.storage.EntryLogger;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges small entry logs, as written when entryLogPerLedger is enabled, into a single entry log
+ * whose entries are sorted by ledger and entry id.
+ *
+ * <p>The merge goes through the transactional compaction phases, with the first source log as the
+ * log being compacted:
+ * Phase 1: Collect the locations of the live entries of all the source logs, sort them and copy
+ * the entries to a new .compacting log file.
+ * Phase 2: Flush the .compacting log to disk and it becomes a .compacted log file.
+ * Phase 3: Update the locations of the entries, the .compacted file becomes a .log file, and remove
+ * the source logs.
+ *
+ * <p>If the bookie stops before the source logs other than the first one are removed, their entries
+ * are already indexed in the merged log, so they are only left for a later merge or compaction.
+ */
+public class EntryLogMerger extends TransactionalEntryLogCompactor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntryLogMerger.class);
+
+    private static final Comparator<EntryLocation> LEDGER_ENTRY_ORDER =
+            Comparator.comparingLong(EntryLocation::getLedger).thenComparingLong(EntryLocation::getEntry);
+
+    public EntryLogMerger(
+            ServerConfiguration conf,
+            EntryLogger entryLogger,
+            CompactableLedgerStorage ledgerStorage,
+            LogRemovalListener logRemover) {
+        super(conf, entryLogger, ledgerStorage, logRemover);
+    }
+
+    /**
+     * Merge the live entries of the given entry logs into a new entry log.
+     *
+     * @param sources metadata of the entry logs to merge, which must not be written to anymore
+     * @return true if the source logs were merged and removed
+     */
+    public boolean merge(List<EntryLogMetadata> sources) {
+        if (sources.isEmpty()) {
+            return false;
+        }
+        long firstLogId = sources.get(0).getEntryLogId();
+        LOG.info("Merging {} entry logs starting with {}.", sources.size(), firstLogId);
+        CompactionEntryLog mergeLog;
+        try {
+            mergeLog = entryLogger.newCompactionLog(firstLogId);
+        } catch (IOException ioe) {
+            LOG.error("Exception creating new merge entry log", ioe);
+            return false;
+        }
+        if (!new MergeEntryLogsPhase(sources, mergeLog).run()) {
+            LOG.info("Merge of entry logs starting with {} end in MergeEntryLogsPhase.", firstLogId);
+            return false;
+        }
+        if (!new FlushCompactionLogPhase(mergeLog).run()) {
+            LOG.info("Merge of entry logs starting with {} end in FlushCompactionLogPhase.", firstLogId);
+            return false;
+        }
+        if (!new UpdateIndexPhase(mergeLog).run()) {
+            LOG.info("Merge of entry logs starting with {} end in UpdateIndexPhase.", firstLogId);
+            return false;
+        }
+        // the first source log is removed by the UpdateIndexPhase
+        for (int i = 1; i < sources.size(); i++) {
+            logRemovalListener.removeEntryLog(sources.get(i).getEntryLogId());
+        }
+        LOG.info("Merged {} entry logs into entry log {}.", sources.size(), mergeLog.getDstLogId());
+        return true;
+    }
+
+    /**
+     * Copies the live entries of the source logs to the merge log, in ledger and entry id order.
+     * The source logs are scanned for the entry locations only, and the entries are then read back
+     * in order, so that only the locations are kept in memory.
+     */
+    class MergeEntryLogsPhase extends CompactionPhase {
+        private final List<EntryLogMetadata> sources;
+        private final CompactionEntryLog mergeLog;
+
+        MergeEntryLogsPhase(List<EntryLogMetadata> sources, CompactionEntryLog mergeLog) {
+            super("MergeEntryLogsPhase");
+            this.sources = sources;
+            this.mergeLog = mergeLog;
+        }
+
+        @Override
+        void start() throws IOException {
+            List<EntryLocation> locations = new ArrayList<>();
+            for (EntryLogMetadata metadata : sources) {
+                final long logId = metadata.getEntryLogId();
+                entryLogger.scanEntryLog(logId, new EntryLogScanner() {
+                    @Override
+                    public boolean accept(long ledgerId) {
+                        return metadata.containsLedger(ledgerId);
+                    }
+
+                    @Override
+                    public void process(long ledgerId, long offset, ByteBuf entry) throws IOException {
+                        long lid = entry.getLong(entry.readerIndex());
+                        long entryId = entry.getLong(entry.readerIndex() + 8);
+                        if (lid != ledgerId || entryId < -1) {
+                            LOG.warn("Scanning expected ledgerId {}, but found invalid entry "
+                                    + "with ledgerId {} entryId {} at offset {}",
+                                    ledgerId, lid, entryId, offset);
+                            throw new IOException("Invalid entry found @ offset " + offset);
+                        }
+                        locations.add(new EntryLocation(ledgerId, entryId, (logId << 32L) | (offset + 4)));
+                    }
+                });
+            }
+            locations.sort(LEDGER_ENTRY_ORDER);
+
+            for (EntryLocation location : locations) {
+                ByteBuf entry = entryLogger.readEntry(location.ledger, location.entry, location.location);
+                try {
+                    throttler.acquire(entry.readableBytes());
+                    long newOffset = mergeLog.addEntry(location.ledger, entry);
+                    offsets.add(new EntryLocation(location.ledger, location.entry, newOffset));
+                } finally {
+                    entry.release();
+                }
+            }
+        }
+
+        @Override
+        boolean complete() {
+            if (offsets.isEmpty()) {
+                // no valid entries left, delete the source logs
+                LOG.info("No valid entry is found in the entry logs to merge, removing them now.");
+                for (EntryLogMetadata metadata : sources) {
+                    logRemovalListener.removeEntryLog(metadata.getEntryLogId());
+                }
+                mergeLog.abort();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        void abort() {
+            offsets.clear();
+            // since we haven't flushed yet, we only need to delete the unflushed merge file.
+            mergeLog.abort();
+        }
+    }
+}
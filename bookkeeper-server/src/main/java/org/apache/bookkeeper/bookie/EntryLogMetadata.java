@@ -47,6 +47,17 @@ public class EntryLogMetadata {
                 .build();
     }
 
+    /**
+     * Constructor for subclasses which keep the ledgers of the entry log outside of the heap,
+     * and so override all the methods accessing {@link #ledgersMap}.
+     */
+    protected EntryLogMetadata(long logId, long totalSize, long remainingSize) {
+        this.ledgersMap = null;
+        this.entryLogId = logId;
+        this.totalSize = totalSize;
+        this.remainingSize = remainingSize;
+    }
+
     public EntryLogMetadata(long logId) {
         this();
         this.entryLogId = logId;
@@ -29,12 +29,17 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicLong;
 import lombok.Getter;
 import org.apache.bookkeeper.bookie.BookieException.EntryLogMetadataMapException;
@@ -83,6 +88,19 @@ public class GarbageCollectorThread implements Runnable {
     long majorCompactionMaxTimeMillis;
     long lastMajorCompactionTime;
 
+    // compactions longer than a time slice are left pending and resumed one time slice later
+    final long compactionTimeSliceMillis;
+    volatile boolean majorCompactionPending = false;
+    volatile boolean minorCompactionPending = false;
+    final AtomicBoolean compactionResumeScheduled = new AtomicBoolean(false);
+
+    // adapts the compaction rate to the foreground latency, null when the rate is fixed
+    final CompactionRateController compactionRateController;
+
+    // compacts several entry logs at the same time, null when they are compacted one by one
+    final int compactionParallelism;
+    final ExecutorService compactionExecutor;
+
     @Getter
     final boolean isForceGCAllowWhenNoSpace;
 
@@ -90,6 +108,10 @@ public class GarbageCollectorThread implements Runnable {
     final EntryLogger entryLogger;
     final AbstractLogCompactor compactor;
 
+    // merges the small entry logs written with entryLogPerLedger, null when disabled
+    final EntryLogMerger entryLogMerger;
+    final long entryLogMergeSizeThreshold;
+
     // Stats loggers for garbage collection operations
     private final GarbageCollectorStats gcStats;
 
@@ -216,7 +238,40 @@ public class GarbageCollectorThread implements Runnable {
             this.compactor = new EntryLogCompactor(conf, entryLogger, ledgerStorage, remover);
         }
 
+        if (conf.isEntryLogPerLedgerEnabled() && conf.getEntryLogMergeSizeThreshold() > 0) {
+            this.entryLogMerger = new EntryLogMerger(conf, entryLogger, ledgerStorage, remover);
+            this.entryLogMergeSizeThreshold = conf.getEntryLogMergeSizeThreshold();
+        } else {
+            this.entryLogMerger = null;
+            this.entryLogMergeSizeThreshold = 0;
+        }
+
         this.throttler = new AbstractLogCompactor.Throttler(conf);
+        this.compactionTimeSliceMillis = conf.getCompactionTimeSliceMillis();
+        if (conf.getCompactionParallelism() > 1 && compactor.supportsParallelCompaction()) {
+            this.compactionParallelism = conf.getCompactionParallelism();
+            this.compactionExecutor = Executors.newFixedThreadPool(compactionParallelism,
+                    new DefaultThreadFactory("GarbageCollectorThread-compaction"));
+        } else {
+            if (conf.getCompactionParallelism() > 1) {
+                LOG.info("Compactor {} compacts entry logs one by one, ignoring compaction parallelism {}",
+                        compactor.getClass().getSimpleName(), conf.getCompactionParallelism());
+            }
+            this.compactionParallelism = 1;
+            this.compactionExecutor = null;
+        }
+        if (conf.getCompactionForegroundLatencyTargetMillis() > 0) {
+            this.compactionRateController = new CompactionRateController(
+                    conf.getIsThrottleByBytes() ? conf.getCompactionRateByBytes() : conf.getCompactionRateByEntries(),
+                    conf.getCompactionForegroundLatencyTargetMillis());
+            this.throttler.setRateController(compactionRateController);
+            this.compactor.throttler.setRateController(compactionRateController);
+            if (entryLogMerger != null) {
+                this.entryLogMerger.throttler.setRateController(compactionRateController);
+            }
+        } else {
+            this.compactionRateController = null;
+        }
         if (minorCompactionInterval > 0 && minorCompactionThreshold > 0) {
             if (minorCompactionThreshold > 1.0d) {
                 throw new IOException("Invalid minor compaction threshold "
@@ -272,6 +327,9 @@ public class GarbageCollectorThread implements Runnable {
         if (conf.isGcEntryLogMetadataCacheEnabled()) {
             String baseDir = Strings.isNullOrEmpty(conf.getGcEntryLogMetadataCachePath())
                 ? this.ledgerDirsManager.getAllLedgerDirs().get(0).getPath() : conf.getGcEntryLogMetadataCachePath();
+            if ("mmap".equals(conf.getGcEntryLogMetadataCacheType())) {
+                return new MappedEntryLogMetadataMap(baseDir);
+            }
             try {
                 return new PersistentEntryLogMetadataMap(baseDir, conf);
             } catch (IOException e) {
@@ -408,6 +466,9 @@ public class GarbageCollectorThread implements Runnable {
         }
         // Recover and clean up previous state if using transactional compaction
         compactor.cleanUpAndRecover();
+        if (entryLogMerger != null) {
+            entryLogMerger.cleanUpAndRecover();
+        }
 
         try {
             // gc inactive/deleted ledgers
@@ -421,43 +482,11 @@ public class GarbageCollectorThread implements Runnable {
             // gc entry logs
             doGcEntryLogs();
 
-            if (suspendMajor) {
-                LOG.info("Disk almost full, suspend major compaction to slow down filling disk.");
-            }
-            if (suspendMinor) {
-                LOG.info("Disk full, suspend minor compaction to slow down filling disk.");
+            if (entryLogMerger != null && !suspendMajor && !suspendMinor) {
+                doMergeEntryLogs();
             }
 
-            long curTime = System.currentTimeMillis();
-            if (((isForceMajorCompactionAllow && force) || (enableMajorCompaction
-                    && (force || curTime - lastMajorCompactionTime > majorCompactionInterval)))
-                    && (!suspendMajor)) {
-                // enter major compaction
-                LOG.info("Enter major compaction, suspendMajor {}", suspendMajor);
-                majorCompacting.set(true);
-                try {
-                    doCompactEntryLogs(majorCompactionThreshold, majorCompactionMaxTimeMillis);
-                } finally {
-                    lastMajorCompactionTime = System.currentTimeMillis();
-                    // and also move minor compaction time
-                    lastMinorCompactionTime = lastMajorCompactionTime;
-                    gcStats.getMajorCompactionCounter().inc();
-                    majorCompacting.set(false);
-                }
-            } else if (((isForceMinorCompactionAllow && force) || (enableMinorCompaction
-                    && (force || curTime - lastMinorCompactionTime > minorCompactionInterval)))
-                    && (!suspendMinor)) {
-                // enter minor compaction
-                LOG.info("Enter minor compaction, suspendMinor {}", suspendMinor);
-                minorCompacting.set(true);
-                try {
-                    doCompactEntryLogs(minorCompactionThreshold, minorCompactionMaxTimeMillis);
-                } finally {
-                    lastMinorCompactionTime = System.currentTimeMillis();
-                    gcStats.getMinorCompactionCounter().inc();
-                    minorCompacting.set(false);
-                }
-            }
+            runCompaction(force, suspendMajor, suspendMinor);
             gcStats.getGcThreadRuntime().registerSuccessfulEvent(
                     MathUtils.nowInNano() - threadStart, TimeUnit.NANOSECONDS);
         } catch (EntryLogMetadataMapException e) {
@@ -474,6 +503,122 @@ public class GarbageCollectorThread implements Runnable {
 
     }
 
+    /**
+     * Run a major or a minor compaction if one is forced, pending or due, and not suspended.
+     */
+    private void runCompaction(boolean force, boolean suspendMajor, boolean suspendMinor)
+            throws EntryLogMetadataMapException {
+        if (suspendMajor) {
+            LOG.info("Disk almost full, suspend major compaction to slow down filling disk.");
+        }
+        if (suspendMinor) {
+            LOG.info("Disk full, suspend minor compaction to slow down filling disk.");
+        }
+
+        long curTime = System.currentTimeMillis();
+        if (((isForceMajorCompactionAllow && force) || (enableMajorCompaction
+                && (force || majorCompactionPending
+                    || curTime - lastMajorCompactionTime > majorCompactionInterval)))
+                && (!suspendMajor)) {
+            runMajorCompaction();
+        } else if (((isForceMinorCompactionAllow && force) || (enableMinorCompaction
+                && (force || minorCompactionPending
+                    || curTime - lastMinorCompactionTime > minorCompactionInterval)))
+                && (!suspendMinor)) {
+            runMinorCompaction();
+        }
+    }
+
+    private void runMajorCompaction() throws EntryLogMetadataMapException {
+        // enter major compaction
+        LOG.info("Enter major compaction, pending {}", majorCompactionPending);
+        majorCompacting.set(true);
+        boolean completed = false;
+        try {
+            completed = doCompactEntryLogs(majorCompactionThreshold,
+                    timeSliceLimit(majorCompactionMaxTimeMillis));
+        } finally {
+            majorCompactionPending = !completed && compactionTimeSliceMillis > 0;
+            if (!majorCompactionPending) {
+                lastMajorCompactionTime = System.currentTimeMillis();
+                // and also move minor compaction time
+                lastMinorCompactionTime = lastMajorCompactionTime;
+                minorCompactionPending = false;
+                gcStats.getMajorCompactionCounter().inc();
+            }
+            majorCompacting.set(false);
+        }
+        scheduleCompactionResume();
+    }
+
+    private void runMinorCompaction() throws EntryLogMetadataMapException {
+        // enter minor compaction
+        LOG.info("Enter minor compaction, pending {}", minorCompactionPending);
+        minorCompacting.set(true);
+        boolean completed = false;
+        try {
+            completed = doCompactEntryLogs(minorCompactionThreshold,
+                    timeSliceLimit(minorCompactionMaxTimeMillis));
+        } finally {
+            minorCompactionPending = !completed && compactionTimeSliceMillis > 0;
+            if (!minorCompactionPending) {
+                lastMinorCompactionTime = System.currentTimeMillis();
+                gcStats.getMinorCompactionCounter().inc();
+            }
+            minorCompacting.set(false);
+        }
+        scheduleCompactionResume();
+    }
+
+    /**
+     * @return the time limit of a compaction run, the smaller of its maximum time and the time slice
+     */
+    long timeSliceLimit(long maxTimeMillis) {
+        if (compactionTimeSliceMillis <= 0) {
+            return maxTimeMillis;
+        }
+        return maxTimeMillis > 0 ? Math.min(maxTimeMillis, compactionTimeSliceMillis) : compactionTimeSliceMillis;
+    }
+
+    private void scheduleCompactionResume() {
+        if ((majorCompactionPending || minorCompactionPending) && running
+                && compactionResumeScheduled.compareAndSet(false, true)) {
+            try {
+                gcExecutor.schedule(this::resumeCompaction, compactionTimeSliceMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                compactionResumeScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Continue a compaction left pending by its last time slice, without collecting garbage first. The
+     * compaction goes through the same disk full and force checks as a garbage collection run: a compaction
+     * suspended in the meantime stays pending until the next run that allows it.
+     */
+    @VisibleForTesting
+    void resumeCompaction() {
+        compactionResumeScheduled.set(false);
+        if (!running || !(majorCompactionPending || minorCompactionPending)) {
+            return;
+        }
+        try {
+            runCompaction(forceGarbageCollection.get(), suspendMajorCompaction.get(), suspendMinorCompaction.get());
+        } catch (EntryLogMetadataMapException e) {
+            LOG.error("Error in entryLog-metadatamap, Failed to resume compaction due to entry-log {}",
+                    e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Record the latency of a foreground add, journal included, or read, to adapt the compaction rate.
+     */
+    public void recordForegroundLatency(long latencyNanos) {
+        if (compactionRateController != null) {
+            compactionRateController.recordForegroundLatency(latencyNanos);
+        }
+    }
+
     /**
      * Do garbage collection ledger index files.
      */
@@ -535,31 +680,92 @@ public class GarbageCollectorThread implements Runnable {
         return modified.getValue();
     }
 
+    /**
+     * Merge the entry logs whose remaining size is below the merge threshold, oldest first, into
+     * entry logs of up to the entry log size limit.
+     */
+    @VisibleForTesting
+    void doMergeEntryLogs() throws EntryLogMetadataMapException {
+        List<EntryLogMetadata> candidates = new ArrayList<>();
+        entryLogMetaMap.forEach((entryLogId, meta) -> {
+            if (!meta.isEmpty() && meta.getRemainingSize() < entryLogMergeSizeThreshold) {
+                // copy the metadata, as the map may recycle it once the action returns
+                EntryLogMetadata copy = new EntryLogMetadata(entryLogId);
+                meta.getLedgersMap().forEach(copy::addLedgerSize);
+                candidates.add(copy);
+            }
+        });
+        if (candidates.size() < 2) {
+            return;
+        }
+        candidates.sort(Comparator.comparingLong(EntryLogMetadata::getEntryLogId));
+
+        List<EntryLogMetadata> batch = new ArrayList<>();
+        long batchSize = 0;
+        for (EntryLogMetadata candidate : candidates) {
+            if (!running) {
+                return;
+            }
+            if (!batch.isEmpty() && batchSize + candidate.getRemainingSize() > conf.getEntryLogSizeLimit()) {
+                mergeEntryLogs(batch);
+                batch = new ArrayList<>();
+                batchSize = 0;
+            }
+            batch.add(candidate);
+            batchSize += candidate.getRemainingSize();
+        }
+        if (running) {
+            mergeEntryLogs(batch);
+        }
+    }
+
+    private void mergeEntryLogs(List<EntryLogMetadata> batch) {
+        if (batch.size() < 2) {
+            return;
+        }
+        // see compactEntryLog
+        if (!compacting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            entryLogMerger.merge(batch);
+        } catch (Exception e) {
+            LOG.error("Failed to merge entry logs starting with {} due to unexpected error",
+                    batch.get(0).getEntryLogId(), e);
+        } finally {
+            compacting.set(false);
+        }
+    }
+
     /**
      * Compact entry logs if necessary.
      *
      * <p>
-     * Compaction will be executed from low unused space to high unused space.
+     * Compaction will be executed from the entry logs that reclaim the most space per byte of
+     * disk IO to those that reclaim the least. Compacting an entry log reads all of it and
+     * rewrites its remaining entries, so it reclaims (total - remaining) bytes for
+     * (total + remaining) bytes of IO.
      * Those entry log files whose remaining size percentage is higher than threshold
      * would not be compacted.
      * </p>
+     *
+     * @return true if all the entry logs below the threshold were compacted, false if compaction
+     *         stopped early
      */
     @VisibleForTesting
-    void doCompactEntryLogs(double threshold, long maxTimeMillis) throws EntryLogMetadataMapException {
+    boolean doCompactEntryLogs(double threshold, long maxTimeMillis) throws EntryLogMetadataMapException {
         LOG.info("Do compaction to compact those files lower than {}", threshold);
 
         final int numBuckets = 10;
         int[] entryLogUsageBuckets = new int[numBuckets];
-        int[] compactedBuckets = new int[numBuckets];
+        AtomicIntegerArray compactedBuckets = new AtomicIntegerArray(numBuckets);
 
-        ArrayList<LinkedList<Long>> compactableBuckets = new ArrayList<>(numBuckets);
-        for (int i = 0; i < numBuckets; i++) {
-            compactableBuckets.add(new LinkedList<>());
-        }
+        List<CompactionCandidate> candidates = new ArrayList<>();
 
         long start = System.currentTimeMillis();
         MutableLong end = new MutableLong(start);
         MutableLong timeDiff = new MutableLong(0);
+        MutableBoolean truncated = new MutableBoolean(false);
 
         entryLogMetaMap.forEach((entryLogId, meta) -> {
             double usage = meta.getUsage();
@@ -573,57 +779,70 @@ public class GarbageCollectorThread implements Runnable {
                 end.setValue(System.currentTimeMillis());
                 timeDiff.setValue(end.getValue() - start);
             }
-            if ((usage >= threshold
-                || (maxTimeMillis > 0 && timeDiff.getValue() >= maxTimeMillis)
-                || !running)) {
+            if (usage >= threshold) {
+                return;
+            }
+            if ((maxTimeMillis > 0 && timeDiff.getValue() >= maxTimeMillis) || !running) {
                 // We allow the usage limit calculation to continue so that we get an accurate
                 // report of where the usage was prior to running compaction.
+                truncated.setTrue();
                 return;
             }
 
-            compactableBuckets.get(bucketIndex).add(meta.getEntryLogId());
+            candidates.add(new CompactionCandidate(meta.getEntryLogId(), bucketIndex,
+                    reclaimedBytesPerIoByte(meta.getTotalSize(), meta.getRemainingSize())));
         });
 
         LOG.info(
                 "Compaction: entry log usage buckets before compaction [10% 20% 30% 40% 50% 60% 70% 80% 90% 100%] = {}",
                 entryLogUsageBuckets);
 
-        final int maxBucket = calculateUsageIndex(numBuckets, threshold);
-        stopCompaction:
-        for (int currBucket = 0; currBucket <= maxBucket; currBucket++) {
-            LinkedList<Long> entryLogIds = compactableBuckets.get(currBucket);
-            while (!entryLogIds.isEmpty()) {
+        candidates.sort(CompactionCandidate.MOST_RECLAIMED_PER_IO_FIRST);
+        final boolean parallel = compactionExecutor != null;
+        // in parallel mode the compacting flag is held for the whole pass instead of for each entry log
+        if (parallel && !compacting.compareAndSet(false, true)) {
+            return false;
+        }
+        final Semaphore compactionSlots = new Semaphore(compactionParallelism);
+        try {
+            for (CompactionCandidate candidate : candidates) {
                 if (timeDiff.getValue() < maxTimeMillis) {
                     end.setValue(System.currentTimeMillis());
                     timeDiff.setValue(end.getValue() - start);
                 }
 
                 if ((maxTimeMillis > 0 && timeDiff.getValue() >= maxTimeMillis) || !running) {
-                    // We allow the usage limit calculation to continue so that we get an accurate
-                    // report of where the usage was prior to running compaction.
-                    break stopCompaction;
+                    truncated.setTrue();
+                    break;
                 }
 
-                final int bucketIndex = currBucket;
-                final long logId = entryLogIds.remove();
-
-                entryLogMetaMap.forKey(logId, (entryLogId, meta) -> {
-                    if (meta == null) {
-                        if (LOG.isDebugEnabled()) {
-                            LOG.debug("Metadata for entry log {} already deleted", logId);
+                if (!parallel) {
+                    compactCandidate(candidate, threshold, compactedBuckets, false);
+                    continue;
+                }
+                compactionSlots.acquireUninterruptibly();
+                try {
+                    compactionExecutor.execute(() -> {
+                        try {
+                            compactCandidate(candidate, threshold, compactedBuckets, true);
+                        } catch (EntryLogMetadataMapException e) {
+                            LOG.error("Failed to compact entry log {} due to entry-log metadata error",
+                                    candidate.entryLogId, e);
+                        } finally {
+                            compactionSlots.release();
                         }
-                        return;
-                    }
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug("Compacting entry log {} with usage {} below threshold {}",
-                                meta.getEntryLogId(), meta.getUsage(), threshold);
-                    }
-
-                    long priorRemainingSize = meta.getRemainingSize();
-                    compactEntryLog(meta);
-                    gcStats.getReclaimedSpaceViaCompaction().addCount(meta.getTotalSize() - priorRemainingSize);
-                    compactedBuckets[bucketIndex]++;
-                });
+                    });
+                } catch (RejectedExecutionException e) {
+                    compactionSlots.release();
+                    truncated.setTrue();
+                    break;
+                }
+            }
+        } finally {
+            if (parallel) {
+                // wait for the running compactions
+                compactionSlots.acquireUninterruptibly(compactionParallelism);
+                compacting.set(false);
             }
         }
 
@@ -638,6 +857,57 @@ public class GarbageCollectorThread implements Runnable {
         LOG.info(
                 "Compaction: entry log usage buckets[10% 20% 30% 40% 50% 60% 70% 80% 90% 100%] = {}, compacted {}",
                 entryLogUsageBuckets, compactedBuckets);
+        return !truncated.booleanValue();
+    }
+
+    private void compactCandidate(CompactionCandidate candidate, double threshold,
+                                  AtomicIntegerArray compactedBuckets, boolean holdingCompactingFlag)
+            throws EntryLogMetadataMapException {
+        final long logId = candidate.entryLogId;
+        entryLogMetaMap.forKey(logId, (entryLogId, meta) -> {
+            if (meta == null) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Metadata for entry log {} already deleted", logId);
+                }
+                return;
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Compacting entry log {} with usage {} below threshold {}",
+                        meta.getEntryLogId(), meta.getUsage(), threshold);
+            }
+
+            long priorRemainingSize = meta.getRemainingSize();
+            if (holdingCompactingFlag) {
+                doCompactEntryLog(meta);
+            } else {
+                compactEntryLog(meta);
+            }
+            gcStats.getReclaimedSpaceViaCompaction().addCount(meta.getTotalSize() - priorRemainingSize);
+            compactedBuckets.incrementAndGet(candidate.bucketIndex);
+        });
+    }
+
+    static double reclaimedBytesPerIoByte(long totalSize, long remainingSize) {
+        long ioBytes = totalSize + remainingSize;
+        return ioBytes > 0 ? (double) (totalSize - remainingSize) / ioBytes : 0;
+    }
+
+    /**
+     * An entry log eligible for compaction.
+     */
+    private static final class CompactionCandidate {
+        static final Comparator<CompactionCandidate> MOST_RECLAIMED_PER_IO_FIRST =
+                Comparator.comparingDouble((CompactionCandidate c) -> c.reclaimedPerIo).reversed();
+
+        final long entryLogId;
+        final int bucketIndex;
+        final double reclaimedPerIo;
+
+        CompactionCandidate(long entryLogId, int bucketIndex, double reclaimedPerIo) {
+            this.entryLogId = entryLogId;
+            this.bucketIndex = bucketIndex;
+            this.reclaimedPerIo = reclaimedPerIo;
+        }
     }
 
     /**
@@ -675,6 +945,9 @@ public class GarbageCollectorThread implements Runnable {
         this.running = false;
         // Interrupt GC executor thread
         gcExecutor.shutdownNow();
+        if (compactionExecutor != null) {
+            compactionExecutor.shutdownNow();
+        }
         try {
             entryLogMetaMap.close();
         } catch (Exception e) {
@@ -714,14 +987,20 @@ public class GarbageCollectorThread implements Runnable {
             return;
         }
 
+        try {
+            doCompactEntryLog(entryLogMeta);
+        } finally {
+            // Mark compaction done
+            compacting.set(false);
+        }
+    }
+
+    private void doCompactEntryLog(EntryLogMetadata entryLogMeta) {
         try {
             // Do the actual compaction
             compactor.compact(entryLogMeta);
         } catch (Exception e) {
             LOG.error("Failed to compact entry log {} due to unexpected error", entryLogMeta.getEntryLogId(), e);
-        } finally {
-            // Mark compaction done
-            compacting.set(false);
         }
     }
 
@@ -254,6 +254,11 @@ public class InterleavedLedgerStorage implements CompactableLedgerStorage, Entry
         };
     }
 
+    @Override
+    public void recordAddLatency(long latencyNanos) {
+        gcThread.recordForegroundLatency(latencyNanos);
+    }
+
     @Override
     public void forceGC() {
         gcThread.enableForceGC();
@@ -439,7 +444,9 @@ public class InterleavedLedgerStorage implements CompactableLedgerStorage, Entry
             return retBytes;
         } finally {
             if (success) {
-                getEntryStats.registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+                long elapsedNanos = MathUtils.elapsedNanos(startTimeNanos);
+                getEntryStats.registerSuccessfulEvent(elapsedNanos, TimeUnit.NANOSECONDS);
+                gcThread.recordForegroundLatency(elapsedNanos);
             } else {
                 getEntryStats.registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
             }
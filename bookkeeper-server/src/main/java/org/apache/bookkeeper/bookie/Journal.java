@@ -41,8 +41,11 @@ import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
 import org.apache.bookkeeper.bookie.LedgerDirsManager.NoWritableLedgerDirException;
 import org.apache.bookkeeper.bookie.stats.JournalStats;
 import org.apache.bookkeeper.common.collections.BatchedArrayBlockingQueue;
@@ -61,6 +64,7 @@ import org.apache.bookkeeper.stats.StatsLogger;
 import org.apache.bookkeeper.stats.ThreadRegistry;
 import org.apache.bookkeeper.util.IOUtils;
 import org.apache.bookkeeper.util.MathUtils;
+import org.apache.commons.lang3.mutable.MutableBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -94,6 +98,63 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
 
 
 
+    static final String STRIPE_DIR_PREFIX = "stripe-";
+
+    /**
+     * Get the directories of all the journals hosted by the given journal directories.
+     *
+     * <p>The first journal of each directory writes in the directory itself, additional journals write in
+     * <i>stripe-N</i> sub-directories. The returned list is ordered by journal index: the journals of the first
+     * stripe come first, so that journal indexes do not change when more journals per directory are configured.
+     *
+     * @param journalDirs the journal current directories
+     * @param journalsPerDirectory number of journals hosted by each directory
+     * @return the directories of all the journals, ordered by journal index
+     */
+    public static List<File> getJournalStripeDirectories(List<File> journalDirs, int journalsPerDirectory) {
+        List<File> dirs = new ArrayList<>(journalDirs.size() * journalsPerDirectory);
+        for (int stripe = 0; stripe < journalsPerDirectory; stripe++) {
+            for (File journalDir : journalDirs) {
+                dirs.add(stripe == 0 ? journalDir : new File(journalDir, STRIPE_DIR_PREFIX + stripe));
+            }
+        }
+        return dirs;
+    }
+
+    /**
+     * Get the stripe directories left by a larger number of journals per directory.
+     *
+     * <p>The journals of these directories are not part of the journals of the bookie anymore, so their entries
+     * would not be replayed. Their journal indexes follow the ordering of {@link #getJournalStripeDirectories}.
+     *
+     * @param journalDirs the journal current directories
+     * @param journalsPerDirectory number of journals hosted by each directory
+     * @return the orphaned stripe directories, keyed by the journal index they were used with
+     */
+    public static SortedMap<Integer, File> getOrphanedJournalStripeDirectories(List<File> journalDirs,
+                                                                              int journalsPerDirectory) {
+        SortedMap<Integer, File> orphans = new TreeMap<>();
+        for (int dirIdx = 0; dirIdx < journalDirs.size(); dirIdx++) {
+            File[] stripeDirs = journalDirs.get(dirIdx).listFiles(
+                    f -> f.isDirectory() && f.getName().startsWith(STRIPE_DIR_PREFIX));
+            if (stripeDirs == null) {
+                continue;
+            }
+            for (File stripeDir : stripeDirs) {
+                int stripe;
+                try {
+                    stripe = Integer.parseInt(stripeDir.getName().substring(STRIPE_DIR_PREFIX.length()));
+                } catch (NumberFormatException nfe) {
+                    continue;
+                }
+                if (stripe >= journalsPerDirectory) {
+                    orphans.put(stripe * journalDirs.size() + dirIdx, stripeDir);
+                }
+            }
+        }
+        return orphans;
+    }
+
     /**
      * List all journal ids by a specified journal id filer.
      *
@@ -302,6 +363,8 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
         Object ctx;
         long enqueueTime;
         boolean ackBeforeSync;
+        long addStartTime;
+        LongConsumer addLatencyListener;
 
         OpStatsLogger journalAddEntryStats;
         Counter callbackTime;
@@ -309,6 +372,13 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
         static QueueEntry create(ByteBuf entry, boolean ackBeforeSync, long ledgerId, long entryId,
                 WriteCallback cb, Object ctx, long enqueueTime, OpStatsLogger journalAddEntryStats,
                 Counter callbackTime) {
+            return create(entry, ackBeforeSync, ledgerId, entryId, cb, ctx, enqueueTime, journalAddEntryStats,
+                    callbackTime, enqueueTime, null);
+        }
+
+        static QueueEntry create(ByteBuf entry, boolean ackBeforeSync, long ledgerId, long entryId,
+                WriteCallback cb, Object ctx, long enqueueTime, OpStatsLogger journalAddEntryStats,
+                Counter callbackTime, long addStartTime, LongConsumer addLatencyListener) {
             QueueEntry qe = RECYCLER.get();
             qe.entry = entry;
             qe.ackBeforeSync = ackBeforeSync;
@@ -319,6 +389,8 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
             qe.enqueueTime = enqueueTime;
             qe.journalAddEntryStats = journalAddEntryStats;
             qe.callbackTime = callbackTime;
+            qe.addStartTime = addStartTime;
+            qe.addLatencyListener = addLatencyListener;
             return qe;
         }
 
@@ -329,6 +401,9 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
                 LOG.debug("Acknowledge Ledger: {}, Entry: {}", ledgerId, entryId);
             }
             journalAddEntryStats.registerSuccessfulEvent(MathUtils.elapsedNanos(enqueueTime), TimeUnit.NANOSECONDS);
+            if (addLatencyListener != null) {
+                addLatencyListener.accept(MathUtils.elapsedNanos(addStartTime));
+            }
             cb.writeComplete(0, ledgerId, entryId, null, ctx);
             callbackTime.addLatency(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
             recycle();
@@ -357,6 +432,7 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
             this.ctx = null;
             this.journalAddEntryStats = null;
             this.callbackTime = null;
+            this.addLatencyListener = null;
             recyclerHandle.recycle(this);
         }
     }
@@ -537,8 +613,11 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
             long fsyncStartTime = MathUtils.nowInNano();
             try {
                 lastRequest.flushFileToDisk();
-                journalStats.getJournalSyncStats().registerSuccessfulEvent(MathUtils.elapsedNanos(fsyncStartTime),
-                        TimeUnit.NANOSECONDS);
+                long fsyncLatency = MathUtils.elapsedNanos(fsyncStartTime);
+                journalStats.getJournalSyncStats().registerSuccessfulEvent(fsyncLatency, TimeUnit.NANOSECONDS);
+                if (groupCommitPolicy != null) {
+                    groupCommitPolicy.recordFsync(fsyncLatency);
+                }
                 lastLogMark.setCurLogMark(lastRequest.logId, lastRequest.lastFlushedPosition);
             } catch (IOException ioe) {
                 journalStats.getJournalSyncStats()
@@ -617,6 +696,8 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
     private final long bufferedWritesThreshold;
     // should we flush if the queue is empty
     private final boolean flushWhenQueueEmpty;
+    // adaptive group commit parameters, null if adaptive group commit is disabled
+    private final JournalGroupCommitPolicy groupCommitPolicy;
     // should we hint the filesystem to remove pages from cache after force write
     private final boolean removePagesFromCache;
     private final int journalFormatVersionToWrite;
@@ -653,6 +734,8 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
 
     private JournalAliveListener journalAliveListener;
 
+    private volatile LongConsumer addLatencyListener;
+
     public Journal(int journalIndex, File journalDirectory, ServerConfiguration conf,
             LedgerDirsManager ledgerDirsManager) {
         this(journalIndex, journalDirectory, conf, ledgerDirsManager, NullStatsLogger.INSTANCE,
@@ -676,7 +759,8 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
         }
 
         // Adjust the journal max memory in case there are multiple journals configured.
-        long journalMaxMemory = conf.getJournalMaxMemorySizeMb() / conf.getJournalDirNames().length * 1024 * 1024;
+        long journalMaxMemory = conf.getJournalMaxMemorySizeMb()
+                / (conf.getJournalDirNames().length * conf.getJournalsPerDirectory()) * 1024 * 1024;
         this.memoryLimitController = new MemoryLimitController(journalMaxMemory);
         this.ledgerDirsManager = ledgerDirsManager;
         this.conf = conf;
@@ -702,10 +786,14 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
         // Unless there is a cap on the max wait (which requires group force writes)
         // we cannot skip flushing for queue empty
         this.flushWhenQueueEmpty = maxGroupWaitInNanos <= 0 || conf.getJournalFlushWhenQueueEmpty();
+        this.groupCommitPolicy = conf.getJournalAdaptiveGroupCommit()
+                ? new JournalGroupCommitPolicy(maxGroupWaitInNanos, bufferedEntriesThreshold,
+                        bufferedWritesThreshold, flushWhenQueueEmpty)
+                : null;
 
         this.removePagesFromCache = conf.getJournalRemovePagesFromCache();
         // read last log mark
-        if (conf.getJournalDirs().length == 1) {
+        if (conf.getJournalDirs().length == 1 && journalIndex == 0) {
             lastMarkFileName = LAST_MARK_DEFAULT_NAME;
         } else {
             lastMarkFileName = LAST_MARK_DEFAULT_NAME + "." + journalIndex;
@@ -724,7 +812,7 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
 
         // Expose Stats
         this.journalStats = new JournalStats(journalStatsLogger, journalMaxMemory,
-                () -> memoryLimitController.currentUsage());
+                () -> memoryLimitController.currentUsage(), groupCommitPolicy);
     }
 
     public Journal(int journalIndex, File journalDirectory, ServerConfiguration conf,
@@ -879,6 +967,14 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
         }
     }
 
+    /**
+     * Set the listener notified, once the journal acknowledges an add started with
+     * {@link #logAddEntry(ByteBuf, boolean, WriteCallback, Object, long)}, of the latency of the add.
+     */
+    public void setAddLatencyListener(LongConsumer addLatencyListener) {
+        this.addLatencyListener = addLatencyListener;
+    }
+
     /**
      * record an add entry operation in journal.
      */
@@ -889,10 +985,27 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
         logAddEntry(ledgerId, entryId, entry, ackBeforeSync, cb, ctx);
     }
 
+    /**
+     * record an add entry operation in journal, for an add that started at {@code addStartTime}, so that
+     * its latency, ledger storage and journal included, is reported to the add latency listener.
+     */
+    public void logAddEntry(ByteBuf entry, boolean ackBeforeSync, WriteCallback cb, Object ctx, long addStartTime)
+            throws InterruptedException {
+        long ledgerId = entry.getLong(entry.readerIndex() + 0);
+        long entryId = entry.getLong(entry.readerIndex() + 8);
+        logAddEntry(ledgerId, entryId, entry, ackBeforeSync, cb, ctx, addStartTime, addLatencyListener);
+    }
+
     @VisibleForTesting
     public void logAddEntry(long ledgerId, long entryId, ByteBuf entry,
                             boolean ackBeforeSync, WriteCallback cb, Object ctx)
             throws InterruptedException {
+        logAddEntry(ledgerId, entryId, entry, ackBeforeSync, cb, ctx, MathUtils.nowInNano(), null);
+    }
+
+    private void logAddEntry(long ledgerId, long entryId, ByteBuf entry, boolean ackBeforeSync,
+                             WriteCallback cb, Object ctx, long addStartTime, LongConsumer addLatencyListener)
+            throws InterruptedException {
         // Retain entry until it gets written to journal
         entry.retain();
 
@@ -903,7 +1016,32 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
         queue.put(QueueEntry.create(
                 entry, ackBeforeSync, ledgerId, entryId, cb, ctx, MathUtils.nowInNano(),
                 journalStats.getJournalAddEntryStats(),
-                callbackTime));
+                callbackTime, addStartTime, addLatencyListener));
+    }
+
+    /**
+     * record several add entry operations in journal with a single queue submission, for adds that
+     * started at {@code addStartTime}.
+     */
+    public void logAddEntries(List<ByteBuf> entries, boolean ackBeforeSync, WriteCallback cb, Object ctx,
+                              long addStartTime)
+            throws InterruptedException {
+        QueueEntry[] queueEntries = new QueueEntry[entries.size()];
+        long enqueueTime = MathUtils.nowInNano();
+        for (int i = 0; i < queueEntries.length; i++) {
+            ByteBuf entry = entries.get(i);
+            // Retain entry until it gets written to journal
+            entry.retain();
+            memoryLimitController.reserveMemory(entry.readableBytes());
+            queueEntries[i] = QueueEntry.create(
+                    entry, ackBeforeSync, entry.getLong(entry.readerIndex()), entry.getLong(entry.readerIndex() + 8),
+                    cb, ctx, enqueueTime, journalStats.getJournalAddEntryStats(), callbackTime,
+                    addStartTime, addLatencyListener);
+        }
+
+        journalStats.getJournalQueueSize().addCount(queueEntries.length);
+
+        queue.putAll(queueEntries, 0, queueEntries.length);
     }
 
     void forceLedger(long ledgerId, WriteCallback cb, Object ctx) {
@@ -977,6 +1115,12 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
             long dequeueStartTime = 0L;
             long lastFlushTimeMs = System.currentTimeMillis();
 
+            // Group commit parameters, refreshed after each flush when adaptive group commit is enabled
+            long maxGroupWaitInNanos = this.maxGroupWaitInNanos;
+            long bufferedEntriesThreshold = this.bufferedEntriesThreshold;
+            long bufferedWritesThreshold = this.bufferedWritesThreshold;
+            boolean flushWhenQueueEmpty = this.flushWhenQueueEmpty;
+
             final ObjectHashSet<BookieRequestHandler> writeHandlers = new ObjectHashSet<>();
             QueueEntry[] localQueueEntries = new QueueEntry[conf.getJournalQueueSize()];
             int localQueueEntriesIdx = 0;
@@ -1143,6 +1287,13 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
                                     toFlush, shouldRolloverJournal));
                             lastFlushTimeMs = System.currentTimeMillis();
                         }
+                        if (groupCommitPolicy != null) {
+                            groupCommitPolicy.recordFlush(toFlush.size(), batchSize, MathUtils.nowInNano());
+                            maxGroupWaitInNanos = groupCommitPolicy.getGroupWaitNanos();
+                            bufferedEntriesThreshold = groupCommitPolicy.getEntriesThreshold();
+                            bufferedWritesThreshold = groupCommitPolicy.getBytesThreshold();
+                            flushWhenQueueEmpty = groupCommitPolicy.isFlushWhenQueueEmpty();
+                        }
                         toFlush = entryListRecycler.newInstance();
                         numEntriesToFlush = 0;
 
@@ -1278,4 +1429,21 @@ public class Journal extends BookieCriticalThread implements CheckpointSource {
     long getMemoryUsage() {
         return memoryLimitController.currentUsage();
     }
+
+    /**
+     * Check whether the journal holds entries after its last log mark, that is entries which would be replayed.
+     */
+    boolean hasEntriesAfterLastMark() throws IOException {
+        final LogMark markedLog = lastLogMark.getCurMark();
+        List<Long> logs = listJournalIds(journalDirectory, journalId -> journalId >= markedLog.getLogFileId());
+        final MutableBoolean found = new MutableBoolean(false);
+        for (Long id : logs) {
+            long logPosition = id == markedLog.getLogFileId() ? markedLog.getLogFileOffset() : 0L;
+            scanJournal(id, logPosition, (journalVersion, offset, entry) -> found.setTrue());
+            if (found.isTrue()) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,136 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive sizing of the journal group commit parameters.
+ *
+ * <p>The policy keeps an exponentially weighted moving average of the fsync latency observed by the
+ * force write thread and of the entry arrival rate and entry size observed by the journal thread. From
+ * these it derives the group wait and the flush thresholds: there is no point in waiting for more than
+ * one fsync worth of time, and a batch only needs to be as large as the number of entries expected to
+ * arrive during one fsync. When fewer than one entry is expected to arrive during an fsync, grouping
+ * only adds latency and the journal is flushed as soon as its queue is empty.
+ *
+ * <p>The statically configured group wait and thresholds act as upper bounds for the adaptive values.
+ */
+public class JournalGroupCommitPolicy {
+
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final long maxGroupWaitNanos;
+    private final long maxEntriesThreshold;
+    private final long maxBytesThreshold;
+    private final boolean configuredFlushWhenQueueEmpty;
+
+    // Updated by the force write thread
+    private volatile double fsyncLatencyNanos = -1;
+
+    // Updated by the journal thread
+    private double arrivalRatePerNano = -1;
+    private double avgEntrySize = -1;
+    private long lastFlushTimeNanos = -1;
+
+    private volatile long groupWaitNanos;
+    private volatile long entriesThreshold;
+    private volatile long bytesThreshold;
+    private volatile boolean flushWhenQueueEmpty;
+
+    public JournalGroupCommitPolicy(long maxGroupWaitNanos, long maxEntriesThreshold, long maxBytesThreshold,
+                                    boolean flushWhenQueueEmpty) {
+        this.maxGroupWaitNanos = maxGroupWaitNanos;
+        this.maxEntriesThreshold = maxEntriesThreshold > 0 ? maxEntriesThreshold : Long.MAX_VALUE;
+        this.maxBytesThreshold = maxBytesThreshold;
+        this.configuredFlushWhenQueueEmpty = flushWhenQueueEmpty;
+
+        this.groupWaitNanos = maxGroupWaitNanos;
+        this.entriesThreshold = maxEntriesThreshold;
+        this.bytesThreshold = maxBytesThreshold;
+        this.flushWhenQueueEmpty = flushWhenQueueEmpty;
+    }
+
+    /**
+     * Record the latency of a journal fsync. Called by the force write thread.
+     */
+    void recordFsync(long latencyNanos) {
+        double current = fsyncLatencyNanos;
+        fsyncLatencyNanos = current < 0 ? latencyNanos : ewma(current, latencyNanos);
+    }
+
+    /**
+     * Record a journal flush and recompute the group commit parameters. Called by the journal thread.
+     *
+     * @param numEntries number of entries included in the flush
+     * @param numBytes number of bytes included in the flush
+     * @param nowNanos the current time, in nanoseconds
+     */
+    void recordFlush(long numEntries, long numBytes, long nowNanos) {
+        if (lastFlushTimeNanos > 0 && nowNanos > lastFlushTimeNanos && numEntries > 0) {
+            double rate = (double) numEntries / (nowNanos - lastFlushTimeNanos);
+            arrivalRatePerNano = arrivalRatePerNano < 0 ? rate : ewma(arrivalRatePerNano, rate);
+            double size = (double) numBytes / numEntries;
+            avgEntrySize = avgEntrySize < 0 ? size : ewma(avgEntrySize, size);
+        }
+        lastFlushTimeNanos = nowNanos;
+        recompute();
+    }
+
+    private void recompute() {
+        double fsync = fsyncLatencyNanos;
+        if (fsync < 0 || arrivalRatePerNano < 0 || maxGroupWaitNanos <= 0) {
+            // Not enough samples yet, or grouping disabled: stick to the configured values
+            return;
+        }
+
+        double expectedArrivals = arrivalRatePerNano * fsync;
+        groupWaitNanos = Math.min(maxGroupWaitNanos, (long) fsync);
+        entriesThreshold = Math.max(1L, Math.min(maxEntriesThreshold, (long) Math.ceil(expectedArrivals)));
+        bytesThreshold = Math.max(1L, Math.min(maxBytesThreshold, (long) (entriesThreshold * avgEntrySize)));
+        flushWhenQueueEmpty = configuredFlushWhenQueueEmpty || expectedArrivals < 1.0;
+    }
+
+    private static double ewma(double current, double sample) {
+        return current + EWMA_ALPHA * (sample - current);
+    }
+
+    public long getGroupWaitNanos() {
+        return groupWaitNanos;
+    }
+
+    public long getEntriesThreshold() {
+        return entriesThreshold;
+    }
+
+    public long getBytesThreshold() {
+        return bytesThreshold;
+    }
+
+    public boolean isFlushWhenQueueEmpty() {
+        return flushWhenQueueEmpty;
+    }
+
+    public long getFsyncLatencyMicros() {
+        double fsync = fsyncLatencyNanos;
+        return fsync < 0 ? -1L : TimeUnit.NANOSECONDS.toMicros((long) fsync);
+    }
+}
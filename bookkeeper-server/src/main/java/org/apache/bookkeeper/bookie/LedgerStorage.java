@@ -24,6 +24,7 @@ package org.apache.bookkeeper.bookie;
 import com.google.common.util.concurrent.RateLimiter;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.FileRegion;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -144,6 +145,21 @@ public interface LedgerStorage {
      */
     ByteBuf getEntry(long ledgerId, long entryId) throws IOException, BookieException;
 
+    /**
+     * Locate an entry in the storage files, so that it can be transferred to a socket without
+     * being copied into user space.
+     *
+     * <p>Storage implementations return null whenever the entry is not eligible: entries smaller than
+     * <i>minSize</i>, entries still held in memory, or storages that don't support it. Callers are
+     * expected to fall back to {@link #getEntry(long, long)} in that case.
+     *
+     * @return a file region covering the entry bytes, or null
+     */
+    default FileRegion getEntryRegion(long ledgerId, long entryId, int minSize)
+            throws IOException, BookieException {
+        return null;
+    }
+
     /**
      * Get last add confirmed.
      *
@@ -222,6 +238,13 @@ public interface LedgerStorage {
         return this;
     }
 
+    /**
+     * Record the latency of an add of the bookie, from its start in the ledger storage to its acknowledgement
+     * by the journal, for the ledger storages that adapt their compaction rate to the foreground latency.
+     */
+    default void recordAddLatency(long latencyNanos) {
+    }
+
     /**
      * Force trigger Garbage Collection.
      */
@@ -0,0 +1,177 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.util.concurrent.RateLimiter;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.meta.LedgerManager.LedgerRangeIterator;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.LedgerMetadataListener;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An incrementally maintained set of the ledgers which exist in the metadata store.
+ *
+ * <p>The set is a bloom filter, populated by a full scan of the metadata store and by the ledgers
+ * later found alive. A bloom filter has no false negatives, so a ledger which is not in it was not
+ * in the metadata store at the time of the scan. Ledgers deleted after the scan are reported by
+ * the ledger metadata watches set on the local ledgers with {@link #watch(long)}.
+ *
+ * <p>Both kinds of candidates still need to be verified against the metadata store before their
+ * data is removed: the filter misses the ledgers created after the scan.
+ *
+ * <p>Registering a watch reads the ledger metadata, so new watches are rate limited. A ledger which
+ * is not watched yet is still checked against the filter, and is watched by a later run.
+ */
+class LiveLedgerSet implements LedgerMetadataListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LiveLedgerSet.class);
+
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private final LedgerManager ledgerManager;
+    private final long expectedLedgers;
+    private final RateLimiter watchRateLimiter;
+
+    private volatile BloomFilter<Long> liveLedgers = null;
+    private long numScannedLedgers = 0;
+
+    private final Set<Long> watchedLedgers = ConcurrentHashMap.newKeySet();
+    private final Set<Long> deletedLedgers = ConcurrentHashMap.newKeySet();
+
+    LiveLedgerSet(LedgerManager ledgerManager, long expectedLedgers, int maxWatchesPerSecond) {
+        this.ledgerManager = ledgerManager;
+        this.expectedLedgers = expectedLedgers;
+        this.watchRateLimiter = maxWatchesPerSecond > 0 ? RateLimiter.create(maxWatchesPerSecond) : null;
+    }
+
+    /**
+     * Rebuild the set from a full scan of the ledgers of the metadata store.
+     *
+     * @return the number of ledgers found in the metadata store
+     */
+    long rebuild(long zkOpTimeoutMs) throws IOException {
+        long expected = Math.max(expectedLedgers, numScannedLedgers + numScannedLedgers / 2);
+        BloomFilter<Long> filter = BloomFilter.create(Funnels.longFunnel(), expected, FALSE_POSITIVE_PROBABILITY);
+        long count = 0;
+        LedgerRangeIterator iterator = ledgerManager.getLedgerRanges(zkOpTimeoutMs);
+        while (iterator.hasNext()) {
+            for (Long ledgerId : iterator.next().getLedgers()) {
+                filter.put(ledgerId);
+                count++;
+            }
+        }
+        liveLedgers = filter;
+        numScannedLedgers = count;
+        LOG.info("Rebuilt the live ledger set with {} ledgers, expected false positive probability {}",
+                count, filter.expectedFpp());
+        return count;
+    }
+
+    boolean isBuilt() {
+        return liveLedgers != null;
+    }
+
+    /**
+     * Whether the ledger may exist in the metadata store. A false answer is only a hint that needs
+     * to be verified, as the ledger may have been created after the last full scan.
+     */
+    boolean mightBeLive(long ledgerId) {
+        BloomFilter<Long> filter = liveLedgers;
+        return filter != null && filter.mightContain(ledgerId);
+    }
+
+    /**
+     * Record a ledger verified to exist in the metadata store.
+     */
+    void markLive(long ledgerId) {
+        BloomFilter<Long> filter = liveLedgers;
+        if (filter != null) {
+            filter.put(ledgerId);
+        }
+    }
+
+    /**
+     * Watch the metadata of a local ledger, to be told when it is deleted. Does nothing if the ledger
+     * is already watched, or if too many watches were registered recently.
+     */
+    void watch(long ledgerId) {
+        if (watchedLedgers.contains(ledgerId)
+                || (watchRateLimiter != null && !watchRateLimiter.tryAcquire())) {
+            return;
+        }
+        if (watchedLedgers.add(ledgerId)) {
+            ledgerManager.registerLedgerMetadataListener(ledgerId, this);
+        }
+    }
+
+    /**
+     * Stop watching the ledgers which are no longer stored locally.
+     */
+    void retainWatches(Set<Long> localLedgers) {
+        Iterator<Long> iterator = watchedLedgers.iterator();
+        while (iterator.hasNext()) {
+            long ledgerId = iterator.next();
+            if (!localLedgers.contains(ledgerId)) {
+                iterator.remove();
+                deletedLedgers.remove(ledgerId);
+                ledgerManager.unregisterLedgerMetadataListener(ledgerId, this);
+            }
+        }
+    }
+
+    /**
+     * Whether a watch reported the ledger as deleted from the metadata store.
+     */
+    boolean isReportedDeleted(long ledgerId) {
+        return deletedLedgers.contains(ledgerId);
+    }
+
+    /**
+     * Forget a ledger whose data was removed from the bookie.
+     */
+    void remove(long ledgerId) {
+        deletedLedgers.remove(ledgerId);
+        if (watchedLedgers.remove(ledgerId)) {
+            ledgerManager.unregisterLedgerMetadataListener(ledgerId, this);
+        }
+    }
+
+    int getNumWatchedLedgers() {
+        return watchedLedgers.size();
+    }
+
+    @Override
+    public void onChanged(long ledgerId, Versioned<LedgerMetadata> metadata) {
+        // the ledger manager drops the listeners of a deleted ledger by itself
+        if (metadata == null && watchedLedgers.remove(ledgerId)) {
+            deletedLedgers.add(ledgerId);
+        }
+    }
+}
@@ -0,0 +1,442 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.apache.bookkeeper.util.BookKeeperConstants.MAPPED_METADATA_CACHE;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.LongPredicate;
+import org.apache.bookkeeper.bookie.BookieException.EntryLogMetadataMapException;
+import org.apache.bookkeeper.util.collections.ConcurrentLongLongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Entry-log metadata-map which keeps the metadata of each entry log off-heap, in a memory-mapped file.
+ *
+ * <p>Each file holds the ledgers of an entry log as two columns sorted by ledger id:
+ * <pre>
+ * 8-bytes: entrylog-entryLogId
+ * 8-bytes: entrylog-totalSize
+ * 8-bytes: entrylog-remainingSize
+ * 4-bytes: number of ledgers
+ * 4-bytes: number of removed ledgers
+ * [number of ledgers]: 8-bytes::ledgerId
+ * [number of ledgers]: 8-bytes::size-of-ledger, or REMOVED
+ * </pre>
+ *
+ * <p>The {@link EntryLogMetadata} handed to the map actions read and update the mapped file in place:
+ * removing a ledger only overwrites its size and the header, so garbage collection does not
+ * serialize the metadata again. The file is rewritten without the removed ledgers once they are
+ * the majority.
+ *
+ * <p>The in-place updates are not forced to disk until the map is closed. Losing some of them in a
+ * crash is harmless: the remaining size is recomputed on load and the ledgers still listed are
+ * removed again by the next garbage collection.
+ *
+ * <p>The mappings are never unmapped explicitly, as a view handed to an action may still read a
+ * buffer after its entry log was removed, and accessing an unmapped buffer crashes the JVM. They
+ * are released with the buffers once these are garbage collected, and the files being small (16
+ * bytes per ledger) keeps the address space used by the stale ones low.
+ */
+public class MappedEntryLogMetadataMap implements EntryLogMetadataMap {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappedEntryLogMetadataMap.class);
+
+    static final String FILE_SUFFIX = ".meta";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private static final int ENTRY_LOG_ID_OFFSET = 0;
+    private static final int TOTAL_SIZE_OFFSET = 8;
+    private static final int REMAINING_SIZE_OFFSET = 16;
+    private static final int NUM_LEDGERS_OFFSET = 24;
+    private static final int NUM_REMOVED_OFFSET = 28;
+    private static final int HEADER_SIZE = 32;
+    private static final long REMOVED = Long.MIN_VALUE;
+
+    private final File dir;
+    private final Map<Long, MappedByteBuffer> entryLogMetaMap = new ConcurrentHashMap<>();
+
+    public MappedEntryLogMetadataMap(String metadataPath) throws IOException {
+        this.dir = new File(metadataPath, MAPPED_METADATA_CACHE);
+        LOG.info("Loading mapped entrylog metadata-map from {}", dir);
+        if (!dir.mkdirs() && !dir.exists()) {
+            String err = "Unable to create directory " + dir;
+            LOG.error(err);
+            throw new IOException(err);
+        }
+        load();
+    }
+
+    private void load() throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            throw new IOException("Unable to list directory " + dir);
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(FILE_SUFFIX)) {
+                // leftover of an interrupted write
+                Files.deleteIfExists(file.toPath());
+                continue;
+            }
+            long entryLogId;
+            try {
+                entryLogId = Long.parseLong(name.substring(0, name.length() - FILE_SUFFIX.length()), 16);
+            } catch (NumberFormatException e) {
+                LOG.warn("Ignoring unexpected file {} in {}", name, dir);
+                continue;
+            }
+            MappedByteBuffer buffer = map(file, file.length());
+            if (!isValid(buffer, entryLogId)) {
+                // the metadata is extracted again from the entry log
+                LOG.warn("Deleting invalid entrylog metadata file {}", file);
+                Files.deleteIfExists(file.toPath());
+                continue;
+            }
+            // the header may not have been written back before a crash
+            buffer.putLong(REMAINING_SIZE_OFFSET, sumRemainingSizes(buffer));
+            entryLogMetaMap.put(entryLogId, buffer);
+        }
+        LOG.info("Loaded the metadata of {} entry logs", entryLogMetaMap.size());
+    }
+
+    private static boolean isValid(MappedByteBuffer buffer, long entryLogId) {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getLong(ENTRY_LOG_ID_OFFSET) != entryLogId) {
+            return false;
+        }
+        int numLedgers = buffer.getInt(NUM_LEDGERS_OFFSET);
+        return numLedgers >= 0 && buffer.capacity() == fileSize(numLedgers);
+    }
+
+    private static long sumRemainingSizes(MappedByteBuffer buffer) {
+        int numLedgers = buffer.getInt(NUM_LEDGERS_OFFSET);
+        long remainingSize = 0;
+        for (int i = 0; i < numLedgers; i++) {
+            long size = buffer.getLong(sizeOffset(numLedgers, i));
+            if (size != REMOVED) {
+                remainingSize += size;
+            }
+        }
+        return remainingSize;
+    }
+
+    private static long fileSize(int numLedgers) {
+        return HEADER_SIZE + 16L * numLedgers;
+    }
+
+    private static int ledgerIdOffset(int index) {
+        return HEADER_SIZE + 8 * index;
+    }
+
+    private static int sizeOffset(int numLedgers, int index) {
+        return HEADER_SIZE + 8 * numLedgers + 8 * index;
+    }
+
+    private static MappedByteBuffer map(File file, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private File getFile(long entryLogId) {
+        return new File(dir, Long.toHexString(entryLogId) + FILE_SUFFIX);
+    }
+
+    @Override
+    public boolean containsKey(long entryLogId) {
+        return entryLogMetaMap.containsKey(entryLogId);
+    }
+
+    @Override
+    public void put(long entryLogId, EntryLogMetadata entryLogMeta) throws EntryLogMetadataMapException {
+        if (entryLogMeta instanceof MappedEntryLogMetadata) {
+            MappedEntryLogMetadata mapped = (MappedEntryLogMetadata) entryLogMeta;
+            if (mapped.buffer == entryLogMetaMap.get(entryLogId) && !mapped.hasAddedLedgers()
+                    && mapped.getNumRemovedLedgers() * 2 <= mapped.getNumLedgers()) {
+                // the changes were already made in the mapped file
+                return;
+            }
+        }
+
+        ConcurrentLongLongHashMap ledgersMap = entryLogMeta.getLedgersMap();
+        long[] ledgerIds = new long[(int) ledgersMap.size()];
+        int[] count = new int[1];
+        ledgersMap.forEach((ledgerId, size) -> ledgerIds[count[0]++] = ledgerId);
+        Arrays.sort(ledgerIds);
+        long[] sizes = new long[ledgerIds.length];
+        for (int i = 0; i < ledgerIds.length; i++) {
+            sizes[i] = ledgersMap.get(ledgerIds[i]);
+        }
+        try {
+            // a replaced mapping is released once its buffer is garbage collected
+            entryLogMetaMap.put(entryLogId, write(entryLogId, entryLogMeta.getTotalSize(),
+                    entryLogMeta.getRemainingSize(), ledgerIds, sizes));
+        } catch (IOException e) {
+            LOG.error("Failed to write entrylog-metadata, entryLogId {}", entryLogId);
+            throw new EntryLogMetadataMapException(e);
+        }
+    }
+
+    private MappedByteBuffer write(long entryLogId, long totalSize, long remainingSize,
+                                   long[] ledgerIds, long[] sizes) throws IOException {
+        File file = getFile(entryLogId);
+        File tmpFile = new File(dir, file.getName() + TMP_SUFFIX);
+        int numLedgers = sizes.length;
+        MappedByteBuffer buffer = map(tmpFile, fileSize(numLedgers));
+        buffer.putLong(ENTRY_LOG_ID_OFFSET, entryLogId);
+        buffer.putLong(TOTAL_SIZE_OFFSET, totalSize);
+        buffer.putLong(REMAINING_SIZE_OFFSET, remainingSize);
+        buffer.putInt(NUM_LEDGERS_OFFSET, numLedgers);
+        buffer.putInt(NUM_REMOVED_OFFSET, 0);
+        for (int i = 0; i < numLedgers; i++) {
+            buffer.putLong(ledgerIdOffset(i), ledgerIds[i]);
+            buffer.putLong(sizeOffset(numLedgers, i), sizes[i]);
+        }
+        // the file must be complete before it replaces the previous one
+        buffer.force();
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        return buffer;
+    }
+
+    /**
+     * {@link EntryLogMetadata} in supplied action is a view of the mapped file, valid until the
+     * metadata of the entry log is replaced or removed.
+     */
+    @Override
+    public void forEach(BiConsumer<Long, EntryLogMetadata> action) {
+        entryLogMetaMap.forEach((entryLogId, buffer) ->
+                action.accept(entryLogId, new MappedEntryLogMetadata(buffer)));
+    }
+
+    @Override
+    public void forKey(long entryLogId, BiConsumer<Long, EntryLogMetadata> action) {
+        MappedByteBuffer buffer = entryLogMetaMap.get(entryLogId);
+        action.accept(entryLogId, buffer != null ? new MappedEntryLogMetadata(buffer) : null);
+    }
+
+    @Override
+    public void remove(long entryLogId) throws EntryLogMetadataMapException {
+        if (entryLogMetaMap.remove(entryLogId) != null) {
+            try {
+                // the mapping is released once the buffer is garbage collected
+                Files.deleteIfExists(getFile(entryLogId).toPath());
+            } catch (IOException e) {
+                throw new EntryLogMetadataMapException(e);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return entryLogMetaMap.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return entryLogMetaMap.isEmpty();
+    }
+
+    @Override
+    public void clear() throws EntryLogMetadataMapException {
+        for (Long entryLogId : entryLogMetaMap.keySet()) {
+            remove(entryLogId);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (MappedByteBuffer buffer : entryLogMetaMap.values()) {
+            // write back the ledgers removed in place
+            buffer.force();
+        }
+        entryLogMetaMap.clear();
+    }
+
+    /**
+     * {@link EntryLogMetadata} reading and updating the ledgers of a mapped file.
+     *
+     * <p>The ledgers added to the view can not be written in place, so they are kept on heap
+     * until the view is put back in the map, which rewrites the file.
+     */
+    static class MappedEntryLogMetadata extends EntryLogMetadata {
+
+        private final MappedByteBuffer buffer;
+        private final int numLedgers;
+        // created on the first addition, views are usually only read and pruned
+        private ConcurrentLongLongHashMap addedLedgers;
+
+        MappedEntryLogMetadata(MappedByteBuffer buffer) {
+            super(buffer.getLong(ENTRY_LOG_ID_OFFSET), buffer.getLong(TOTAL_SIZE_OFFSET),
+                    buffer.getLong(REMAINING_SIZE_OFFSET));
+            this.buffer = buffer;
+            this.numLedgers = buffer.getInt(NUM_LEDGERS_OFFSET);
+        }
+
+        int getNumLedgers() {
+            return numLedgers;
+        }
+
+        int getNumRemovedLedgers() {
+            return buffer.getInt(NUM_REMOVED_OFFSET);
+        }
+
+        boolean hasAddedLedgers() {
+            return addedLedgers != null && !addedLedgers.isEmpty();
+        }
+
+        /**
+         * @return the index of the ledger in the file if it was not removed, -1 otherwise
+         */
+        private int indexOf(long ledgerId) {
+            int low = 0;
+            int high = numLedgers - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midLedgerId = buffer.getLong(ledgerIdOffset(mid));
+                if (midLedgerId < ledgerId) {
+                    low = mid + 1;
+                } else if (midLedgerId > ledgerId) {
+                    high = mid - 1;
+                } else {
+                    return buffer.getLong(sizeOffset(numLedgers, mid)) != REMOVED ? mid : -1;
+                }
+            }
+            return -1;
+        }
+
+        void forEachLedger(ConcurrentLongLongHashMap.BiConsumerLong processor) {
+            for (int i = 0; i < numLedgers; i++) {
+                long size = buffer.getLong(sizeOffset(numLedgers, i));
+                if (size != REMOVED) {
+                    long ledgerId = buffer.getLong(ledgerIdOffset(i));
+                    long added = addedLedgers != null ? addedLedgers.get(ledgerId) : -1L;
+                    processor.accept(ledgerId, added > 0 ? size + added : size);
+                }
+            }
+            if (addedLedgers != null) {
+                addedLedgers.forEach((ledgerId, size) -> {
+                    if (indexOf(ledgerId) < 0) {
+                        processor.accept(ledgerId, size);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void addLedgerSize(long ledgerId, long size) {
+            if (addedLedgers == null) {
+                addedLedgers = ConcurrentLongLongHashMap.newBuilder()
+                        .expectedItems(16)
+                        .concurrencyLevel(1)
+                        .build();
+            }
+            totalSize += size;
+            remainingSize += size;
+            addedLedgers.addAndGet(ledgerId, size);
+        }
+
+        @Override
+        public boolean containsLedger(long ledgerId) {
+            return indexOf(ledgerId) >= 0 || (addedLedgers != null && addedLedgers.containsKey(ledgerId));
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return getNumRemovedLedgers() == numLedgers && !hasAddedLedgers();
+        }
+
+        @Override
+        public ConcurrentLongLongHashMap getLedgersMap() {
+            int added = addedLedgers != null ? (int) addedLedgers.size() : 0;
+            ConcurrentLongLongHashMap ledgers = ConcurrentLongLongHashMap.newBuilder()
+                    .expectedItems(Math.max(numLedgers - getNumRemovedLedgers() + added, 16))
+                    .concurrencyLevel(1)
+                    .build();
+            forEachLedger(ledgers::put);
+            return ledgers;
+        }
+
+        @Override
+        public void removeLedgerIf(LongPredicate predicate) {
+            int removed = 0;
+            for (int i = 0; i < numLedgers; i++) {
+                int offset = sizeOffset(numLedgers, i);
+                long size = buffer.getLong(offset);
+                if (size != REMOVED && predicate.test(buffer.getLong(ledgerIdOffset(i)))) {
+                    buffer.putLong(offset, REMOVED);
+                    remainingSize -= size;
+                    removed++;
+                }
+            }
+            if (removed > 0) {
+                buffer.putLong(REMAINING_SIZE_OFFSET, remainingSize);
+                buffer.putInt(NUM_REMOVED_OFFSET, getNumRemovedLedgers() + removed);
+            }
+            if (addedLedgers != null) {
+                addedLedgers.removeIf((ledgerId, size) -> {
+                    boolean shouldRemove = predicate.test(ledgerId);
+                    if (shouldRemove) {
+                        remainingSize -= size;
+                    }
+                    return shouldRemove;
+                });
+            }
+        }
+
+        @Override
+        public void serialize(DataOutputStream out) throws IOException {
+            EntryLogMetadata metadata = new EntryLogMetadata(entryLogId);
+            forEachLedger(metadata::addLedgerSize);
+            metadata.totalSize = totalSize;
+            metadata.serialize(out);
+        }
+
+        /**
+         * Remove all the ledgers of the entry log, from the mapped file too.
+         */
+        @Override
+        public void clear() {
+            removeLedgerIf(ledgerId -> true);
+            if (addedLedgers != null) {
+                addedLedgers.clear();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "{totalSize = " + totalSize + ", remainingSize = " + remainingSize
+                    + ", ledgersMap = " + getLedgersMap() + "}";
+        }
+    }
+}
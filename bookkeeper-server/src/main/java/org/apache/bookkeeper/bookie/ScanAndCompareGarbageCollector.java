@@ -82,6 +82,9 @@ public class ScanAndCompareGarbageCollector implements GarbageCollector {
     private long lastOverReplicatedLedgerGcTimeMillis;
     private final boolean verifyMetadataOnGc;
     private int activeLedgerCounter;
+    private final LiveLedgerSet liveLedgerSet;
+    private final long liveLedgerSetFullScanIntervalMillis;
+    private long lastLiveLedgerSetFullScanTimeMillis;
     private StatsLogger statsLogger;
     private final int maxConcurrentRequests;
 
@@ -104,6 +107,16 @@ public class ScanAndCompareGarbageCollector implements GarbageCollector {
 
         verifyMetadataOnGc = conf.getVerifyMetadataOnGC();
 
+        if (conf.isGcLiveLedgerSetEnabled() && ledgerManager != null) {
+            this.liveLedgerSet = new LiveLedgerSet(ledgerManager, conf.getGcLiveLedgerSetExpectedLedgers(),
+                    conf.getGcLiveLedgerSetMaxWatchesPerSecond());
+        } else {
+            this.liveLedgerSet = null;
+        }
+        this.liveLedgerSetFullScanIntervalMillis = conf.getGcLiveLedgerSetFullScanIntervalMillis();
+        LOG.info("Live ledger set : enabled={}, fullScanInterval={}", liveLedgerSet != null,
+                liveLedgerSetFullScanIntervalMillis);
+
         this.activeLedgerCounter = 0;
     }
 
@@ -141,16 +154,19 @@ public class ScanAndCompareGarbageCollector implements GarbageCollector {
                 lastOverReplicatedLedgerGcTimeMillis = System.currentTimeMillis();
             }
 
-            // Iterate over all the ledger on the metadata store
             long zkOpTimeoutMs = this.conf.getZkTimeout() * 2;
+            if (liveLedgerSet != null) {
+                gcWithLiveLedgerSet(bkActiveLedgers, garbageCleaner, zkOpTimeoutMs);
+                return;
+            }
+
+            // Iterate over all the ledger on the metadata store
             LedgerRangeIterator ledgerRangeIterator = ledgerManager
                     .getLedgerRanges(zkOpTimeoutMs);
             Set<Long> ledgersInMetadata = null;
             long start;
             long end = -1;
             boolean done = false;
-            AtomicBoolean isBookieInEnsembles = new AtomicBoolean(false);
-            Versioned<LedgerMetadata> metadata = null;
             while (!done) {
                 start = end + 1;
                 if (ledgerRangeIterator.hasNext()) {
@@ -170,40 +186,9 @@ public class ScanAndCompareGarbageCollector implements GarbageCollector {
                 }
                 for (Long bkLid : subBkActiveLedgers) {
                     if (!ledgersInMetadata.contains(bkLid)) {
-                        if (verifyMetadataOnGc) {
-                            isBookieInEnsembles.set(false);
-                            metadata = null;
-                            int rc = BKException.Code.OK;
-                            try {
-                                metadata = result(ledgerManager.readLedgerMetadata(bkLid), zkOpTimeoutMs,
-                                        TimeUnit.MILLISECONDS);
-                            } catch (BKException | TimeoutException e) {
-                                if (e instanceof BKException) {
-                                    rc = ((BKException) e).getCode();
-                                } else {
-                                    LOG.warn("Time-out while fetching metadata for Ledger {} : {}.", bkLid,
-                                            e.getMessage());
-
-                                    continue;
-                                }
-                            }
-                            // check bookie should be part of ensembles in one
-                            // of the segment else ledger should be deleted from
-                            // local storage
-                            if (metadata != null && metadata.getValue() != null) {
-                                metadata.getValue().getAllEnsembles().forEach((entryId, ensembles) -> {
-                                    if (ensembles != null && ensembles.contains(selfBookieAddress)) {
-                                        isBookieInEnsembles.set(true);
-                                    }
-                                });
-                                if (isBookieInEnsembles.get()) {
-                                    continue;
-                                }
-                            } else if (rc != BKException.Code.NoSuchLedgerExistsOnMetadataServerException) {
-                                LOG.warn("Ledger {} Missing in metadata list, but ledgerManager returned rc: {}.",
-                                        bkLid, rc);
-                                continue;
-                            }
+                        if (verifyMetadataOnGc
+                                && verifyLedgerDeletion(bkLid, zkOpTimeoutMs, true) != LedgerCheck.REMOVABLE) {
+                            continue;
                         }
                         garbageCleaner.clean(bkLid);
                     }
@@ -215,6 +200,105 @@ public class ScanAndCompareGarbageCollector implements GarbageCollector {
         }
     }
 
+    /**
+     * Garbage collect the local ledgers which are missing from the live ledger set or were reported
+     * deleted by their metadata watch, after checking them against the metadata store. The metadata
+     * store is only fully scanned to rebuild the set, once per full scan interval.
+     */
+    private void gcWithLiveLedgerSet(NavigableSet<Long> bkActiveLedgers, GarbageCleaner garbageCleaner,
+                                     long zkOpTimeoutMs) throws Exception {
+        long curTime = System.currentTimeMillis();
+        if (!liveLedgerSet.isBuilt()
+                || curTime - lastLiveLedgerSetFullScanTimeMillis > liveLedgerSetFullScanIntervalMillis) {
+            liveLedgerSet.rebuild(zkOpTimeoutMs);
+            lastLiveLedgerSetFullScanTimeMillis = curTime;
+        }
+        liveLedgerSet.retainWatches(bkActiveLedgers);
+
+        int verified = 0;
+        for (Long bkLid : bkActiveLedgers) {
+            boolean reportedDeleted = liveLedgerSet.isReportedDeleted(bkLid);
+            if (!reportedDeleted) {
+                liveLedgerSet.watch(bkLid);
+                if (liveLedgerSet.mightBeLive(bkLid)) {
+                    continue;
+                }
+            }
+            verified++;
+            LedgerCheck check = verifyLedgerDeletion(bkLid, zkOpTimeoutMs, verifyMetadataOnGc);
+            if (check == LedgerCheck.REMOVABLE) {
+                garbageCleaner.clean(bkLid);
+                liveLedgerSet.remove(bkLid);
+            } else if (check == LedgerCheck.LIVE && !reportedDeleted) {
+                // only a ledger whose metadata was read is added to the set, the others are verified again
+                // by the next run
+                liveLedgerSet.markLive(bkLid);
+            }
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Verified {} of {} local ledgers against the metadata store, watching {} ledgers",
+                    verified, bkActiveLedgers.size(), liveLedgerSet.getNumWatchedLedgers());
+        }
+    }
+
+    /**
+     * Read the metadata of a local ledger to check whether its data can be removed from the bookie.
+     *
+     * @param checkEnsembles also remove the ledger if the bookie is in none of its ensembles
+     * @return {@link LedgerCheck#REMOVABLE} if the ledger does not exist in the metadata store, or if ensembles
+     *         are checked and the bookie is not part of them. {@link LedgerCheck#UNKNOWN} if the ledger metadata
+     *         could not be read.
+     */
+    private LedgerCheck verifyLedgerDeletion(long bkLid, long zkOpTimeoutMs, boolean checkEnsembles)
+            throws Exception {
+        Versioned<LedgerMetadata> metadata = null;
+        int rc = BKException.Code.OK;
+        try {
+            metadata = result(ledgerManager.readLedgerMetadata(bkLid), zkOpTimeoutMs,
+                    TimeUnit.MILLISECONDS);
+        } catch (BKException | TimeoutException e) {
+            if (e instanceof BKException) {
+                rc = ((BKException) e).getCode();
+            } else {
+                LOG.warn("Time-out while fetching metadata for Ledger {} : {}.", bkLid,
+                        e.getMessage());
+                return LedgerCheck.UNKNOWN;
+            }
+        }
+        // check bookie should be part of ensembles in one
+        // of the segment else ledger should be deleted from
+        // local storage
+        if (metadata != null && metadata.getValue() != null) {
+            if (!checkEnsembles) {
+                return LedgerCheck.LIVE;
+            }
+            AtomicBoolean isBookieInEnsembles = new AtomicBoolean(false);
+            metadata.getValue().getAllEnsembles().forEach((entryId, ensembles) -> {
+                if (ensembles != null && ensembles.contains(selfBookieAddress)) {
+                    isBookieInEnsembles.set(true);
+                }
+            });
+            return isBookieInEnsembles.get() ? LedgerCheck.LIVE : LedgerCheck.REMOVABLE;
+        } else if (rc != BKException.Code.NoSuchLedgerExistsOnMetadataServerException) {
+            LOG.warn("Ledger {} Missing in metadata list, but ledgerManager returned rc: {}.",
+                    bkLid, rc);
+            return LedgerCheck.UNKNOWN;
+        }
+        return LedgerCheck.REMOVABLE;
+    }
+
+    /**
+     * Outcome of the check of a local ledger against the metadata store.
+     */
+    private enum LedgerCheck {
+        // the ledger data can be removed from the bookie
+        REMOVABLE,
+        // the ledger metadata was read and the ledger data must be kept
+        LIVE,
+        // the ledger metadata could not be read
+        UNKNOWN
+    }
+
     private Set<Long> removeOverReplicatedledgers(Set<Long> bkActiveledgers, final GarbageCleaner garbageCleaner)
             throws Exception {
         final Set<Long> overReplicatedLedgers = Sets.newHashSet();
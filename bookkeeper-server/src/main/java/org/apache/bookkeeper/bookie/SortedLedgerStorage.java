@@ -361,6 +361,11 @@ public class SortedLedgerStorage
         return interleavedLedgerStorage;
     }
 
+    @Override
+    public void recordAddLatency(long latencyNanos) {
+        interleavedLedgerStorage.recordAddLatency(latencyNanos);
+    }
+
     @Override
     public void forceGC() {
         interleavedLedgerStorage.forceGC();
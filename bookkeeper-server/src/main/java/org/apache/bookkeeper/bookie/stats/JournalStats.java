@@ -31,6 +31,10 @@ import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_FORCE_W
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_FORCE_WRITE_ENQUEUE;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_FORCE_WRITE_GROUPING_COUNT;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_FORCE_WRITE_QUEUE_SIZE;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_GROUP_COMMIT_BYTES_THRESHOLD;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_GROUP_COMMIT_ENTRIES_THRESHOLD;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_GROUP_COMMIT_FSYNC_LATENCY_MICROS;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_GROUP_COMMIT_WAIT_MICROS;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_MEMORY_MAX;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_MEMORY_USED;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_NUM_FLUSH_EMPTY_QUEUE;
@@ -43,9 +47,11 @@ import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_SCOPE;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_SYNC;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.JOURNAL_WRITE_BYTES;
 
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import lombok.Getter;
 import org.apache.bookkeeper.bookie.BookKeeperServerStats;
+import org.apache.bookkeeper.bookie.JournalGroupCommitPolicy;
 import org.apache.bookkeeper.stats.Counter;
 import org.apache.bookkeeper.stats.Gauge;
 import org.apache.bookkeeper.stats.OpStatsLogger;
@@ -171,9 +177,34 @@ public class JournalStats {
             help = "The actual amount of memory in bytes currently used by the bookie journal"
     )
     private final Gauge<Long> journalMemoryUsedStats;
+    @StatsDoc(
+            name = JOURNAL_GROUP_COMMIT_WAIT_MICROS,
+            help = "The group wait time in microseconds currently chosen by the adaptive group commit"
+    )
+    private final Gauge<Long> groupCommitWaitStats;
+    @StatsDoc(
+            name = JOURNAL_GROUP_COMMIT_ENTRIES_THRESHOLD,
+            help = "The buffered entries threshold currently chosen by the adaptive group commit"
+    )
+    private final Gauge<Long> groupCommitEntriesThresholdStats;
+    @StatsDoc(
+            name = JOURNAL_GROUP_COMMIT_BYTES_THRESHOLD,
+            help = "The buffered bytes threshold currently chosen by the adaptive group commit"
+    )
+    private final Gauge<Long> groupCommitBytesThresholdStats;
+    @StatsDoc(
+            name = JOURNAL_GROUP_COMMIT_FSYNC_LATENCY_MICROS,
+            help = "The moving average of the journal fsync latency in microseconds used by the adaptive group commit"
+    )
+    private final Gauge<Long> groupCommitFsyncLatencyStats;
 
     public JournalStats(StatsLogger statsLogger, final long maxJournalMemoryBytes,
                         Supplier<Long> currentJournalMemoryBytes) {
+        this(statsLogger, maxJournalMemoryBytes, currentJournalMemoryBytes, null);
+    }
+
+    public JournalStats(StatsLogger statsLogger, final long maxJournalMemoryBytes,
+                        Supplier<Long> currentJournalMemoryBytes, JournalGroupCommitPolicy groupCommitPolicy) {
         journalAddEntryStats = statsLogger.getOpStatsLogger(BookKeeperServerStats.JOURNAL_ADD_ENTRY);
         journalForceLedgerStats = statsLogger.getOpStatsLogger(BookKeeperServerStats.JOURNAL_FORCE_LEDGER);
         journalSyncStats = statsLogger.getOpStatsLogger(BookKeeperServerStats.JOURNAL_SYNC);
@@ -220,6 +251,38 @@ public class JournalStats {
             }
         };
         statsLogger.registerGauge(JOURNAL_MEMORY_USED, journalMemoryUsedStats);
+
+        if (groupCommitPolicy != null) {
+            groupCommitWaitStats = registerGauge(statsLogger, JOURNAL_GROUP_COMMIT_WAIT_MICROS,
+                    () -> TimeUnit.NANOSECONDS.toMicros(groupCommitPolicy.getGroupWaitNanos()));
+            groupCommitEntriesThresholdStats = registerGauge(statsLogger, JOURNAL_GROUP_COMMIT_ENTRIES_THRESHOLD,
+                    groupCommitPolicy::getEntriesThreshold);
+            groupCommitBytesThresholdStats = registerGauge(statsLogger, JOURNAL_GROUP_COMMIT_BYTES_THRESHOLD,
+                    groupCommitPolicy::getBytesThreshold);
+            groupCommitFsyncLatencyStats = registerGauge(statsLogger, JOURNAL_GROUP_COMMIT_FSYNC_LATENCY_MICROS,
+                    groupCommitPolicy::getFsyncLatencyMicros);
+        } else {
+            groupCommitWaitStats = null;
+            groupCommitEntriesThresholdStats = null;
+            groupCommitBytesThresholdStats = null;
+            groupCommitFsyncLatencyStats = null;
+        }
+    }
+
+    private static Gauge<Long> registerGauge(StatsLogger statsLogger, String name, Supplier<Long> sample) {
+        Gauge<Long> gauge = new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return -1L;
+            }
+
+            @Override
+            public Long getSample() {
+                return sample.get();
+            }
+        };
+        statsLogger.registerGauge(name, gauge);
+        return gauge;
     }
 
 }
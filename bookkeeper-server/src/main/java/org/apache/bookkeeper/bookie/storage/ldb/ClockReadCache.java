@@ -0,0 +1,361 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.apache.bookkeeper.bookie.storage.ldb.WriteCache.align64;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCountUtil;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.StampedLock;
+import org.apache.bookkeeper.util.collections.ConcurrentLongLongPairHashMap;
+import org.apache.bookkeeper.util.collections.ConcurrentLongLongPairHashMap.LongPair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read cache implementation that scales with the number of reader threads.
+ *
+ * <p>The memory is split in independent stripes, and each entry is assigned to a
+ * stripe by hashing its (ledgerId, entryId). Each stripe is guarded by its own
+ * {@link StampedLock}: lookups are done with optimistic reads, so concurrent
+ * readers never block each other and only contend with writers of the same stripe.
+ *
+ * <p>Each stripe is made of several small segments filled one after the other. When
+ * a stripe is full, the segment to recycle is chosen with the CLOCK algorithm: a
+ * segment that had hits since the clock hand last passed over it gets a second chance.
+ * An entry that is read again from one of the oldest segments of its stripe is also
+ * promoted into the current segment, so hot entries survive the rotation of the
+ * segment that held them.
+ */
+public class ClockReadCache implements EntryReadCache {
+    private static final Logger log = LoggerFactory.getLogger(ClockReadCache.class);
+
+    static final int DEFAULT_SEGMENTS_PER_STRIPE = 8;
+    private static final int MIN_SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final int MAX_SEGMENT_SIZE = 1 * 1024 * 1024 * 1024;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final int segmentSize;
+
+    private final ByteBufAllocator allocator;
+
+    public ClockReadCache(ByteBufAllocator allocator, long maxCacheSize) {
+        this(allocator, maxCacheSize, defaultStripesCount(maxCacheSize), DEFAULT_SEGMENTS_PER_STRIPE);
+    }
+
+    public ClockReadCache(ByteBufAllocator allocator, long maxCacheSize, int stripesCount, int segmentsPerStripe) {
+        this.allocator = allocator;
+        int stripesNum = Integer.highestOneBit(Math.max(1, stripesCount));
+        int segmentsNum = Math.max(2, segmentsPerStripe);
+        long segmentSizeLong = Math.min(MAX_SEGMENT_SIZE, maxCacheSize / stripesNum / segmentsNum);
+        this.segmentSize = (int) Math.max(64, segmentSizeLong);
+
+        this.stripes = new Stripe[stripesNum];
+        this.stripeMask = stripesNum - 1;
+        for (int i = 0; i < stripesNum; i++) {
+            stripes[i] = new Stripe(segmentsNum, segmentSize);
+        }
+    }
+
+    /**
+     * Pick enough stripes to spread the read threads, while keeping the segments large
+     * enough to hold big entries.
+     */
+    private static int defaultStripesCount(long maxCacheSize) {
+        long maxStripes = maxCacheSize / ((long) DEFAULT_SEGMENTS_PER_STRIPE * MIN_SEGMENT_SIZE);
+        int stripes = 2 * Runtime.getRuntime().availableProcessors();
+        // round down to the previous power of two, so that segments never get smaller than the min size
+        return Integer.highestOneBit((int) Math.max(1, Math.min(stripes, maxStripes)));
+    }
+
+    @Override
+    public void close() {
+        for (Stripe stripe : stripes) {
+            stripe.close();
+        }
+    }
+
+    @Override
+    public void put(long ledgerId, long entryId, ByteBuf entry) {
+        int entrySize = entry.readableBytes();
+        if (entrySize > segmentSize) {
+            log.warn("entrySize {} > segmentSize {}, skip update read cache!", entrySize, segmentSize);
+            return;
+        }
+
+        stripeFor(ledgerId, entryId).put(ledgerId, entryId, entry, entry.readerIndex(), entrySize);
+    }
+
+    @Override
+    public ByteBuf get(long ledgerId, long entryId) {
+        return stripeFor(ledgerId, entryId).get(ledgerId, entryId);
+    }
+
+    @Override
+    public boolean hasEntry(long ledgerId, long entryId) {
+        return stripeFor(ledgerId, entryId).hasEntry(ledgerId, entryId);
+    }
+
+    /**
+     * @return the total size of cached entries
+     */
+    @Override
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return the total number of cached entries
+     */
+    @Override
+    public long count() {
+        long count = 0;
+        for (Stripe stripe : stripes) {
+            count += stripe.count();
+        }
+        return count;
+    }
+
+    @VisibleForTesting
+    int getStripesCount() {
+        return stripes.length;
+    }
+
+    @VisibleForTesting
+    int getSegmentSize() {
+        return segmentSize;
+    }
+
+    private Stripe stripeFor(long ledgerId, long entryId) {
+        // consecutive entries of a ledger are read-ahead together, spread them across the stripes
+        long hash = (ledgerId * 0x9E3779B97F4A7C15L) ^ entryId;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 32;
+        return stripes[(int) hash & stripeMask];
+    }
+
+    private class Stripe {
+        private final StampedLock lock = new StampedLock();
+
+        private final ByteBuf[] segments;
+        private final ConcurrentLongLongPairHashMap[] indexes;
+        // CLOCK reference bits, set when a segment had a hit since the hand last passed over it
+        private final AtomicIntegerArray referenced;
+
+        private int currentSegmentIdx = 0;
+        private int currentSegmentOffset = 0;
+
+        Stripe(int segmentsCount, int segmentSize) {
+            segments = new ByteBuf[segmentsCount];
+            indexes = new ConcurrentLongLongPairHashMap[segmentsCount];
+            referenced = new AtomicIntegerArray(segmentsCount);
+            for (int i = 0; i < segmentsCount; i++) {
+                segments[i] = Unpooled.directBuffer(segmentSize, segmentSize);
+                indexes[i] = ConcurrentLongLongPairHashMap.newBuilder()
+                        .expectedItems(1024)
+                        .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+                        .build();
+            }
+        }
+
+        void close() {
+            for (ByteBuf segment : segments) {
+                ReferenceCountUtil.safeRelease(segment);
+            }
+        }
+
+        void put(long ledgerId, long entryId, ByteBuf entry, int index, int length) {
+            long stamp = lock.writeLock();
+            try {
+                append(ledgerId, entryId, entry, index, length);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Move a re-read entry from an old segment to the current segment.
+         */
+        void promote(long ledgerId, long entryId, ByteBuf entry, int segmentIdx, int offset) {
+            long stamp = lock.writeLock();
+            try {
+                int length = entry.readableBytes();
+                // only drop the old location if the segment was not recycled in the meantime
+                indexes[segmentIdx].remove(ledgerId, entryId, offset, length);
+                append(ledgerId, entryId, entry, entry.readerIndex(), length);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Copy the entry at the end of the current segment. Must be called with the write lock held.
+         */
+        private void append(long ledgerId, long entryId, ByteBuf entry, int index, int length) {
+            int offset = currentSegmentOffset;
+            if (offset + length > segmentSize) {
+                advanceClock();
+                offset = 0;
+            }
+
+            segments[currentSegmentIdx].setBytes(offset, entry, index, length);
+            indexes[currentSegmentIdx].put(ledgerId, entryId, offset, length);
+            currentSegmentOffset = offset + align64(length);
+        }
+
+        /**
+         * Move to the next segment to fill, skipping (once) the segments that had hits since the
+         * last time the hand went over them. Must be called with the write lock held.
+         */
+        private void advanceClock() {
+            int size = segments.length;
+            int idx = (currentSegmentIdx + 1) % size;
+            for (int i = 0; i < size - 1; i++) {
+                if (referenced.get(idx) == 0) {
+                    break;
+                }
+                referenced.set(idx, 0);
+                idx = (idx + 1) % size;
+                if (idx == currentSegmentIdx) {
+                    idx = (idx + 1) % size;
+                }
+            }
+
+            indexes[idx].clear();
+            referenced.set(idx, 0);
+            currentSegmentIdx = idx;
+            currentSegmentOffset = 0;
+        }
+
+        ByteBuf get(long ledgerId, long entryId) {
+            long stamp = lock.tryOptimisticRead();
+            boolean optimistic = stamp != 0;
+            if (!optimistic) {
+                stamp = lock.readLock();
+            }
+
+            ByteBuf entry;
+            int segmentIdx;
+            int entryOffset;
+            int age;
+            try {
+                while (true) {
+                    entry = null;
+                    segmentIdx = -1;
+                    entryOffset = -1;
+                    age = -1;
+
+                    // Check the segments starting from the current one and looking backward, to
+                    // find the most recent copy of the entry first
+                    int size = segments.length;
+                    int current = currentSegmentIdx;
+                    for (int i = 0; i < size; i++) {
+                        int idx = (current + (size - i)) % size;
+
+                        LongPair res = indexes[idx].get(ledgerId, entryId);
+                        if (res != null) {
+                            entryOffset = (int) res.first;
+                            int entryLen = (int) res.second;
+
+                            entry = allocator.buffer(entryLen, entryLen);
+                            entry.writeBytes(segments[idx], entryOffset, entryLen);
+                            segmentIdx = idx;
+                            age = i;
+                            break;
+                        }
+                    }
+
+                    if (!optimistic || lock.validate(stamp)) {
+                        break;
+                    }
+
+                    // A writer has modified the stripe while we were copying, read again under the lock
+                    if (entry != null) {
+                        entry.release();
+                    }
+                    optimistic = false;
+                    stamp = lock.readLock();
+                }
+            } finally {
+                if (!optimistic) {
+                    lock.unlockRead(stamp);
+                }
+            }
+
+            if (entry == null) {
+                return null;
+            }
+
+            if (age > segments.length / 2) {
+                // The entry is in one of the oldest segments, move it to the current segment
+                // so that it's not going to be evicted together with its cold neighbours
+                promote(ledgerId, entryId, entry, segmentIdx, entryOffset);
+            } else {
+                referenced.lazySet(segmentIdx, 1);
+            }
+            return entry;
+        }
+
+        boolean hasEntry(long ledgerId, long entryId) {
+            // The indexes are thread-safe and a stale answer is acceptable, no need to lock
+            for (int i = 0; i < segments.length; i++) {
+                if (indexes[i].containsKey(ledgerId, entryId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long size() {
+            long stamp = lock.readLock();
+            try {
+                long size = 0;
+                for (int i = 0; i < segments.length; i++) {
+                    if (i == currentSegmentIdx) {
+                        size += currentSegmentOffset;
+                    } else if (!indexes[i].isEmpty()) {
+                        size += segmentSize;
+                    }
+                }
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        long count() {
+            long count = 0;
+            for (int i = 0; i < indexes.length; i++) {
+                count += indexes[i].size();
+            }
+            return count;
+        }
+    }
+}
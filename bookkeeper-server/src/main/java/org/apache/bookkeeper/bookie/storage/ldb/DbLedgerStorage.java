@@ -29,6 +29,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.FileRegion;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import io.netty.util.internal.PlatformDependent;
 import java.io.File;
@@ -93,6 +94,18 @@ public class DbLedgerStorage implements LedgerStorage {
         "dbStorage_directIOEntryLoggerMaxFdCacheTimeSeconds";
 
     static final String MAX_THROTTLE_TIME_MILLIS = "dbStorage_maxThrottleTimeMs";
+    static final String WRITE_CACHES_COUNT = "dbStorage_writeCachesCount";
+
+    static final String READ_CACHE_TYPE = "dbStorage_readCacheType";
+    static final String READ_CACHE_TYPE_SEGMENTED = "segmented";
+    static final String READ_CACHE_TYPE_CLOCK = "clock";
+
+    static final String ENTRY_LOCATION_INDEX_TYPE = "dbStorage_entryLocationIndexType";
+    static final String ENTRY_LOCATION_INDEX_TYPE_ROCKSDB = "rocksdb";
+    static final String ENTRY_LOCATION_INDEX_TYPE_DENSE = "dense";
+
+    static final String ENTRY_LOCATION_PACKING_ENABLED = "dbStorage_entryLocationPackingEnabled";
+    static final String ENTRY_LOCATION_PACKING_IDLE_FLUSHES = "dbStorage_entryLocationPackingIdleFlushes";
 
     private static final int MB = 1024 * 1024;
 
@@ -356,6 +369,12 @@ public class DbLedgerStorage implements LedgerStorage {
         return getLedgerStorage(ledgerId).getEntry(ledgerId, entryId);
     }
 
+    @Override
+    public FileRegion getEntryRegion(long ledgerId, long entryId, int minSize)
+            throws IOException, BookieException {
+        return getLedgerStorage(ledgerId).getEntryRegion(ledgerId, entryId, minSize);
+    }
+
     @Override
     public long getLastAddConfirmed(long ledgerId) throws IOException, BookieException {
         return getLedgerStorage(ledgerId).getLastAddConfirmed(ledgerId);
@@ -479,9 +498,12 @@ public class DbLedgerStorage implements LedgerStorage {
         int dirIndex = MathUtils.signSafeMod(ledgerId, ledgerDirs.size());
         String indexBasePath = indexDirs.get(dirIndex).toString();
 
-        EntryLocationIndex entryLocationIndex = new EntryLocationIndex(serverConf,
-                (basePath, subPath, dbConfigType, conf1) ->
-                        new KeyValueStorageRocksDB(basePath, subPath, DbConfigType.Default, conf1, true),
+        KeyValueStorageFactory storageFactory = EntryLocationIndex.isDenseIndexConfigured(serverConf)
+                ? (basePath, subPath, dbConfigType, conf1) ->
+                        new KeyValueStorageDenseIndex(basePath, subPath, conf1, true)
+                : (basePath, subPath, dbConfigType, conf1) ->
+                        new KeyValueStorageRocksDB(basePath, subPath, DbConfigType.Default, conf1, true);
+        EntryLocationIndex entryLocationIndex = new EntryLocationIndex(serverConf, storageFactory,
                 indexBasePath, NullStatsLogger.INSTANCE);
         try {
             long lastEntryId = entryLocationIndex.getLastEntryInLedger(ledgerId);
@@ -500,6 +522,14 @@ public class DbLedgerStorage implements LedgerStorage {
         }
     }
 
+    @Override
+    public void recordAddLatency(long latencyNanos) {
+        // the journal is shared by the ledger directories, so its latency is reported to all of them
+        for (int i = 0; i < ledgerStorageList.size(); i++) {
+            ledgerStorageList.get(i).recordAddLatency(latencyNanos);
+        }
+    }
+
     @Override
     public void forceGC() {
         ledgerStorageList.stream().forEach(SingleDirectoryDbLedgerStorage::forceGC);
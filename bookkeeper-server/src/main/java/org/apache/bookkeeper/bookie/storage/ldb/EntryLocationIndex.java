@@ -22,37 +22,78 @@ package org.apache.bookkeeper.bookie.storage.ldb;
 
 import com.google.common.collect.Iterables;
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.bookkeeper.bookie.Bookie;
 import org.apache.bookkeeper.bookie.EntryLocation;
 import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorage.Batch;
+import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorage.CloseableIterator;
 import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorageFactory.DbConfigType;
 import org.apache.bookkeeper.conf.ServerConfiguration;
 import org.apache.bookkeeper.stats.StatsLogger;
 import org.apache.bookkeeper.util.MathUtils;
 import org.apache.bookkeeper.util.collections.ConcurrentLongHashSet;
+import org.apache.bookkeeper.util.collections.ConcurrentLongLongHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Maintains an index of the entry locations in the EntryLogger.
  *
- * <p>For each ledger multiple entries are stored in the same "record", represented
- * by the {@link LedgerIndexPage} class.
+ * <p>Each location is first stored in its own (ledgerId, entryId) record. When
+ * {@code dbStorage_entryLocationPackingEnabled} is set, the records of the ledgers that have not been written for
+ * a few flushes are packed in segments of delta-encoded locations, represented by {@link PackedEntryLocations}.
+ * The regular records, written after the packing, always take precedence over the packed ones.
  */
 public class EntryLocationIndex implements Closeable {
 
+    static final String LOCATIONS_SUB_PATH = "locations";
+
     private final KeyValueStorage locationsDb;
     private final ConcurrentLongHashSet deletedLedgers = ConcurrentLongHashSet.newBuilder().build();
     private final EntryLocationIndexStats stats;
     private boolean isCompacting;
 
+    private final boolean packingEnabled;
+    // Whether this index may hold packed segments, so that the lookups of a bookie that never packed do not
+    // read the index twice on a miss
+    private final boolean lookupPackedSegments;
+    private final int packingIdleFlushes;
+    // Ledgers written since they were last packed, with the flush generation of their last write
+    private final ConcurrentLongLongHashMap ledgersToPack = ConcurrentLongLongHashMap.newBuilder().build();
+    private volatile long flushGeneration;
+    // Location updates hold the read lock while flushing, so that they are not lost when the records they
+    // overwrite are packed
+    private final ReentrantReadWriteLock packingLock = new ReentrantReadWriteLock();
+
+    private static final boolean DEFAULT_ENTRY_LOCATION_PACKING_ENABLED = false;
+    private static final int DEFAULT_ENTRY_LOCATION_PACKING_IDLE_FLUSHES = 3;
+    private static final int PACKING_SEGMENTS_PER_BATCH = 16;
+    // Created next to the index once packing is enabled, to keep finding the packed segments if it is disabled
+    private static final String PACKED_SEGMENTS_MARKER = "locations-packed";
+
     public EntryLocationIndex(ServerConfiguration conf, KeyValueStorageFactory storageFactory, String basePath,
             StatsLogger stats) throws IOException {
-        locationsDb = storageFactory.newKeyValueStorage(basePath, "locations", DbConfigType.EntryLocation, conf);
+        locationsDb = storageFactory.newKeyValueStorage(basePath, LOCATIONS_SUB_PATH, DbConfigType.EntryLocation,
+                conf);
+
+        // The dense index already stores the locations of each ledger in arrays
+        this.packingEnabled = conf.getBoolean(DbLedgerStorage.ENTRY_LOCATION_PACKING_ENABLED,
+                DEFAULT_ENTRY_LOCATION_PACKING_ENABLED) && !(locationsDb instanceof KeyValueStorageDenseIndex);
+        this.packingIdleFlushes = conf.getInt(DbLedgerStorage.ENTRY_LOCATION_PACKING_IDLE_FLUSHES,
+                DEFAULT_ENTRY_LOCATION_PACKING_IDLE_FLUSHES);
+        File packedSegmentsMarker = new File(basePath, PACKED_SEGMENTS_MARKER);
+        if (packingEnabled && !packedSegmentsMarker.exists() && !packedSegmentsMarker.createNewFile()) {
+            throw new IOException("Unable to create " + packedSegmentsMarker);
+        }
+        this.lookupPackedSegments = packingEnabled || packedSegmentsMarker.exists();
 
         this.stats = new EntryLocationIndexStats(
             stats,
@@ -65,6 +106,31 @@ public class EntryLocationIndex implements Closeable {
             });
     }
 
+    /**
+     * Get the storage factory for the locations index, according to {@code dbStorage_entryLocationIndexType}.
+     *
+     * <p>Refuses to open an existing index with a different storage, since it would silently start empty.
+     */
+    public static KeyValueStorageFactory getStorageFactory(ServerConfiguration conf, String basePath)
+            throws IOException {
+        if (isDenseIndexConfigured(conf)) {
+            return KeyValueStorageDenseIndex.factory;
+        }
+
+        File locationsDir = new File(basePath, LOCATIONS_SUB_PATH);
+        if (KeyValueStorageDenseIndex.isDenseIndex(locationsDir)) {
+            throw new IOException("Directory " + locationsDir + " contains a dense index. Migrate it with"
+                    + " 'bookkeeper shell rebuild-db-ledger-locations-index --migrate' before switching to RocksDB");
+        }
+        return KeyValueStorageRocksDB.factory;
+    }
+
+    static boolean isDenseIndexConfigured(ServerConfiguration conf) {
+        return DbLedgerStorage.ENTRY_LOCATION_INDEX_TYPE_DENSE.equalsIgnoreCase(
+                conf.getString(DbLedgerStorage.ENTRY_LOCATION_INDEX_TYPE,
+                        DbLedgerStorage.ENTRY_LOCATION_INDEX_TYPE_ROCKSDB));
+    }
+
     @Override
     public void close() throws IOException {
         locationsDb.close();
@@ -78,10 +144,12 @@ public class EntryLocationIndex implements Closeable {
         boolean operationSuccess = false;
         try {
             if (locationsDb.get(key.array, value.array) < 0) {
-                if (log.isDebugEnabled()) {
+                long location = getPackedLocation(ledgerId, entryId);
+                if (location == 0 && log.isDebugEnabled()) {
                     log.debug("Entry not found {}@{} in db index", ledgerId, entryId);
                 }
-                return 0;
+                operationSuccess = location != 0;
+                return location;
             }
             operationSuccess = true;
             return value.getValue();
@@ -114,28 +182,47 @@ public class EntryLocationIndex implements Closeable {
         return getLastEntryInLedgerInternal(ledgerId);
     }
 
-    private long getLastEntryInLedgerInternal(long ledgerId) throws IOException {
-        LongPairWrapper maxEntryId = LongPairWrapper.get(ledgerId, Long.MAX_VALUE);
+    private long getPackedLocation(long ledgerId, long entryId) throws IOException {
+        if (!lookupPackedSegments || entryId < 0) {
+            return 0;
+        }
+        LongPairWrapper segmentKey = LongPairWrapper.get(ledgerId, PackedEntryLocations.segmentKey(entryId));
+        try {
+            byte[] segment = locationsDb.get(segmentKey.array);
+            return segment != null ? PackedEntryLocations.getLocation(segment, entryId) : 0;
+        } finally {
+            segmentKey.recycle();
+        }
+    }
 
-        // Search the last entry in storage
-        Entry<byte[], byte[]> entry = locationsDb.getFloor(maxEntryId.array);
-        maxEntryId.recycle();
+    private long getLastEntryInLedgerInternal(long ledgerId) throws IOException {
+        // The packed segments are stored after the regular records of the ledger, so this finds the last segment
+        // if there is any, or else the last regular record
+        LongPairWrapper maxKey = LongPairWrapper.get(ledgerId, -1L);
+        Entry<byte[], byte[]> entry = locationsDb.getFloor(maxKey.array);
+        maxKey.recycle();
 
-        if (entry == null) {
+        if (entry == null || ArrayUtil.getLong(entry.getKey(), 0) != ledgerId) {
             throw new Bookie.NoEntryException(ledgerId, -1);
-        } else {
-            long foundLedgerId = ArrayUtil.getLong(entry.getKey(), 0);
-            long lastEntryId = ArrayUtil.getLong(entry.getKey(), 8);
+        }
 
-            if (foundLedgerId == ledgerId) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Found last page in storage db for ledger {} - last entry: {}", ledgerId, lastEntryId);
-                }
-                return lastEntryId;
-            } else {
-                throw new Bookie.NoEntryException(ledgerId, -1);
+        long lastEntryId = ArrayUtil.getLong(entry.getKey(), 8);
+        if (PackedEntryLocations.isSegmentKey(lastEntryId)) {
+            lastEntryId = PackedEntryLocations.lastEntryId(entry.getValue());
+
+            // Entries added after the ledger was packed are in regular records
+            LongPairWrapper maxEntryId = LongPairWrapper.get(ledgerId, Long.MAX_VALUE);
+            entry = locationsDb.getFloor(maxEntryId.array);
+            maxEntryId.recycle();
+            if (entry != null && ArrayUtil.getLong(entry.getKey(), 0) == ledgerId) {
+                lastEntryId = Math.max(lastEntryId, ArrayUtil.getLong(entry.getKey(), 8));
             }
         }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Found last page in storage db for ledger {} - last entry: {}", ledgerId, lastEntryId);
+        }
+        return lastEntryId;
     }
 
     public void addLocation(long ledgerId, long entryId, long location) throws IOException {
@@ -146,7 +233,8 @@ public class EntryLocationIndex implements Closeable {
     }
 
     public Batch newBatch() {
-        return locationsDb.newBatch();
+        Batch batch = locationsDb.newBatch();
+        return packingEnabled ? new PackingAwareBatch(batch) : batch;
     }
 
     public void addLocation(Batch batch, long ledgerId, long entryId, long location) throws IOException {
@@ -184,6 +272,210 @@ public class EntryLocationIndex implements Closeable {
         batch.close();
     }
 
+    /**
+     * Pack the ledgers that were not written in the last {@code dbStorage_entryLocationPackingIdleFlushes}
+     * flushes. It is meant to be called after each flush.
+     */
+    public void packIdleLedgers() throws IOException {
+        if (!packingEnabled) {
+            return;
+        }
+
+        long generation = ++flushGeneration;
+        List<Long> idleLedgers = new ArrayList<>();
+        ledgersToPack.forEach((ledgerId, lastWriteGeneration) -> {
+            if (generation - lastWriteGeneration > packingIdleFlushes) {
+                idleLedgers.add(ledgerId);
+            }
+        });
+
+        for (long ledgerId : idleLedgers) {
+            long lastWriteGeneration = ledgersToPack.get(ledgerId);
+            if (lastWriteGeneration >= 0 && generation - lastWriteGeneration > packingIdleFlushes
+                    && !deletedLedgers.contains(ledgerId)) {
+                // A write happening after this point puts the ledger back in the map
+                ledgersToPack.remove(ledgerId, lastWriteGeneration);
+                packLedger(ledgerId);
+            }
+        }
+    }
+
+    /**
+     * Replace the regular location records of a ledger by packed segments.
+     */
+    void packLedger(long ledgerId) throws IOException {
+        long startTime = MathUtils.nowInNano();
+        long packedEntries = 0;
+        long startEntryId = 0;
+        LongPairWrapper firstKey = LongPairWrapper.get(ledgerId, 0);
+        LongPairWrapper lastKey = LongPairWrapper.get(ledgerId, Long.MAX_VALUE);
+        long[] locations = new long[PackedEntryLocations.SEGMENT_SIZE];
+
+        try {
+            while (startEntryId >= 0) {
+                // Pack a few segments at a time, to not hold back the location updates for too long
+                packingLock.writeLock().lock();
+                try (Batch batch = locationsDb.newBatch()) {
+                    firstKey.set(ledgerId, startEntryId);
+                    long segmentStart = -1;
+                    int segments = 0;
+                    startEntryId = -1;
+
+                    try (CloseableIterator<byte[]> keys = locationsDb.keys(firstKey.array, lastKey.array)) {
+                        while (keys.hasNext()) {
+                            byte[] key = keys.next();
+                            long entryId = ArrayUtil.getLong(key, 8);
+                            if (PackedEntryLocations.segmentStart(entryId) != segmentStart) {
+                                if (segmentStart >= 0) {
+                                    writeSegment(batch, ledgerId, segmentStart, locations);
+                                }
+                                if (++segments > PACKING_SEGMENTS_PER_BATCH) {
+                                    startEntryId = entryId;
+                                    segmentStart = -1;
+                                    break;
+                                }
+                                segmentStart = PackedEntryLocations.segmentStart(entryId);
+                                readSegment(ledgerId, segmentStart, locations);
+                            }
+
+                            byte[] value = locationsDb.get(key);
+                            if (value != null) {
+                                locations[(int) (entryId - segmentStart)] = ArrayUtil.getLong(value, 0);
+                                batch.remove(key);
+                                packedEntries++;
+                            }
+                        }
+                    }
+
+                    if (segmentStart >= 0) {
+                        writeSegment(batch, ledgerId, segmentStart, locations);
+                    }
+                    batch.flush();
+                } finally {
+                    packingLock.writeLock().unlock();
+                }
+            }
+        } finally {
+            firstKey.recycle();
+            lastKey.recycle();
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Packed {} entry locations of ledger {} in {} ms", packedEntries, ledgerId,
+                    TimeUnit.NANOSECONDS.toMillis(MathUtils.elapsedNanos(startTime)));
+        }
+    }
+
+    /**
+     * Pack all the ledgers that have regular location records.
+     */
+    private void packAllLedgers() throws IOException {
+        long ledgers = 0;
+        long nextLedgerId = 0;
+        while (nextLedgerId >= 0) {
+            LongPairWrapper key = LongPairWrapper.get(nextLedgerId, 0);
+            Entry<byte[], byte[]> entry = locationsDb.getCeil(key.array);
+            key.recycle();
+            if (entry == null) {
+                break;
+            }
+
+            long ledgerId = ArrayUtil.getLong(entry.getKey(), 0);
+            // Segments are after the regular records, so the ledger is already packed if the first key is one
+            if (!PackedEntryLocations.isSegmentKey(ArrayUtil.getLong(entry.getKey(), 8))
+                    && !deletedLedgers.contains(ledgerId)) {
+                ledgersToPack.remove(ledgerId);
+                packLedger(ledgerId);
+                ledgers++;
+            }
+            nextLedgerId = ledgerId + 1;
+        }
+        log.info("Packed the entry locations of {} ledgers", ledgers);
+    }
+
+    private void readSegment(long ledgerId, long segmentStart, long[] locations) throws IOException {
+        LongPairWrapper segmentKey = LongPairWrapper.get(ledgerId, PackedEntryLocations.segmentKey(segmentStart));
+        try {
+            byte[] segment = locationsDb.get(segmentKey.array);
+            if (segment != null) {
+                PackedEntryLocations.decode(segment, locations);
+            } else {
+                Arrays.fill(locations, 0L);
+            }
+        } finally {
+            segmentKey.recycle();
+        }
+    }
+
+    private void writeSegment(Batch batch, long ledgerId, long segmentStart, long[] locations)
+            throws IOException {
+        LongPairWrapper segmentKey = LongPairWrapper.get(ledgerId, PackedEntryLocations.segmentKey(segmentStart));
+        try {
+            byte[] segment = PackedEntryLocations.encode(segmentStart, locations);
+            if (segment != null) {
+                batch.put(segmentKey.array, segment);
+            } else {
+                batch.remove(segmentKey.array);
+            }
+        } finally {
+            segmentKey.recycle();
+        }
+    }
+
+    /**
+     * Batch that records the ledgers to pack and synchronizes with the packing.
+     */
+    private class PackingAwareBatch implements Batch {
+        private final Batch batch;
+        private long lastLedgerId = -1;
+
+        PackingAwareBatch(Batch batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void put(byte[] key, byte[] value) throws IOException {
+            long ledgerId = ArrayUtil.getLong(key, 0);
+            if (ledgerId != lastLedgerId) {
+                // Entries are mostly added in sequence for each ledger
+                ledgersToPack.put(ledgerId, flushGeneration);
+                lastLedgerId = ledgerId;
+            }
+            batch.put(key, value);
+        }
+
+        @Override
+        public void remove(byte[] key) throws IOException {
+            batch.remove(key);
+        }
+
+        @Override
+        public void deleteRange(byte[] beginKey, byte[] endKey) throws IOException {
+            batch.deleteRange(beginKey, endKey);
+        }
+
+        @Override
+        public void clear() {
+            batch.clear();
+            lastLedgerId = -1;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            packingLock.readLock().lock();
+            try {
+                batch.flush();
+            } finally {
+                packingLock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            batch.close();
+        }
+    }
+
     public void delete(long ledgerId) throws IOException {
         // We need to find all the LedgerIndexPage records belonging to one specific
         // ledgers
@@ -197,6 +489,9 @@ public class EntryLocationIndex implements Closeable {
     public void compact() throws IOException {
         try {
             isCompacting = true;
+            if (packingEnabled) {
+                packAllLedgers();
+            }
             locationsDb.compact();
         } finally {
             isCompacting = false;
@@ -226,8 +521,9 @@ public class EntryLocationIndex implements Closeable {
                     log.debug("Deleting indexes from ledger {}", ledgerId);
                 }
 
+                // Include the packed segments, stored after the regular records of the ledger
                 firstKeyWrapper.set(ledgerId, 0);
-                lastKeyWrapper.set(ledgerId, Long.MAX_VALUE);
+                lastKeyWrapper.set(ledgerId, -1L);
 
                 batch.deleteRange(firstKeyWrapper.array, lastKeyWrapper.array);
             }
@@ -235,6 +531,7 @@ public class EntryLocationIndex implements Closeable {
             batch.flush();
             for (long ledgerId : ledgersToDelete) {
                 deletedLedgers.remove(ledgerId);
+                ledgersToPack.remove(ledgerId);
             }
         } finally {
             firstKeyWrapper.recycle();
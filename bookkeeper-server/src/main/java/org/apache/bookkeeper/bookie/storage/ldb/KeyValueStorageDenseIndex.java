@@ -0,0 +1,1428 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * KeyValueStorage implementation specialized for the entry location index.
+ *
+ * <p>Keys must be (ledgerId, entryId) pairs and values must be longs, as written by {@link EntryLocationIndex}.
+ * Since entry ids are mostly sequential within a ledger, the locations of each ledger are kept in arrays indexed
+ * by entry id rather than in a generic sorted structure:
+ * <ul>
+ * <li>an immutable, memory-mapped snapshot file holds the locations of all the ledgers as of the last
+ * compaction</li>
+ * <li>updates done after that are appended to a log file and applied to per-ledger on-heap arrays that shadow
+ * the snapshot</li>
+ * </ul>
+ *
+ * <p>When the log grows past {@code dbStorage_denseIndexCompactionThresholdMB}, a new snapshot merging the
+ * previous one with the accumulated updates is written in background. Unlike RocksDB compactions, this never
+ * blocks lookups: readers only synchronize on the ledger they are looking up.
+ *
+ * <p>A value of 0 is treated as "not present", in the same way {@link EntryLocationIndex} reports missing entries,
+ * and entry ids must not be negative.
+ */
+public class KeyValueStorageDenseIndex implements KeyValueStorage {
+
+    static KeyValueStorageFactory factory = (defaultBasePath, subPath, dbConfigType, conf) ->
+            new KeyValueStorageDenseIndex(defaultBasePath, subPath, conf, false);
+
+    private static final String DENSE_INDEX_COMPACTION_THRESHOLD_MB = "dbStorage_denseIndexCompactionThresholdMB";
+    private static final long DEFAULT_DENSE_INDEX_COMPACTION_THRESHOLD_MB = 256;
+
+    static final String SNAPSHOT_PREFIX = "snapshot-";
+    static final String LOG_PREFIX = "log-";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    // Snapshot layout:
+    // header: magic (int), version (int), number of ranges (long)
+    // ranges table, sorted: ledgerId, firstEntryId, number of entries (int), live entries (int), data offset
+    // data: one array of locations for each range, 0 being an hole
+    // The entries of a ledger are split in several ranges when there are large holes between them
+    private static final int SNAPSHOT_MAGIC = 0x444c4958;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_HEADER_SIZE = 16;
+    private static final int SNAPSHOT_LEDGER_RECORD_SIZE = 32;
+    private static final int MAP_CHUNK_SHIFT = 30;
+    private static final long MAP_CHUNK_SIZE = 1L << MAP_CHUNK_SHIFT;
+    // Holes longer than that start a new range, since the range record is cheaper than the hole
+    private static final int SNAPSHOT_MAX_HOLE = 16;
+
+    // Log records are grouped in frames: length (int), crc32 (int), records
+    private static final int LOG_FRAME_HEADER_SIZE = 8;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_DELETE_RANGE = 3;
+
+    private static final int KEY_SIZE = 16;
+    private static final int VALUE_SIZE = 8;
+
+    // Marks an entry removed on top of a lower layer
+    private static final long TOMBSTONE = Long.MIN_VALUE;
+
+    private final File dir;
+    private final boolean readOnly;
+    private final long compactionThresholdBytes;
+
+    private final ConcurrentSkipListMap<Long, LedgerLocations> ledgers =
+            new ConcurrentSkipListMap<>(Long::compareUnsigned);
+    private final LongAdder count = new LongAdder();
+
+    // Guards the log and the application of the updates to the in-memory arrays
+    private final Object writeLock = new Object();
+    private FileChannel logChannel;
+    private long logSeq;
+    private long logSize;
+    private volatile boolean closed = false;
+
+    // Guards the snapshot generation
+    private final Object compactionLock = new Object();
+    private long snapshotSeq;
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final ExecutorService compactionExecutor;
+
+    public KeyValueStorageDenseIndex(String basePath, String subPath, ServerConfiguration conf, boolean readOnly)
+            throws IOException {
+        this.dir = new File(basePath, subPath);
+        this.readOnly = readOnly;
+        this.compactionThresholdBytes = conf.getLong(DENSE_INDEX_COMPACTION_THRESHOLD_MB,
+                DEFAULT_DENSE_INDEX_COMPACTION_THRESHOLD_MB) * 1024 * 1024;
+
+        if (new File(dir, "CURRENT").exists() && !isDenseIndex(dir)) {
+            throw new IOException("Directory " + dir + " contains a RocksDB index. Migrate it with"
+                    + " 'bookkeeper shell rebuild-db-ledger-locations-index --migrate' before switching to the"
+                    + " dense index");
+        }
+        if (!readOnly && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Failed to create directory " + dir);
+        }
+
+        long replayedBytes = load();
+
+        if (readOnly) {
+            this.compactionExecutor = null;
+        } else {
+            this.compactionExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("dense-index-compaction-%d").setDaemon(true).build());
+            // Always start on a new log, so that a torn tail in the previous one is never followed by valid data
+            openLog(logSeq + 1);
+            if (replayedBytes > compactionThresholdBytes) {
+                scheduleCompaction();
+            }
+        }
+    }
+
+    /**
+     * Check whether a directory holds a dense index.
+     */
+    static boolean isDenseIndex(File dir) {
+        String[] files = dir.list();
+        if (files == null) {
+            return false;
+        }
+        for (String file : files) {
+            if (file.startsWith(LOG_PREFIX) || file.startsWith(SNAPSHOT_PREFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long load() throws IOException {
+        long maxSnapshotSeq = 0;
+        List<Long> logSeqs = new ArrayList<>();
+        String[] files = dir.list();
+        if (files != null) {
+            for (String file : files) {
+                if (file.endsWith(TMP_SUFFIX)) {
+                    if (!readOnly) {
+                        Files.deleteIfExists(new File(dir, file).toPath());
+                    }
+                } else if (file.startsWith(SNAPSHOT_PREFIX)) {
+                    maxSnapshotSeq = Math.max(maxSnapshotSeq, Long.parseLong(file.substring(SNAPSHOT_PREFIX.length())));
+                } else if (file.startsWith(LOG_PREFIX)) {
+                    logSeqs.add(Long.parseLong(file.substring(LOG_PREFIX.length())));
+                }
+            }
+        }
+
+        if (maxSnapshotSeq > 0) {
+            loadSnapshot(maxSnapshotSeq);
+        }
+        snapshotSeq = maxSnapshotSeq;
+        logSeq = maxSnapshotSeq;
+
+        // The snapshot includes all the logs before it
+        logSeqs.sort(null);
+        long replayedBytes = 0;
+        for (long seq : logSeqs) {
+            logSeq = Math.max(logSeq, seq);
+            if (seq < maxSnapshotSeq) {
+                if (!readOnly) {
+                    Files.deleteIfExists(logFile(seq).toPath());
+                }
+            } else {
+                replayedBytes += replayLog(seq);
+            }
+        }
+
+        if (!readOnly && maxSnapshotSeq > 0) {
+            deleteSnapshotsBefore(maxSnapshotSeq);
+        }
+
+        log.info("Loaded dense index {} - snapshot: {} - logs: {} - replayed: {} bytes - entries: {}", dir,
+                maxSnapshotSeq, logSeqs.size(), replayedBytes, count.sum());
+        return replayedBytes;
+    }
+
+    private void loadSnapshot(long seq) throws IOException {
+        Snapshot snapshot = Snapshot.open(snapshotFile(seq));
+        long rangesCount = snapshot.getLong(8);
+        List<SnapshotRange> ranges = new ArrayList<>();
+        int liveCount = 0;
+        for (long i = 0; i < rangesCount; i++) {
+            long recordOffset = SNAPSHOT_HEADER_SIZE + i * SNAPSHOT_LEDGER_RECORD_SIZE;
+            long ledgerId = snapshot.getLong(recordOffset);
+            long firstEntryId = snapshot.getLong(recordOffset + 8);
+            long counts = snapshot.getLong(recordOffset + 16);
+            long dataOffset = snapshot.getLong(recordOffset + 24);
+
+            ranges.add(new SnapshotRange(snapshot, firstEntryId, (int) (counts >>> 32), (int) counts, dataOffset));
+            liveCount += (int) counts;
+
+            // The ranges of a ledger are stored next to each other
+            boolean lastRange = i + 1 == rangesCount
+                    || snapshot.getLong(recordOffset + SNAPSHOT_LEDGER_RECORD_SIZE) != ledgerId;
+            if (lastRange) {
+                LedgerLocations ledger = new LedgerLocations(ledgerId);
+                ledger.base = new SnapshotRanges(ranges.toArray(new SnapshotRange[0]));
+                ledger.liveCount = liveCount;
+                ledgers.put(ledgerId, ledger);
+                count.add(liveCount);
+                ranges.clear();
+                liveCount = 0;
+            }
+        }
+    }
+
+    private long replayLog(long seq) throws IOException {
+        File file = logFile(seq);
+        long position = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(LOG_FRAME_HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            while (position + LOG_FRAME_HEADER_SIZE <= size) {
+                header.clear();
+                readFully(channel, header, position);
+                header.flip();
+                int length = header.getInt();
+                int checksum = header.getInt();
+                if (length < 0 || position + LOG_FRAME_HEADER_SIZE + length > size) {
+                    break;
+                }
+
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(channel, payload, position + LOG_FRAME_HEADER_SIZE);
+                payload.flip();
+                crc.reset();
+                crc.update(payload.array(), 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                apply(Unpooled.wrappedBuffer(payload));
+                position += LOG_FRAME_HEADER_SIZE + length;
+            }
+
+            if (position != size) {
+                log.warn("Ignoring {} bytes at the end of dense index log {}", size - position, file);
+            }
+        }
+        return position;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            position += read;
+        }
+    }
+
+    private File snapshotFile(long seq) {
+        return new File(dir, SNAPSHOT_PREFIX + seq);
+    }
+
+    private File logFile(long seq) {
+        return new File(dir, LOG_PREFIX + seq);
+    }
+
+    private void openLog(long seq) throws IOException {
+        logChannel = FileChannel.open(logFile(seq).toPath(), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+        logSeq = seq;
+        logSize = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        if (compactionExecutor != null) {
+            compactionExecutor.shutdown();
+            try {
+                compactionExecutor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (writeLock) {
+            if (logChannel != null) {
+                logChannel.force(false);
+                logChannel.close();
+                logChannel = null;
+            }
+        }
+    }
+
+    @Override
+    public void put(byte[] key, byte[] value) throws IOException {
+        try (DenseIndexBatch batch = new DenseIndexBatch()) {
+            batch.put(key, value);
+            write(batch.buffer, false);
+        }
+    }
+
+    @Override
+    public byte[] get(byte[] key) throws IOException {
+        byte[] value = new byte[VALUE_SIZE];
+        return get(key, value) < 0 ? null : value;
+    }
+
+    @Override
+    public int get(byte[] key, byte[] value) throws IOException {
+        checkKey(key);
+        if (value.length < VALUE_SIZE) {
+            throw new IOException("Value array is too small to fit the result");
+        }
+
+        LedgerLocations ledger = ledgers.get(ArrayUtil.getLong(key, 0));
+        if (ledger == null) {
+            return -1;
+        }
+
+        long entryId = ArrayUtil.getLong(key, 8);
+        long location = entryId < 0 ? 0 : ledger.get(entryId);
+        if (location == 0) {
+            return -1;
+        }
+
+        ArrayUtil.setLong(value, 0, location);
+        return VALUE_SIZE;
+    }
+
+    @Override
+    public Entry<byte[], byte[]> getFloor(byte[] key) throws IOException {
+        checkKey(key);
+        long ledgerId = ArrayUtil.getLong(key, 0);
+        long entryId = ArrayUtil.getLong(key, 8);
+        long[] found = new long[2];
+
+        // Entry ids are never negative, so a negative one is bigger than all of them in the key ordering
+        LedgerLocations ledger = ledgers.get(ledgerId);
+        if (ledger != null && entryId != 0 && ledger.floor(entryId < 0 ? Long.MAX_VALUE : entryId - 1, found)) {
+            return newEntry(ledgerId, found);
+        }
+
+        for (LedgerLocations l : ledgers.headMap(ledgerId, false).descendingMap().values()) {
+            if (l.floor(Long.MAX_VALUE, found)) {
+                return newEntry(l.ledgerId, found);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Entry<byte[], byte[]> getCeil(byte[] key) throws IOException {
+        checkKey(key);
+        try (DenseIndexIterator iterator = new DenseIndexIterator(ArrayUtil.getLong(key, 0),
+                ArrayUtil.getLong(key, 8), null)) {
+            if (iterator.hasNext()) {
+                return newEntry(iterator.foundLedgerId, iterator.found);
+            }
+            return null;
+        }
+    }
+
+    private static Entry<byte[], byte[]> newEntry(long ledgerId, long[] found) {
+        byte[] key = new byte[KEY_SIZE];
+        ArrayUtil.setLong(key, 0, ledgerId);
+        ArrayUtil.setLong(key, 8, found[0]);
+        byte[] value = new byte[VALUE_SIZE];
+        ArrayUtil.setLong(value, 0, found[1]);
+        return new SimpleImmutableEntry<>(key, value);
+    }
+
+    @Override
+    public void delete(byte[] key) throws IOException {
+        try (DenseIndexBatch batch = new DenseIndexBatch()) {
+            batch.remove(key);
+            write(batch.buffer, false);
+        }
+    }
+
+    @Override
+    public void compact() throws IOException {
+        synchronized (compactionLock) {
+            if (readOnly || closed) {
+                return;
+            }
+
+            long startTime = System.nanoTime();
+            List<LedgerLocations> ledgersToCompact;
+            long newSnapshotSeq;
+
+            // Switch to a new log and freeze the updates received so far: the new snapshot will contain everything
+            // that was written in the previous logs
+            synchronized (writeLock) {
+                checkState(!closed, "Dense index is closed");
+                ledgersToCompact = new ArrayList<>(ledgers.values());
+                for (LedgerLocations ledger : ledgersToCompact) {
+                    ledger.freeze();
+                }
+
+                logChannel.force(false);
+                logChannel.close();
+                openLog(logSeq + 1);
+                newSnapshotSeq = logSeq;
+            }
+
+            Snapshot snapshot;
+            SnapshotRanges[] ranges;
+            try {
+                ranges = new SnapshotRanges[ledgersToCompact.size()];
+                snapshot = writeSnapshot(newSnapshotSeq, ledgersToCompact, ranges);
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to write dense index snapshot {} in {}", newSnapshotSeq, dir, e);
+                for (LedgerLocations ledger : ledgersToCompact) {
+                    ledger.unfreeze();
+                }
+                throw e;
+            }
+
+            for (int i = 0; i < ledgersToCompact.size(); i++) {
+                SnapshotRanges ledgerRanges = ranges[i];
+                ledgersToCompact.get(i).swapBase(ledgerRanges != null ? ledgerRanges.withSnapshot(snapshot) : null);
+            }
+
+            long previousSnapshotSeq = snapshotSeq;
+            snapshotSeq = newSnapshotSeq;
+            for (long seq = previousSnapshotSeq; seq < newSnapshotSeq; seq++) {
+                Files.deleteIfExists(logFile(seq).toPath());
+            }
+            deleteSnapshotsBefore(newSnapshotSeq);
+
+            log.info("Compacted dense index {} in snapshot {} - ledgers: {} - size: {} bytes - took {} ms", dir,
+                    newSnapshotSeq, ledgersToCompact.size(), snapshot.size,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (compactionScheduled.compareAndSet(false, true)) {
+            compactionExecutor.execute(() -> {
+                compactionScheduled.set(false);
+                try {
+                    compact();
+                } catch (Throwable t) {
+                    log.error("Failed to compact dense index {}", dir, t);
+                }
+            });
+        }
+    }
+
+    private void deleteSnapshotsBefore(long seq) throws IOException {
+        String[] files = dir.list();
+        if (files == null) {
+            return;
+        }
+        for (String file : files) {
+            if (file.startsWith(SNAPSHOT_PREFIX) && !file.endsWith(TMP_SUFFIX)
+                    && Long.parseLong(file.substring(SNAPSHOT_PREFIX.length())) < seq) {
+                Files.deleteIfExists(new File(dir, file).toPath());
+            }
+        }
+    }
+
+    /**
+     * Write the frozen view of the ledgers to a new snapshot file.
+     *
+     * <p>The ranges of the ledgers that are not empty are set in {@code ranges}, with a null snapshot.
+     */
+    private Snapshot writeSnapshot(long seq, List<LedgerLocations> ledgersToCompact, SnapshotRanges[] ranges)
+            throws IOException {
+        // First pass to split the entries of each ledger in ranges without large holes
+        long rangesCount = 0;
+        long dataOffset = 0;
+        List<SnapshotRange> ledgerRanges = new ArrayList<>();
+        for (int i = 0; i < ledgersToCompact.size(); i++) {
+            LedgerLocations ledger = ledgersToCompact.get(i);
+            long first = -1;
+            long last = -1;
+            int live = 0;
+            long entryId = 0;
+            while ((entryId = ledger.nextFrozenEntryId(entryId)) >= 0) {
+                if (first >= 0 && (entryId - last > SNAPSHOT_MAX_HOLE || entryId - first >= Integer.MAX_VALUE)) {
+                    ledgerRanges.add(new SnapshotRange(null, first, (int) (last - first + 1), live, dataOffset));
+                    dataOffset += (last - first + 1) * Long.BYTES;
+                    first = -1;
+                    live = 0;
+                }
+                if (first < 0) {
+                    first = entryId;
+                }
+                last = entryId;
+                live++;
+                if (entryId == Long.MAX_VALUE) {
+                    break;
+                }
+                entryId++;
+            }
+
+            if (first >= 0) {
+                ledgerRanges.add(new SnapshotRange(null, first, (int) (last - first + 1), live, dataOffset));
+                dataOffset += (last - first + 1) * Long.BYTES;
+            }
+            if (!ledgerRanges.isEmpty()) {
+                ranges[i] = new SnapshotRanges(ledgerRanges.toArray(new SnapshotRange[0]));
+                rangesCount += ledgerRanges.size();
+                ledgerRanges.clear();
+            }
+        }
+
+        // The data offsets computed above are relative to the end of the ranges table
+        long tableSize = SNAPSHOT_HEADER_SIZE + rangesCount * SNAPSHOT_LEDGER_RECORD_SIZE;
+        for (int i = 0; i < ranges.length; i++) {
+            if (ranges[i] != null) {
+                ranges[i] = ranges[i].withOffset(tableSize);
+            }
+        }
+
+        File tmpFile = new File(dir, SNAPSHOT_PREFIX + seq + TMP_SUFFIX);
+        try (FileOutputStream fos = new FileOutputStream(tmpFile);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 1024 * 1024))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(rangesCount);
+
+            for (int i = 0; i < ranges.length; i++) {
+                if (ranges[i] != null) {
+                    for (SnapshotRange range : ranges[i].ranges) {
+                        out.writeLong(ledgersToCompact.get(i).ledgerId);
+                        out.writeLong(range.firstEntryId);
+                        out.writeInt(range.count);
+                        out.writeInt(range.liveCount);
+                        out.writeLong(range.offset);
+                    }
+                }
+            }
+
+            for (int i = 0; i < ranges.length; i++) {
+                if (ranges[i] != null) {
+                    LedgerLocations ledger = ledgersToCompact.get(i);
+                    for (SnapshotRange range : ranges[i].ranges) {
+                        for (long entryId = range.firstEntryId; entryId <= range.lastEntryId(); entryId++) {
+                            out.writeLong(ledger.getFrozen(entryId));
+                        }
+                    }
+                }
+            }
+
+            out.flush();
+            fos.getFD().sync();
+        }
+
+        File file = snapshotFile(seq);
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return Snapshot.open(file);
+    }
+
+    @Override
+    public String getDBPath() {
+        return dir.getPath();
+    }
+
+    @Override
+    public CloseableIterator<byte[]> keys() {
+        return keys(0, 0, null);
+    }
+
+    @Override
+    public CloseableIterator<byte[]> keys(byte[] firstKey, byte[] lastKey) {
+        return keys(ArrayUtil.getLong(firstKey, 0), ArrayUtil.getLong(firstKey, 8), lastKey);
+    }
+
+    private CloseableIterator<byte[]> keys(long firstLedgerId, long firstEntryId, byte[] lastKey) {
+        final DenseIndexIterator iterator = new DenseIndexIterator(firstLedgerId, firstEntryId, lastKey);
+        return new CloseableIterator<byte[]>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public byte[] next() {
+                iterator.next();
+                byte[] key = new byte[KEY_SIZE];
+                ArrayUtil.setLong(key, 0, iterator.foundLedgerId);
+                ArrayUtil.setLong(key, 8, iterator.found[0]);
+                return key;
+            }
+
+            @Override
+            public void close() {
+                iterator.close();
+            }
+        };
+    }
+
+    @Override
+    public CloseableIterator<Entry<byte[], byte[]>> iterator() {
+        final DenseIndexIterator iterator = new DenseIndexIterator(0, 0, null);
+        return new CloseableIterator<Entry<byte[], byte[]>>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Entry<byte[], byte[]> next() {
+                iterator.next();
+                return newEntry(iterator.foundLedgerId, iterator.found);
+            }
+
+            @Override
+            public void close() {
+                iterator.close();
+            }
+        };
+    }
+
+    @Override
+    public void sync() throws IOException {
+        synchronized (writeLock) {
+            if (logChannel != null) {
+                logChannel.force(false);
+            }
+        }
+    }
+
+    @Override
+    public long count() throws IOException {
+        return count.sum();
+    }
+
+    @Override
+    public Batch newBatch() {
+        return new DenseIndexBatch();
+    }
+
+    private void write(ByteBuf records, boolean sync) throws IOException {
+        if (readOnly) {
+            throw new IOException("Dense index " + dir + " is opened in read-only mode");
+        }
+        if (!records.isReadable()) {
+            if (sync) {
+                sync();
+            }
+            return;
+        }
+
+        ByteBuffer payload = records.nioBuffer();
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(LOG_FRAME_HEADER_SIZE);
+        header.putInt(payload.remaining()).putInt((int) crc.getValue()).flip();
+
+        boolean needsCompaction;
+        synchronized (writeLock) {
+            if (logChannel == null) {
+                throw new IOException("Dense index " + dir + " is closed");
+            }
+
+            long frameSize = header.remaining() + payload.remaining();
+            ByteBuffer[] frame = { header, payload };
+            while (header.hasRemaining() || payload.hasRemaining()) {
+                logChannel.write(frame);
+            }
+            if (sync) {
+                logChannel.force(false);
+            }
+            logSize += frameSize;
+
+            apply(records);
+            needsCompaction = logSize > compactionThresholdBytes;
+        }
+
+        if (needsCompaction) {
+            scheduleCompaction();
+        }
+    }
+
+    private void apply(ByteBuf records) throws IOException {
+        int readerIndex = records.readerIndex();
+        while (records.isReadable()) {
+            byte op = records.readByte();
+            switch (op) {
+            case OP_PUT: {
+                long ledgerId = records.readLong();
+                long entryId = records.readLong();
+                long location = records.readLong();
+                LedgerLocations ledger = ledgers.computeIfAbsent(ledgerId, LedgerLocations::new);
+                count.add(ledger.set(entryId, location));
+                break;
+            }
+            case OP_DELETE: {
+                long ledgerId = records.readLong();
+                long entryId = records.readLong();
+                LedgerLocations ledger = ledgers.get(ledgerId);
+                if (ledger != null) {
+                    count.add(ledger.set(entryId, 0));
+                    if (ledger.deleteIfEmpty()) {
+                        ledgers.remove(ledgerId, ledger);
+                    }
+                }
+                break;
+            }
+            case OP_DELETE_RANGE: {
+                long firstLedgerId = records.readLong();
+                long firstEntryId = records.readLong();
+                long lastLedgerId = records.readLong();
+                long lastEntryId = records.readLong();
+                deleteRange(firstLedgerId, firstEntryId, lastLedgerId, lastEntryId);
+                break;
+            }
+            default:
+                throw new IOException("Unknown dense index log record type: " + op);
+            }
+        }
+        records.readerIndex(readerIndex);
+    }
+
+    private void deleteRange(long firstLedgerId, long firstEntryId, long lastLedgerId, long lastEntryId) {
+        if (Long.compareUnsigned(firstLedgerId, lastLedgerId) > 0) {
+            return;
+        }
+
+        List<LedgerLocations> affected = new ArrayList<>(
+                ledgers.subMap(firstLedgerId, true, lastLedgerId, true).values());
+        for (LedgerLocations ledger : affected) {
+            // Range is [firstKey, lastKey), with a negative entry id being bigger than all the others
+            long from = ledger.ledgerId == firstLedgerId ? firstEntryId : 0;
+            long to = ledger.ledgerId == lastLedgerId && lastEntryId >= 0 ? lastEntryId - 1 : Long.MAX_VALUE;
+            if (from < 0 || to < from) {
+                continue;
+            }
+
+            count.add(ledger.deleteRange(from, to));
+            if (ledger.deleteIfEmpty()) {
+                ledgers.remove(ledger.ledgerId, ledger);
+            }
+        }
+    }
+
+    private static void checkKey(byte[] key) throws IOException {
+        if (key.length != KEY_SIZE) {
+            throw new IOException("Dense index only supports (ledgerId, entryId) keys");
+        }
+    }
+
+    /**
+     * Batch of updates, serialized as log records and applied when flushed.
+     */
+    private class DenseIndexBatch implements Batch {
+        private final ByteBuf buffer = Unpooled.buffer(1024);
+
+        @Override
+        public void put(byte[] key, byte[] value) throws IOException {
+            checkKey(key);
+            if (value.length != VALUE_SIZE) {
+                throw new IOException("Dense index only supports long values");
+            }
+            long entryId = ArrayUtil.getLong(key, 8);
+            long location = ArrayUtil.getLong(value, 0);
+            if (entryId < 0 || location == TOMBSTONE) {
+                throw new IOException("Invalid entry for dense index: " + entryId + " -> " + location);
+            }
+
+            buffer.writeByte(OP_PUT);
+            buffer.writeBytes(key);
+            buffer.writeLong(location);
+        }
+
+        @Override
+        public void remove(byte[] key) throws IOException {
+            checkKey(key);
+            buffer.writeByte(OP_DELETE);
+            buffer.writeBytes(key);
+        }
+
+        @Override
+        public void deleteRange(byte[] beginKey, byte[] endKey) throws IOException {
+            checkKey(beginKey);
+            checkKey(endKey);
+            buffer.writeByte(OP_DELETE_RANGE);
+            buffer.writeBytes(beginKey);
+            buffer.writeBytes(endKey);
+        }
+
+        @Override
+        public void clear() {
+            buffer.clear();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            write(buffer, true);
+        }
+
+        @Override
+        public void close() {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Iterates over the keys in [first, last) in order. It is weakly consistent with respect to concurrent updates.
+     */
+    private class DenseIndexIterator implements Iterator<long[]>, AutoCloseable {
+        private final long firstLedgerId;
+        private final long firstEntryId;
+        private final byte[] lastKey;
+        private final Iterator<LedgerLocations> ledgersIterator;
+
+        private LedgerLocations current;
+        private long nextEntryId;
+        private boolean hasFound;
+
+        long foundLedgerId;
+        final long[] found = new long[2];
+
+        DenseIndexIterator(long firstLedgerId, long firstEntryId, byte[] lastKey) {
+            this.firstLedgerId = firstLedgerId;
+            this.firstEntryId = firstEntryId;
+            this.lastKey = lastKey;
+            this.ledgersIterator = ledgers.tailMap(firstLedgerId, true).values().iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!hasFound) {
+                hasFound = advance();
+            }
+            return hasFound;
+        }
+
+        @Override
+        public long[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            hasFound = false;
+            return found;
+        }
+
+        private boolean advance() {
+            while (true) {
+                if (current == null) {
+                    if (!ledgersIterator.hasNext()) {
+                        return false;
+                    }
+                    current = ledgersIterator.next();
+                    nextEntryId = current.ledgerId == firstLedgerId ? firstEntryId : 0;
+                    if (lastKey != null && Long.compareUnsigned(current.ledgerId, ArrayUtil.getLong(lastKey, 0)) > 0) {
+                        return false;
+                    }
+                }
+
+                // A negative entry id means we went past the last possible entry of the ledger
+                if (nextEntryId >= 0 && current.ceil(nextEntryId, found)) {
+                    if (lastKey != null && current.ledgerId == ArrayUtil.getLong(lastKey, 0)
+                            && Long.compareUnsigned(found[0], ArrayUtil.getLong(lastKey, 8)) >= 0) {
+                        return false;
+                    }
+                    foundLedgerId = current.ledgerId;
+                    nextEntryId = found[0] + 1;
+                    return true;
+                }
+                current = null;
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Locations of the entries of one ledger.
+     *
+     * <p>Each lookup checks, in order, the updates received since the last compaction, the updates being compacted
+     * and the snapshot. Each layer can find its next and previous set slot without scanning the holes, so floor and
+     * ceil lookups only visit the slots that are set, including the tombstones hiding an entry of a lower layer.
+     */
+    private static final class LedgerLocations {
+        final long ledgerId;
+        private SnapshotRanges base;
+        private DenseArray frozen;
+        private DenseArray delta = new DenseArray();
+        private int liveCount;
+        // Set once the ledger is removed from the index. The lower layers are left untouched since a compaction
+        // could be reading them.
+        private boolean deleted;
+
+        LedgerLocations(long ledgerId) {
+            this.ledgerId = ledgerId;
+        }
+
+        synchronized long get(long entryId) {
+            if (deleted) {
+                return 0;
+            }
+            long location = delta.get(entryId);
+            if (location != 0) {
+                return location == TOMBSTONE ? 0 : location;
+            }
+            return getLower(entryId);
+        }
+
+        private long getLower(long entryId) {
+            if (frozen != null) {
+                long location = frozen.get(entryId);
+                if (location != 0) {
+                    return location == TOMBSTONE ? 0 : location;
+                }
+            }
+            return base != null ? base.get(entryId) : 0;
+        }
+
+        /**
+         * Set the location of an entry, 0 meaning removal.
+         *
+         * @return the change in the number of entries
+         */
+        synchronized int set(long entryId, long location) {
+            long previous = get(entryId);
+            if (location != 0) {
+                delta.set(entryId, location);
+                if (previous == 0) {
+                    liveCount++;
+                    return 1;
+                }
+                return 0;
+            }
+
+            if (previous == 0) {
+                return 0;
+            }
+            delta.set(entryId, getLower(entryId) != 0 ? TOMBSTONE : 0);
+            liveCount--;
+            return -1;
+        }
+
+        synchronized int deleteRange(long from, long to) {
+            long min = nextSlot(0, true);
+            if (min < 0 || from <= min && to >= prevSlot(Long.MAX_VALUE, true)) {
+                int removed = liveCount;
+                liveCount = 0;
+                deleted = true;
+                return -removed;
+            }
+
+            int removed = 0;
+            long entryId = from;
+            while ((entryId = nextSlot(entryId, true)) >= 0 && entryId <= to) {
+                removed += set(entryId, 0);
+                if (entryId == Long.MAX_VALUE) {
+                    break;
+                }
+                entryId++;
+            }
+            return removed;
+        }
+
+        /**
+         * Mark the ledger as deleted if it has no entries left.
+         */
+        synchronized boolean deleteIfEmpty() {
+            if (liveCount == 0) {
+                deleted = true;
+            }
+            return deleted;
+        }
+
+        /**
+         * Find the first slot set in one of the layers, at or after {@code from}.
+         *
+         * @return the entry id of the slot, or -1 if there is none
+         */
+        private long nextSlot(long from, boolean includeDelta) {
+            long next = includeDelta ? delta.next(from) : -1;
+            if (frozen != null) {
+                next = minSlot(next, frozen.next(from));
+            }
+            if (base != null) {
+                next = minSlot(next, base.next(from));
+            }
+            return next;
+        }
+
+        private static long minSlot(long a, long b) {
+            return a < 0 ? b : (b < 0 ? a : Math.min(a, b));
+        }
+
+        /**
+         * Find the last slot set in one of the layers, at or before {@code from}.
+         *
+         * @return the entry id of the slot, or -1 if there is none
+         */
+        private long prevSlot(long from, boolean includeDelta) {
+            long prev = includeDelta ? delta.prev(from) : -1;
+            if (frozen != null) {
+                prev = Math.max(prev, frozen.prev(from));
+            }
+            if (base != null) {
+                prev = Math.max(prev, base.prev(from));
+            }
+            return prev;
+        }
+
+        /**
+         * Find the last entry whose id is lower or equal than {@code maxEntryId}.
+         */
+        synchronized boolean floor(long maxEntryId, long[] result) {
+            if (deleted) {
+                return false;
+            }
+            long entryId = maxEntryId;
+            while ((entryId = prevSlot(entryId, true)) >= 0) {
+                long location = get(entryId);
+                if (location != 0) {
+                    result[0] = entryId;
+                    result[1] = location;
+                    return true;
+                }
+                entryId--;
+            }
+            return false;
+        }
+
+        /**
+         * Find the first entry whose id is greater or equal than {@code minEntryId}.
+         */
+        synchronized boolean ceil(long minEntryId, long[] result) {
+            if (deleted) {
+                return false;
+            }
+            long entryId = minEntryId;
+            while ((entryId = nextSlot(entryId, true)) >= 0) {
+                long location = get(entryId);
+                if (location != 0) {
+                    result[0] = entryId;
+                    result[1] = location;
+                    return true;
+                }
+                if (entryId == Long.MAX_VALUE) {
+                    break;
+                }
+                entryId++;
+            }
+            return false;
+        }
+
+        synchronized void freeze() {
+            checkState(frozen == null);
+            frozen = delta;
+            delta = new DenseArray();
+        }
+
+        synchronized void unfreeze() {
+            if (frozen != null) {
+                frozen.mergeFrom(delta);
+                delta = frozen;
+                frozen = null;
+            }
+        }
+
+        synchronized void swapBase(SnapshotRanges newBase) {
+            base = newBase;
+            frozen = null;
+        }
+
+        // The frozen view is only accessed by the compaction thread, which is also the only one modifying it
+
+        synchronized long getFrozen(long entryId) {
+            return getLower(entryId);
+        }
+
+        /**
+         * Find the first entry of the frozen view at or after {@code from}.
+         *
+         * @return the entry id, or -1 if there is none
+         */
+        synchronized long nextFrozenEntryId(long from) {
+            long entryId = from;
+            while ((entryId = nextSlot(entryId, false)) >= 0) {
+                if (getLower(entryId) != 0) {
+                    return entryId;
+                }
+                if (entryId == Long.MAX_VALUE) {
+                    break;
+                }
+                entryId++;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Array of locations indexed by entry id.
+     *
+     * <p>The array is split in fixed size pages and only the pages with at least one slot set are allocated, so
+     * sparse entry ids don't make it grow beyond one page per entry, and the empty pages are skipped when looking
+     * for the next or previous slot set.
+     */
+    private static final class DenseArray {
+        private static final int PAGE_SHIFT = 6;
+        private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+        private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+        private final TreeMap<Long, Page> pages = new TreeMap<>();
+        // Entries are mostly accessed sequentially, remember the last page to avoid a lookup in the tree
+        private long lastPageIndex = -1;
+        private Page lastPage;
+
+        private static final class Page {
+            final long[] values = new long[PAGE_SIZE];
+            int used;
+        }
+
+        boolean isEmpty() {
+            return pages.isEmpty();
+        }
+
+        private Page page(long pageIndex) {
+            if (pageIndex != lastPageIndex) {
+                lastPage = pages.get(pageIndex);
+                lastPageIndex = pageIndex;
+            }
+            return lastPage;
+        }
+
+        long get(long entryId) {
+            Page page = page(entryId >>> PAGE_SHIFT);
+            return page != null ? page.values[(int) (entryId & PAGE_MASK)] : 0;
+        }
+
+        void set(long entryId, long value) {
+            long pageIndex = entryId >>> PAGE_SHIFT;
+            Page page = page(pageIndex);
+            if (page == null) {
+                if (value == 0) {
+                    return;
+                }
+                page = new Page();
+                pages.put(pageIndex, page);
+                lastPage = page;
+            }
+
+            int idx = (int) (entryId & PAGE_MASK);
+            long previous = page.values[idx];
+            page.values[idx] = value;
+            if (previous == 0 && value != 0) {
+                page.used++;
+            } else if (previous != 0 && value == 0 && --page.used == 0) {
+                pages.remove(pageIndex);
+                lastPage = null;
+            }
+        }
+
+        /**
+         * @return the first entry id at or after {@code from} whose slot is set, or -1 if there is none
+         */
+        long next(long from) {
+            long fromPage = from >>> PAGE_SHIFT;
+            for (Map.Entry<Long, Page> e = pages.ceilingEntry(fromPage); e != null;
+                 e = pages.higherEntry(e.getKey())) {
+                long[] values = e.getValue().values;
+                for (int i = e.getKey() == fromPage ? (int) (from & PAGE_MASK) : 0; i < PAGE_SIZE; i++) {
+                    if (values[i] != 0) {
+                        return (e.getKey() << PAGE_SHIFT) + i;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return the last entry id at or before {@code from} whose slot is set, or -1 if there is none
+         */
+        long prev(long from) {
+            long fromPage = from >>> PAGE_SHIFT;
+            for (Map.Entry<Long, Page> e = pages.floorEntry(fromPage); e != null;
+                 e = pages.lowerEntry(e.getKey())) {
+                long[] values = e.getValue().values;
+                for (int i = e.getKey() == fromPage ? (int) (from & PAGE_MASK) : PAGE_MASK; i >= 0; i--) {
+                    if (values[i] != 0) {
+                        return (e.getKey() << PAGE_SHIFT) + i;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        void mergeFrom(DenseArray other) {
+            for (Map.Entry<Long, Page> e : other.pages.entrySet()) {
+                long[] values = e.getValue().values;
+                for (int i = 0; i < PAGE_SIZE; i++) {
+                    if (values[i] != 0) {
+                        set((e.getKey() << PAGE_SHIFT) + i, values[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Ranges of a snapshot holding the locations of one ledger, sorted by entry id.
+     */
+    private static final class SnapshotRanges {
+        final SnapshotRange[] ranges;
+
+        SnapshotRanges(SnapshotRange[] ranges) {
+            this.ranges = ranges;
+        }
+
+        SnapshotRanges withSnapshot(Snapshot snapshot) {
+            SnapshotRange[] newRanges = new SnapshotRange[ranges.length];
+            for (int i = 0; i < ranges.length; i++) {
+                SnapshotRange range = ranges[i];
+                newRanges[i] = new SnapshotRange(snapshot, range.firstEntryId, range.count, range.liveCount,
+                        range.offset);
+            }
+            return new SnapshotRanges(newRanges);
+        }
+
+        SnapshotRanges withOffset(long delta) {
+            SnapshotRange[] newRanges = new SnapshotRange[ranges.length];
+            for (int i = 0; i < ranges.length; i++) {
+                SnapshotRange range = ranges[i];
+                newRanges[i] = new SnapshotRange(range.snapshot, range.firstEntryId, range.count, range.liveCount,
+                        range.offset + delta);
+            }
+            return new SnapshotRanges(newRanges);
+        }
+
+        /**
+         * @return the index of the last range starting at or before {@code entryId}, or -1 if there is none
+         */
+        private int indexOf(long entryId) {
+            int low = 0;
+            int high = ranges.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (ranges[mid].firstEntryId <= entryId) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return high;
+        }
+
+        long get(long entryId) {
+            int idx = indexOf(entryId);
+            return idx < 0 ? 0 : ranges[idx].get(entryId);
+        }
+
+        long next(long from) {
+            for (int i = Math.max(indexOf(from), 0); i < ranges.length; i++) {
+                long entryId = ranges[i].next(from);
+                if (entryId >= 0) {
+                    return entryId;
+                }
+            }
+            return -1;
+        }
+
+        long prev(long from) {
+            for (int i = indexOf(from); i >= 0; i--) {
+                long entryId = ranges[i].prev(from);
+                if (entryId >= 0) {
+                    return entryId;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Range of a snapshot holding the locations of consecutive entries of one ledger.
+     *
+     * <p>A range starts and ends with an entry and the holes in between are shorter than {@link #SNAPSHOT_MAX_HOLE},
+     * so looking for the next or previous entry only scans a few slots.
+     */
+    private static final class SnapshotRange {
+        final Snapshot snapshot;
+        final long firstEntryId;
+        final int count;
+        final int liveCount;
+        final long offset;
+
+        SnapshotRange(Snapshot snapshot, long firstEntryId, int count, int liveCount, long offset) {
+            this.snapshot = snapshot;
+            this.firstEntryId = firstEntryId;
+            this.count = count;
+            this.liveCount = liveCount;
+            this.offset = offset;
+        }
+
+        long lastEntryId() {
+            return firstEntryId + count - 1;
+        }
+
+        long get(long entryId) {
+            long idx = entryId - firstEntryId;
+            if (idx < 0 || idx >= count) {
+                return 0;
+            }
+            return snapshot.getLong(offset + idx * Long.BYTES);
+        }
+
+        long next(long from) {
+            for (long entryId = Math.max(from, firstEntryId); entryId <= lastEntryId(); entryId++) {
+                if (get(entryId) != 0) {
+                    return entryId;
+                }
+            }
+            return -1;
+        }
+
+        long prev(long from) {
+            for (long entryId = Math.min(from, lastEntryId()); entryId >= firstEntryId; entryId--) {
+                if (get(entryId) != 0) {
+                    return entryId;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Memory-mapped snapshot file.
+     *
+     * <p>The mappings are released by the GC once no ledger refers to the snapshot anymore.
+     */
+    private static final class Snapshot {
+        private final MappedByteBuffer[] chunks;
+        final long size;
+
+        private Snapshot(MappedByteBuffer[] chunks, long size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        static Snapshot open(File file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size < SNAPSHOT_HEADER_SIZE) {
+                    throw new IOException("Invalid dense index snapshot " + file);
+                }
+
+                MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((size + MAP_CHUNK_SIZE - 1) / MAP_CHUNK_SIZE)];
+                for (int i = 0; i < chunks.length; i++) {
+                    long position = i * MAP_CHUNK_SIZE;
+                    chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                            Math.min(MAP_CHUNK_SIZE, size - position));
+                }
+
+                Snapshot snapshot = new Snapshot(chunks, size);
+                long header = snapshot.getLong(0);
+                long ledgersCount = snapshot.getLong(8);
+                if ((int) (header >>> 32) != SNAPSHOT_MAGIC || (int) header != SNAPSHOT_VERSION
+                        || ledgersCount < 0
+                        || SNAPSHOT_HEADER_SIZE + ledgersCount * SNAPSHOT_LEDGER_RECORD_SIZE > size) {
+                    throw new IOException("Invalid dense index snapshot " + file);
+                }
+                return snapshot;
+            }
+        }
+
+        // Offsets are always aligned to 8 bytes, so a long never spans two chunks
+        long getLong(long offset) {
+            return chunks[(int) (offset >>> MAP_CHUNK_SHIFT)].getLong((int) (offset & (MAP_CHUNK_SIZE - 1)));
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(KeyValueStorageDenseIndex.class);
+}
@@ -199,10 +199,14 @@ public class LedgersIndexRebuildOp {
     }
 
     private List<Journal> getJournals(ServerConfiguration conf) throws IOException {
-        List<Journal> journals = Lists.newArrayListWithCapacity(conf.getJournalDirs().length);
-        int idx = 0;
+        List<File> journalDirs = Lists.newArrayList();
         for (File journalDir : conf.getJournalDirs()) {
-            journals.add(new Journal(idx++, new File(journalDir, BookKeeperConstants.CURRENT_DIR), conf,
+            journalDirs.add(new File(journalDir, BookKeeperConstants.CURRENT_DIR));
+        }
+        List<Journal> journals = Lists.newArrayList();
+        int idx = 0;
+        for (File journalDir : Journal.getJournalStripeDirectories(journalDirs, conf.getJournalsPerDirectory())) {
+            journals.add(new Journal(idx++, journalDir, conf,
                     new LedgerDirsManager(conf, conf.getLedgerDirs(),
                             new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()))));
         }
@@ -29,6 +29,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -88,8 +89,8 @@ public class LocationsIndexRebuildOp {
             Set<Long> activeLedgers = getActiveLedgers(conf, KeyValueStorageRocksDB.factory, iBasePath);
             LOG.info("Found {} active ledgers in ledger manager", activeLedgers.size());
 
-            KeyValueStorage newIndex = KeyValueStorageRocksDB.factory.newKeyValueStorage(iBasePath, "locations",
-                    DbConfigType.Default, conf);
+            KeyValueStorage newIndex = EntryLocationIndex.getStorageFactory(conf, iBasePath)
+                    .newKeyValueStorage(iBasePath, EntryLocationIndex.LOCATIONS_SUB_PATH, DbConfigType.Default, conf);
 
             int totalEntryLogs = entryLogs.size();
             int completedEntryLogs = 0;
@@ -153,6 +154,108 @@ public class LocationsIndexRebuildOp {
                         TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)));
     }
 
+    /**
+     * Convert the existing locations index of each directory to the storage configured with
+     * {@code dbStorage_entryLocationIndexType}, by copying all its entries instead of scanning the entry logs.
+     *
+     * <p>The previous index is kept in a backup directory.
+     */
+    public void migrate() throws IOException {
+        File[] indexDirs = conf.getIndexDirs();
+        if (indexDirs == null) {
+            indexDirs = conf.getLedgerDirs();
+        }
+        boolean toDense = EntryLocationIndex.isDenseIndexConfigured(conf);
+        LOG.info("Starting locations index migration to {}", toDense ? "dense index" : "RocksDB");
+        long startTime = System.nanoTime();
+
+        for (File indexDir : indexDirs) {
+            String iBasePath = BookieImpl.getCurrentDirectory(indexDir).toString();
+            Path indexCurrentPath = FileSystems.getDefault().getPath(iBasePath, EntryLocationIndex.LOCATIONS_SUB_PATH);
+            if (!Files.exists(indexCurrentPath)) {
+                LOG.info("No locations index found in {}", iBasePath);
+                continue;
+            }
+            boolean fromDense = KeyValueStorageDenseIndex.isDenseIndex(indexCurrentPath.toFile());
+            if (fromDense == toDense) {
+                LOG.info("Locations index in {} is already using the configured storage", iBasePath);
+                continue;
+            }
+
+            String timestamp = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").format(new Date());
+            String backupSubPath = EntryLocationIndex.LOCATIONS_SUB_PATH + ".BACKUP-" + timestamp;
+            Path backupPath = FileSystems.getDefault().getPath(iBasePath, backupSubPath);
+            Files.move(indexCurrentPath, backupPath);
+            LOG.info("Created locations index backup at {}", backupPath);
+
+            long count = 0;
+            try (KeyValueStorage oldIndex = fromDense
+                    ? new KeyValueStorageDenseIndex(iBasePath, backupSubPath, conf, true)
+                    : new KeyValueStorageRocksDB(iBasePath, backupSubPath, DbConfigType.Default, conf, true);
+                 KeyValueStorage newIndex = EntryLocationIndex.getStorageFactory(conf, iBasePath)
+                    .newKeyValueStorage(iBasePath, EntryLocationIndex.LOCATIONS_SUB_PATH, DbConfigType.Default,
+                            conf);
+                 KeyValueStorage.CloseableIterator<Map.Entry<byte[], byte[]>> iterator = oldIndex.iterator()) {
+                KeyValueStorage.Batch batch = newIndex.newBatch();
+                int batchSize = 0;
+                long[] locations = new long[PackedEntryLocations.SEGMENT_SIZE];
+                while (iterator.hasNext()) {
+                    Map.Entry<byte[], byte[]> entry = iterator.next();
+                    long ledgerId = ArrayUtil.getLong(entry.getKey(), 0);
+                    long entryId = ArrayUtil.getLong(entry.getKey(), 8);
+                    if (PackedEntryLocations.isSegmentKey(entryId)) {
+                        // Unpack the segment, regular records written after it take precedence
+                        long segmentStart = entryId & Long.MAX_VALUE;
+                        PackedEntryLocations.decode(entry.getValue(), locations);
+                        for (int i = 0; i < locations.length; i++) {
+                            if (locations[i] != 0 && !hasRegularRecord(oldIndex, ledgerId, segmentStart + i)) {
+                                LongPairWrapper key = LongPairWrapper.get(ledgerId, segmentStart + i);
+                                LongWrapper value = LongWrapper.get(locations[i]);
+                                try {
+                                    batch.put(key.array, value.array);
+                                } finally {
+                                    key.recycle();
+                                    value.recycle();
+                                }
+                                ++count;
+                                ++batchSize;
+                            }
+                        }
+                    } else {
+                        batch.put(entry.getKey(), entry.getValue());
+                        ++count;
+                        ++batchSize;
+                    }
+
+                    if (batchSize >= BATCH_COMMIT_SIZE) {
+                        batch.flush();
+                        batch.clear();
+                        batchSize = 0;
+                    }
+                }
+
+                batch.flush();
+                batch.close();
+                newIndex.sync();
+            }
+
+            LOG.info("Migrated {} entries of the locations index in {}", count, iBasePath);
+        }
+        LOG.info("Migrating index is done. Total time: {}",
+                DurationFormatUtils.formatDurationHMS(
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)));
+    }
+
+    private static boolean hasRegularRecord(KeyValueStorage index, long ledgerId, long entryId)
+            throws IOException {
+        LongPairWrapper key = LongPairWrapper.get(ledgerId, entryId);
+        try {
+            return index.get(key.array) != null;
+        } finally {
+            key.recycle();
+        }
+    }
+
     private Set<Long> getActiveLedgers(ServerConfiguration conf, KeyValueStorageFactory storageFactory, String basePath)
             throws IOException {
         LedgerMetadataIndex ledgers = new LedgerMetadataIndex(conf, storageFactory, basePath, NullStatsLogger.INSTANCE);
@@ -0,0 +1,210 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.Arrays;
+import org.apache.bookkeeper.util.collections.ConcurrentLongLongHashMap.BiConsumerLong;
+
+/**
+ * Compact encoding of the locations of a range of consecutive entries of a ledger.
+ *
+ * <p>The locations of a ledger are split in segments of {@link #SEGMENT_SIZE} entries, each stored under the key
+ * (ledgerId, {@link #segmentKey(long)}). Since entry ids are never negative, these keys sort after all the
+ * regular (ledgerId, entryId) keys of the ledger.
+ *
+ * <p>Within a segment, the locations are split in blocks of {@link #BLOCK_SIZE} entries. Each block starts with
+ * an absolute location, followed by the zig-zag varint deltas of the next locations, and a table of the block
+ * offsets lets a lookup decode at most one block:
+ *
+ * <pre>
+ * firstEntryId (long) | count (int) | block offsets (int * blocks) | blocks
+ * </pre>
+ *
+ * <p>Entries written in sequence to the same entry log have close locations, so most deltas fit in 1 or 2 bytes.
+ * Missing entries are stored as location 0.
+ */
+final class PackedEntryLocations {
+
+    static final int SEGMENT_SIZE = 4096;
+    static final int BLOCK_SIZE = 64;
+
+    private static final int HEADER_SIZE = 12;
+
+    private PackedEntryLocations() {}
+
+    /**
+     * Entry id part of the key holding the segment that contains the given entry.
+     */
+    static long segmentKey(long entryId) {
+        return Long.MIN_VALUE | segmentStart(entryId);
+    }
+
+    static long segmentStart(long entryId) {
+        return entryId & ~(SEGMENT_SIZE - 1);
+    }
+
+    static boolean isSegmentKey(long keyEntryId) {
+        return keyEntryId < 0;
+    }
+
+    /**
+     * Encode the locations of a segment.
+     *
+     * @param segmentStart
+     *            the id of the entry at index 0 of {@code locations}
+     * @param locations
+     *            the locations, with 0 for the missing entries
+     * @return the encoded segment, or null if there is no location to store
+     */
+    static byte[] encode(long segmentStart, long[] locations) {
+        int first = 0;
+        while (first < locations.length && locations[first] == 0) {
+            first++;
+        }
+        int last = locations.length - 1;
+        while (last >= first && locations[last] == 0) {
+            last--;
+        }
+        if (first > last) {
+            return null;
+        }
+
+        int count = last - first + 1;
+        int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        ByteBuf data = Unpooled.buffer(count * 2 + blocks * Long.BYTES);
+        int[] blockOffsets = new int[blocks];
+        for (int i = 0; i < count; i++) {
+            long location = locations[first + i];
+            if (i % BLOCK_SIZE == 0) {
+                blockOffsets[i / BLOCK_SIZE] = data.writerIndex();
+                data.writeLong(location);
+            } else {
+                writeVarLong(data, zigZag(location - locations[first + i - 1]));
+            }
+        }
+
+        int dataStart = HEADER_SIZE + blocks * Integer.BYTES;
+        byte[] encoded = new byte[dataStart + data.readableBytes()];
+        ArrayUtil.setLong(encoded, 0, segmentStart + first);
+        setInt(encoded, 8, count);
+        for (int i = 0; i < blocks; i++) {
+            setInt(encoded, HEADER_SIZE + i * Integer.BYTES, dataStart + blockOffsets[i]);
+        }
+        data.readBytes(encoded, dataStart, data.readableBytes());
+        data.release();
+        return encoded;
+    }
+
+    /**
+     * Decode all the locations of a segment into an array indexed from the segment start.
+     */
+    static void decode(byte[] segment, long[] locations) {
+        Arrays.fill(locations, 0L);
+        forEach(segment, (entryId, location) -> locations[(int) (entryId - segmentStart(entryId))] = location);
+    }
+
+    /**
+     * @return the location of the entry, or 0 if the entry is not in the segment
+     */
+    static long getLocation(byte[] segment, long entryId) {
+        long firstEntryId = ArrayUtil.getLong(segment, 0);
+        int count = getInt(segment, 8);
+        long idx = entryId - firstEntryId;
+        if (idx < 0 || idx >= count) {
+            return 0;
+        }
+
+        int block = (int) (idx / BLOCK_SIZE);
+        int[] position = { getInt(segment, HEADER_SIZE + block * Integer.BYTES) };
+        long location = ArrayUtil.getLong(segment, position[0]);
+        position[0] += Long.BYTES;
+        for (int i = 0; i < idx % BLOCK_SIZE; i++) {
+            location += unZigZag(readVarLong(segment, position));
+        }
+        return location;
+    }
+
+    static long lastEntryId(byte[] segment) {
+        return ArrayUtil.getLong(segment, 0) + getInt(segment, 8) - 1;
+    }
+
+    static void forEach(byte[] segment, BiConsumerLong consumer) {
+        long firstEntryId = ArrayUtil.getLong(segment, 0);
+        int count = getInt(segment, 8);
+        int[] position = { getInt(segment, HEADER_SIZE) };
+        long location = 0;
+        for (int i = 0; i < count; i++) {
+            if (i % BLOCK_SIZE == 0) {
+                location = ArrayUtil.getLong(segment, position[0]);
+                position[0] += Long.BYTES;
+            } else {
+                location += unZigZag(readVarLong(segment, position));
+            }
+            if (location != 0) {
+                consumer.accept(firstEntryId + i, location);
+            }
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteBuf buf, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buf.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buf.writeByte((int) value);
+    }
+
+    private static long readVarLong(byte[] array, int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = array[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static int getInt(byte[] array, int index) {
+        return (array[index] & 0xff) << 24
+                | (array[index + 1] & 0xff) << 16
+                | (array[index + 2] & 0xff) << 8
+                | array[index + 3] & 0xff;
+    }
+
+    private static void setInt(byte[] array, int index, int value) {
+        array[index] = (byte) (value >>> 24);
+        array[index + 1] = (byte) (value >>> 16);
+        array[index + 2] = (byte) (value >>> 8);
+        array[index + 3] = (byte) value;
+    }
+}
@@ -31,18 +31,22 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.FileRegion;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.PrimitiveIterator.OfLong;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -56,6 +60,7 @@ import org.apache.bookkeeper.bookie.CheckpointSource;
 import org.apache.bookkeeper.bookie.CheckpointSource.Checkpoint;
 import org.apache.bookkeeper.bookie.Checkpointer;
 import org.apache.bookkeeper.bookie.CompactableLedgerStorage;
+import org.apache.bookkeeper.bookie.DefaultEntryLogger;
 import org.apache.bookkeeper.bookie.EntryLocation;
 import org.apache.bookkeeper.bookie.GarbageCollectionStatus;
 import org.apache.bookkeeper.bookie.GarbageCollectorThread;
@@ -102,11 +107,18 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
     // Write cache where all new entries are inserted into
     protected volatile WriteCache writeCache;
 
-    // Write cache that is used to swap with writeCache during flushes
-    protected volatile WriteCache writeCacheBeingFlushed;
+    // Write caches that were rotated out and are not persisted yet, newest first. They
+    // are still looked up by readers until their entries are in the location index
+    protected volatile WriteCache[] writeCachesBeingFlushed = new WriteCache[0];
+
+    // Write caches that were rotated out and still need to be written to the entry log, oldest first
+    private final ArrayDeque<WriteCache> writeCachesToFlush = new ArrayDeque<>();
+
+    // Empty write caches, ready to replace the current one when it gets full
+    private final ArrayDeque<WriteCache> freeWriteCaches = new ArrayDeque<>();
 
     // Cache where we insert entries for speculative reading
-    private final ReadCache readCache;
+    private final EntryReadCache readCache;
 
     private final StampedLock writeCacheRotationLock = new StampedLock();
 
@@ -119,6 +131,10 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
     private final ExecutorService executor = Executors.newSingleThreadExecutor(
             new DefaultThreadFactory(dbStoragerExecutorName));
 
+    // Executor used to commit the location index batches, while the flush goes on with the next write cache
+    private final ExecutorService indexCommitExecutor = Executors.newSingleThreadExecutor(
+            new DefaultThreadFactory("db-storage-index-commit"));
+
     // Executor used to for db index cleanup
     private final ScheduledExecutorService cleanupExecutor = Executors
             .newSingleThreadScheduledExecutor(new DefaultThreadFactory("db-storage-cleanup"));
@@ -138,6 +154,7 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
     private final DbLedgerStorageStats dbLedgerStorageStats;
 
     private static final long DEFAULT_MAX_THROTTLE_TIME_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    private static final int DEFAULT_WRITE_CACHES_COUNT = 2;
 
     private final long maxReadAheadBytesSize;
 
@@ -168,8 +185,12 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
                 .scopeLabel("indexDir", indexBaseDir);
 
         this.writeCacheMaxSize = writeCacheSize;
-        this.writeCache = new WriteCache(allocator, writeCacheMaxSize / 2);
-        this.writeCacheBeingFlushed = new WriteCache(allocator, writeCacheMaxSize / 2);
+        int writeCachesCount = Math.max(2, conf.getInt(DbLedgerStorage.WRITE_CACHES_COUNT,
+                DEFAULT_WRITE_CACHES_COUNT));
+        this.writeCache = new WriteCache(allocator, writeCacheMaxSize / writeCachesCount);
+        for (int i = 1; i < writeCachesCount; i++) {
+            freeWriteCaches.add(new WriteCache(allocator, writeCacheMaxSize / writeCachesCount));
+        }
 
         readCacheMaxSize = readCacheSize;
         this.readAheadCacheBatchSize = readAheadCacheBatchSize;
@@ -181,12 +202,18 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
                 DEFAULT_MAX_THROTTLE_TIME_MILLIS);
         maxThrottleTimeNanos = TimeUnit.MILLISECONDS.toNanos(maxThrottleTimeMillis);
 
-        readCache = new ReadCache(allocator, readCacheMaxSize);
+        String readCacheType = conf.getString(DbLedgerStorage.READ_CACHE_TYPE,
+                DbLedgerStorage.READ_CACHE_TYPE_SEGMENTED);
+        if (DbLedgerStorage.READ_CACHE_TYPE_CLOCK.equalsIgnoreCase(readCacheType)) {
+            readCache = new ClockReadCache(allocator, readCacheMaxSize);
+        } else {
+            readCache = new ReadCache(allocator, readCacheMaxSize);
+        }
 
         ledgerIndex = new LedgerMetadataIndex(conf,
                 KeyValueStorageRocksDB.factory, indexBaseDir, ledgerIndexDirStatsLogger);
         entryLocationIndex = new EntryLocationIndex(conf,
-                KeyValueStorageRocksDB.factory, indexBaseDir, ledgerIndexDirStatsLogger);
+                EntryLocationIndex.getStorageFactory(conf, indexBaseDir), indexBaseDir, ledgerIndexDirStatsLogger);
 
         transientLedgerInfoCache = ConcurrentLongHashMap.<TransientLedgerInfo>newBuilder()
                 .expectedItems(16 * 1024)
@@ -202,8 +229,20 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
 
         dbLedgerStorageStats = new DbLedgerStorageStats(
             ledgerIndexDirStatsLogger,
-            () -> writeCache.size() + writeCacheBeingFlushed.size(),
-            () -> writeCache.count() + writeCacheBeingFlushed.count(),
+            () -> {
+                long size = writeCache.size();
+                for (WriteCache cache : writeCachesBeingFlushed) {
+                    size += cache.size();
+                }
+                return size;
+            },
+            () -> {
+                long count = writeCache.count();
+                for (WriteCache cache : writeCachesBeingFlushed) {
+                    count += cache.count();
+                }
+                return count;
+            },
             () -> readCache.size(),
             () -> readCache.count()
         );
@@ -259,6 +298,11 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         gcThread.start();
     }
 
+    @Override
+    public void recordAddLatency(long latencyNanos) {
+        gcThread.recordForegroundLatency(latencyNanos);
+    }
+
     @Override
     public void forceGC() {
         gcThread.enableForceGC();
@@ -341,9 +385,13 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             entryLocationIndex.close();
 
             writeCache.close();
-            writeCacheBeingFlushed.close();
+            for (WriteCache cache : writeCachesBeingFlushed) {
+                cache.close();
+            }
+            freeWriteCaches.forEach(WriteCache::close);
             readCache.close();
             executor.shutdown();
+            indexCommitExecutor.shutdown();
 
         } catch (IOException e) {
             log.error("Error closing db storage", e);
@@ -370,26 +418,28 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             return false;
         }
 
-        // We need to try to read from both write caches, since recent entries could be found in either of the two. The
-        // write caches are already thread safe on their own, here we just need to make sure we get references to both
-        // of them. Using an optimistic lock since the read lock is always free, unless we're swapping the caches.
+        // We need to try to read from all the write caches, since recent entries could be found in any of them. The
+        // write caches are already thread safe on their own, here we just need to make sure we get references to all
+        // of them. Using an optimistic lock since the read lock is always free, unless we're rotating the caches.
         long stamp = writeCacheRotationLock.tryOptimisticRead();
         WriteCache localWriteCache = writeCache;
-        WriteCache localWriteCacheBeingFlushed = writeCacheBeingFlushed;
+        WriteCache[] localWriteCachesBeingFlushed = writeCachesBeingFlushed;
         if (!writeCacheRotationLock.validate(stamp)) {
             // Fallback to regular read lock approach
             stamp = writeCacheRotationLock.readLock();
             try {
                 localWriteCache = writeCache;
-                localWriteCacheBeingFlushed = writeCacheBeingFlushed;
+                localWriteCachesBeingFlushed = writeCachesBeingFlushed;
             } finally {
                 writeCacheRotationLock.unlockRead(stamp);
             }
         }
 
-        boolean inCache = localWriteCache.hasEntry(ledgerId, entryId)
-             || localWriteCacheBeingFlushed.hasEntry(ledgerId, entryId)
-             || readCache.hasEntry(ledgerId, entryId);
+        boolean inCache = localWriteCache.hasEntry(ledgerId, entryId);
+        for (int i = 0; !inCache && i < localWriteCachesBeingFlushed.length; i++) {
+            inCache = localWriteCachesBeingFlushed[i].hasEntry(ledgerId, entryId);
+        }
+        inCache = inCache || readCache.hasEntry(ledgerId, entryId);
 
         if (inCache) {
             return true;
@@ -504,24 +554,7 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         long absoluteTimeoutNanos = System.nanoTime() + maxThrottleTimeNanos;
 
         while (System.nanoTime() < absoluteTimeoutNanos) {
-            // Write cache is full, we need to trigger a flush so that it gets rotated
-            // If the flush has already been triggered or flush has already switched the
-            // cache, we don't need to trigger another flush
-            if (!isFlushOngoing.get() && hasFlushBeenTriggered.compareAndSet(false, true)) {
-                // Trigger an early flush in background
-                log.info("Write cache is full, triggering flush");
-                executor.execute(() -> {
-                        long startTime = System.nanoTime();
-                        try {
-                            flush();
-                        } catch (IOException e) {
-                            log.error("Error during flush", e);
-                        } finally {
-                            flushExecutorTime.addLatency(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
-                        }
-                    });
-            }
-
+            WriteCache fullWriteCache;
             long stamp = writeCacheRotationLock.readLock();
             try {
                 if (writeCache.put(ledgerId, entryId, entry)) {
@@ -529,10 +562,21 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
                     recordSuccessfulEvent(dbLedgerStorageStats.getThrottledWriteStats(), throttledStartTime);
                     return;
                 }
+                fullWriteCache = writeCache;
             } finally {
                 writeCacheRotationLock.unlockRead(stamp);
             }
 
+            // Write cache is full, we need to rotate it and trigger a flush to persist it
+            // If the flush has already been triggered, we don't need to trigger another flush
+            boolean rotated = rotateWriteCache(fullWriteCache);
+            triggerFlush();
+            if (rotated) {
+                // Retry immediately on the new write cache
+                continue;
+            }
+
+            // All the write caches are full and waiting to be flushed
             // Wait some time and try again
             try {
                 Thread.sleep(1);
@@ -548,12 +592,30 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         throw new OperationRejectedException();
     }
 
+    private void triggerFlush() {
+        if (!isFlushOngoing.get() && hasFlushBeenTriggered.compareAndSet(false, true)) {
+            // Trigger an early flush in background
+            log.info("Write cache is full, triggering flush");
+            executor.execute(() -> {
+                    long startTime = System.nanoTime();
+                    try {
+                        flush();
+                    } catch (IOException e) {
+                        log.error("Error during flush", e);
+                    } finally {
+                        flushExecutorTime.addLatency(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
+                    }
+                });
+        }
+    }
+
     @Override
     public ByteBuf getEntry(long ledgerId, long entryId) throws IOException, BookieException {
         long startTime = MathUtils.nowInNano();
         try {
             ByteBuf entry = doGetEntry(ledgerId, entryId);
             recordSuccessfulEvent(dbLedgerStorageStats.getReadEntryStats(), startTime);
+            gcThread.recordForegroundLatency(MathUtils.elapsedNanos(startTime));
             return entry;
         } catch (IOException e) {
             recordFailedEvent(dbLedgerStorageStats.getReadEntryStats(), startTime);
@@ -571,18 +633,18 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             return getLastEntry(ledgerId);
         }
 
-        // We need to try to read from both write caches, since recent entries could be found in either of the two. The
-        // write caches are already thread safe on their own, here we just need to make sure we get references to both
-        // of them. Using an optimistic lock since the read lock is always free, unless we're swapping the caches.
+        // We need to try to read from all the write caches, since recent entries could be found in any of them. The
+        // write caches are already thread safe on their own, here we just need to make sure we get references to all
+        // of them. Using an optimistic lock since the read lock is always free, unless we're rotating the caches.
         long stamp = writeCacheRotationLock.tryOptimisticRead();
         WriteCache localWriteCache = writeCache;
-        WriteCache localWriteCacheBeingFlushed = writeCacheBeingFlushed;
+        WriteCache[] localWriteCachesBeingFlushed = writeCachesBeingFlushed;
         if (!writeCacheRotationLock.validate(stamp)) {
             // Fallback to regular read lock approach
             stamp = writeCacheRotationLock.readLock();
             try {
                 localWriteCache = writeCache;
-                localWriteCacheBeingFlushed = writeCacheBeingFlushed;
+                localWriteCachesBeingFlushed = writeCachesBeingFlushed;
             } finally {
                 writeCacheRotationLock.unlockRead(stamp);
             }
@@ -595,11 +657,13 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             return entry;
         }
 
-        // If there's a flush going on, the entry might be in the flush buffer
-        entry = localWriteCacheBeingFlushed.get(ledgerId, entryId);
-        if (entry != null) {
-            dbLedgerStorageStats.getWriteCacheHitCounter().inc();
-            return entry;
+        // If there's a flush going on, the entry might be in the flush buffers
+        for (WriteCache cache : localWriteCachesBeingFlushed) {
+            entry = cache.get(ledgerId, entryId);
+            if (entry != null) {
+                dbLedgerStorageStats.getWriteCacheHitCounter().inc();
+                return entry;
+            }
         }
 
         dbLedgerStorageStats.getWriteCacheMissCounter().inc();
@@ -646,6 +710,44 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         return entry;
     }
 
+    @Override
+    public FileRegion getEntryRegion(long ledgerId, long entryId, int minSize) throws IOException, BookieException {
+        if (entryId == BookieProtocol.LAST_ADD_CONFIRMED || !(entryLogger instanceof DefaultEntryLogger)) {
+            return null;
+        }
+
+        // Entries that are still in memory are cheaper to serve through getEntry()
+        long stamp = writeCacheRotationLock.readLock();
+        try {
+            if (writeCache.hasEntry(ledgerId, entryId)) {
+                return null;
+            }
+            for (WriteCache cache : writeCachesBeingFlushed) {
+                if (cache.hasEntry(ledgerId, entryId)) {
+                    return null;
+                }
+            }
+        } finally {
+            writeCacheRotationLock.unlockRead(stamp);
+        }
+        if (readCache.hasEntry(ledgerId, entryId)) {
+            return null;
+        }
+
+        long entryLocation = entryLocationIndex.getLocation(ledgerId, entryId);
+        if (entryLocation == 0) {
+            return null;
+        }
+
+        long readEntryStartNano = MathUtils.nowInNano();
+        try {
+            return ((DefaultEntryLogger) entryLogger).readEntryRegion(ledgerId, entryId, entryLocation, minSize);
+        } finally {
+            dbLedgerStorageStats.getReadFromEntryLogTime().addLatency(
+                    MathUtils.elapsedNanos(readEntryStartNano), TimeUnit.NANOSECONDS);
+        }
+    }
+
     private void fillReadAheadCache(long orginalLedgerId, long firstEntryId, long firstEntryLocation) {
         long readAheadStartNano = MathUtils.nowInNano();
         int count = 0;
@@ -718,20 +820,23 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
                 return entry;
             }
 
-            // If there's a flush going on, the entry might be in the flush buffer
-            entry = writeCacheBeingFlushed.getLastEntry(ledgerId);
-            if (entry != null) {
-                if (log.isDebugEnabled()) {
-                    entry.readLong(); // ledgedId
-                    long entryId = entry.readLong();
-                    entry.resetReaderIndex();
+            // If there's a flush going on, the entry might be in the flush buffers, the newest one comes first
+            for (WriteCache cache : writeCachesBeingFlushed) {
+                entry = cache.getLastEntry(ledgerId);
+                if (entry != null) {
                     if (log.isDebugEnabled()) {
-                        log.debug("Found last entry for ledger {} in write cache being flushed: {}", ledgerId, entryId);
+                        entry.readLong(); // ledgedId
+                        long entryId = entry.readLong();
+                        entry.resetReaderIndex();
+                        if (log.isDebugEnabled()) {
+                            log.debug("Found last entry for ledger {} in write cache being flushed: {}", ledgerId,
+                                    entryId);
+                        }
                     }
-                }
 
-                dbLedgerStorageStats.getWriteCacheHitCounter().inc();
-                return entry;
+                    dbLedgerStorageStats.getWriteCacheHitCounter().inc();
+                    return entry;
+                }
             }
         } finally {
             writeCacheRotationLock.unlockRead(stamp);
@@ -761,7 +866,7 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
     boolean isFlushRequired() {
         long stamp = writeCacheRotationLock.readLock();
         try {
-            return !writeCache.isEmpty();
+            return !writeCache.isEmpty() || !writeCachesToFlush.isEmpty();
         } finally {
             writeCacheRotationLock.unlockRead(stamp);
         }
@@ -785,42 +890,60 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             throw new IOException(e);
         }
 
+        List<Future<?>> indexCommits = Lists.newArrayList();
         try {
-            if (writeCache.isEmpty()) {
+            if (!isFlushRequired()) {
                 return;
             }
-            // Swap the write cache so that writes can continue to happen while the flush is
-            // ongoing
-            swapWriteCache();
-
-            long sizeToFlush = writeCacheBeingFlushed.size();
-            if (log.isDebugEnabled()) {
-                log.debug("Flushing entries. count: {} -- size {} Mb", writeCacheBeingFlushed.count(),
-                        sizeToFlush / 1024.0 / 1024);
-            }
+            isFlushOngoing.set(true);
+            // the flush is picking up the write caches that are full, we can allow a new flush to be triggered
+            hasFlushBeenTriggered.set(false);
 
-            // Write all the pending entries into the entry logger and collect the offset
-            // position for each entry
+            long sizeToFlush = 0;
+            // All the entries added before this checkpoint are either in the current write cache or in a write
+            // cache that was rotated before it, so we're done once the current write cache is flushed
+            WriteCache lastWriteCacheToFlush = null;
+            boolean currentWriteCacheRotated = false;
+            while (true) {
+                WriteCache cacheToFlush;
+                long stamp = writeCacheRotationLock.writeLock();
+                try {
+                    if (!currentWriteCacheRotated && writeCachesToFlush.isEmpty()) {
+                        if (writeCache.isEmpty()) {
+                            currentWriteCacheRotated = true;
+                        } else if (!freeWriteCaches.isEmpty()) {
+                            lastWriteCacheToFlush = writeCache;
+                            rotateWriteCacheLocked();
+                            currentWriteCacheRotated = true;
+                        }
+                    }
+                    cacheToFlush = writeCachesToFlush.poll();
+                } finally {
+                    writeCacheRotationLock.unlockWrite(stamp);
+                }
 
-            Batch batch = entryLocationIndex.newBatch();
-            writeCacheBeingFlushed.forEach((ledgerId, entryId, entry) -> {
-                long location = entryLogger.addEntry(ledgerId, entry);
-                entryLocationIndex.addLocation(batch, ledgerId, entryId, location);
-            });
+                if (cacheToFlush == null) {
+                    if (currentWriteCacheRotated) {
+                        break;
+                    } else if (indexCommits.isEmpty()) {
+                        throw new IOException("No free write cache to rotate the current one for flushing");
+                    }
+                    // No free write cache to swap the current one with, wait for the
+                    // pending index commits to release their write caches
+                    waitIndexCommits(indexCommits);
+                    continue;
+                }
 
-            long entryLoggerStart = MathUtils.nowInNano();
-            entryLogger.flush();
-            recordSuccessfulEvent(dbLedgerStorageStats.getFlushEntryLogStats(), entryLoggerStart);
+                sizeToFlush += cacheToFlush.size();
+                indexCommits.add(flushWriteCache(cacheToFlush));
 
-            long batchFlushStartTime = MathUtils.nowInNano();
-            batch.flush();
-            batch.close();
-            recordSuccessfulEvent(dbLedgerStorageStats.getFlushLocationIndexStats(), batchFlushStartTime);
-            if (log.isDebugEnabled()) {
-                log.debug("DB batch flushed time : {} s",
-                        MathUtils.elapsedNanos(batchFlushStartTime) / (double) TimeUnit.SECONDS.toNanos(1));
+                if (cacheToFlush == lastWriteCacheToFlush) {
+                    break;
+                }
             }
 
+            waitIndexCommits(indexCommits);
+
             long ledgerIndexStartTime = MathUtils.nowInNano();
             ledgerIndex.flush();
             recordSuccessfulEvent(dbLedgerStorageStats.getFlushLedgerIndexStats(), ledgerIndexStartTime);
@@ -835,6 +958,7 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
 
                     entryLocationIndex.removeOffsetFromDeletedLedgers();
                     ledgerIndex.removeDeletedLedgers();
+                    entryLocationIndex.packIdleLedgers();
                 } catch (Throwable t) {
                     log.warn("Failed to cleanup db indexes", t);
                 }
@@ -842,9 +966,6 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
 
             lastCheckpoint = thisCheckpoint;
 
-            // Discard all the entry from the write cache, since they're now persisted
-            writeCacheBeingFlushed.clear();
-
             double flushTimeSeconds = MathUtils.elapsedNanos(startTime) / (double) TimeUnit.SECONDS.toNanos(1);
             double flushThroughput = sizeToFlush / 1024.0 / 1024.0 / flushTimeSeconds;
 
@@ -855,6 +976,13 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             recordSuccessfulEvent(dbLedgerStorageStats.getFlushStats(), startTime);
             dbLedgerStorageStats.getFlushSizeStats().registerSuccessfulValue(sizeToFlush);
         } catch (IOException e) {
+            // Let the index commits that were already started complete, so that their write caches are either
+            // released or queued again to be flushed
+            try {
+                waitIndexCommits(indexCommits);
+            } catch (IOException ioe) {
+                e.addSuppressed(ioe);
+            }
             recordFailedEvent(dbLedgerStorageStats.getFlushStats(), startTime);
             // Leave IOExecption as it is
             throw e;
@@ -865,28 +993,158 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
                 flushMutex.unlock();
             }
         }
+
+        long stamp = writeCacheRotationLock.readLock();
+        try {
+            if (!writeCachesToFlush.isEmpty()) {
+                // Some write caches got full while we were flushing
+                triggerFlush();
+            }
+        } finally {
+            writeCacheRotationLock.unlockRead(stamp);
+        }
     }
 
     /**
-     * Swap the current write cache with the replacement cache.
+     * Write all the entries of a write cache into the entry logger and collect the offset position for each entry.
+     *
+     * <p>The location index batch is committed in background, so that the next write cache can be written to the
+     * entry logger in the meantime. The write cache is released once its entries are in the location index.
      */
-    private void swapWriteCache() {
-        long stamp = writeCacheRotationLock.writeLock();
+    private Future<?> flushWriteCache(WriteCache cacheToFlush) throws IOException {
+        if (log.isDebugEnabled()) {
+            log.debug("Flushing entries. count: {} -- size {} Mb", cacheToFlush.count(),
+                    cacheToFlush.size() / 1024.0 / 1024);
+        }
+
+        Batch batch = entryLocationIndex.newBatch();
         try {
-            // First, swap the current write-cache map with an empty one so that writes will
-            // go on unaffected. Only a single flush is happening at the same time
-            WriteCache tmp = writeCacheBeingFlushed;
-            writeCacheBeingFlushed = writeCache;
-            writeCache = tmp;
+            cacheToFlush.forEach((ledgerId, entryId, entry) -> {
+                long location = entryLogger.addEntry(ledgerId, entry);
+                entryLocationIndex.addLocation(batch, ledgerId, entryId, location);
+            });
 
-            // since the cache is switched, we can allow flush to be triggered
-            hasFlushBeenTriggered.set(false);
-        } finally {
+            long entryLoggerStart = MathUtils.nowInNano();
+            entryLogger.flush();
+            recordSuccessfulEvent(dbLedgerStorageStats.getFlushEntryLogStats(), entryLoggerStart);
+        } catch (IOException | RuntimeException e) {
+            batch.close();
+            requeueWriteCache(cacheToFlush);
+            throw e;
+        }
+
+        return indexCommitExecutor.submit(() -> {
             try {
-                isFlushOngoing.set(true);
-            } finally {
-                writeCacheRotationLock.unlockWrite(stamp);
+                long batchFlushStartTime = MathUtils.nowInNano();
+                batch.flush();
+                batch.close();
+                recordSuccessfulEvent(dbLedgerStorageStats.getFlushLocationIndexStats(), batchFlushStartTime);
+                if (log.isDebugEnabled()) {
+                    log.debug("DB batch flushed time : {} s",
+                            MathUtils.elapsedNanos(batchFlushStartTime) / (double) TimeUnit.SECONDS.toNanos(1));
+                }
+            } catch (IOException | RuntimeException e) {
+                batch.close();
+                requeueWriteCache(cacheToFlush);
+                throw e;
             }
+
+            // Discard all the entry from the write cache, since they're now persisted
+            releaseWriteCache(cacheToFlush);
+            return null;
+        });
+    }
+
+    private static void waitIndexCommits(List<Future<?>> indexCommits) throws IOException {
+        IOException exception = null;
+        for (Future<?> indexCommit : indexCommits) {
+            try {
+                indexCommit.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for location index commit", e);
+            } catch (ExecutionException e) {
+                if (exception == null) {
+                    exception = e.getCause() instanceof IOException
+                            ? (IOException) e.getCause() : new IOException(e.getCause());
+                }
+            }
+        }
+        indexCommits.clear();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * Replace the current write cache with a free one, if any.
+     *
+     * @param fullWriteCache the write cache found to be full
+     * @return true if the current write cache is not <i>fullWriteCache</i> anymore
+     */
+    private boolean rotateWriteCache(WriteCache fullWriteCache) {
+        long stamp = writeCacheRotationLock.writeLock();
+        try {
+            if (writeCache != fullWriteCache) {
+                // Already rotated by another thread
+                return true;
+            }
+            if (freeWriteCaches.isEmpty()) {
+                return false;
+            }
+            rotateWriteCacheLocked();
+            return true;
+        } finally {
+            writeCacheRotationLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Queue the current write cache to be flushed and replace it with a free one, so that writes can go on
+     * unaffected. Must be called with the write lock held and with a free write cache available.
+     */
+    private void rotateWriteCacheLocked() {
+        writeCachesToFlush.add(writeCache);
+
+        WriteCache[] caches = new WriteCache[writeCachesBeingFlushed.length + 1];
+        caches[0] = writeCache;
+        System.arraycopy(writeCachesBeingFlushed, 0, caches, 1, writeCachesBeingFlushed.length);
+        writeCachesBeingFlushed = caches;
+
+        writeCache = freeWriteCaches.poll();
+    }
+
+    /**
+     * Clear a write cache whose entries are persisted and make it available for a new rotation.
+     */
+    private void releaseWriteCache(WriteCache cache) {
+        long stamp = writeCacheRotationLock.writeLock();
+        try {
+            WriteCache[] caches = new WriteCache[writeCachesBeingFlushed.length - 1];
+            int i = 0;
+            for (WriteCache c : writeCachesBeingFlushed) {
+                if (c != cache) {
+                    caches[i++] = c;
+                }
+            }
+            writeCachesBeingFlushed = caches;
+
+            cache.clear();
+            freeWriteCaches.add(cache);
+        } finally {
+            writeCacheRotationLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Queue again a write cache whose flush failed, so that it's retried first on the next flush.
+     */
+    private void requeueWriteCache(WriteCache cache) {
+        long stamp = writeCacheRotationLock.writeLock();
+        try {
+            writeCachesToFlush.addFirst(cache);
+        } finally {
+            writeCacheRotationLock.unlockWrite(stamp);
         }
     }
 
@@ -0,0 +1,221 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import io.netty.buffer.ByteBuf;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.bookkeeper.client.BKException.BKDigestMatchException;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
+import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookieProtocol;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.BatchedReadEntryCallback;
+import org.apache.bookkeeper.proto.checksum.DigestManager;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.apache.bookkeeper.util.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A read operation that fetches a batch of consecutive entries of a ledger from a single bookie
+ * with one request.
+ *
+ * <p>The bookies of the write set of the first entry are tried in order, moving to the next one
+ * when a bookie fails to serve the batch. The bookie may return fewer entries than requested,
+ * in which case only the returned entries are passed to the application.
+ */
+class BatchedReadOp implements BatchedReadEntryCallback, Runnable {
+    private static final Logger LOG = LoggerFactory.getLogger(BatchedReadOp.class);
+
+    private final CompletableFuture<LedgerEntries> future;
+    private final AtomicBoolean complete = new AtomicBoolean(false);
+    final LedgerHandle lh;
+    final ClientContext clientCtx;
+
+    final long startEntryId;
+    final int maxCount;
+    final long maxSize;
+    long requestTimeNanos;
+
+    List<BookieId> ensemble;
+    DistributionSchedule.WriteSet writeSet;
+    int nextReplicaIndexToReadFrom = 0;
+    int firstError = BKException.Code.OK;
+
+    BatchedReadOp(LedgerHandle lh,
+                  ClientContext clientCtx,
+                  long startEntryId,
+                  int maxCount,
+                  long maxSize) {
+        this.future = new CompletableFuture<>();
+        this.lh = lh;
+        this.clientCtx = clientCtx;
+        this.startEntryId = startEntryId;
+        this.maxCount = maxCount;
+        this.maxSize = maxSize;
+    }
+
+    CompletableFuture<LedgerEntries> future() {
+        return future;
+    }
+
+    protected LedgerMetadata getLedgerMetadata() {
+        return lh.getLedgerMetadata();
+    }
+
+    void initiate() {
+        this.requestTimeNanos = MathUtils.nowInNano();
+        ensemble = getLedgerMetadata().getEnsembleAt(startEntryId);
+        if (clientCtx.getConf().enableReorderReadSequence) {
+            writeSet = clientCtx.getPlacementPolicy()
+                .reorderReadSequence(
+                        ensemble,
+                        lh.getBookiesHealthInfo(),
+                        lh.getWriteSetForReadOperation(startEntryId));
+        } else {
+            writeSet = lh.getWriteSetForReadOperation(startEntryId);
+        }
+        sendNextRead();
+    }
+
+    @Override
+    public void run() {
+        initiate();
+    }
+
+    void sendNextRead() {
+        if (nextReplicaIndexToReadFrom >= writeSet.size()) {
+            // the read has failed from all replicas, just fail the read
+            submitCallback(firstError, null);
+            return;
+        }
+
+        int bookieIndex = writeSet.get(nextReplicaIndexToReadFrom);
+        nextReplicaIndexToReadFrom++;
+        BookieId to = ensemble.get(bookieIndex);
+        if (lh.throttler != null) {
+            lh.throttler.acquire();
+        }
+        clientCtx.getBookieClient().batchReadEntries(to, lh.ledgerId, startEntryId, maxCount, maxSize,
+                this, new ReadContext(bookieIndex, to), BookieProtocol.FLAG_NONE, null, false);
+    }
+
+    @Override
+    public void readEntriesComplete(int rc, long ledgerId, long startEntryId, ByteBufList entries, Object ctx) {
+        final ReadContext rctx = (ReadContext) ctx;
+        if (rc != BKException.Code.OK) {
+            logErrorAndReattemptRead(rctx, "Error: " + BKException.getMessage(rc), rc);
+            return;
+        }
+        if (entries == null || entries.size() == 0) {
+            logErrorAndReattemptRead(rctx, "Empty batch", BKException.Code.ReadException);
+            return;
+        }
+
+        List<LedgerEntry> result = new ArrayList<>(entries.size());
+        long entryId = startEntryId;
+        for (int i = 0; i < entries.size() && i < maxCount; i++, entryId++) {
+            ByteBuf buffer = entries.getBuffer(i);
+            ByteBuf content;
+            try {
+                content = lh.macManager.verifyDigestAndReturnData(entryId, buffer.retain());
+            } catch (BKDigestMatchException e) {
+                buffer.release();
+                clientCtx.getClientStats().getReadOpDmCounter().inc();
+                if (result.isEmpty()) {
+                    logErrorAndReattemptRead(rctx, "Mac mismatch", BKException.Code.DigestMatchException);
+                    return;
+                }
+                // keep the entries verified so far, the remaining ones can be read again later
+                LOG.warn("Mac mismatch while batch reading L{} E{} from bookie {}, returning the first {} entries",
+                        lh.ledgerId, entryId, rctx.to, result.size());
+                break;
+            }
+            /*
+             * The length is a long and it is the last field of the metadata of an entry.
+             * Consequently, we have to subtract 8 from METADATA_LENGTH to get the length.
+             */
+            long length = buffer.getLong(DigestManager.METADATA_LENGTH - 8);
+            result.add(LedgerEntryImpl.create(lh.ledgerId, entryId, length, content));
+        }
+        submitCallback(BKException.Code.OK, result);
+    }
+
+    private void logErrorAndReattemptRead(ReadContext rctx, String errMsg, int rc) {
+        if (BKException.Code.OK == firstError
+            || BKException.Code.NoSuchEntryException == firstError
+            || BKException.Code.NoSuchLedgerExistsException == firstError) {
+            firstError = rc;
+        }
+        if (BKException.Code.NoSuchEntryException == rc
+            || BKException.Code.NoSuchLedgerExistsException == rc) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("No such entry found on bookie.  L{} E{} bookie: {}",
+                        lh.ledgerId, startEntryId, rctx.to);
+            }
+        } else {
+            if (LOG.isInfoEnabled()) {
+                LOG.info("{} while batch reading L{} E{} from bookie: {}",
+                        errMsg, lh.ledgerId, startEntryId, rctx.to);
+            }
+        }
+        lh.recordReadErrorOnBookie(rctx.bookieIndex);
+        sendNextRead();
+    }
+
+    protected void submitCallback(int code, List<LedgerEntry> entries) {
+        // ensure callback once
+        if (!complete.compareAndSet(false, true)) {
+            return;
+        }
+        if (writeSet != null) {
+            writeSet.recycle();
+        }
+
+        long latencyNanos = MathUtils.elapsedNanos(requestTimeNanos);
+        if (code != BKException.Code.OK) {
+            LOG.error("Batch read of ledger entries failed: L{} E{}, count {}, Error = '{}'",
+                    lh.getId(), startEntryId, maxCount, BKException.getMessage(code));
+            clientCtx.getClientStats().getReadOpLogger().registerFailedEvent(latencyNanos, TimeUnit.NANOSECONDS);
+            future.completeExceptionally(BKException.create(code));
+        } else {
+            clientCtx.getClientStats().getReadOpLogger().registerSuccessfulEvent(latencyNanos, TimeUnit.NANOSECONDS);
+            future.complete(LedgerEntriesImpl.create(entries));
+        }
+    }
+
+    private static class ReadContext {
+        final int bookieIndex;
+        final BookieId to;
+
+        ReadContext(int bookieIndex, BookieId to) {
+            this.bookieIndex = bookieIndex;
+            this.to = to;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.api.LastConfirmedAndEntry;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.client.api.WriteHandle;
+
+/**
+ * A {@link WriteHandle} that packs small appends into batched entries.
+ *
+ * <p>Records appended within a short window are coalesced into a single ledger entry, so that they share
+ * the digest, the protocol header and the bookie requests of one add. A batch is written when it reaches
+ * <i>maxBatchBytes</i> bytes or <i>maxBatchRecords</i> records, or <i>maxDelayMicros</i> after its first
+ * record was appended.
+ *
+ * <p>Every entry written by this handle starts with a record index: a version byte, the number of records
+ * and the length of each record, followed by the records. {@link #decodeRecords(ByteBuf)} splits an entry
+ * read back from the ledger into its records. The position of a record in the ledger is returned by
+ * {@link #appendRecordAsync(ByteBuf)} as the entry id and the index of the record within the entry, while
+ * {@link #appendAsync(ByteBuf)} returns only the entry id.
+ */
+public class BatchingWriteHandle implements WriteHandle {
+
+    static final byte BATCH_VERSION = 1;
+
+    /**
+     * The position of a record written by a {@link BatchingWriteHandle}.
+     */
+    public static final class RecordPosition {
+        private final long entryId;
+        private final int index;
+
+        public RecordPosition(long entryId, int index) {
+            this.entryId = entryId;
+            this.index = index;
+        }
+
+        /**
+         * @return the id of the entry containing the record
+         */
+        public long getEntryId() {
+            return entryId;
+        }
+
+        /**
+         * @return the index of the record within its entry
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof RecordPosition)) {
+                return false;
+            }
+            RecordPosition other = (RecordPosition) o;
+            return entryId == other.entryId && index == other.index;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(entryId) * 31 + index;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + entryId + ", " + index + ")";
+        }
+    }
+
+    private final WriteHandle handle;
+    private final ScheduledExecutorService scheduler;
+    private final int maxBatchBytes;
+    private final int maxBatchRecords;
+    private final long maxDelayMicros;
+
+    private List<ByteBuf> records = new ArrayList<>();
+    private List<CompletableFuture<RecordPosition>> futures = new ArrayList<>();
+    private int batchBytes = 0;
+    private ScheduledFuture<?> flushTask = null;
+
+    /**
+     * Wrap a write handle.
+     *
+     * @param handle
+     *          the handle to write to
+     * @param scheduler
+     *          the scheduler used to write the batches when their delay expires
+     * @param maxBatchBytes
+     *          the size of the records after which a batch is written
+     * @param maxBatchRecords
+     *          the number of records after which a batch is written
+     * @param maxDelayMicros
+     *          the maximum time a record waits for other records before its batch is written
+     */
+    public BatchingWriteHandle(WriteHandle handle, ScheduledExecutorService scheduler,
+                               int maxBatchBytes, int maxBatchRecords, long maxDelayMicros) {
+        checkArgument(maxBatchBytes > 0, "maxBatchBytes must be positive");
+        checkArgument(maxBatchRecords > 0, "maxBatchRecords must be positive");
+        checkArgument(maxDelayMicros >= 0, "maxDelayMicros can't be negative");
+        this.handle = handle;
+        this.scheduler = scheduler;
+        this.maxBatchBytes = maxBatchBytes;
+        this.maxBatchRecords = maxBatchRecords;
+        this.maxDelayMicros = maxDelayMicros;
+    }
+
+    /**
+     * Append a record to the current batch.
+     *
+     * @param data the record, released by the handle once the batch is written
+     * @return the position of the record once its batch is written
+     */
+    public CompletableFuture<RecordPosition> appendRecordAsync(ByteBuf data) {
+        CompletableFuture<RecordPosition> future = new CompletableFuture<>();
+        synchronized (this) {
+            records.add(data);
+            futures.add(future);
+            batchBytes += data.readableBytes();
+            if (batchBytes >= maxBatchBytes || records.size() >= maxBatchRecords || maxDelayMicros == 0) {
+                flush();
+            } else if (flushTask == null) {
+                flushTask = scheduler.schedule(this::flush, maxDelayMicros, TimeUnit.MICROSECONDS);
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Append a record to the current batch.
+     *
+     * @return the id of the entry containing the record, which is shared with the other records of its batch
+     */
+    @Override
+    public CompletableFuture<Long> appendAsync(ByteBuf data) {
+        return appendRecordAsync(data).thenApply(RecordPosition::getEntryId);
+    }
+
+    /**
+     * Write the current batch without waiting for its delay to expire.
+     */
+    public synchronized void flush() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+        final List<ByteBuf> batch = records;
+        final List<CompletableFuture<RecordPosition>> batchFutures = futures;
+        records = new ArrayList<>();
+        futures = new ArrayList<>();
+        batchBytes = 0;
+
+        ByteBuf header = Unpooled.buffer(1 + Integer.BYTES * (batch.size() + 1));
+        header.writeByte(BATCH_VERSION);
+        header.writeInt(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            header.writeInt(batch.get(i).readableBytes());
+        }
+        CompositeByteBuf entry = Unpooled.compositeBuffer(batch.size() + 1);
+        entry.addComponent(true, header);
+        for (int i = 0; i < batch.size(); i++) {
+            entry.addComponent(true, batch.get(i));
+        }
+
+        handle.appendAsync(entry).whenComplete((entryId, cause) -> {
+            for (int i = 0; i < batchFutures.size(); i++) {
+                if (cause != null) {
+                    batchFutures.get(i).completeExceptionally(cause);
+                } else {
+                    batchFutures.get(i).complete(new RecordPosition(entryId, i));
+                }
+            }
+        });
+    }
+
+    /**
+     * Split an entry written by a {@link BatchingWriteHandle} into its records.
+     *
+     * <p>The records are slices of the entry buffer, they are valid as long as the entry is not released.
+     *
+     * @param entry the entry content
+     * @return the records of the entry, in the order they were appended
+     * @throws IllegalArgumentException if the entry was not written by a {@link BatchingWriteHandle}
+     */
+    public static List<ByteBuf> decodeRecords(ByteBuf entry) {
+        int index = entry.readerIndex();
+        checkArgument(entry.readableBytes() >= 1 + Integer.BYTES && entry.getByte(index) == BATCH_VERSION,
+                "not a batched entry");
+        int count = entry.getInt(index + 1);
+        // check the sizes against the readable bytes before trusting them, the entry may be corrupted
+        int remaining = entry.readableBytes() - 1 - Integer.BYTES;
+        checkArgument(count >= 0 && count <= remaining / Integer.BYTES, "corrupted batched entry");
+        remaining -= Integer.BYTES * count;
+        int offset = index + 1 + Integer.BYTES * (count + 1);
+
+        List<ByteBuf> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = entry.getInt(index + 1 + Integer.BYTES * (i + 1));
+            checkArgument(length >= 0 && length <= remaining, "corrupted batched entry");
+            result.add(entry.slice(offset, length));
+            offset += length;
+            remaining -= length;
+        }
+        return result;
+    }
+
+    @Override
+    public long getLastAddPushed() {
+        return handle.getLastAddPushed();
+    }
+
+    @Override
+    public CompletableFuture<Void> force() {
+        flush();
+        return handle.force();
+    }
+
+    @Override
+    public CompletableFuture<Void> closeAsync() {
+        flush();
+        return handle.closeAsync();
+    }
+
+    @Override
+    public CompletableFuture<LedgerEntries> readAsync(long firstEntry, long lastEntry) {
+        return handle.readAsync(firstEntry, lastEntry);
+    }
+
+    @Override
+    public CompletableFuture<LedgerEntries> batchReadAsync(long startEntry, int maxCount, long maxSize) {
+        return handle.batchReadAsync(startEntry, maxCount, maxSize);
+    }
+
+    @Override
+    public CompletableFuture<LedgerEntries> readUnconfirmedAsync(long firstEntry, long lastEntry) {
+        return handle.readUnconfirmedAsync(firstEntry, lastEntry);
+    }
+
+    @Override
+    public CompletableFuture<Long> readLastAddConfirmedAsync() {
+        return handle.readLastAddConfirmedAsync();
+    }
+
+    @Override
+    public CompletableFuture<Long> tryReadLastAddConfirmedAsync() {
+        return handle.tryReadLastAddConfirmedAsync();
+    }
+
+    @Override
+    public long getLastAddConfirmed() {
+        return handle.getLastAddConfirmed();
+    }
+
+    @Override
+    public long getLength() {
+        return handle.getLength();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return handle.isClosed();
+    }
+
+    @Override
+    public CompletableFuture<LastConfirmedAndEntry> readLastAddConfirmedAndEntryAsync(long entryId,
+                                                                                      long timeOutInMillis,
+                                                                                      boolean parallel) {
+        return handle.readLastAddConfirmedAndEntryAsync(entryId, timeOutInMillis, parallel);
+    }
+
+    @Override
+    public long getId() {
+        return handle.getId();
+    }
+
+    @Override
+    public LedgerMetadata getLedgerMetadata() {
+        return handle.getLedgerMetadata();
+    }
+}
@@ -32,12 +32,14 @@ import io.netty.util.HashedWheelTimer;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import java.io.IOException;
 import java.net.URI;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
@@ -88,6 +90,7 @@ import org.apache.bookkeeper.proto.DataFormats;
 import org.apache.bookkeeper.stats.NullStatsLogger;
 import org.apache.bookkeeper.stats.StatsLogger;
 import org.apache.bookkeeper.util.EventLoopUtil;
+import org.apache.bookkeeper.util.MathUtils;
 import org.apache.bookkeeper.versioning.Versioned;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.zookeeper.KeeperException;
@@ -125,8 +128,12 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
 
     final BookieClient bookieClient;
     final BookieWatcherImpl bookieWatcher;
+    // shared cache of the entries read by this client, null when disabled
+    final ClientEntryCache entryCache;
 
     final OrderedExecutor mainWorkerPool;
+    // bounds the number of ledgers recovered together by bulk recoveries
+    final LedgerRecoveryLimiter recoveryLimiter;
     final OrderedScheduler scheduler;
     final HashedWheelTimer requestTimer;
     final boolean ownTimer;
@@ -138,6 +145,8 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
     final LedgerManagerFactory ledgerManagerFactory;
     final LedgerManager ledgerManager;
     final LedgerIdGenerator ledgerIdGenerator;
+    // metadata of the closed ledgers opened by this client, null when disabled
+    final LedgerMetadataCache ledgerMetadataCache;
 
     // Ensemble Placement Policy
     final EnsemblePlacementPolicy placementPolicy;
@@ -433,6 +442,7 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
                 .traceTaskWarnTimeMicroSec(conf.getTaskExecutionWarnTimeMicros())
                 .enableBusyWait(conf.isBusyWaitEnabled())
                 .build();
+        this.recoveryLimiter = new LedgerRecoveryLimiter(conf.getBulkRecoveryMaxConcurrentLedgers(), mainWorkerPool);
 
         // initialize stats logger
         this.statsLogger = rootStatsLogger.scope(BookKeeperClientStats.CLIENT_SCOPE);
@@ -481,6 +491,11 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
                     .build();
         }
 
+        if (conf.getEntryCacheSizeBytes() > 0) {
+            this.entryCache = new ClientEntryCache(this.allocator, conf.getEntryCacheSizeBytes(), clientStats);
+        } else {
+            this.entryCache = null;
+        }
 
         if (null == requestTimer) {
             this.requestTimer = new HashedWheelTimer(
@@ -535,6 +550,12 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         }
         this.ledgerManager = new CleanupLedgerManager(ledgerManagerFactory.newLedgerManager());
         this.ledgerIdGenerator = ledgerManagerFactory.newLedgerIdGenerator();
+        if (conf.getLedgerMetadataCacheMaxEntries() > 0) {
+            this.ledgerMetadataCache = new LedgerMetadataCache(ledgerManager, mainWorkerPool,
+                    conf.getLedgerMetadataCacheMaxEntries(), clientStats);
+        } else {
+            this.ledgerMetadataCache = null;
+        }
 
         this.bookieQuarantineRatio = conf.getBookieQuarantineRatio();
         scheduleBookieHealthCheckIfEnabled(conf);
@@ -555,14 +576,17 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         placementPolicy = null;
         ownTimer = false;
         mainWorkerPool = null;
+        recoveryLimiter = null;
         ledgerManagerFactory = null;
         ledgerManager = null;
         ledgerIdGenerator = null;
+        ledgerMetadataCache = null;
         featureProvider = null;
         eventLoopGroup = null;
         bookieWatcher = null;
         bookieInfoScheduler = null;
         bookieClient = null;
+        entryCache = null;
         allocator = UnpooledByteBufAllocator.DEFAULT;
         bookieQuarantineRatio = 1.0;
     }
@@ -648,6 +672,16 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         return ledgerManager;
     }
 
+    /**
+     * Read the metadata of a ledger, through the ledger metadata cache when it is enabled.
+     */
+    CompletableFuture<Versioned<LedgerMetadata>> readLedgerMetadata(long ledgerId) {
+        if (ledgerMetadataCache != null) {
+            return ledgerMetadataCache.readLedgerMetadata(ledgerId);
+        }
+        return getLedgerManager().readLedgerMetadata(ledgerId);
+    }
+
     @VisibleForTesting
     public LedgerManagerFactory getLedgerManagerFactory() {
         return ledgerManagerFactory;
@@ -1367,6 +1401,46 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         SyncCallbackUtils.waitForResult(future);
     }
 
+    /**
+     * Recover a set of ledgers, e.g. all the ledgers left open by a failed writer.
+     *
+     * <p>Each ledger is opened with recovery, as with {@link #asyncOpenLedger}, and then closed. The
+     * recoveries of different ledgers run concurrently, so that their fencing, last add confirmed reads and
+     * recovery reads are pipelined, and their number is bounded by
+     * {@link ClientConfiguration#getBulkRecoveryMaxConcurrentLedgers()} across all the bulk recoveries of this
+     * client. The time spent in each phase of the recoveries is exported by the client stats.
+     *
+     * @param ledgerIds
+     *          the ledgers to recover
+     * @param digestType
+     *          digest type, either MAC or CRC32
+     * @param passwd
+     *          password of the ledgers
+     * @return a future completed, once all the ledgers are processed, with the result code of the recovery
+     *         of each ledger
+     */
+    public CompletableFuture<Map<Long, Integer>> recoverLedgersAsync(Collection<Long> ledgerIds,
+                                                                   DigestType digestType, byte[] passwd) {
+        final long startTime = MathUtils.nowInNano();
+        final Map<Long, Integer> results = new ConcurrentHashMap<>();
+        CompletableFuture<?>[] recoveries = new CompletableFuture<?>[ledgerIds.size()];
+        int i = 0;
+        for (long ledgerId : ledgerIds) {
+            recoveries[i++] = recoveryLimiter.submit(() -> {
+                CompletableFuture<LedgerHandle> opened = new CompletableFuture<>();
+                asyncOpenLedger(ledgerId, digestType, passwd, new SyncOpenCallback(opened), null);
+                return opened.thenCompose(LedgerHandle::closeAsync);
+            }).handle((ignore, exception) -> results.put(ledgerId,
+                    exception == null ? BKException.Code.OK : BKException.getExceptionCode(exception)));
+        }
+        return CompletableFuture.allOf(recoveries).thenApply(ignore -> {
+            long failed = results.values().stream().filter(rc -> rc != BKException.Code.OK).count();
+            LOG.info("Recovered {} ledgers in {} ms, {} failed", results.size(),
+                    TimeUnit.NANOSECONDS.toMillis(MathUtils.elapsedNanos(startTime)), failed);
+            return results;
+        });
+    }
+
     /**
      * Check asynchronously whether the ledger with identifier <i>lId</i>
      * has been closed.
@@ -1375,7 +1449,7 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
      * @param cb    callback method
      */
     public void asyncIsClosed(long lId, final IsClosedCallback cb, final Object ctx){
-        ledgerManager.readLedgerMetadata(lId).whenComplete((metadata, exception) -> {
+        readLedgerMetadata(lId).whenComplete((metadata, exception) -> {
                 if (exception == null) {
                     cb.isClosedComplete(BKException.Code.OK, metadata.getValue().isClosed(), ctx);
                 } else {
@@ -1478,6 +1552,9 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         if (ownEventLoopGroup) {
             eventLoopGroup.shutdownGracefully();
         }
+        if (entryCache != null) {
+            entryCache.close();
+        }
         this.metadataDriver.close();
     }
 
@@ -1658,6 +1735,11 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
             public ByteBufAllocator getByteBufAllocator() {
                 return allocator;
             }
+
+            @Override
+            public ClientEntryCache getEntryCache() {
+                return entryCache;
+            }
         };
 
     public ClientContext getClientCtx() {
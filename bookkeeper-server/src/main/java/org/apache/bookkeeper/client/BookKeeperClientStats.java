@@ -43,6 +43,10 @@ public interface BookKeeperClientStats {
     String RECOVER_OP = "LEDGER_RECOVER";
     String LEDGER_RECOVER_READ_ENTRIES = "LEDGER_RECOVER_READ_ENTRIES";
     String LEDGER_RECOVER_ADD_ENTRIES = "LEDGER_RECOVER_ADD_ENTRIES";
+    String LEDGER_RECOVER_MARK_IN_RECOVERY = "LEDGER_RECOVER_MARK_IN_RECOVERY";
+    String LEDGER_RECOVER_FENCE_READ_LAC = "LEDGER_RECOVER_FENCE_READ_LAC";
+    String LEDGER_RECOVER_READ_ADD = "LEDGER_RECOVER_READ_ADD";
+    String LEDGER_RECOVER_CLOSE = "LEDGER_RECOVER_CLOSE";
     String LEDGER_ENSEMBLE_BOOKIE_DISTRIBUTION = "LEDGER_ENSEMBLE_BOOKIE_DISTRIBUTION";
 
     // Data Operations
@@ -65,6 +69,11 @@ public interface BookKeeperClientStats {
     String SPECULATIVE_READ_COUNT = "SPECULATIVE_READ_COUNT";
     String READ_REQUESTS_REORDERED = "READ_REQUESTS_REORDERED";
     String GET_LIST_OF_ENTRIES_OF_LEDGER_OP = "GET_LIST_OF_ENTRIES_OF_LEDGER";
+    String ENTRY_CACHE_HITS = "ENTRY_CACHE_HITS";
+    String ENTRY_CACHE_MISSES = "ENTRY_CACHE_MISSES";
+    String ENTRY_CACHE_SIZE = "ENTRY_CACHE_SIZE";
+    String LEDGER_METADATA_CACHE_HITS = "LEDGER_METADATA_CACHE_HITS";
+    String LEDGER_METADATA_CACHE_MISSES = "LEDGER_METADATA_CACHE_MISSES";
 
     // per channel stats
     String CHANNEL_SCOPE = "per_channel_bookie_client";
@@ -90,6 +99,7 @@ public interface BookKeeperClientStats {
     String ADD_OP_OUTSTANDING = "ADD_OP_OUTSTANDING";
     String READ_OP_OUTSTANDING = "READ_OP_OUTSTANDING";
     String NETTY_OPS = "NETTY_OPS";
+    String CHANNEL_FRAMES_PER_FLUSH = "FRAMES_PER_FLUSH";
     String ACTIVE_NON_TLS_CHANNEL_COUNTER = "ACTIVE_NON_TLS_CHANNEL_COUNTER";
     String ACTIVE_TLS_CHANNEL_COUNTER = "ACTIVE_TLS_CHANNEL_COUNTER";
     String FAILED_CONNECTION_COUNTER = "FAILED_CONNECTION_COUNTER";
@@ -118,6 +128,10 @@ public interface BookKeeperClientStats {
     OpStatsLogger getReadLacOpLogger();
     OpStatsLogger getRecoverAddCountLogger();
     OpStatsLogger getRecoverReadCountLogger();
+    OpStatsLogger getRecoverMarkInRecoveryLogger();
+    OpStatsLogger getRecoverFenceReadLacLogger();
+    OpStatsLogger getRecoverReadAddLogger();
+    OpStatsLogger getRecoverCloseLogger();
     Counter getReadOpDmCounter();
     Counter getAddOpUrCounter();
     Counter getSpeculativeReadCounter();
@@ -125,11 +139,16 @@ public interface BookKeeperClientStats {
     Counter getEnsembleChangeCounter();
     Counter getLacUpdateHitsCounter();
     Counter getLacUpdateMissesCounter();
+    Counter getEntryCacheHitsCounter();
+    Counter getEntryCacheMissesCounter();
+    Counter getLedgerMetadataCacheHitsCounter();
+    Counter getLedgerMetadataCacheMissesCounter();
     OpStatsLogger getClientChannelWriteWaitLogger();
     OpStatsLogger getWriteDelayedDueToNotEnoughFaultDomainsLatency();
     Counter getWriteDelayedDueToNotEnoughFaultDomains();
     Counter getWriteTimedOutDueToNotEnoughFaultDomains();
     void registerPendingAddsGauge(Gauge<Integer> gauge);
+    void registerEntryCacheSizeGauge(Gauge<Long> gauge);
 
     static BookKeeperClientStats newInstance(StatsLogger stats) {
         return new BookKeeperClientStatsImpl(stats);
@@ -44,4 +44,15 @@ public interface BookiesHealthInfo {
      */
     long getBookiePendingRequests(BookieId bookieSocketAddress);
 
+    /**
+     * Returns an estimate of the read response time of a bookie.
+     *
+     * @param bookieSocketAddress
+     * @return exponentially weighted moving average of the recent read response times in nanoseconds,
+     *         -1 if not known
+     */
+    default long getBookieReadLatencyNanos(BookieId bookieSocketAddress) {
+        return -1L;
+    }
+
 }
@@ -42,5 +42,11 @@ public interface ClientContext {
     OrderedExecutor getMainWorkerPool();
     OrderedScheduler getScheduler();
     BookKeeperClientStats getClientStats();
+
+    /**
+     * @return the entry cache shared by the ledger handles, or null if it is disabled
+     */
+    ClientEntryCache getEntryCache();
+
     boolean isClientClosed();
 }
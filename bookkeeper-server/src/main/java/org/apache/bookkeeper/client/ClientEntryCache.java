@@ -0,0 +1,93 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import org.apache.bookkeeper.bookie.storage.ldb.ReadCache;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.Gauge;
+
+/**
+ * Off-heap cache of the entries read by a {@link BookKeeper} client.
+ *
+ * <p>The cache is shared by all the ledger handles of the client, so that readers tailing the same
+ * ledger in one process fetch each entry from the bookies only once. Entries are stored as they were
+ * received from the bookies, including their digest, so every hit is verified again with the digest
+ * manager of the reading handle.
+ */
+public class ClientEntryCache implements AutoCloseable {
+
+    private final ReadCache cache;
+    private final Counter hitsCounter;
+    private final Counter missesCounter;
+
+    public ClientEntryCache(ByteBufAllocator allocator, long maxCacheSize, BookKeeperClientStats clientStats) {
+        this.cache = new ReadCache(allocator, maxCacheSize);
+        this.hitsCounter = clientStats.getEntryCacheHitsCounter();
+        this.missesCounter = clientStats.getEntryCacheMissesCounter();
+        clientStats.registerEntryCacheSizeGauge(new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return 0L;
+            }
+
+            @Override
+            public Long getSample() {
+                return cache.size();
+            }
+        });
+    }
+
+    /**
+     * Get a copy of a cached entry.
+     *
+     * @return a newly allocated buffer with the entry as sent by the bookie, or null if it is not cached
+     */
+    public ByteBuf get(long ledgerId, long entryId) {
+        ByteBuf entry = cache.get(ledgerId, entryId);
+        if (entry != null) {
+            hitsCounter.inc();
+        } else {
+            missesCounter.inc();
+        }
+        return entry;
+    }
+
+    /**
+     * Copy an entry, as sent by the bookie, into the cache. The caller keeps the ownership of the buffer.
+     */
+    public void put(long ledgerId, long entryId, ByteBuf entry) {
+        cache.put(ledgerId, entryId, entry);
+    }
+
+    /**
+     * @return the total number of cached entries
+     */
+    public long count() {
+        return cache.count();
+    }
+
+    @Override
+    public void close() {
+        cache.close();
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.net.BookieId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link SpeculativeRequestExecutionPolicy} that issues a speculative request once the bookie being waited
+ * on has taken longer than a percentile of its own recent response times.
+ *
+ * <p>Response times are recorded per bookie in a decaying histogram. A fast bookie is hedged early only on the
+ * requests that exceed its usual latency, while a bookie that is slow across the board gets a longer
+ * timeout, so the extra read load stays close to {@code (100 - percentile)%} of the requests. Until a
+ * bookie has enough samples, {@code firstSpeculativeRequestTimeout} is used. The timeout is capped by
+ * {@code maxSpeculativeRequestTimeout}.
+ */
+public class LatencyAwareSpeculativeRequestExecutionPolicy implements SpeculativeRequestExecutionPolicy {
+    private static final Logger LOG = LoggerFactory.getLogger(LatencyAwareSpeculativeRequestExecutionPolicy.class);
+
+    /**
+     * Minimum number of samples for a bookie before its percentile is trusted.
+     */
+    static final int MIN_SAMPLES = 100;
+
+    final int firstSpeculativeRequestTimeout;
+    final int maxSpeculativeRequestTimeout;
+    final double percentile;
+
+    private final ConcurrentHashMap<BookieId, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    public LatencyAwareSpeculativeRequestExecutionPolicy(int firstSpeculativeRequestTimeout,
+            int maxSpeculativeRequestTimeout, double percentile) {
+        if (percentile <= 0 || percentile >= 100) {
+            throw new IllegalArgumentException("Invalid value provided for percentile: " + percentile);
+        }
+        this.firstSpeculativeRequestTimeout = firstSpeculativeRequestTimeout;
+        this.maxSpeculativeRequestTimeout = Math.max(firstSpeculativeRequestTimeout, maxSpeculativeRequestTimeout);
+        this.percentile = percentile;
+    }
+
+    @Override
+    public void recordResponseTime(BookieId bookie, long latencyNanos) {
+        histograms.computeIfAbsent(bookie, b -> new LatencyHistogram())
+                .record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+    }
+
+    /**
+     * Get the time to wait for <i>bookie</i> before issuing a speculative request.
+     *
+     * @param bookie the bookie that was sent the last request, or null if not known
+     * @return the speculative request timeout, in microseconds
+     */
+    @VisibleForTesting
+    long getSpeculativeRequestTimeoutMicros(BookieId bookie) {
+        long maxTimeoutMicros = TimeUnit.MILLISECONDS.toMicros(maxSpeculativeRequestTimeout);
+        LatencyHistogram histogram = bookie != null ? histograms.get(bookie) : null;
+        long timeoutMicros = histogram != null ? histogram.getPercentile(percentile, MIN_SAMPLES) : -1L;
+        if (timeoutMicros < 0) {
+            timeoutMicros = TimeUnit.MILLISECONDS.toMicros(firstSpeculativeRequestTimeout);
+        }
+        return Math.max(1L, Math.min(maxTimeoutMicros, timeoutMicros));
+    }
+
+    @Override
+    public ScheduledFuture<?> initiateSpeculativeRequest(final ScheduledExecutorService scheduler,
+            final SpeculativeRequestExecutor requestExecutor) {
+        return scheduleSpeculativeRead(scheduler, requestExecutor);
+    }
+
+    private ScheduledFuture<?> scheduleSpeculativeRead(final ScheduledExecutorService scheduler,
+                                                       final SpeculativeRequestExecutor requestExecutor) {
+        final long speculativeRequestTimeout =
+                getSpeculativeRequestTimeoutMicros(requestExecutor.getLastRequestedBookie());
+        try {
+            return scheduler.schedule(() -> {
+                ListenableFuture<Boolean> issueNextRequest = requestExecutor.issueSpeculativeRequest();
+                Futures.addCallback(issueNextRequest, new FutureCallback<Boolean>() {
+                    @Override
+                    public void onSuccess(Boolean issueNextRequest) {
+                        if (issueNextRequest) {
+                            scheduleSpeculativeRead(scheduler, requestExecutor);
+                        } else if (LOG.isTraceEnabled()) {
+                            LOG.trace("Stopped issuing speculative requests for {}, "
+                                    + "speculativeReadTimeout = {}us", requestExecutor, speculativeRequestTimeout);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Throwable thrown) {
+                        LOG.warn("Failed to issue speculative request for {}, speculativeReadTimeout = {}us : ",
+                                requestExecutor, speculativeRequestTimeout, thrown);
+                    }
+                }, directExecutor());
+            }, speculativeRequestTimeout, TimeUnit.MICROSECONDS);
+        } catch (RejectedExecutionException re) {
+            if (!scheduler.isShutdown()) {
+                LOG.warn("Failed to schedule speculative request for {}, speculativeReadTimeout = {}us : ",
+                        requestExecutor, speculativeRequestTimeout, re);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Log-linear histogram of response times in microseconds, with 8 buckets per power of two. The counts are
+     * halved every {@link #DECAY_SAMPLES} samples, so that the percentiles follow the recent behavior of the
+     * bookie.
+     */
+    static class LatencyHistogram {
+        static final int DECAY_SAMPLES = 4096;
+
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int LINEAR_BUCKETS = 2 * SUB_BUCKETS;
+        private static final int NUM_BUCKETS = LINEAR_BUCKETS + (64 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+        private final long[] buckets = new long[NUM_BUCKETS];
+        private long count = 0;
+        private int samplesSinceDecay = 0;
+
+        static int bucketFor(long value) {
+            if (value < LINEAR_BUCKETS) {
+                return (int) Math.max(0, value);
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return LINEAR_BUCKETS + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+        }
+
+        /**
+         * Highest value that falls in the bucket.
+         */
+        static long bucketUpperBound(int bucket) {
+            if (bucket < LINEAR_BUCKETS) {
+                return bucket;
+            }
+            int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+            long subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+            return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+        }
+
+        synchronized void record(long valueMicros) {
+            buckets[bucketFor(valueMicros)]++;
+            count++;
+            if (++samplesSinceDecay >= DECAY_SAMPLES) {
+                samplesSinceDecay = 0;
+                count = 0;
+                for (int i = 0; i < NUM_BUCKETS; i++) {
+                    buckets[i] >>>= 1;
+                    count += buckets[i];
+                }
+            }
+        }
+
+        /**
+         * @return the value at <i>percentile</i>, or -1 if there are less than <i>minSamples</i> samples
+         */
+        synchronized long getPercentile(double percentile, int minSamples) {
+            if (count < minSamples) {
+                return -1L;
+            }
+            long target = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < NUM_BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= target) {
+                    return bucketUpperBound(i);
+                }
+            }
+            return bucketUpperBound(NUM_BUCKETS - 1);
+        }
+    }
+}
@@ -81,6 +81,9 @@ class LedgerDeleteOp {
                     if (exception != null) {
                         deleteOpLogger.registerFailedEvent(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
                     } else {
+                        if (bk.ledgerMetadataCache != null) {
+                            bk.ledgerMetadataCache.invalidate(ledgerId);
+                        }
                         deleteOpLogger.registerSuccessfulEvent(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
                     }
                     cb.deleteComplete(BKException.getExceptionCode(exception), this.ctx);
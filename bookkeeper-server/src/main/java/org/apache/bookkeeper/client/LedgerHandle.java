@@ -71,6 +71,7 @@ import org.apache.bookkeeper.client.api.LedgerEntries;
 import org.apache.bookkeeper.client.api.LedgerMetadata;
 import org.apache.bookkeeper.client.api.WriteFlag;
 import org.apache.bookkeeper.client.api.WriteHandle;
+import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
 import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
 import org.apache.bookkeeper.common.concurrent.FutureEventListener;
 import org.apache.bookkeeper.common.concurrent.FutureUtils;
@@ -237,6 +238,11 @@ public class LedgerHandle implements WriteHandle {
             public long getBookiePendingRequests(BookieId bookieSocketAddress) {
                 return clientCtx.getBookieClient().getNumPendingRequests(bookieSocketAddress, ledgerId);
             }
+
+            @Override
+            public long getBookieReadLatencyNanos(BookieId bookieSocketAddress) {
+                return clientCtx.getBookieClient().getReadLatencyEstimateNanos(bookieSocketAddress);
+            }
         };
 
         ensembleChangeCounter = clientCtx.getClientStats().getEnsembleChangeCounter();
@@ -792,6 +798,92 @@ public class LedgerHandle implements WriteHandle {
         return readEntriesInternalAsync(firstEntry, lastEntry, false);
     }
 
+    /**
+     * Read a batch of consecutive entries asynchronously from a single bookie.
+     *
+     * <p>The batch is clipped to the LastAddConfirmed and to the current ensemble. When batch reads are
+     * disabled, or when the entries are striped across the ensemble, it falls back to a regular read
+     * of the same range, whose entries are then cut at <i>maxSize</i>.
+     *
+     * @param startEntry
+     *          id of first entry of sequence
+     * @param maxCount
+     *          the maximum number of entries to read
+     * @param maxSize
+     *          the maximum total size, in bytes, of the entries to read
+     */
+    @Override
+    public CompletableFuture<LedgerEntries> batchReadAsync(long startEntry, int maxCount, long maxSize) {
+        // Little sanity check
+        if (startEntry < 0 || maxCount <= 0 || maxSize <= 0) {
+            LOG.error("IncorrectParameterException on ledgerId:{} startEntry:{} maxCount:{} maxSize:{}",
+                    ledgerId, startEntry, maxCount, maxSize);
+            return FutureUtils.exception(new BKIncorrectParameterException());
+        }
+
+        if (startEntry > lastAddConfirmed) {
+            LOG.error("BatchReadAsync exception on ledgerId:{} startEntry:{} lastAddConfirmed:{}",
+                    ledgerId, startEntry, lastAddConfirmed);
+            return FutureUtils.exception(new BKReadException());
+        }
+
+        long lastEntry = Math.min(startEntry + maxCount - 1, lastAddConfirmed);
+        long nextEnsembleChange = LedgerMetadataUtils.getNextEnsembleChange(getLedgerMetadata(), startEntry);
+        if (nextEnsembleChange > 0) {
+            lastEntry = Math.min(lastEntry, nextEnsembleChange - 1);
+        }
+
+        if (!clientCtx.getConf().batchReadEnabled
+                || getLedgerMetadata().getEnsembleSize() != getLedgerMetadata().getWriteQuorumSize()) {
+            return readEntriesInternalAsync(startEntry, lastEntry, false)
+                    .thenApply(entries -> limitEntriesSize(entries, maxSize));
+        }
+        return batchReadEntriesInternalAsync(startEntry, (int) (lastEntry - startEntry + 1), maxSize);
+    }
+
+    /**
+     * Keep the first entries whose total size fits in <i>maxSize</i>, and at least the first entry.
+     */
+    @VisibleForTesting
+    static LedgerEntries limitEntriesSize(LedgerEntries entries, long maxSize) {
+        List<org.apache.bookkeeper.client.api.LedgerEntry> kept = new ArrayList<>();
+        boolean cut = false;
+        long size = 0;
+        for (org.apache.bookkeeper.client.api.LedgerEntry entry : entries) {
+            size += entry.getLength();
+            if (!kept.isEmpty() && size > maxSize) {
+                cut = true;
+                break;
+            }
+            kept.add(entry);
+        }
+        if (!cut) {
+            return entries;
+        }
+        List<org.apache.bookkeeper.client.api.LedgerEntry> duplicates = new ArrayList<>(kept.size());
+        for (org.apache.bookkeeper.client.api.LedgerEntry entry : kept) {
+            duplicates.add(entry.duplicate());
+        }
+        entries.close();
+        return LedgerEntriesImpl.create(duplicates);
+    }
+
+    CompletableFuture<LedgerEntries> batchReadEntriesInternalAsync(long startEntry, int maxCount, long maxSize) {
+        BatchedReadOp op = new BatchedReadOp(this, clientCtx, startEntry, maxCount, maxSize);
+        if (!clientCtx.isClientClosed()) {
+            if (isHandleWritable()) {
+                // Ledger handle in read/write mode: submit to OSE for ordered execution.
+                executeOrdered(op);
+            } else {
+                // Read-only ledger handle: bypass OSE and execute read directly in client thread.
+                op.run();
+            }
+        } else {
+            op.future().completeExceptionally(BKException.create(ClientClosedException));
+        }
+        return op.future();
+    }
+
     void asyncReadEntriesInternal(long firstEntry, long lastEntry, ReadCallback cb,
                                   Object ctx, boolean isRecoveryRead) {
         if (!clientCtx.isClientClosed()) {
@@ -0,0 +1,180 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.LedgerMetadataListener;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.versioning.Version;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of the metadata of closed ledgers, used by a {@link BookKeeper} client to serve repeated opens
+ * of the same ledgers without reading the metadata store.
+ *
+ * <p>Only closed ledgers are cached: their metadata can still change, e.g. when the ensemble is updated by
+ * re-replication, but rarely. Every cached ledger has a metadata listener registered on the
+ * {@link LedgerManager}, which replaces the cached metadata with newer versions and drops the ledger when
+ * it is deleted. Listeners are unregistered when their ledger is evicted.
+ */
+public class LedgerMetadataCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LedgerMetadataCache.class);
+
+    private final LedgerManager ledgerManager;
+    private final Executor executor;
+    private final Cache<Long, CachedMetadata> cache;
+    private final Counter hitsCounter;
+    private final Counter missesCounter;
+
+    /**
+     * Create a ledger metadata cache.
+     *
+     * @param ledgerManager the ledger manager to read metadata from and to register listeners on
+     * @param executor the executor used to unregister the listeners of evicted ledgers
+     * @param maxEntries the maximum number of ledgers to cache
+     * @param clientStats the client stats
+     */
+    public LedgerMetadataCache(LedgerManager ledgerManager, Executor executor, long maxEntries,
+                               BookKeeperClientStats clientStats) {
+        this.ledgerManager = ledgerManager;
+        this.executor = executor;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .removalListener(this::onRemoval)
+                .build();
+        this.hitsCounter = clientStats.getLedgerMetadataCacheHitsCounter();
+        this.missesCounter = clientStats.getLedgerMetadataCacheMissesCounter();
+    }
+
+    /**
+     * Read the metadata of a ledger, from the cache if the ledger is closed and was already read.
+     *
+     * @see LedgerManager#readLedgerMetadata(long)
+     */
+    public CompletableFuture<Versioned<LedgerMetadata>> readLedgerMetadata(long ledgerId) {
+        CachedMetadata cached = cache.getIfPresent(ledgerId);
+        if (cached != null) {
+            hitsCounter.inc();
+            return CompletableFuture.completedFuture(cached.metadata);
+        }
+        missesCounter.inc();
+        return ledgerManager.readLedgerMetadata(ledgerId).thenApply(metadata -> {
+            if (metadata.getValue().isClosed()) {
+                add(ledgerId, metadata);
+            }
+            return metadata;
+        });
+    }
+
+    /**
+     * Drop a ledger from the cache, e.g. because it was deleted by this client.
+     */
+    public void invalidate(long ledgerId) {
+        cache.invalidate(ledgerId);
+    }
+
+    /**
+     * @return the number of cached ledgers
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    private void add(long ledgerId, Versioned<LedgerMetadata> metadata) {
+        CachedMetadata entry = new CachedMetadata(ledgerId, metadata);
+        if (cache.asMap().putIfAbsent(ledgerId, entry) != null) {
+            return;
+        }
+        // Register once cached: the registration re-reads the metadata, and a change that happened since our
+        // read, including a deletion, is delivered to the listener which can then drop the cached entry.
+        ledgerManager.registerLedgerMetadataListener(ledgerId, entry);
+        synchronized (entry) {
+            entry.registered = true;
+            if (!entry.removed) {
+                return;
+            }
+        }
+        // removed while its listener was being registered, the removal left the unregistration to us
+        executor.execute(() -> ledgerManager.unregisterLedgerMetadataListener(ledgerId, entry));
+    }
+
+    private void onRemoval(RemovalNotification<Long, CachedMetadata> notification) {
+        if (notification.getCause() == RemovalCause.REPLACED) {
+            return;
+        }
+        long ledgerId = notification.getKey();
+        CachedMetadata entry = notification.getValue();
+        synchronized (entry) {
+            entry.removed = true;
+            if (!entry.registered) {
+                return;
+            }
+        }
+        // The removal can happen while the ledger manager is notifying its listeners, so don't unregister inline
+        executor.execute(() -> ledgerManager.unregisterLedgerMetadataListener(ledgerId, entry));
+    }
+
+    /**
+     * Cached metadata of a single ledger, with its own listener so that a stale unregistration cannot
+     * affect the listener of a newer entry of the same ledger.
+     */
+    private class CachedMetadata implements LedgerMetadataListener {
+        private final long ledgerId;
+        private volatile Versioned<LedgerMetadata> metadata;
+        // guarded by this, so that the listener is unregistered exactly once by add() or onRemoval()
+        private boolean registered;
+        private boolean removed;
+
+        CachedMetadata(long ledgerId, Versioned<LedgerMetadata> metadata) {
+            this.ledgerId = ledgerId;
+            this.metadata = metadata;
+        }
+
+        @Override
+        public void onChanged(long lid, Versioned<LedgerMetadata> newMetadata) {
+            if (lid != ledgerId) {
+                return;
+            }
+            if (newMetadata == null || !newMetadata.getValue().isClosed()) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Dropping cached metadata of ledger {} : {}", ledgerId, newMetadata);
+                }
+                cache.asMap().remove(ledgerId, this);
+                return;
+            }
+            synchronized (this) {
+                if (metadata.getVersion().compare(newMetadata.getVersion()) == Version.Occurred.BEFORE) {
+                    metadata = newMetadata;
+                }
+            }
+        }
+    }
+}
@@ -110,7 +110,7 @@ class LedgerOpenOp {
         /**
          * Asynchronously read the ledger metadata node.
          */
-        bk.getLedgerManager().readLedgerMetadata(ledgerId)
+        bk.readLedgerMetadata(ledgerId)
                 .thenAcceptAsync(this::openWithMetadata, bk.getScheduler().chooseThread(ledgerId))
                 .exceptionally(exception -> {
                     openComplete(BKException.getExceptionCode(exception), null);
@@ -274,6 +274,9 @@ class LedgerOpenOp {
             CompletableFuture<ReadHandle> future = new CompletableFuture<>();
             SyncOpenCallback callback = new SyncOpenCallback(future);
             open(callback);
+            if (readAheadEntries > 0) {
+                return future.thenApply(handle -> new ReadAheadReadHandle(handle, readAheadEntries));
+            }
             return future;
         }
 
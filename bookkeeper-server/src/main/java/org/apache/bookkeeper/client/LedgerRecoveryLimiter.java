@@ -0,0 +1,105 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Bounds the number of ledgers a {@link BookKeeper} client recovers at the same time.
+ *
+ * <p>Recoveries beyond the limit are queued and started, in submission order, as the running ones
+ * complete. The limit is shared by all the bulk recoveries of the client, so that several of them
+ * running together cannot flood the bookies with fencing and recovery reads.
+ */
+class LedgerRecoveryLimiter {
+
+    private final int maxConcurrentRecoveries;
+    private final Executor executor;
+    // guarded by this
+    private final Queue<Runnable> pendingRecoveries = new ArrayDeque<>();
+    private int runningRecoveries = 0;
+
+    /**
+     * @param maxConcurrentRecoveries the maximum number of recoveries running at the same time
+     * @param executor the executor starting the queued recoveries
+     */
+    LedgerRecoveryLimiter(int maxConcurrentRecoveries, Executor executor) {
+        this.maxConcurrentRecoveries = Math.max(1, maxConcurrentRecoveries);
+        this.executor = executor;
+    }
+
+    /**
+     * Run a recovery as soon as the limit allows it.
+     *
+     * @param recovery starts the recovery and returns its future
+     * @return a future completed with the result of the recovery
+     */
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> recovery) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable task = () -> {
+            CompletableFuture<T> future;
+            try {
+                future = recovery.get();
+            } catch (Throwable t) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(t);
+            }
+            future.whenComplete((value, exception) -> {
+                recoveryComplete();
+                if (exception != null) {
+                    result.completeExceptionally(exception);
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+        synchronized (this) {
+            if (runningRecoveries >= maxConcurrentRecoveries) {
+                pendingRecoveries.add(task);
+                return result;
+            }
+            runningRecoveries++;
+        }
+        task.run();
+        return result;
+    }
+
+    private void recoveryComplete() {
+        Runnable next;
+        synchronized (this) {
+            next = pendingRecoveries.poll();
+            if (next == null) {
+                runningRecoveries--;
+                return;
+            }
+        }
+        // start the next recovery on the executor, not on the stack of the completed one
+        executor.execute(next);
+    }
+
+    synchronized int getPendingRecoveries() {
+        return pendingRecoveries.size();
+    }
+}
@@ -19,11 +19,13 @@ package org.apache.bookkeeper.client;
 
 import com.google.common.annotations.VisibleForTesting;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.bookkeeper.client.AsyncCallback.AddCallback;
 import org.apache.bookkeeper.client.api.LedgerMetadata;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryListener;
 import org.apache.bookkeeper.proto.checksum.DigestManager.RecoveryData;
+import org.apache.bookkeeper.util.MathUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,6 +47,9 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
     volatile boolean readDone;
     volatile long startEntryToRead;
     volatile long endEntryToRead;
+    // start of the current recovery phase, fencing and reading the lac, then reading and re-adding entries
+    volatile long phaseStartTime;
+    volatile boolean readingEntries;
 
     // keep a copy of metadata for recovery.
     LedgerMetadata metadataForRecovery;
@@ -92,6 +97,7 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
     }
 
     public CompletableFuture<LedgerHandle> initiate() {
+        phaseStartTime = MathUtils.nowInNano();
         ReadLastConfirmedOp rlcop = new ReadLastConfirmedOp(clientCtx.getBookieClient(),
                                                             lh.distributionSchedule,
                                                             lh.macManager,
@@ -101,7 +107,10 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
                 new ReadLastConfirmedOp.LastConfirmedDataCallback() {
                     @Override
                     public void readLastConfirmedDataComplete(int rc, RecoveryData data) {
+                        long elapsed = MathUtils.elapsedNanos(phaseStartTime);
                         if (rc == BKException.Code.OK) {
+                            clientCtx.getClientStats().getRecoverFenceReadLacLogger()
+                                .registerSuccessfulEvent(elapsed, TimeUnit.NANOSECONDS);
                             synchronized (lh) {
                                 /**
                                  The lowest an LAC can be for use in recovery is the first entry id
@@ -128,8 +137,14 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
                             // keep a copy of ledger metadata before proceeding
                             // ledger recovery
                             metadataForRecovery = lh.getLedgerMetadata();
+                            phaseStartTime = MathUtils.nowInNano();
+                            readingEntries = true;
                             doRecoveryRead();
-                        } else if (rc == BKException.Code.TimeoutException) {
+                            return;
+                        }
+                        clientCtx.getClientStats().getRecoverFenceReadLacLogger()
+                            .registerFailedEvent(elapsed, TimeUnit.NANOSECONDS);
+                        if (rc == BKException.Code.TimeoutException) {
                             submitCallback(rc);
                         } else if (rc == BKException.Code.UnauthorizedAccessException) {
                             submitCallback(rc);
@@ -153,10 +168,16 @@ class LedgerRecoveryOp implements ReadEntryListener, AddCallback {
         if (BKException.Code.OK == rc) {
             clientCtx.getClientStats().getRecoverAddCountLogger().registerSuccessfulValue(writeCount.get());
             clientCtx.getClientStats().getRecoverReadCountLogger().registerSuccessfulValue(readCount.get());
+            clientCtx.getClientStats().getRecoverReadAddLogger()
+                .registerSuccessfulEvent(MathUtils.elapsedNanos(phaseStartTime), TimeUnit.NANOSECONDS);
             promise.complete(lh);
         } else {
             clientCtx.getClientStats().getRecoverAddCountLogger().registerFailedValue(writeCount.get());
             clientCtx.getClientStats().getRecoverReadCountLogger().registerFailedValue(readCount.get());
+            if (readingEntries) {
+                clientCtx.getClientStats().getRecoverReadAddLogger()
+                    .registerFailedEvent(MathUtils.elapsedNanos(phaseStartTime), TimeUnit.NANOSECONDS);
+            }
             promise.completeExceptionally(BKException.create(rc));
         }
     }
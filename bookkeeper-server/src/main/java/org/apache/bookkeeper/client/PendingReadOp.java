@@ -33,6 +33,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.bookkeeper.client.BKException.BKDigestMatchException;
 import org.apache.bookkeeper.client.api.LedgerEntries;
 import org.apache.bookkeeper.client.api.LedgerMetadata;
@@ -66,7 +67,9 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
     LedgerHandle lh;
     final ClientContext clientCtx;
 
-    long numPendingEntries;
+    // cache hits complete on the thread running initiate(), which is the client thread for read-only
+    // handles, while bookie responses complete on the ordered executor
+    final AtomicLong numPendingEntries = new AtomicLong();
     final long startEntryId;
     final long endEntryId;
     long requestTimeNanos;
@@ -146,7 +149,28 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
                 logErrorAndReattemptRead(bookieIndex, host, "Mac mismatch", BKException.Code.DigestMatchException);
                 return false;
             }
+            return completeWithData(buffer, content);
+        }
 
+        /**
+         * Complete the read request with an entry found in the client entry cache.
+         *
+         * @param buffer
+         *          the cached entry, as sent by the bookie
+         * @return true if the cached entry passed the digest verification and completed the request
+         */
+        boolean completeFromCache(ByteBuf buffer) {
+            ByteBuf content;
+            try {
+                content = lh.macManager.verifyDigestAndReturnData(eId, buffer);
+            } catch (BKDigestMatchException e) {
+                LOG.warn("Mac mismatch on cached entry L{} E{}, reading it from bookies", lh.ledgerId, eId);
+                return false;
+            }
+            return completeWithData(buffer, content);
+        }
+
+        private boolean completeWithData(ByteBuf buffer, ByteBuf content) {
             if (!complete.getAndSet(true)) {
                 rc = BKException.Code.OK;
                 /*
@@ -389,6 +413,14 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
             sendNextRead();
         }
 
+        @Override
+        public synchronized BookieId getLastRequestedBookie() {
+            if (nextReplicaIndexToReadFrom == 0) {
+                return null;
+            }
+            return ensemble.get(writeSet.get(nextReplicaIndexToReadFrom - 1));
+        }
+
         synchronized BookieId sendNextRead() {
             if (nextReplicaIndexToReadFrom >= getLedgerMetadata().getWriteQuorumSize()) {
                 // we are done, the read has failed from all replicas, just fail the
@@ -471,7 +503,7 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
         this.isRecoveryRead = isRecoveryRead;
 
         this.allowFailFast = false;
-        numPendingEntries = endEntryId - startEntryId + 1;
+        numPendingEntries.set(endEntryId - startEntryId + 1);
         requiredBookiesMissingEntryForRecovery = getLedgerMetadata().getWriteQuorumSize()
                 - getLedgerMetadata().getAckQuorumSize() + 1;
         heardFromHosts = new HashSet<>();
@@ -528,8 +560,13 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
             seq.add(entry);
             i++;
         } while (i <= endEntryId);
+        // recovery reads have to reach the bookies to fence the ledger
+        ClientEntryCache entryCache = isRecoveryRead ? null : clientCtx.getEntryCache();
         // read the entries.
         for (LedgerEntryRequest entry : seq) {
+            if (entryCache != null && readFromCache(entryCache, entry)) {
+                continue;
+            }
             entry.read();
             if (!parallelRead && clientCtx.getConf().readSpeculativeRequestPolicy.isPresent()) {
                 speculativeTask = clientCtx.getConf().readSpeculativeRequestPolicy.get()
@@ -538,6 +575,19 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
         }
     }
 
+    private boolean readFromCache(ClientEntryCache entryCache, LedgerEntryRequest entry) {
+        ByteBuf cached = entryCache.get(lh.ledgerId, entry.eId);
+        if (cached == null) {
+            return false;
+        }
+        if (entry.completeFromCache(cached)) {
+            submitCallback(BKException.Code.OK);
+            return true;
+        }
+        cached.release();
+        return false;
+    }
+
     @Override
     public void run() {
         initiate();
@@ -548,6 +598,7 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
         final BookieId to;
         final LedgerEntryRequest entry;
         long lac = LedgerHandle.INVALID_ENTRY_ID;
+        long readLatencyNanos = -1L;
 
         ReadContext(int bookieIndex, BookieId to, LedgerEntryRequest entry) {
             this.bookieIndex = bookieIndex;
@@ -564,6 +615,11 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
         public long getLastAddConfirmed() {
             return lac;
         }
+
+        @Override
+        public void setReadLatencyNanos(long latencyNanos) {
+            this.readLatencyNanos = latencyNanos;
+        }
     }
 
     private static ReadContext createReadContext(int bookieIndex, BookieId to, LedgerEntryRequest entry) {
@@ -597,20 +653,29 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
 
         heardFromHosts.add(rctx.to);
         heardFromHostsBitSet.set(rctx.bookieIndex, true);
+        if (rctx.readLatencyNanos >= 0 && clientCtx.getConf().readSpeculativeRequestPolicy.isPresent()) {
+            clientCtx.getConf().readSpeculativeRequestPolicy.get().recordResponseTime(rctx.to, rctx.readLatencyNanos);
+        }
 
         buffer.retain();
+        // the digest verification moves the reader index past the entry header
+        int entryOffset = buffer.readerIndex();
         // if entry has completed don't handle twice
         if (entry.complete(rctx.bookieIndex, rctx.to, buffer)) {
             if (!isRecoveryRead) {
                 // do not advance LastAddConfirmed for recovery reads
                 lh.updateLastConfirmed(rctx.getLastAddConfirmed(), 0L);
+                ClientEntryCache entryCache = clientCtx.getEntryCache();
+                if (entryCache != null) {
+                    entryCache.put(ledgerId, entryId, buffer.slice(entryOffset, buffer.writerIndex() - entryOffset));
+                }
             }
             submitCallback(BKException.Code.OK);
         } else {
             buffer.release();
         }
 
-        if (numPendingEntries < 0) {
+        if (numPendingEntries.get() < 0) {
             LOG.error("Read too many values for ledger {} : [{}, {}].",
                     ledgerId, startEntryId, endEntryId);
         }
@@ -618,8 +683,7 @@ class PendingReadOp implements ReadEntryCallback, Runnable {
 
     protected void submitCallback(int code) {
         if (BKException.Code.OK == code) {
-            numPendingEntries--;
-            if (numPendingEntries != 0) {
+            if (numPendingEntries.decrementAndGet() != 0) {
                 return;
             }
         }
@@ -113,6 +113,7 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
     protected boolean enforceDurability = false;
     protected int stabilizePeriodSeconds = 0;
     protected int reorderThresholdPendingRequests = 0;
+    protected boolean reorderReadsByLatency = false;
     // looks like these only assigned in the same thread as constructor, immediately after constructor;
     // no need to make volatile
     protected StatsLogger statsLogger = null;
@@ -292,6 +293,7 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
                     return -1L;
                 }
             });
+        this.reorderReadsByLatency = conf.isReorderReadsByLatencyEnabled();
         return initialize(
                 dnsResolver,
                 timer,
@@ -821,6 +823,57 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
             ensemble, writeSet, writeSetWithRegion, bookiesHealthInfo, false, "", writeSet.size());
     }
 
+    /**
+     * Sort the write set by the expected response time of the bookies: the moving average of their read
+     * latency, multiplied by their number of pending requests plus one. Bookies without a recent latency
+     * estimate are assumed to be as fast as the fastest known one, so that they get probed again. The sort is
+     * stable, so bookies with the same cost keep their original order.
+     *
+     * @return whether the write set was reordered
+     */
+    boolean reorderReadSequenceByLatency(List<BookieId> ensemble,
+                                         DistributionSchedule.WriteSet writeSet,
+                                         BookiesHealthInfo bookiesHealthInfo) {
+        int size = writeSet.size();
+        long[] latencies = new long[size];
+        long minLatency = Long.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            latencies[i] = bookiesHealthInfo.getBookieReadLatencyNanos(ensemble.get(writeSet.get(i)));
+            if (latencies[i] >= 0) {
+                minLatency = Math.min(minLatency, latencies[i]);
+            }
+        }
+
+        double[] costs = new double[size];
+        for (int i = 0; i < size; i++) {
+            long latency = latencies[i] >= 0 ? latencies[i] : minLatency;
+            // a non writable channel has the PENDINGREQ_NOTWRITABLE_MASK bit set, which ranks it last
+            long pendingReqs = bookiesHealthInfo.getBookiePendingRequests(ensemble.get(writeSet.get(i)));
+            costs[i] = (latency == Long.MAX_VALUE ? 1.0 : Math.max(1L, latency)) * ((double) pendingReqs + 1);
+        }
+
+        boolean reordered = false;
+        for (int i = 0; i < size - 1; i++) {
+            int best = i;
+            for (int j = i + 1; j < size; j++) {
+                if (costs[j] < costs[best]) {
+                    best = j;
+                }
+            }
+            if (best != i) {
+                writeSet.moveAndShift(best, i);
+                double bestCost = costs[best];
+                System.arraycopy(costs, i, costs, i + 1, best - i);
+                costs[i] = bestCost;
+                reordered = true;
+            }
+        }
+        if (reordered && LOG.isDebugEnabled()) {
+            LOG.debug("read set reordered by latency, first bookie is {}", ensemble.get(writeSet.get(0)));
+        }
+        return reordered;
+    }
+
     /**
      * This function orders the read sequence with a given region. For region-unaware policies (e.g.
      * RackAware), we pass in false for regionAware and an empty myRegion. When this happens, any
@@ -880,7 +933,9 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
         }
 
         boolean reordered = false;
-        if (reorderThresholdPendingRequests > 0) {
+        if (reorderReadsByLatency) {
+            reordered = reorderReadSequenceByLatency(ensemble, writeSet, bookiesHealthInfo);
+        } else if (reorderThresholdPendingRequests > 0) {
             // if there are no slow or unavailable bookies, capture each bookie's number of
             // pending request to reorder requests based on a threshold of pending requests
 
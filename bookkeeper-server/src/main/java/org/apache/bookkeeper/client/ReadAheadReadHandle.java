@@ -0,0 +1,247 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.apache.bookkeeper.client.api.LastConfirmedAndEntry;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
+
+/**
+ * A {@link ReadHandle} that reads ahead when the entries are consumed sequentially.
+ *
+ * <p>When a read starts at the entry following the previous read, the handle keeps reads in flight
+ * for up to <i>windowEntries</i> entries past the requested range, issued in batches of
+ * <i>batchEntries</i> entries and bounded by the LastAddConfirmed known by the wrapped handle. The
+ * following sequential reads are served, in order, from these outstanding reads, so that a single
+ * consumer keeps the bookies busy without pipelining reads itself. A read at any other position drops
+ * the entries read ahead.
+ *
+ * <p>Only {@link #readAsync(long, long)} reads ahead, the other operations are delegated to the
+ * wrapped handle.
+ */
+public class ReadAheadReadHandle implements ReadHandle {
+
+    private final ReadHandle handle;
+    private final int windowEntries;
+    private final int batchEntries;
+
+    // entries requested ahead of the consumer, from nextEntryId to nextReadAheadEntryId - 1
+    private final TreeMap<Long, CompletableFuture<LedgerEntry>> readAhead = new TreeMap<>();
+    // the entry following the last one returned to the consumer, -1 until a read completes
+    private long nextEntryId = -1L;
+    // the first entry which hasn't been requested from the bookies yet
+    private long nextReadAheadEntryId = -1L;
+
+    /**
+     * Wrap a handle, reading ahead in batches of a quarter of the window.
+     *
+     * @param handle
+     *          the handle to read from
+     * @param windowEntries
+     *          the maximum number of entries to read ahead
+     */
+    public ReadAheadReadHandle(ReadHandle handle, int windowEntries) {
+        this(handle, windowEntries, Math.max(1, windowEntries / 4));
+    }
+
+    /**
+     * Wrap a handle.
+     *
+     * @param handle
+     *          the handle to read from
+     * @param windowEntries
+     *          the maximum number of entries to read ahead
+     * @param batchEntries
+     *          the number of entries fetched by each read ahead request
+     */
+    public ReadAheadReadHandle(ReadHandle handle, int windowEntries, int batchEntries) {
+        checkArgument(windowEntries > 0, "windowEntries must be positive");
+        checkArgument(batchEntries > 0 && batchEntries <= windowEntries,
+                "batchEntries must be positive and not larger than windowEntries");
+        this.handle = handle;
+        this.windowEntries = windowEntries;
+        this.batchEntries = batchEntries;
+    }
+
+    @Override
+    public CompletableFuture<LedgerEntries> readAsync(long firstEntry, long lastEntry) {
+        List<CompletableFuture<LedgerEntry>> entries;
+        synchronized (this) {
+            if (firstEntry != nextEntryId || firstEntry > lastEntry || lastEntry > handle.getLastAddConfirmed()) {
+                // not a sequential read, start over from this position
+                discardReadAhead();
+                CompletableFuture<LedgerEntries> result = handle.readAsync(firstEntry, lastEntry);
+                nextEntryId = lastEntry + 1;
+                nextReadAheadEntryId = lastEntry + 1;
+                result.whenComplete((ignored, cause) -> {
+                    if (cause != null) {
+                        reset();
+                    }
+                });
+                return result;
+            }
+
+            if (nextReadAheadEntryId <= lastEntry) {
+                readAhead(nextReadAheadEntryId, lastEntry);
+            }
+            entries = new ArrayList<>((int) (lastEntry - firstEntry + 1));
+            for (long entryId = firstEntry; entryId <= lastEntry; entryId++) {
+                entries.add(readAhead.remove(entryId));
+            }
+            nextEntryId = lastEntry + 1;
+            fillWindow();
+        }
+
+        CompletableFuture<LedgerEntries> result = new CompletableFuture<>();
+        CompletableFuture.allOf(entries.toArray(new CompletableFuture[0])).whenComplete((ignored, cause) -> {
+            if (cause == null) {
+                List<LedgerEntry> ledgerEntries = new ArrayList<>(entries.size());
+                entries.forEach(entry -> ledgerEntries.add(entry.join()));
+                result.complete(LedgerEntriesImpl.create(ledgerEntries));
+            } else {
+                entries.forEach(entry -> entry.thenAccept(LedgerEntry::close));
+                reset();
+                result.completeExceptionally(cause instanceof CompletionException ? cause.getCause() : cause);
+            }
+        });
+        return result;
+    }
+
+    private void fillWindow() {
+        long lac = handle.getLastAddConfirmed();
+        long windowEnd = nextEntryId + windowEntries - 1;
+        while (nextReadAheadEntryId <= Math.min(lac, windowEnd)) {
+            long batchEnd = nextReadAheadEntryId + batchEntries - 1;
+            if (batchEnd > windowEnd && windowEnd < lac) {
+                // wait until a full batch fits in the window
+                break;
+            }
+            readAhead(nextReadAheadEntryId, Math.min(batchEnd, lac));
+        }
+    }
+
+    private void readAhead(long firstEntry, long lastEntry) {
+        List<CompletableFuture<LedgerEntry>> entries = new ArrayList<>((int) (lastEntry - firstEntry + 1));
+        for (long entryId = firstEntry; entryId <= lastEntry; entryId++) {
+            CompletableFuture<LedgerEntry> entry = new CompletableFuture<>();
+            readAhead.put(entryId, entry);
+            entries.add(entry);
+        }
+        nextReadAheadEntryId = lastEntry + 1;
+
+        handle.readAsync(firstEntry, lastEntry).whenComplete((ledgerEntries, cause) -> {
+            if (cause != null) {
+                entries.forEach(entry -> entry.completeExceptionally(cause));
+                return;
+            }
+            try {
+                int i = 0;
+                for (LedgerEntry ledgerEntry : ledgerEntries) {
+                    entries.get(i++).complete(ledgerEntry.duplicate());
+                }
+            } finally {
+                ledgerEntries.close();
+            }
+        });
+    }
+
+    private synchronized void reset() {
+        discardReadAhead();
+        nextEntryId = -1L;
+        nextReadAheadEntryId = -1L;
+    }
+
+    private void discardReadAhead() {
+        for (Map.Entry<Long, CompletableFuture<LedgerEntry>> entry : readAhead.entrySet()) {
+            entry.getValue().thenAccept(LedgerEntry::close);
+        }
+        readAhead.clear();
+    }
+
+    @Override
+    public CompletableFuture<LedgerEntries> batchReadAsync(long startEntry, int maxCount, long maxSize) {
+        return handle.batchReadAsync(startEntry, maxCount, maxSize);
+    }
+
+    @Override
+    public CompletableFuture<LedgerEntries> readUnconfirmedAsync(long firstEntry, long lastEntry) {
+        return handle.readUnconfirmedAsync(firstEntry, lastEntry);
+    }
+
+    @Override
+    public CompletableFuture<Long> readLastAddConfirmedAsync() {
+        return handle.readLastAddConfirmedAsync();
+    }
+
+    @Override
+    public CompletableFuture<Long> tryReadLastAddConfirmedAsync() {
+        return handle.tryReadLastAddConfirmedAsync();
+    }
+
+    @Override
+    public long getLastAddConfirmed() {
+        return handle.getLastAddConfirmed();
+    }
+
+    @Override
+    public long getLength() {
+        return handle.getLength();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return handle.isClosed();
+    }
+
+    @Override
+    public CompletableFuture<LastConfirmedAndEntry> readLastAddConfirmedAndEntryAsync(long entryId,
+                                                                                      long timeOutInMillis,
+                                                                                      boolean parallel) {
+        return handle.readLastAddConfirmedAndEntryAsync(entryId, timeOutInMillis, parallel);
+    }
+
+    @Override
+    public long getId() {
+        return handle.getId();
+    }
+
+    @Override
+    public CompletableFuture<Void> closeAsync() {
+        reset();
+        return handle.closeAsync();
+    }
+
+    @Override
+    public LedgerMetadata getLedgerMetadata() {
+        return handle.getLedgerMetadata();
+    }
+}
@@ -574,7 +574,14 @@ class ReadLastConfirmedAndEntryOp implements BookkeeperInternalCallbacks.ReadEnt
 
             if (entryId != BookieProtocol.LAST_ADD_CONFIRMED) {
                 buffer.retain();
+                // the digest verification moves the reader index past the entry header
+                int entryOffset = buffer.readerIndex();
                 if (!requestComplete.get() && request.complete(rCtx.getBookieIndex(), bookie, buffer, entryId)) {
+                    ClientEntryCache entryCache = clientCtx.getEntryCache();
+                    if (entryCache != null) {
+                        entryCache.put(ledgerId, entryId,
+                                buffer.slice(entryOffset, buffer.writerIndex() - entryOffset));
+                    }
                     // callback immediately
                     if (rCtx.getLacUpdateTimestamp().isPresent()) {
                         long elapsedMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()
@@ -31,6 +31,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import org.apache.bookkeeper.client.AsyncCallback.AddCallback;
 import org.apache.bookkeeper.client.AsyncCallback.CloseCallback;
 import org.apache.bookkeeper.client.AsyncCallback.ReadCallback;
@@ -42,6 +43,8 @@ import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.LedgerMetadataListener;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryListener;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.TimedGenericCallback;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.apache.bookkeeper.util.MathUtils;
 import org.apache.bookkeeper.versioning.Version;
 import org.apache.bookkeeper.versioning.Versioned;
 import org.slf4j.Logger;
@@ -269,6 +272,7 @@ class ReadOnlyLedgerHandle extends LedgerHandle implements LedgerMetadataListene
             // to IN_RECOVERY, even if the ledger is already closed
             needsUpdate = (metadata) -> metadata.getState() != LedgerMetadata.State.IN_RECOVERY;
         }
+        final long markStartTime = MathUtils.nowInNano();
         new MetadataUpdateLoop(
                 clientCtx.getLedgerManager(), getId(),
                 this::getVersionedLedgerMetadata,
@@ -276,6 +280,8 @@ class ReadOnlyLedgerHandle extends LedgerHandle implements LedgerMetadataListene
                 (metadata) -> LedgerMetadataBuilder.from(metadata).withInRecoveryState().build(),
                 this::setLedgerMetadata)
             .run()
+            .whenComplete((ignore, ex) -> registerPhase(
+                    clientCtx.getClientStats().getRecoverMarkInRecoveryLogger(), markStartTime, ex))
             .thenCompose((metadata) -> {
                     if (metadata.getValue().isClosed()) {
                         return CompletableFuture.completedFuture(ReadOnlyLedgerHandle.this);
@@ -285,7 +291,11 @@ class ReadOnlyLedgerHandle extends LedgerHandle implements LedgerMetadataListene
                             .initiate();
                     }
             })
-            .thenCompose((ignore) -> closeRecovered())
+            .thenCompose((ignore) -> {
+                    final long closeStartTime = MathUtils.nowInNano();
+                    return closeRecovered().whenComplete((ignore2, ex) -> registerPhase(
+                            clientCtx.getClientStats().getRecoverCloseLogger(), closeStartTime, ex));
+            })
             .whenComplete((ignore, ex) -> {
                     if (ex != null) {
                         cb.operationComplete(
@@ -296,6 +306,14 @@ class ReadOnlyLedgerHandle extends LedgerHandle implements LedgerMetadataListene
             });
     }
 
+    private static void registerPhase(OpStatsLogger logger, long startTime, Throwable exception) {
+        if (exception == null) {
+            logger.registerSuccessfulEvent(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
+        } else {
+            logger.registerFailedEvent(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
+        }
+    }
+
     CompletableFuture<Versioned<LedgerMetadata>> closeRecovered() {
         long lac, len;
         synchronized (this) {
@@ -22,6 +22,7 @@ package org.apache.bookkeeper.client;
 
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import org.apache.bookkeeper.net.BookieId;
 
 /**
  * Define a policy for speculative request execution.
@@ -42,4 +43,14 @@ public interface SpeculativeRequestExecutionPolicy {
      */
     ScheduledFuture<?> initiateSpeculativeRequest(ScheduledExecutorService scheduler,
             SpeculativeRequestExecutor requestExecutor);
+
+    /**
+     * Record the time a bookie took to respond to a request. Policies can use it to decide
+     * when to issue speculative requests.
+     *
+     * @param bookie the bookie that responded
+     * @param latencyNanos the response time, in nanoseconds
+     */
+    default void recordResponseTime(BookieId bookie, long latencyNanos) {
+    }
 }
@@ -21,6 +21,7 @@
 package org.apache.bookkeeper.client;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import org.apache.bookkeeper.net.BookieId;
 
 /**
  * Define an executor for issuing speculative requests.
@@ -39,4 +40,13 @@ public interface SpeculativeRequestExecutor {
      * @return whether more speculative requests should be issued
      */
     ListenableFuture<Boolean> issueSpeculativeRequest();
+
+    /**
+     * Get the bookie that the last request was sent to.
+     *
+     * @return the bookie, or null if not known
+     */
+    default BookieId getLastRequestedBookie() {
+        return null;
+    }
 }
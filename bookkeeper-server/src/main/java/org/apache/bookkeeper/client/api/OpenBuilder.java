@@ -72,4 +72,15 @@ public interface OpenBuilder extends OpBuilder<ReadHandle> {
      */
     OpenBuilder withDigestType(DigestType digestType);
 
+    /**
+     * Sets the number of entries to read ahead when the ledger is read sequentially. When it is positive,
+     * reads that start at the entry following the previous read are served from reads issued ahead of
+     * time, keeping up to this number of entries in flight. It defaults to 0, which disables read-ahead.
+     *
+     * @param readAheadEntries the maximum number of entries to read ahead
+     *
+     * @return the builder itself
+     */
+    OpenBuilder withReadAheadEntries(int readAheadEntries);
+
 }
@@ -59,6 +59,56 @@ public interface ReadHandle extends Handle {
                                                               BKException.HANDLER);
     }
 
+    /**
+     * Read a batch of consecutive entries asynchronously, fetching them from a single bookie
+     * with one request where possible.
+     *
+     * <p>The result contains at most <i>maxCount</i> entries starting at <i>startEntry</i>, and
+     * may contain fewer if their total size would exceed <i>maxSize</i> bytes or if the range
+     * goes beyond the LastAddConfirmed. At least one entry is returned on success.
+     *
+     * <p>The default implementation reads the range with {@link #readAsync(long, long)}, clipped to the
+     * LastAddConfirmed, and does not apply <i>maxSize</i>.
+     *
+     * @param startEntry
+     *          id of first entry of sequence
+     * @param maxCount
+     *          the maximum number of entries to read
+     * @param maxSize
+     *          the maximum total size, in bytes, of the entries to read
+     * @return an handle to the result of the operation
+     */
+    default CompletableFuture<LedgerEntries> batchReadAsync(long startEntry, int maxCount, long maxSize) {
+        // fall back to a regular read of the range, which does not bound the size of the entries
+        if (startEntry < 0 || maxCount <= 0 || maxSize <= 0) {
+            return FutureUtils.exception(new BKException(BKException.Code.IncorrectParameterException));
+        }
+        long lastAddConfirmed = getLastAddConfirmed();
+        if (startEntry > lastAddConfirmed) {
+            return FutureUtils.exception(new BKException(BKException.Code.ReadException));
+        }
+        return readAsync(startEntry, Math.min(startEntry + maxCount - 1, lastAddConfirmed));
+    }
+
+    /**
+     * Read a batch of consecutive entries synchronously.
+     *
+     * @param startEntry
+     *          id of first entry of sequence
+     * @param maxCount
+     *          the maximum number of entries to read
+     * @param maxSize
+     *          the maximum total size, in bytes, of the entries to read
+     * @return the result of the operation
+     *
+     * @see #batchReadAsync(long, int, long)
+     */
+    default LedgerEntries batchRead(long startEntry, int maxCount, long maxSize)
+            throws BKException, InterruptedException {
+        return FutureUtils.<LedgerEntries, BKException>result(batchReadAsync(startEntry, maxCount, maxSize),
+                                                              BKException.HANDLER);
+    }
+
     /**
      * Read a sequence of entries asynchronously, allowing to read after the LastAddConfirmed range.
      * <br>This is the same of
@@ -114,6 +114,26 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         help = "the distribution of entries read in ledger recovery requests"
     )
     private final OpStatsLogger recoverReadEntriesStats;
+    @StatsDoc(
+        name = LEDGER_RECOVER_MARK_IN_RECOVERY,
+        help = "operation stats of marking ledgers in recovery in the metadata store"
+    )
+    private final OpStatsLogger recoverMarkInRecoveryLogger;
+    @StatsDoc(
+        name = LEDGER_RECOVER_FENCE_READ_LAC,
+        help = "operation stats of fencing ledgers and reading their last add confirmed during recovery"
+    )
+    private final OpStatsLogger recoverFenceReadLacLogger;
+    @StatsDoc(
+        name = LEDGER_RECOVER_READ_ADD,
+        help = "operation stats of reading and re-adding the unconfirmed entries during recovery"
+    )
+    private final OpStatsLogger recoverReadAddLogger;
+    @StatsDoc(
+        name = LEDGER_RECOVER_CLOSE,
+        help = "operation stats of closing recovered ledgers in the metadata store"
+    )
+    private final OpStatsLogger recoverCloseLogger;
 
     @StatsDoc(
         name = ENSEMBLE_CHANGES,
@@ -130,6 +150,26 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         help = "The number of unsuccessful lac updates on piggybacked responses"
     )
     private final Counter lacUpdateMissesCounter;
+    @StatsDoc(
+        name = ENTRY_CACHE_HITS,
+        help = "The number of entries served by the client entry cache"
+    )
+    private final Counter entryCacheHitsCounter;
+    @StatsDoc(
+        name = ENTRY_CACHE_MISSES,
+        help = "The number of entries not found in the client entry cache"
+    )
+    private final Counter entryCacheMissesCounter;
+    @StatsDoc(
+        name = LEDGER_METADATA_CACHE_HITS,
+        help = "The number of ledger metadata reads served by the client ledger metadata cache"
+    )
+    private final Counter ledgerMetadataCacheHitsCounter;
+    @StatsDoc(
+        name = LEDGER_METADATA_CACHE_MISSES,
+        help = "The number of ledger metadata reads not found in the client ledger metadata cache"
+    )
+    private final Counter ledgerMetadataCacheMissesCounter;
     @StatsDoc(
         name = CLIENT_CHANNEL_WRITE_WAIT,
         help = " The latency distribution of waiting time on channel being writable"
@@ -177,10 +217,18 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         this.readLacOpLogger = stats.getOpStatsLogger(READ_LAC_OP);
         this.recoverAddEntriesStats = stats.getOpStatsLogger(LEDGER_RECOVER_ADD_ENTRIES);
         this.recoverReadEntriesStats = stats.getOpStatsLogger(LEDGER_RECOVER_READ_ENTRIES);
+        this.recoverMarkInRecoveryLogger = stats.getOpStatsLogger(LEDGER_RECOVER_MARK_IN_RECOVERY);
+        this.recoverFenceReadLacLogger = stats.getOpStatsLogger(LEDGER_RECOVER_FENCE_READ_LAC);
+        this.recoverReadAddLogger = stats.getOpStatsLogger(LEDGER_RECOVER_READ_ADD);
+        this.recoverCloseLogger = stats.getOpStatsLogger(LEDGER_RECOVER_CLOSE);
 
         this.ensembleChangeCounter = stats.getCounter(ENSEMBLE_CHANGES);
         this.lacUpdateHitsCounter = stats.getCounter(LAC_UPDATE_HITS);
         this.lacUpdateMissesCounter = stats.getCounter(LAC_UPDATE_MISSES);
+        this.entryCacheHitsCounter = stats.getCounter(ENTRY_CACHE_HITS);
+        this.entryCacheMissesCounter = stats.getCounter(ENTRY_CACHE_MISSES);
+        this.ledgerMetadataCacheHitsCounter = stats.getCounter(LEDGER_METADATA_CACHE_HITS);
+        this.ledgerMetadataCacheMissesCounter = stats.getCounter(LEDGER_METADATA_CACHE_MISSES);
         this.clientChannelWriteWaitStats = stats.getOpStatsLogger(CLIENT_CHANNEL_WRITE_WAIT);
 
         speculativeReadCounter = stats.getCounter(SPECULATIVE_READ_COUNT);
@@ -245,6 +293,22 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         return recoverReadEntriesStats;
     }
     @Override
+    public OpStatsLogger getRecoverMarkInRecoveryLogger() {
+        return recoverMarkInRecoveryLogger;
+    }
+    @Override
+    public OpStatsLogger getRecoverFenceReadLacLogger() {
+        return recoverFenceReadLacLogger;
+    }
+    @Override
+    public OpStatsLogger getRecoverReadAddLogger() {
+        return recoverReadAddLogger;
+    }
+    @Override
+    public OpStatsLogger getRecoverCloseLogger() {
+        return recoverCloseLogger;
+    }
+    @Override
     public Counter getReadOpDmCounter() {
         return readOpDmCounter;
     }
@@ -269,6 +333,22 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
         return lacUpdateMissesCounter;
     }
     @Override
+    public Counter getEntryCacheHitsCounter() {
+        return entryCacheHitsCounter;
+    }
+    @Override
+    public Counter getEntryCacheMissesCounter() {
+        return entryCacheMissesCounter;
+    }
+    @Override
+    public Counter getLedgerMetadataCacheHitsCounter() {
+        return ledgerMetadataCacheHitsCounter;
+    }
+    @Override
+    public Counter getLedgerMetadataCacheMissesCounter() {
+        return ledgerMetadataCacheMissesCounter;
+    }
+    @Override
     public OpStatsLogger getClientChannelWriteWaitLogger() {
         return clientChannelWriteWaitStats;
     }
@@ -292,4 +372,8 @@ public class BookKeeperClientStatsImpl implements BookKeeperClientStats {
     public void registerPendingAddsGauge(Gauge<Integer> gauge) {
         stats.registerGauge(PENDING_ADDS, gauge);
     }
+    @Override
+    public void registerEntryCacheSizeGauge(Gauge<Long> gauge) {
+        stats.registerGauge(ENTRY_CACHE_SIZE, gauge);
+    }
 }
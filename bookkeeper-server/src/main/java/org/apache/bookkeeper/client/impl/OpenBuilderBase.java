@@ -36,6 +36,7 @@ public abstract class OpenBuilderBase implements OpenBuilder {
     protected long ledgerId = LedgerHandle.INVALID_LEDGER_ID;
     protected byte[] password;
     protected DigestType digestType = DigestType.CRC32;
+    protected int readAheadEntries = 0;
 
     @Override
     public OpenBuilder withLedgerId(long ledgerId) {
@@ -61,11 +62,21 @@ public abstract class OpenBuilderBase implements OpenBuilder {
         return this;
     }
 
+    @Override
+    public OpenBuilder withReadAheadEntries(int readAheadEntries) {
+        this.readAheadEntries = readAheadEntries;
+        return this;
+    }
+
     protected int validate() {
         if (ledgerId < 0) {
             LOG.error("invalid ledgerId {} < 0", ledgerId);
             return Code.NoSuchLedgerExistsOnMetadataServerException;
         }
+        if (readAheadEntries < 0) {
+            LOG.error("invalid readAheadEntries {} < 0", readAheadEntries);
+            return Code.IncorrectParameterException;
+        }
         return Code.OK;
     }
 }
@@ -94,9 +94,11 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
     protected static final String CLIENT_RECEIVEBUFFER_SIZE = "clientReceiveBufferSize";
     protected static final String CLIENT_WRITEBUFFER_LOW_WATER_MARK = "clientWriteBufferLowWaterMark";
     protected static final String CLIENT_WRITEBUFFER_HIGH_WATER_MARK = "clientWriteBufferHighWaterMark";
+    protected static final String CLIENT_FLUSH_CONSOLIDATION_MAX_FLUSHES = "clientFlushConsolidationMaxFlushes";
     protected static final String CLIENT_CONNECT_TIMEOUT_MILLIS = "clientConnectTimeoutMillis";
     protected static final String CLIENT_TCP_USER_TIMEOUT_MILLIS = "clientTcpUserTimeoutMillis";
     protected static final String NUM_CHANNELS_PER_BOOKIE = "numChannelsPerBookie";
+    protected static final String LOAD_AWARE_READ_CHANNEL_SELECTION_ENABLED = "loadAwareReadChannelSelectionEnabled";
     protected static final String USE_V2_WIRE_PROTOCOL = "useV2WireProtocol";
     protected static final String NETTY_USE_POOLED_BUFFERS = "nettyUsePooledBuffers";
 
@@ -107,18 +109,25 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
     protected static final String MAX_SPECULATIVE_READ_TIMEOUT = "maxSpeculativeReadTimeout";
     protected static final String SPECULATIVE_READ_TIMEOUT_BACKOFF_MULTIPLIER =
         "speculativeReadTimeoutBackoffMultiplier";
+    protected static final String SPECULATIVE_READ_LATENCY_PERCENTILE = "speculativeReadLatencyPercentile";
     protected static final String FIRST_SPECULATIVE_READ_LAC_TIMEOUT = "firstSpeculativeReadLACTimeout";
     protected static final String MAX_SPECULATIVE_READ_LAC_TIMEOUT = "maxSpeculativeReadLACTimeout";
     protected static final String SPECULATIVE_READ_LAC_TIMEOUT_BACKOFF_MULTIPLIER =
         "speculativeReadLACTimeoutBackoffMultiplier";
     protected static final String ENABLE_PARALLEL_RECOVERY_READ = "enableParallelRecoveryRead";
     protected static final String RECOVERY_READ_BATCH_SIZE = "recoveryReadBatchSize";
+    protected static final String BULK_RECOVERY_MAX_CONCURRENT_LEDGERS = "bulkRecoveryMaxConcurrentLedgers";
     protected static final String REORDER_READ_SEQUENCE_ENABLED = "reorderReadSequenceEnabled";
     protected static final String STICKY_READS_ENABLED = "stickyReadSEnabled";
+    protected static final String BATCH_READ_ENABLED = "batchReadEnabled";
+    protected static final String ENTRY_CACHE_SIZE_BYTES = "entryCacheSizeBytes";
+    protected static final String LEDGER_METADATA_CACHE_MAX_ENTRIES = "ledgerMetadataCacheMaxEntries";
     // Add Parameters
     protected static final String OPPORTUNISTIC_STRIPING = "opportunisticStriping";
     protected static final String DELAY_ENSEMBLE_CHANGE = "delayEnsembleChange";
     protected static final String MAX_ALLOWED_ENSEMBLE_CHANGES = "maxNumEnsembleChanges";
+    protected static final String ADD_BATCH_MAX_ENTRIES = "addBatchMaxEntries";
+    protected static final String ADD_BATCH_MAX_BYTES = "addBatchMaxBytes";
     // Timeout Setting
     protected static final String ADD_ENTRY_TIMEOUT_SEC = "addEntryTimeoutSec";
     protected static final String ADD_ENTRY_QUORUM_TIMEOUT_SEC = "addEntryQuorumTimeoutSec";
@@ -158,6 +167,7 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
     public static final String ENSEMBLE_PLACEMENT_POLICY = "ensemblePlacementPolicy";
     protected static final String NETWORK_TOPOLOGY_STABILIZE_PERIOD_SECONDS = "networkTopologyStabilizePeriodSeconds";
     protected static final String READ_REORDER_THRESHOLD_PENDING_REQUESTS = "readReorderThresholdPendingRequests";
+    protected static final String READ_REORDER_BY_LATENCY_ENABLED = "readReorderByLatencyEnabled";
     protected static final String ENSEMBLE_PLACEMENT_POLICY_ORDER_SLOW_BOOKIES =
         "ensemblePlacementPolicyOrderSlowBookies";
     protected static final String BOOKIE_ADDRESS_RESOLVER_ENABLED = "bookieAddressResolverEnabled";
@@ -467,6 +477,33 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Get the max number of flushes of a client channel consolidated into a single socket flush.
+     *
+     * @return the max number of consolidated flushes.
+     * @see #setClientFlushConsolidationMaxFlushes(int)
+     */
+    public int getClientFlushConsolidationMaxFlushes() {
+        return getInt(CLIENT_FLUSH_CONSOLIDATION_MAX_FLUSHES, 1024);
+    }
+
+    /**
+     * Set the max number of flushes of a client channel consolidated into a single socket flush.
+     *
+     * <p>Requests written on a channel while responses are being read, or within the same
+     * event loop iteration, are flushed together so that they share a single write call.
+     * High priority requests are always flushed right away. A value of 0 or 1 flushes every
+     * request on its own.
+     *
+     * @param maxFlushes
+     *          the max number of consolidated flushes.
+     * @return client configuration.
+     */
+    public ClientConfiguration setClientFlushConsolidationMaxFlushes(int maxFlushes) {
+        setProperty(CLIENT_FLUSH_CONSOLIDATION_MAX_FLUSHES, maxFlushes);
+        return this;
+    }
+
     /**
      * Get the tick duration in milliseconds that used for timeout timer.
      *
@@ -574,6 +611,35 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Whether reads pick the least loaded channel to a bookie.
+     *
+     * @return true if reads pick the least loaded channel, otherwise false.
+     * @see #setLoadAwareReadChannelSelectionEnabled(boolean)
+     */
+    public boolean isLoadAwareReadChannelSelectionEnabled() {
+        return getBoolean(LOAD_AWARE_READ_CHANNEL_SELECTION_ENABLED, false);
+    }
+
+    /**
+     * Enable/disable load aware channel selection for reads.
+     *
+     * <p>By default all the requests of a ledger go through the same channel to a bookie, chosen by
+     * the ledger id. If this flag is enabled and there are several channels per bookie, reads go
+     * through the channel with the fewest pending requests instead, so that the reads of a single
+     * hot ledger are spread across the channels and the event loops on both ends. Writes keep
+     * going through the channel of the ledger, to preserve their ordering.
+     *
+     * @param enabled
+     *          the flag to enable/disable load aware channel selection for reads.
+     * @return client configuration.
+     * @see #setNumChannelsPerBookie(int)
+     */
+    public ClientConfiguration setLoadAwareReadChannelSelectionEnabled(boolean enabled) {
+        setProperty(LOAD_AWARE_READ_CHANNEL_SELECTION_ENABLED, enabled);
+        return this;
+    }
+
     /**
      * Use older Bookkeeper wire protocol (no protobuf).
      *
@@ -994,6 +1060,35 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Get the percentile of a bookie's read response times after which a speculative read is sent
+     * to the next replica. A value of 0 disables latency-aware speculative reads.
+     *
+     * @return speculative read latency percentile.
+     * @see #setSpeculativeReadLatencyPercentile(double)
+     */
+    public double getSpeculativeReadLatencyPercentile() {
+        return getDouble(SPECULATIVE_READ_LATENCY_PERCENTILE, 0.0);
+    }
+
+    /**
+     * Set the percentile of a bookie's read response times after which a speculative read is sent
+     * to the next replica, e.g. 95 to hedge the reads slower than the bookie's p95.
+     *
+     * <p>When set, speculative reads are timed from latency histograms kept for each bookie instead of
+     * the fixed backoff. The first speculative read timeout is used until a bookie has enough samples,
+     * and the max speculative read timeout caps the wait. Speculative reads still need
+     * {@link #getFirstSpeculativeReadTimeout()} to be greater than 0.
+     *
+     * @param percentile
+     *          the percentile, between 0 and 100 (exclusive). 0 disables latency-aware speculative reads.
+     * @return client configuration.
+     */
+    public ClientConfiguration setSpeculativeReadLatencyPercentile(double percentile) {
+        setProperty(SPECULATIVE_READ_LATENCY_PERCENTILE, percentile);
+        return this;
+    }
+
     /**
      * Multipler to use when determining time between successive speculative read LAC requests.
      *
@@ -1139,6 +1234,31 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Get the maximum number of ledgers recovered at the same time by bulk recoveries.
+     *
+     * @return the maximum number of ledgers recovered concurrently.
+     * @see #setBulkRecoveryMaxConcurrentLedgers(int)
+     */
+    public int getBulkRecoveryMaxConcurrentLedgers() {
+        return getInt(BULK_RECOVERY_MAX_CONCURRENT_LEDGERS, 32);
+    }
+
+    /**
+     * Set the maximum number of ledgers recovered at the same time by
+     * {@link org.apache.bookkeeper.client.BookKeeper#recoverLedgersAsync}. The fencing, last add confirmed
+     * reads and recovery reads of that many ledgers are in flight together, and the other ledgers wait for
+     * their turn. The limit is shared by all the bulk recoveries of a client.
+     *
+     * @param maxLedgers
+     *          the maximum number of ledgers recovered concurrently.
+     * @return client configuration.
+     */
+    public ClientConfiguration setBulkRecoveryMaxConcurrentLedgers(int maxLedgers) {
+        setProperty(BULK_RECOVERY_MAX_CONCURRENT_LEDGERS, maxLedgers);
+        return this;
+    }
+
     /**
      * If reorder read sequence enabled or not.
      *
@@ -1169,6 +1289,60 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Get the size of the client entry cache.
+     *
+     * @return the size of the entry cache in bytes, 0 when the cache is disabled.
+     * @see #setEntryCacheSizeBytes(long)
+     */
+    public long getEntryCacheSizeBytes() {
+        return getLong(ENTRY_CACHE_SIZE_BYTES, 0L);
+    }
+
+    /**
+     * Set the size of the client entry cache. The cache is allocated off-heap and shared by all the
+     * ledger handles of the client, so that several readers of the same ledger in one process fetch
+     * each entry from the bookies only once. Entries are added when they are read from the bookies,
+     * and the oldest ones are evicted when the cache is full.
+     *
+     * <p>A value of 0, the default, disables the cache.
+     *
+     * @param size
+     *            the size of the entry cache in bytes.
+     * @return client configuration.
+     */
+    public ClientConfiguration setEntryCacheSizeBytes(long size) {
+        setProperty(ENTRY_CACHE_SIZE_BYTES, size);
+        return this;
+    }
+
+    /**
+     * Get the maximum number of closed ledgers whose metadata is cached by the client.
+     *
+     * @return the maximum number of cached ledgers, 0 when the cache is disabled.
+     * @see #setLedgerMetadataCacheMaxEntries(long)
+     */
+    public long getLedgerMetadataCacheMaxEntries() {
+        return getLong(LEDGER_METADATA_CACHE_MAX_ENTRIES, 0L);
+    }
+
+    /**
+     * Set the maximum number of closed ledgers whose metadata is cached by the client. When the cache is
+     * enabled, opening a closed ledger that was already opened by this client doesn't read its metadata from
+     * the metadata store. The cached metadata is kept up to date by a metadata listener registered for each
+     * cached ledger, and the least recently used ledgers are evicted when the cache is full.
+     *
+     * <p>A value of 0, the default, disables the cache.
+     *
+     * @param maxEntries
+     *            the maximum number of cached ledgers.
+     * @return client configuration.
+     */
+    public ClientConfiguration setLedgerMetadataCacheMaxEntries(long maxEntries) {
+        setProperty(LEDGER_METADATA_CACHE_MAX_ENTRIES, maxEntries);
+        return this;
+    }
+
     /**
      * If read operation should be sticky to a single bookie or not.
      *
@@ -1197,6 +1371,33 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * If batch reads are enabled or not.
+     *
+     * @return true if batch reads are enabled, otherwise false.
+     */
+    public boolean isBatchReadEnabled() {
+        return getBoolean(BATCH_READ_ENABLED, false);
+    }
+
+    /**
+     * Enable/disable batch reads.
+     *
+     * <p>If this flag is enabled, {@link org.apache.bookkeeper.client.api.ReadHandle#batchReadAsync(long, int, long)}
+     * fetches a range of entries from a single bookie with one request. Otherwise, or when the ledger
+     * entries are striped across the ensemble (ensemble size greater than write quorum size), the
+     * call falls back to reading the entries one by one.
+     *
+     * <p>Only enable it once all the bookies support the batch read request. Disabled by default.
+     *
+     * @param enabled the flag to enable/disable batch reads.
+     * @return client configuration instance.
+     */
+    public ClientConfiguration setBatchReadEnabled(boolean enabled) {
+        setProperty(BATCH_READ_ENABLED, enabled);
+        return this;
+    }
+
     /**
      * Get Ensemble Placement Policy Class.
      *
@@ -1245,6 +1446,33 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Whether reads are reordered by the latency of the bookies.
+     *
+     * @return true if reads are reordered by latency.
+     * @see #setReorderReadsByLatencyEnabled(boolean)
+     */
+    public boolean isReorderReadsByLatencyEnabled() {
+        return getBoolean(READ_REORDER_BY_LATENCY_ENABLED, false);
+    }
+
+    /**
+     * Enable reordering reads by the latency of the bookies. The bookies of the write set are ranked
+     * by the moving average of their recent read response times, multiplied by their number of pending
+     * requests plus one, so that reads go first to the fastest replica. When enabled, this replaces the
+     * reordering based on {@link #setReorderThresholdPendingRequests(int)}.
+     *
+     * <p>It only applies when {@link #setReorderReadSequenceEnabled(boolean)} is enabled.
+     *
+     * @param enabled
+     *            whether to reorder reads by latency.
+     * @return client configuration.
+     */
+    public ClientConfiguration setReorderReadsByLatencyEnabled(boolean enabled) {
+        setProperty(READ_REORDER_BY_LATENCY_ENABLED, enabled);
+        return this;
+    }
+
     /**
      * Get the network topology stabilize period in seconds. if it is zero, this feature is turned off.
      *
@@ -1953,6 +2181,53 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Get the max number of consecutive entries of a ledger carried by a single add request.
+     *
+     * @return the max number of entries per add request.
+     * @see #setAddBatchMaxEntries(int)
+     */
+    public int getAddBatchMaxEntries() {
+        return getInt(ADD_BATCH_MAX_ENTRIES, 1);
+    }
+
+    /**
+     * Set the max number of consecutive entries of a ledger carried by a single add request.
+     *
+     * <p>When greater than 1 and the v2 wire protocol is used, the adds queued on a bookie
+     * connection are coalesced into batched add requests, which the bookie logs with a single
+     * journal submission and acknowledges with a single response. All the bookies must support
+     * batched add requests. Default is 1, which disables batching.
+     *
+     * @param maxEntries the max number of entries per add request.
+     * @return client configuration.
+     */
+    public ClientConfiguration setAddBatchMaxEntries(int maxEntries) {
+        setProperty(ADD_BATCH_MAX_ENTRIES, maxEntries);
+        return this;
+    }
+
+    /**
+     * Get the max size in bytes of the entries carried by a single batched add request.
+     *
+     * @return the max size in bytes of a batched add request.
+     */
+    public int getAddBatchMaxBytes() {
+        return getInt(ADD_BATCH_MAX_BYTES, 1024 * 1024);
+    }
+
+    /**
+     * Set the max size in bytes of the entries carried by a single batched add request.
+     * Entries larger than this are always sent with a regular add request.
+     *
+     * @param maxBytes the max size in bytes of a batched add request.
+     * @return client configuration.
+     */
+    public ClientConfiguration setAddBatchMaxBytes(int maxBytes) {
+        setProperty(ADD_BATCH_MAX_BYTES, maxBytes);
+        return this;
+    }
+
     /**
      * Option to use Netty Pooled ByteBufs.
      *
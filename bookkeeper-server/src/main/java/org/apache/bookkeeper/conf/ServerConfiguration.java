@@ -105,6 +105,10 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String COMPACTION_RATE = "compactionRate";
     protected static final String COMPACTION_RATE_BY_ENTRIES = "compactionRateByEntries";
     protected static final String COMPACTION_RATE_BY_BYTES = "compactionRateByBytes";
+    protected static final String COMPACTION_TIME_SLICE_MILLIS = "compactionTimeSliceMillis";
+    protected static final String COMPACTION_PARALLELISM = "compactionParallelism";
+    protected static final String COMPACTION_FOREGROUND_LATENCY_TARGET_MILLIS =
+        "compactionForegroundLatencyTargetMillis";
 
     // Gc Parameters
     protected static final String GC_WAIT_TIME = "gcWaitTime";
@@ -114,8 +118,13 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
             "gcOverreplicatedLedgerMaxConcurrentRequests";
     protected static final String USE_TRANSACTIONAL_COMPACTION = "useTransactionalCompaction";
     protected static final String VERIFY_METADATA_ON_GC = "verifyMetadataOnGC";
+    protected static final String GC_LIVE_LEDGER_SET_ENABLED = "gcLiveLedgerSetEnabled";
+    protected static final String GC_LIVE_LEDGER_SET_EXPECTED_LEDGERS = "gcLiveLedgerSetExpectedLedgers";
+    protected static final String GC_LIVE_LEDGER_SET_FULL_SCAN_INTERVAL = "gcLiveLedgerSetFullScanInterval";
+    protected static final String GC_LIVE_LEDGER_SET_MAX_WATCHES_PER_SECOND = "gcLiveLedgerSetMaxWatchesPerSecond";
     protected static final String GC_ENTRYLOGMETADATA_CACHE_ENABLED = "gcEntryLogMetadataCacheEnabled";
     protected static final String GC_ENTRYLOG_METADATA_CACHE_PATH = "gcEntryLogMetadataCachePath";
+    protected static final String GC_ENTRYLOG_METADATA_CACHE_TYPE = "gcEntryLogMetadataCacheType";
     protected static final String USE_TARGET_ENTRYLOG_SIZE_FOR_GC = "useTargetEntryLogSizeForGc";
     // Scrub Parameters
     protected static final String LOCAL_SCRUB_PERIOD = "localScrubInterval";
@@ -142,6 +151,7 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String JOURNAL_BUFFERED_WRITES_THRESHOLD = "journalBufferedWritesThreshold";
     protected static final String JOURNAL_BUFFERED_ENTRIES_THRESHOLD = "journalBufferedEntriesThreshold";
     protected static final String JOURNAL_FLUSH_WHEN_QUEUE_EMPTY = "journalFlushWhenQueueEmpty";
+    protected static final String JOURNAL_ADAPTIVE_GROUP_COMMIT = "journalAdaptiveGroupCommit";
     protected static final String JOURNAL_REMOVE_FROM_PAGE_CACHE = "journalRemoveFromPageCache";
     protected static final String JOURNAL_PRE_ALLOC_SIZE = "journalPreAllocSizeMB";
     protected static final String JOURNAL_WRITE_BUFFER_SIZE = "journalWriteBufferSizeKB";
@@ -153,6 +163,7 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String JOURNAL_PAGECACHE_FLUSH_INTERVAL_MSEC = "journalPageCacheFlushIntervalMSec";
     protected static final String JOURNAL_CHANNEL_PROVIDER = "journalChannelProvider";
     protected static final String JOURNAL_REUSE_FILES = "journalReuseFiles";
+    protected static final String JOURNAL_DIRECT_IO_DSYNC = "journalDirectIODsync";
     // backpressure control
     protected static final String MAX_ADDS_IN_PROGRESS_LIMIT = "maxAddsInProgressLimit";
     protected static final String MAX_READS_IN_PROGRESS_LIMIT = "maxReadsInProgressLimit";
@@ -169,6 +180,8 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
 
     protected static final String JOURNAL_DIR = "journalDirectory";
     protected static final String JOURNAL_DIRS = "journalDirectories";
+    protected static final String JOURNALS_PER_DIRECTORY = "journalsPerDirectory";
+    protected static final String JOURNAL_LOAD_AWARE_ASSIGNMENT = "journalLoadAwareAssignment";
     protected static final String LEDGER_DIRS = "ledgerDirectories";
     protected static final String INDEX_DIRS = "indexDirectories";
     protected static final String ALLOW_STORAGE_EXPANSION = "allowStorageExpansion";
@@ -178,6 +191,7 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String SERVER_SOCK_LINGER = "serverTcpLinger";
     protected static final String SERVER_WRITEBUFFER_LOW_WATER_MARK = "serverWriteBufferLowWaterMark";
     protected static final String SERVER_WRITEBUFFER_HIGH_WATER_MARK = "serverWriteBufferHighWaterMark";
+    protected static final String SERVER_FLUSH_CONSOLIDATION_MAX_FLUSHES = "serverFlushConsolidationMaxFlushes";
 
     protected static final String SERVER_NUM_ACCEPTOR_THREADS = "serverNumAcceptorThreads";
     protected static final String SERVER_NUM_IO_THREADS = "serverNumIOThreads";
@@ -229,6 +243,8 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String NUM_LONG_POLL_WORKER_THREADS = "numLongPollWorkerThreads";
     protected static final String NUM_HIGH_PRIORITY_WORKER_THREADS = "numHighPriorityWorkerThreads";
     protected static final String READ_WORKER_THREADS_THROTTLING_ENABLED = "readWorkerThreadsThrottlingEnabled";
+    protected static final String ZERO_COPY_READ_ENABLED = "zeroCopyReadEnabled";
+    protected static final String ZERO_COPY_READ_MIN_ENTRY_SIZE = "zeroCopyReadMinEntrySize";
 
     // Long poll parameters
     protected static final String REQUEST_TIMER_TICK_DURATION_MILLISEC = "requestTimerTickDurationMs";
@@ -320,6 +336,13 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String ENTRY_LOG_PER_LEDGER_COUNTER_LIMITS_MULT_FACTOR =
             "entryLogPerLedgerCounterLimitsMultFactor";
 
+    /*
+     * in entryLogPerLedger feature, the flushed entrylogs whose remaining size
+     * is below this threshold are merged by the garbage collector into large
+     * entrylogs sorted by ledger.
+     */
+    protected static final String ENTRY_LOG_MERGE_SIZE_THRESHOLD = "entryLogMergeSizeThreshold";
+
     // Perform local consistency check on bookie startup
     protected static final String LOCAL_CONSISTENCY_CHECK_ON_STARTUP = "localConsistencyCheckOnStartup";
 
@@ -508,6 +531,95 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /**
+     * Get whether garbage collection checks the local ledgers against an incrementally maintained
+     * set of live ledgers instead of listing all the ledgers of the metadata store on every run.
+     *
+     * @return true if the live ledger set is used by garbage collection
+     */
+    public boolean isGcLiveLedgerSetEnabled() {
+        return this.getBoolean(GC_LIVE_LEDGER_SET_ENABLED, false);
+    }
+
+    /**
+     * Set whether garbage collection checks the local ledgers against an incrementally maintained
+     * set of live ledgers.
+     *
+     * <p>The set is a bloom filter of the ledgers found by a full metadata scan, kept up to date by
+     * ledger metadata watches on the local ledgers. Ledgers which are not in the set are verified
+     * against the metadata store before being garbage collected.
+     *
+     * @param enabled
+     * @return server configuration
+     */
+    public ServerConfiguration setGcLiveLedgerSetEnabled(boolean enabled) {
+        this.setProperty(GC_LIVE_LEDGER_SET_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the number of ledgers the live ledger set is initially sized for.
+     *
+     * @return expected number of ledgers in the metadata store
+     */
+    public long getGcLiveLedgerSetExpectedLedgers() {
+        return this.getLong(GC_LIVE_LEDGER_SET_EXPECTED_LEDGERS, 1000000L);
+    }
+
+    /**
+     * Set the number of ledgers the live ledger set is initially sized for. Later full scans size
+     * it from the number of ledgers found by the previous scan.
+     *
+     * @param expectedLedgers
+     * @return server configuration
+     */
+    public ServerConfiguration setGcLiveLedgerSetExpectedLedgers(long expectedLedgers) {
+        this.setProperty(GC_LIVE_LEDGER_SET_EXPECTED_LEDGERS, expectedLedgers);
+        return this;
+    }
+
+    /**
+     * Get the interval between the full metadata scans which rebuild the live ledger set.
+     *
+     * @return full scan interval in milliseconds
+     */
+    public long getGcLiveLedgerSetFullScanIntervalMillis() {
+        return this.getLong(GC_LIVE_LEDGER_SET_FULL_SCAN_INTERVAL, 86400000L);
+    }
+
+    /**
+     * Set the interval between the full metadata scans which rebuild the live ledger set.
+     *
+     * @param intervalMillis
+     * @return server configuration
+     */
+    public ServerConfiguration setGcLiveLedgerSetFullScanIntervalMillis(long intervalMillis) {
+        this.setProperty(GC_LIVE_LEDGER_SET_FULL_SCAN_INTERVAL, intervalMillis);
+        return this;
+    }
+
+    /**
+     * Get the max rate at which garbage collection registers new ledger metadata watches for the
+     * live ledger set. The ledgers over the limit are watched by the next runs. Default: 1000
+     *
+     * @return max number of watches registered per second
+     */
+    public int getGcLiveLedgerSetMaxWatchesPerSecond() {
+        return this.getInt(GC_LIVE_LEDGER_SET_MAX_WATCHES_PER_SECOND, 1000);
+    }
+
+    /**
+     * Set the max rate at which garbage collection registers new ledger metadata watches for the
+     * live ledger set.
+     *
+     * @param maxWatchesPerSecond
+     * @return server configuration
+     */
+    public ServerConfiguration setGcLiveLedgerSetMaxWatchesPerSecond(int maxWatchesPerSecond) {
+        this.setProperty(GC_LIVE_LEDGER_SET_MAX_WATCHES_PER_SECOND, maxWatchesPerSecond);
+        return this;
+    }
+
     /**
      * Get whether the bookie is configured to use persistent
      * entrylogMetadataMap.
@@ -555,6 +667,31 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /**
+     * Get the store of the persistent entrylog metadata-map, used if gcEntryLogMetadataCacheEnabled is true.
+     *
+     * @return "rocksdb" to store the metadata in RocksDB (default), or "mmap" to keep it in a
+     *         memory-mapped file per entry log.
+     */
+    public String getGcEntryLogMetadataCacheType() {
+        return getString(GC_ENTRYLOG_METADATA_CACHE_TYPE, "rocksdb");
+    }
+
+    /**
+     * Set the store of the persistent entrylog metadata-map, used if gcEntryLogMetadataCacheEnabled is true.
+     *
+     * <p>"rocksdb" serializes the metadata of an entry log into RocksDB each time it changes. "mmap"
+     * keeps the ledgers of each entry log as sorted off-heap columns in a memory-mapped file, updated
+     * in place by garbage collection.
+     *
+     * @param gcEntryLogMetadataCacheType "rocksdb" or "mmap"
+     * @return server configuration
+     */
+    public ServerConfiguration setGcEntryLogMetadataCacheType(String gcEntryLogMetadataCacheType) {
+        this.setProperty(GC_ENTRYLOG_METADATA_CACHE_TYPE, gcEntryLogMetadataCacheType);
+        return this;
+    }
+
     public boolean isUseTargetEntryLogSizeForGc() {
         return getBoolean(USE_TARGET_ENTRYLOG_SIZE_FOR_GC, false);
     }
@@ -1003,6 +1140,30 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this.getString(JOURNAL_CHANNEL_PROVIDER, "org.apache.bookkeeper.bookie.DefaultFileChannelProvider");
     }
 
+    /**
+     * Set whether the journal files opened by the
+     * {@link org.apache.bookkeeper.bookie.DirectIOFileChannelProvider} use O_DSYNC writes.
+     *
+     * @param enabled
+     *          flag to enable/disable O_DSYNC journal writes
+     * @return server configuration
+     */
+    public ServerConfiguration setJournalDirectIODsync(boolean enabled) {
+        this.setProperty(JOURNAL_DIRECT_IO_DSYNC, enabled);
+        return this;
+    }
+
+    /**
+     * Whether the journal files opened by the {@link org.apache.bookkeeper.bookie.DirectIOFileChannelProvider}
+     * use O_DSYNC writes. Each write is then durable when it returns and journal force writes do not
+     * need to issue an fdatasync.
+     *
+     * @return true if O_DSYNC journal writes are enabled
+     */
+    public boolean getJournalDirectIODsync() {
+        return this.getBoolean(JOURNAL_DIRECT_IO_DSYNC, false);
+    }
+
     /**
      * Get reuse journal files.
      * @return
@@ -1384,6 +1545,50 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return journalDirs;
     }
 
+    /**
+     * Set the number of journals hosted by each journal directory.
+     *
+     * @param journalsPerDirectory
+     *          number of journals per journal directory
+     * @return server configuration
+     */
+    public ServerConfiguration setJournalsPerDirectory(int journalsPerDirectory) {
+        this.setProperty(JOURNALS_PER_DIRECTORY, journalsPerDirectory);
+        return this;
+    }
+
+    /**
+     * Get the number of journals hosted by each journal directory. Each journal has its own journal
+     * and force write threads, which allows a single fast device to serve several concurrent writes.
+     *
+     * @return number of journals per journal directory
+     */
+    public int getJournalsPerDirectory() {
+        return Math.max(1, this.getInt(JOURNALS_PER_DIRECTORY, 1));
+    }
+
+    /**
+     * Set whether ledgers are assigned to the least loaded journal instead of by ledger id.
+     *
+     * @param enabled
+     *          flag to enable/disable load aware journal assignment
+     * @return server configuration
+     */
+    public ServerConfiguration setJournalLoadAwareAssignment(boolean enabled) {
+        this.setProperty(JOURNAL_LOAD_AWARE_ASSIGNMENT, enabled);
+        return this;
+    }
+
+    /**
+     * Whether ledgers are assigned to the least loaded journal, by queued bytes and queue depth, the first
+     * time they are written. Otherwise the journal is chosen by ledger id modulo the number of journals.
+     *
+     * @return true if load aware journal assignment is enabled
+     */
+    public boolean getJournalLoadAwareAssignment() {
+        return this.getBoolean(JOURNAL_LOAD_AWARE_ASSIGNMENT, false);
+    }
+
     /**
      * Get dir names to store ledger data.
      *
@@ -2024,6 +2229,53 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return getBoolean(READ_WORKER_THREADS_THROTTLING_ENABLED, true);
     }
 
+    /**
+     * Enable zero-copy read responses. When enabled, entries read from the entry logs are sent to
+     * the client with a file transfer (sendfile), instead of being copied into a buffer first.
+     *
+     * <p>This only applies to the v2 protocol, on connections without TLS, and to entries that are
+     * not found in the bookie caches.
+     *
+     * @param enabled
+     *          whether to enable zero-copy read responses
+     * @return server configuration
+     */
+    public ServerConfiguration setZeroCopyReadEnabled(boolean enabled) {
+        setProperty(ZERO_COPY_READ_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Whether zero-copy read responses are enabled.
+     *
+     * @return true if zero-copy read responses are enabled
+     */
+    public boolean isZeroCopyReadEnabled() {
+        return getBoolean(ZERO_COPY_READ_ENABLED, false);
+    }
+
+    /**
+     * Set the minimum size of an entry for it to be sent with a zero-copy read response. Smaller
+     * entries are cheaper to copy than to transfer from a file.
+     *
+     * @param size
+     *          minimum entry size, in bytes
+     * @return server configuration
+     */
+    public ServerConfiguration setZeroCopyReadMinEntrySize(int size) {
+        setProperty(ZERO_COPY_READ_MIN_ENTRY_SIZE, size);
+        return this;
+    }
+
+    /**
+     * Get the minimum size of an entry for it to be sent with a zero-copy read response.
+     *
+     * @return minimum entry size, in bytes
+     */
+    public int getZeroCopyReadMinEntrySize() {
+        return getInt(ZERO_COPY_READ_MIN_ENTRY_SIZE, 64 * 1024);
+    }
+
 
 
     /**
@@ -2416,6 +2668,31 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return getBoolean(JOURNAL_FLUSH_WHEN_QUEUE_EMPTY, false);
     }
 
+    /**
+     * Set whether the journal should adapt the group wait time and the flush thresholds to the observed
+     * fsync latency and entry arrival rate.
+     *
+     * @param enabled
+     *          flag to enable/disable adaptive group commit
+     * @return server configuration
+     */
+    public ServerConfiguration setJournalAdaptiveGroupCommit(boolean enabled) {
+        setProperty(JOURNAL_ADAPTIVE_GROUP_COMMIT, enabled);
+        return this;
+    }
+
+    /**
+     * Should the journal adapt the group wait time and the flush thresholds to the observed fsync latency
+     * and entry arrival rate. When enabled, {@link #getJournalMaxGroupWaitMSec()},
+     * {@link #getJournalBufferedEntriesThreshold()} and {@link #getJournalBufferedWritesThreshold()} are
+     * used as upper bounds.
+     *
+     * @return true if adaptive group commit is enabled
+     */
+    public boolean getJournalAdaptiveGroupCommit() {
+        return getBoolean(JOURNAL_ADAPTIVE_GROUP_COMMIT, false);
+    }
+
     /**
      * Set whether the bookie is able to go into read-only mode.
      * If this is set to false, the bookie will shutdown on encountering
@@ -2964,6 +3241,79 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /**
+     * Get the length of the time slices compaction runs in. Default is 0, compaction runs until it is done
+     * or until its maximum time is reached.
+     *
+     * @return the compaction time slice in milliseconds
+     */
+    public long getCompactionTimeSliceMillis() {
+        return getLong(COMPACTION_TIME_SLICE_MILLIS, 0L);
+    }
+
+    /**
+     * Set the length of the time slices compaction runs in. When it is positive, a minor or major compaction
+     * stops after compacting entry logs for that long, and the garbage collector thread resumes it one time
+     * slice later, without waiting for the next compaction interval, until all the eligible entry logs are
+     * compacted. This bounds how long compaction competes with the foreground traffic at a time.
+     *
+     * @param timeSliceMillis the compaction time slice in milliseconds
+     *
+     * @return ServerConfiguration
+     */
+    public ServerConfiguration setCompactionTimeSliceMillis(long timeSliceMillis) {
+        setProperty(COMPACTION_TIME_SLICE_MILLIS, timeSliceMillis);
+        return this;
+    }
+
+    /**
+     * Get the number of entry logs of a ledger directory compacted at the same time. Default is 1.
+     *
+     * @return the compaction parallelism
+     */
+    public int getCompactionParallelism() {
+        return getInt(COMPACTION_PARALLELISM, 1);
+    }
+
+    /**
+     * Set the number of entry logs of a ledger directory compacted at the same time. Each compaction
+     * scans its entry log on its own thread, while the re-added entries go through the shared entry
+     * logger and their location index updates are batched. The compaction rate limit is shared by all of
+     * them. Only the non transactional compactor supports more than one concurrent compaction.
+     *
+     * @param parallelism the compaction parallelism
+     *
+     * @return ServerConfiguration
+     */
+    public ServerConfiguration setCompactionParallelism(int parallelism) {
+        setProperty(COMPACTION_PARALLELISM, parallelism);
+        return this;
+    }
+
+    /**
+     * Get the foreground latency target of compaction. Default is 0, the compaction rate is fixed.
+     *
+     * @return the foreground latency target in milliseconds
+     */
+    public long getCompactionForegroundLatencyTargetMillis() {
+        return getLong(COMPACTION_FOREGROUND_LATENCY_TARGET_MILLIS, 0L);
+    }
+
+    /**
+     * Set the foreground latency target of compaction. When it is positive, the compaction rate adapts to
+     * the average latency of the adds and reads of the ledger storage: it is lowered while that latency
+     * is above the target and raised back, up to {@link #getCompactionRateByEntries()} or
+     * {@link #getCompactionRateByBytes()}, while it is below.
+     *
+     * @param latencyMillis the foreground latency target in milliseconds
+     *
+     * @return ServerConfiguration
+     */
+    public ServerConfiguration setCompactionForegroundLatencyTargetMillis(long latencyMillis) {
+        setProperty(COMPACTION_FOREGROUND_LATENCY_TARGET_MILLIS, latencyMillis);
+        return this;
+    }
+
     /**
      * Should we remove pages from page cache after force write.
      *
@@ -3779,6 +4129,32 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         setProperty(SERVER_WRITEBUFFER_HIGH_WATER_MARK, waterMark);
         return this;
     }
+
+    /**
+     * Get the max number of flushes of a server channel consolidated into a single socket flush.
+     *
+     * @return the max number of consolidated flushes.
+     * @see #setServerFlushConsolidationMaxFlushes(int)
+     */
+    public int getServerFlushConsolidationMaxFlushes() {
+        return getInt(SERVER_FLUSH_CONSOLIDATION_MAX_FLUSHES, 1024);
+    }
+
+    /**
+     * Set the max number of flushes of a server channel consolidated into a single socket flush.
+     *
+     * <p>Responses written on a channel while requests are being read, or within the same
+     * event loop iteration, are flushed together so that they share a single write call.
+     * A value of 0 or 1 flushes every response on its own.
+     *
+     * @param maxFlushes
+     *          the max number of consolidated flushes.
+     * @return server configuration.
+     */
+    public ServerConfiguration setServerFlushConsolidationMaxFlushes(int maxFlushes) {
+        setProperty(SERVER_FLUSH_CONSOLIDATION_MAX_FLUSHES, maxFlushes);
+        return this;
+    }
     /**
      * Set registration manager class.
      *
@@ -3902,6 +4278,25 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /*
+     * in entryLogPerLedger feature, the flushed entrylogs whose remaining size
+     * is below this threshold, in bytes, are merged by the garbage collector
+     * into entrylogs of up to logSizeLimit bytes, with the entries sorted by
+     * ledger and entry id. 0 disables merging.
+     */
+    public long getEntryLogMergeSizeThreshold() {
+        return this.getLong(ENTRY_LOG_MERGE_SIZE_THRESHOLD, 0L);
+    }
+
+    /*
+     * in entryLogPerLedger feature, sets the remaining size, in bytes, below
+     * which flushed entrylogs are merged by the garbage collector.
+     */
+    public ServerConfiguration setEntryLogMergeSizeThreshold(long entryLogMergeSizeThreshold) {
+        this.setProperty(ENTRY_LOG_MERGE_SIZE_THRESHOLD, Long.toString(entryLogMergeSizeThreshold));
+        return this;
+    }
+
     /**
      * True if a local consistency check should be performed on startup.
      */
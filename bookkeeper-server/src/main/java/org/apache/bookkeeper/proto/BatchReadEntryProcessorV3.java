@@ -0,0 +1,173 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.BookieException;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BatchReadRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BatchReadResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
+import org.apache.bookkeeper.util.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A processor class for v3 batch read packets.
+ *
+ * <p>Entries are read sequentially starting from {@code startEntryId} until either
+ * {@code maxCount} entries have been read or adding the next entry would exceed
+ * {@code maxSize}. Only the failure to read the first entry is reported to the client,
+ * failures on the following entries just end the batch.
+ */
+class BatchReadEntryProcessorV3 extends PacketProcessorBaseV3 {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchReadEntryProcessorV3.class);
+
+    private final BatchReadRequest batchReadRequest;
+    private final long ledgerId;
+    private final long startEntryId;
+    private final long maxBatchReadSize;
+
+    BatchReadEntryProcessorV3(Request request,
+                              BookieRequestHandler requestHandler,
+                              BookieRequestProcessor requestProcessor,
+                              long maxBatchReadSize) {
+        super(request, requestHandler, requestProcessor);
+        requestProcessor.onReadRequestStart(requestHandler.ctx().channel());
+
+        this.batchReadRequest = request.getBatchReadRequest();
+        this.ledgerId = batchReadRequest.getLedgerId();
+        this.startEntryId = batchReadRequest.getStartEntryId();
+        this.maxBatchReadSize = maxBatchReadSize;
+    }
+
+    @VisibleForTesting
+    BatchReadResponse getBatchReadResponse() {
+        final long startTimeNanos = MathUtils.nowInNano();
+        final BatchReadResponse.Builder batchReadResponse = BatchReadResponse.newBuilder()
+                .setLedgerId(ledgerId)
+                .setStartEntryId(startEntryId);
+
+        if (!isVersionCompatible()) {
+            return buildResponse(batchReadResponse, StatusCode.EBADVERSION, startTimeNanos);
+        }
+
+        int maxCount = batchReadRequest.getMaxCount() > 0 ? batchReadRequest.getMaxCount() : Integer.MAX_VALUE;
+        long maxSize = Math.min(batchReadRequest.getMaxSize(), maxBatchReadSize);
+        long responseSize = 0;
+        for (int i = 0; i < maxCount; i++) {
+            final long entryId = startEntryId + i;
+            ByteBuf entry;
+            try {
+                entry = requestProcessor.getBookie().readEntry(ledgerId, entryId);
+            } catch (Bookie.NoLedgerException e) {
+                if (i == 0) {
+                    LOG.info("No ledger found while reading entry: {} from ledger: {}", entryId, ledgerId);
+                    return buildResponse(batchReadResponse, StatusCode.ENOLEDGER, startTimeNanos);
+                }
+                break;
+            } catch (Bookie.NoEntryException e) {
+                if (i == 0) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("No entry found while reading entry: {} from ledger: {}", entryId, ledgerId);
+                    }
+                    return buildResponse(batchReadResponse, StatusCode.ENOENTRY, startTimeNanos);
+                }
+                break;
+            } catch (IOException e) {
+                if (i == 0) {
+                    LOG.error("IOException while reading entry: {} from ledger {} ", entryId, ledgerId, e);
+                    return buildResponse(batchReadResponse, StatusCode.EIO, startTimeNanos);
+                }
+                break;
+            } catch (BookieException.DataUnknownException e) {
+                if (i == 0) {
+                    return buildResponse(batchReadResponse, StatusCode.EUNKNOWNLEDGERSTATE, startTimeNanos);
+                }
+                break;
+            } catch (BookieException e) {
+                LOG.error("Unauthorized access to ledger:{} while reading entry:{} in request from address: {}",
+                        ledgerId, entryId, requestHandler.ctx().channel().remoteAddress());
+                return buildResponse(batchReadResponse, StatusCode.EUA, startTimeNanos);
+            }
+
+            try {
+                responseSize += entry.readableBytes();
+                if (i > 0 && responseSize > maxSize) {
+                    break;
+                }
+                batchReadResponse.addBodies(ByteString.copyFrom(entry.nioBuffer()));
+            } finally {
+                ReferenceCountUtil.release(entry);
+            }
+        }
+        return buildResponse(batchReadResponse, StatusCode.EOK, startTimeNanos);
+    }
+
+    private BatchReadResponse buildResponse(BatchReadResponse.Builder batchReadResponse,
+                                            StatusCode status,
+                                            long startTimeNanos) {
+        if (StatusCode.EOK == status) {
+            requestProcessor.getRequestStats().getReadEntryStats()
+                    .registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+        } else {
+            requestProcessor.getRequestStats().getReadEntryStats()
+                    .registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+        }
+        return batchReadResponse.setStatus(status).build();
+    }
+
+    @Override
+    public void run() {
+        requestProcessor.getRequestStats().getReadEntrySchedulingDelayStats().registerSuccessfulEvent(
+                MathUtils.elapsedNanos(enqueueNanos), TimeUnit.NANOSECONDS);
+        if (!requestHandler.ctx().channel().isOpen()) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Dropping batch read request for closed channel: {}", requestHandler.ctx().channel());
+            }
+            requestProcessor.onReadRequestFinish();
+            return;
+        }
+        sendResponse(getBatchReadResponse());
+    }
+
+    void sendResponse(BatchReadResponse batchReadResponse) {
+        Response.Builder response = Response.newBuilder()
+                .setHeader(getHeader())
+                .setStatus(batchReadResponse.getStatus())
+                .setBatchReadResponse(batchReadResponse);
+        sendResponse(response.getStatus(), response.build(), requestProcessor.getRequestStats().getReadRequestStats());
+        requestProcessor.onReadRequestFinish();
+    }
+
+    @Override
+    public String toString() {
+        return RequestUtils.toSafeString(request);
+    }
+}
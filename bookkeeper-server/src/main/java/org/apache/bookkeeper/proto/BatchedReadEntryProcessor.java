@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.Recycler;
+import io.netty.util.ReferenceCounted;
+import java.util.concurrent.ExecutorService;
+import org.apache.bookkeeper.proto.BookieProtocol.BatchedReadRequest;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Processor of {@link BookieProtocol#BATCH_READ_ENTRY} requests.
+ *
+ * <p>Entries are read sequentially starting from the requested entry until either the
+ * requested number of entries or the size limit is reached. The first entry is always
+ * returned (or its error reported), while failures on the following entries just end
+ * the batch.
+ */
+class BatchedReadEntryProcessor extends ReadEntryProcessor {
+    private static final Logger LOG = LoggerFactory.getLogger(BatchedReadEntryProcessor.class);
+
+    /**
+     * Size of the response header: frame size, packet header, error code, ledger id,
+     * entry id and request id.
+     */
+    static final int BATCH_READ_RESPONSE_HEADER_SIZE = 4 + 4 + 4 + 8 + 8 + 8;
+
+    private long maxBatchReadSize;
+
+    public static BatchedReadEntryProcessor create(BatchedReadRequest request,
+                                                   BookieRequestHandler requestHandler,
+                                                   BookieRequestProcessor requestProcessor,
+                                                   ExecutorService fenceThreadPool,
+                                                   boolean throttleReadResponses,
+                                                   long maxBatchReadSize) {
+        BatchedReadEntryProcessor rep = RECYCLER.get();
+        rep.init(request, requestHandler, requestProcessor, fenceThreadPool, throttleReadResponses);
+        rep.maxBatchReadSize = maxBatchReadSize;
+        return rep;
+    }
+
+    @Override
+    protected ReferenceCounted readData() throws Exception {
+        BatchedReadRequest batchRequest = (BatchedReadRequest) request;
+        int maxCount = batchRequest.getMaxCount() > 0 ? batchRequest.getMaxCount() : Integer.MAX_VALUE;
+        long maxSize = Math.min(batchRequest.getMaxSize(), maxBatchReadSize);
+
+        ByteBufList data = null;
+        long frameSize = BATCH_READ_RESPONSE_HEADER_SIZE;
+        for (int i = 0; i < maxCount; i++) {
+            ByteBuf entry;
+            try {
+                entry = requestProcessor.getBookie().readEntry(request.getLedgerId(), request.getEntryId() + i);
+            } catch (Exception e) {
+                if (data == null) {
+                    throw e;
+                }
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Stop batch read of {} at entry {}", request, request.getEntryId() + i, e);
+                }
+                break;
+            }
+            frameSize += 4 + entry.readableBytes();
+            if (data == null) {
+                data = ByteBufList.get(entry);
+            } else if (frameSize > maxSize) {
+                entry.release();
+                break;
+            } else {
+                data.add(entry);
+            }
+        }
+        return data;
+    }
+
+    @Override
+    protected BookieProtocol.Response buildReadResponse(ReferenceCounted data) {
+        return ResponseBuilder.buildBatchedReadResponse((ByteBufList) data, (BatchedReadRequest) request);
+    }
+
+    @Override
+    public String toString() {
+        BatchedReadRequest batchRequest = (BatchedReadRequest) request;
+        return String.format("BatchedReadEntry(%d, %d, %d, %d)", request.getLedgerId(), request.getEntryId(),
+                batchRequest.getMaxCount(), batchRequest.getMaxSize());
+    }
+
+    @Override
+    protected void recycle() {
+        request.recycle();
+        super.reset();
+        this.recyclerHandle.recycle(this);
+    }
+
+    private final Recycler.Handle<BatchedReadEntryProcessor> recyclerHandle;
+
+    private BatchedReadEntryProcessor(Recycler.Handle<BatchedReadEntryProcessor> recyclerHandle) {
+        super(null);
+        this.recyclerHandle = recyclerHandle;
+    }
+
+    private static final Recycler<BatchedReadEntryProcessor> RECYCLER = new Recycler<BatchedReadEntryProcessor>() {
+        @Override
+        protected BatchedReadEntryProcessor newObject(Recycler.Handle<BatchedReadEntryProcessor> handle) {
+            return new BatchedReadEntryProcessor(handle);
+        }
+    };
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.bookkeeper.bookie.BookieException;
+import org.apache.bookkeeper.bookie.BookieException.OperationRejectedException;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookieProtocol.BatchedAddRequest;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
+import org.apache.bookkeeper.util.MathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Processes batched add entry requests. The entries of the batch are logged with a single
+ * journal submission and acknowledged with a single response once all of them are persisted.
+ */
+class BatchedWriteEntryProcessor extends PacketProcessorBase<BatchedAddRequest> implements WriteCallback {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchedWriteEntryProcessor.class);
+
+    private final AtomicInteger pendingEntries = new AtomicInteger();
+    private final AtomicInteger firstError = new AtomicInteger(BookieProtocol.EOK);
+    long startTimeNanos;
+
+    BatchedWriteEntryProcessor(BatchedAddRequest request, BookieRequestHandler requestHandler,
+                               BookieRequestProcessor requestProcessor) {
+        init(request, requestHandler, requestProcessor);
+        pendingEntries.set(request.getCount());
+        requestProcessor.onAddRequestStart(requestHandler.ctx().channel());
+    }
+
+    @Override
+    protected void processPacket() {
+        if (requestProcessor.getBookie().isReadOnly()
+            && !(request.isHighPriority() && requestProcessor.getBookie().isAvailableForHighPriorityWrites())) {
+            LOG.warn("BookieServer is running in readonly mode,"
+                    + " so rejecting the request from the client!");
+            sendWriteReqResponse(BookieProtocol.EREADONLY,
+                         ResponseBuilder.buildErrorResponse(BookieProtocol.EREADONLY, request),
+                         requestProcessor.getRequestStats().getAddRequestStats());
+            request.release();
+            request.recycle();
+            return;
+        }
+
+        startTimeNanos = MathUtils.nowInNano();
+        int rc = BookieProtocol.EOK;
+        try {
+            if (request.isRecoveryAdd()) {
+                // recovery adds are never batched by the client
+                request.release();
+                rc = BookieProtocol.EBADREQ;
+            } else {
+                requestProcessor.getBookie().addEntries(request.getEntries(), false, this,
+                        requestHandler, request.getMasterKey());
+            }
+        } catch (OperationRejectedException e) {
+            requestProcessor.getRequestStats().getAddEntryRejectedCounter().inc();
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Operation rejected while writing {}", request, e);
+            }
+            rc = BookieProtocol.ETOOMANYREQUESTS;
+        } catch (IOException e) {
+            LOG.error("Error writing {}", request, e);
+            rc = BookieProtocol.EIO;
+        } catch (BookieException.LedgerFencedException lfe) {
+            LOG.error("Attempt to write to fenced ledger", lfe);
+            rc = BookieProtocol.EFENCED;
+        } catch (BookieException e) {
+            LOG.error("Unauthorized access to ledger {}", request.getLedgerId(), e);
+            rc = BookieProtocol.EUA;
+        } catch (Throwable t) {
+            LOG.error("Unexpected exception while writing {} : {}", request, t.getMessage(), t);
+            rc = BookieProtocol.EBADREQ;
+        }
+
+        if (rc != BookieProtocol.EOK) {
+            requestProcessor.getRequestStats().getAddEntryStats()
+                .registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            sendWriteReqResponse(rc,
+                         ResponseBuilder.buildErrorResponse(rc, request),
+                         requestProcessor.getRequestStats().getAddRequestStats());
+            request.recycle();
+        }
+    }
+
+    @Override
+    public void writeComplete(int rc, long ledgerId, long entryId,
+                              BookieId addr, Object ctx) {
+        if (BookieProtocol.EOK != rc) {
+            firstError.compareAndSet(BookieProtocol.EOK, rc);
+        }
+        if (pendingEntries.decrementAndGet() > 0) {
+            return;
+        }
+
+        int batchRc = firstError.get();
+        if (BookieProtocol.EOK == batchRc) {
+            requestProcessor.getRequestStats().getAddEntryStats()
+                .registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+        } else {
+            requestProcessor.getRequestStats().getAddEntryStats()
+                .registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+        }
+
+        requestHandler.prepareSendBatchedAddResponseV2(batchRc, request);
+        requestProcessor.onAddRequestFinish();
+
+        request.recycle();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BatchedWriteEntry(%d, %d, %d)",
+                             request.getLedgerId(), request.getEntryId(), request.getCount());
+    }
+}
@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import org.apache.bookkeeper.client.api.WriteFlag;
 import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.BatchedReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetBookieInfoCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
@@ -84,6 +85,17 @@ public interface BookieClient {
      */
     long getNumPendingRequests(BookieId address, long ledgerId);
 
+    /**
+     * Get an estimate of the time the bookie takes to respond to reads, as an exponentially
+     * weighted moving average of the recent read response times.
+     *
+     * @param address the address of the bookie
+     * @return the read latency estimate in nanoseconds, or -1 if there were no recent reads
+     */
+    default long getReadLatencyEstimateNanos(BookieId address) {
+        return -1L;
+    }
+
     /**
      * Send a force request to the server. When complete all entries which have
      * been written for {@code ledgerId} to this bookie will be persisted on disk.
@@ -180,6 +192,32 @@ public interface BookieClient {
                    ReadEntryCallback cb, Object ctx, int flags, byte[] masterKey,
                    boolean allowFastFail);
 
+    /**
+     * Read a batch of consecutive entries from bookie at address {@code address}.
+     *
+     * <p>The bookie returns the entries starting from {@code startEntryId}, stopping
+     * when {@code maxCount} entries have been read, when the response would exceed
+     * {@code maxSize} bytes or at the first entry it does not have. At least one
+     * entry is returned on success.
+     *
+     * @param address address of the bookie to read from
+     * @param ledgerId id of the ledger the entries belong to
+     * @param startEntryId id of the first entry of the batch
+     * @param maxCount the maximum number of entries to read
+     * @param maxSize the maximum size in bytes of the response
+     * @param cb the callback notified when the request completes
+     * @param ctx a context object passed to the callback on completion
+     * @param flags a bit mask of flags from BookieProtocol.FLAG_*
+     *              {@link org.apache.bookkeeper.proto.BookieProtocol}
+     * @param masterKey the master key of the ledger being read from. This is only required
+     *                  if the FLAG_DO_FENCING is specified.
+     * @param allowFastFail fail the read immediately if the channel is non-writable
+     *                      {@link #isWritable(BookieId,long)}
+     */
+    void batchReadEntries(BookieId address, long ledgerId, long startEntryId, int maxCount, long maxSize,
+                          BatchedReadEntryCallback cb, Object ctx, int flags, byte[] masterKey,
+                          boolean allowFastFail);
+
     /**
      * Send a long poll request to bookie, waiting for the last add confirmed
      * to be updated. The client can also request that the full entry is returned
@@ -54,6 +54,7 @@ import org.apache.bookkeeper.common.util.OrderedExecutor;
 import org.apache.bookkeeper.conf.ClientConfiguration;
 import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.net.BookieSocketAddress;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.BatchedReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.FutureGetListOfEntriesOfLedger;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
@@ -179,6 +180,12 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
         }
     }
 
+    @Override
+    public long getReadLatencyEstimateNanos(BookieId address) {
+        PerChannelBookieClientPool pcbcPool = channels.get(address);
+        return pcbcPool == null ? -1L : pcbcPool.getReadLatencyEstimateNanos();
+    }
+
     @Override
     public PerChannelBookieClient create(BookieId address, PerChannelBookieClientPool pcbcPool,
             SecurityHandlerFactory shFactory, boolean forceUseV3) throws SecurityException {
@@ -353,6 +360,18 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
         }
     }
 
+    private void completeBatchRead(final int rc,
+                                   final long ledgerId,
+                                   final long startEntryId,
+                                   final BatchedReadEntryCallback cb,
+                                   final Object ctx) {
+        try {
+            executor.executeOrdered(ledgerId, () -> cb.readEntriesComplete(rc, ledgerId, startEntryId, null, ctx));
+        } catch (RejectedExecutionException ree) {
+            cb.readEntriesComplete(getRc(BKException.Code.InterruptedException), ledgerId, startEntryId, null, ctx);
+        }
+    }
+
     private static class ChannelReadyForAddEntryCallback
         implements GenericCallback<PerChannelBookieClient> {
         private final Handle<ChannelReadyForAddEntryCallback> recyclerHandle;
@@ -480,7 +499,7 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
             return;
         }
 
-        client.obtain((rc, pcbc) -> {
+        client.obtainForRead((rc, pcbc) -> {
             if (rc != BKException.Code.OK) {
                 completeRead(rc, ledgerId, entryId, null, cb, ctx);
             } else {
@@ -489,6 +508,26 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
         }, ledgerId);
     }
 
+    @Override
+    public void batchReadEntries(final BookieId addr, final long ledgerId, final long startEntryId,
+                                 final int maxCount, final long maxSize, final BatchedReadEntryCallback cb,
+                                 final Object ctx, int flags, byte[] masterKey, final boolean allowFastFail) {
+        final PerChannelBookieClientPool client = lookupClient(addr);
+        if (client == null) {
+            completeBatchRead(getRc(BKException.Code.BookieHandleNotAvailableException),
+                    ledgerId, startEntryId, cb, ctx);
+            return;
+        }
+
+        client.obtainForRead((rc, pcbc) -> {
+            if (rc != BKException.Code.OK) {
+                completeBatchRead(rc, ledgerId, startEntryId, cb, ctx);
+            } else {
+                pcbc.batchReadEntries(ledgerId, startEntryId, maxCount, maxSize, cb, ctx, flags, masterKey,
+                        allowFastFail);
+            }
+        }, ledgerId);
+    }
 
     @Override
     public void readEntryWaitForLACUpdate(final BookieId addr,
@@ -506,7 +545,7 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
             return;
         }
 
-        client.obtain((rc, pcbc) -> {
+        client.obtainForRead((rc, pcbc) -> {
             if (rc != BKException.Code.OK) {
                 completeRead(rc, ledgerId, entryId, null, cb, ctx);
             } else {
@@ -20,6 +20,8 @@
  */
 package org.apache.bookkeeper.proto;
 
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CHANNEL_FRAMES_PER_FLUSH;
+
 import com.google.common.annotations.VisibleForTesting;
 import com.google.protobuf.ExtensionRegistry;
 import io.netty.bootstrap.ServerBootstrap;
@@ -49,7 +51,6 @@ import io.netty.channel.local.LocalServerChannel;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
-import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
 import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
@@ -79,6 +80,8 @@ import org.apache.bookkeeper.conf.ServerConfiguration;
 import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.net.BookieSocketAddress;
 import org.apache.bookkeeper.processor.RequestProcessor;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.apache.bookkeeper.stats.StatsLogger;
 import org.apache.bookkeeper.util.ByteBufList;
 import org.apache.bookkeeper.util.EventLoopUtil;
 import org.apache.zookeeper.KeeperException;
@@ -111,10 +114,13 @@ class BookieNettyServer {
     final ExtensionRegistry registry = ExtensionRegistry.newInstance();
 
     private final ByteBufAllocator allocator;
+    private final OpStatsLogger framesPerFlushLogger;
 
-    BookieNettyServer(ServerConfiguration conf, RequestProcessor processor, ByteBufAllocator allocator)
+    BookieNettyServer(ServerConfiguration conf, RequestProcessor processor, ByteBufAllocator allocator,
+                      StatsLogger statsLogger)
         throws IOException, KeeperException, InterruptedException, BookieException {
         this.allocator = allocator;
+        this.framesPerFlushLogger = statsLogger.getOpStatsLogger(CHANNEL_FRAMES_PER_FLUSH);
         this.maxFrameSize = conf.getNettyMaxFrameSizeBytes();
         this.conf = conf;
         this.requestProcessor = processor;
@@ -338,14 +344,14 @@ class BookieNettyServer {
                         new BookieSideConnectionPeerContextHandler();
                     ChannelPipeline pipeline = ch.pipeline();
 
-                    pipeline.addLast("consolidation", new FlushConsolidationHandler(1024, true));
-
                     pipeline.addLast("bytebufList", ByteBufList.ENCODER);
 
                     pipeline.addLast("lengthbaseddecoder", new LengthFieldBasedFrameDecoder(maxFrameSize, 0, 4, 0, 4));
 
                     pipeline.addLast("bookieProtoDecoder", new BookieProtoEncoding.RequestDecoder(registry));
                     pipeline.addLast("bookieProtoEncoder", new BookieProtoEncoding.ResponseEncoder(registry));
+                    pipeline.addLast("consolidation", new PriorityFlushConsolidationHandler(
+                            conf.getServerFlushConsolidationMaxFlushes(), null, framesPerFlushLogger));
                     pipeline.addLast("bookieAuthHandler", new AuthHandler.ServerSideHandler(
                                 contextHandler.getConnectionPeer(), authProviderFactory));
 
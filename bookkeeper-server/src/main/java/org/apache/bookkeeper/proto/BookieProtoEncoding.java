@@ -36,6 +36,8 @@ import io.netty.channel.ChannelPromise;
 import io.netty.util.ReferenceCountUtil;
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.bookkeeper.proto.BookieProtocol.PacketHeader;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
@@ -110,7 +112,32 @@ public class BookieProtoEncoding {
                 return msg;
             }
             BookieProtocol.Request r = (BookieProtocol.Request) msg;
-            if (r instanceof BookieProtocol.ReadRequest) {
+            if (r instanceof BookieProtocol.BatchedReadRequest) {
+                BookieProtocol.BatchedReadRequest br = (BookieProtocol.BatchedReadRequest) r;
+                int totalHeaderSize = 4 // for request type
+                    + 8 // for ledgerId
+                    + 8 // for entryId
+                    + 8 // for requestId
+                    + 4 // for maxCount
+                    + 8; // for maxSize
+                if (r.hasMasterKey()) {
+                    totalHeaderSize += BookieProtocol.MASTER_KEY_LENGTH;
+                }
+
+                ByteBuf buf = allocator.buffer(totalHeaderSize + 4 /* frame size */);
+                buf.writeInt(totalHeaderSize);
+                buf.writeInt(PacketHeader.toInt(r.getProtocolVersion(), r.getOpCode(), r.getFlags()));
+                buf.writeLong(r.getLedgerId());
+                buf.writeLong(r.getEntryId());
+                buf.writeLong(br.getRequestId());
+                buf.writeInt(br.getMaxCount());
+                buf.writeLong(br.getMaxSize());
+                if (r.hasMasterKey()) {
+                    buf.writeBytes(r.getMasterKey(), 0, BookieProtocol.MASTER_KEY_LENGTH);
+                }
+                r.recycle();
+                return buf;
+            } else if (r instanceof BookieProtocol.ReadRequest) {
                 int totalHeaderSize = 4 // for request type
                     + 8 // for ledgerId
                     + 8; // for entryId
@@ -170,6 +197,26 @@ public class BookieProtoEncoding {
                         masterKey, packet);
             }
 
+            case BookieProtocol.BATCH_ADD_ENTRY: {
+                byte[] masterKey = readMasterKey(packet);
+
+                int count = packet.readInt();
+                if (count <= 0) {
+                    throw new IllegalStateException("Received batched add request without entries");
+                }
+                List<ByteBuf> entries = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    int entrySize = packet.readInt();
+                    entries.add(packet.retainedSlice(packet.readerIndex(), entrySize));
+                    packet.skipBytes(entrySize);
+                }
+                ByteBuf first = entries.get(0);
+                ledgerId = first.getLong(first.readerIndex());
+                entryId = first.getLong(first.readerIndex() + 8);
+                return BookieProtocol.BatchedAddRequest.create(
+                        version, ledgerId, entryId, flags, masterKey, entries);
+            }
+
             case BookieProtocol.READENTRY:
                 ledgerId = packet.readLong();
                 entryId = packet.readLong();
@@ -181,6 +228,20 @@ public class BookieProtoEncoding {
                 } else {
                     return BookieProtocol.ReadRequest.create(version, ledgerId, entryId, flags, null);
                 }
+            case BookieProtocol.BATCH_READ_ENTRY: {
+                ledgerId = packet.readLong();
+                entryId = packet.readLong();
+                long requestId = packet.readLong();
+                int maxCount = packet.readInt();
+                long maxSize = packet.readLong();
+
+                byte[] masterKey = null;
+                if ((flags & BookieProtocol.FLAG_DO_FENCING) == BookieProtocol.FLAG_DO_FENCING) {
+                    masterKey = readMasterKey(packet);
+                }
+                return BookieProtocol.BatchedReadRequest.create(version, ledgerId, entryId, flags, masterKey,
+                        requestId, maxCount, maxSize);
+            }
             case BookieProtocol.AUTH:
                 BookkeeperProtocol.AuthMessage.Builder builder = BookkeeperProtocol.AuthMessage.newBuilder();
                 builder.mergeFrom(new ByteBufInputStream(packet), extensionRegistry);
@@ -228,6 +289,7 @@ public class BookieProtoEncoding {
         }
 
         private static final int RESPONSE_HEADERS_SIZE = 24;
+        private static final int BATCHED_ADD_RESPONSE_SIZE = RESPONSE_HEADERS_SIZE + 4 /* count */;
 
         @Override
         public Object encode(Object msg, ByteBufAllocator allocator)
@@ -260,6 +322,44 @@ public class BookieProtoEncoding {
                     } else {
                         return ByteBufList.get(buf, rr.getData());
                     }
+                } else if (msg instanceof BookieProtocol.BatchedReadResponse) {
+                    BookieProtocol.BatchedReadResponse brr = (BookieProtocol.BatchedReadResponse) r;
+                    ByteBufList data = brr.getData();
+                    int payloadSize = data.readableBytes()
+                            + 4 * data.size(); // each entry is prefixed by its length
+                    int responseSize = RESPONSE_HEADERS_SIZE + 8 /* requestId */ + payloadSize;
+                    boolean isSmallBatch = payloadSize < SMALL_ENTRY_SIZE_THRESHOLD;
+
+                    int bufferSize = 4 /* frame size */ + RESPONSE_HEADERS_SIZE + 8
+                            + (isSmallBatch ? payloadSize : 0);
+                    ByteBuf buf = allocator.buffer(bufferSize);
+                    buf.writeInt(responseSize);
+                    buf.writeInt(PacketHeader.toInt(r.getProtocolVersion(), r.getOpCode(), (short) 0));
+                    buf.writeInt(r.getErrorCode());
+                    buf.writeLong(r.getLedgerId());
+                    buf.writeLong(r.getEntryId());
+                    buf.writeLong(brr.getRequestId());
+
+                    if (isSmallBatch) {
+                        for (int i = 0; i < data.size(); i++) {
+                            ByteBuf entry = data.getBuffer(i);
+                            buf.writeInt(entry.readableBytes());
+                            buf.writeBytes(entry, entry.readerIndex(), entry.readableBytes());
+                        }
+                        brr.release();
+                        return buf;
+                    } else {
+                        ByteBufList frame = ByteBufList.get(buf);
+                        for (int i = 0; i < data.size(); i++) {
+                            ByteBuf entry = data.getBuffer(i);
+                            ByteBuf lengthBuf = allocator.buffer(4);
+                            lengthBuf.writeInt(entry.readableBytes());
+                            frame.add(lengthBuf);
+                            frame.add(entry.retain());
+                        }
+                        brr.release();
+                        return frame;
+                    }
                 } else if (msg instanceof BookieProtocol.AddResponse) {
                     ByteBuf buf = allocator.buffer(RESPONSE_HEADERS_SIZE + 4 /* frame size */);
                     buf.writeInt(RESPONSE_HEADERS_SIZE);
@@ -268,6 +368,10 @@ public class BookieProtoEncoding {
                     buf.writeLong(r.getLedgerId());
                     buf.writeLong(r.getEntryId());
                     return buf;
+                } else if (msg instanceof BookieProtocol.BatchedAddResponse) {
+                    ByteBuf buf = allocator.buffer(BATCHED_ADD_RESPONSE_SIZE + 4 /* frame size */);
+                    serializeBatchedAddResponseInto((BookieProtocol.BatchedAddResponse) r, buf);
+                    return buf;
                 } else if (msg instanceof BookieProtocol.AuthResponse) {
                     BookkeeperProtocol.AuthMessage am = ((BookieProtocol.AuthResponse) r).getAuthMessage();
                     int payloadSize = 4 + am.getSerializedSize();
@@ -302,6 +406,11 @@ public class BookieProtoEncoding {
                 ledgerId = buffer.readLong();
                 entryId = buffer.readLong();
                 return BookieProtocol.AddResponse.create(version, rc, ledgerId, entryId);
+            case BookieProtocol.BATCH_ADD_ENTRY:
+                rc = buffer.readInt();
+                ledgerId = buffer.readLong();
+                entryId = buffer.readLong();
+                return new BookieProtocol.BatchedAddResponse(version, rc, ledgerId, entryId, buffer.readInt());
             case BookieProtocol.READENTRY:
                 rc = buffer.readInt();
                 ledgerId = buffer.readLong();
@@ -309,6 +418,20 @@ public class BookieProtoEncoding {
 
                 return new BookieProtocol.ReadResponse(
                         version, rc, ledgerId, entryId, buffer.retainedSlice());
+            case BookieProtocol.BATCH_READ_ENTRY: {
+                rc = buffer.readInt();
+                ledgerId = buffer.readLong();
+                entryId = buffer.readLong();
+                long requestId = buffer.readLong();
+
+                ByteBufList data = ByteBufList.get();
+                while (buffer.readableBytes() >= 4) {
+                    int entrySize = buffer.readInt();
+                    data.add(buffer.retainedSlice(buffer.readerIndex(), entrySize));
+                    buffer.skipBytes(entrySize);
+                }
+                return new BookieProtocol.BatchedReadResponse(version, rc, ledgerId, entryId, requestId, data);
+            }
             case BookieProtocol.AUTH:
                 ByteBufInputStream bufStream = new ByteBufInputStream(buffer);
                 BookkeeperProtocol.AuthMessage.Builder builder = BookkeeperProtocol.AuthMessage.newBuilder();
@@ -320,6 +443,19 @@ public class BookieProtoEncoding {
             }
         }
 
+        /**
+         * Encode the frame size and the headers of a read response whose payload is sent as a file region.
+         */
+        static ByteBuf encodeReadResponseHeader(BookieProtocol.FileRegionReadResponse r, ByteBufAllocator allocator) {
+            ByteBuf buf = allocator.buffer(4 /* frame size */ + RESPONSE_HEADERS_SIZE);
+            buf.writeInt(RESPONSE_HEADERS_SIZE + (int) r.getData().count());
+            buf.writeInt(PacketHeader.toInt(r.getProtocolVersion(), r.getOpCode(), (short) 0));
+            buf.writeInt(r.getErrorCode());
+            buf.writeLong(r.getLedgerId());
+            buf.writeLong(r.getEntryId());
+            return buf;
+        }
+
         public static void serializeAddResponseInto(int rc, BookieProtocol.ParsedAddRequest req, ByteBuf buf) {
             buf.writeInt(RESPONSE_HEADERS_SIZE); // Frame size
             buf.writeInt(PacketHeader.toInt(req.getProtocolVersion(), req.getOpCode(), (short) 0));
@@ -327,6 +463,15 @@ public class BookieProtoEncoding {
             buf.writeLong(req.getLedgerId());
             buf.writeLong(req.getEntryId());
         }
+
+        public static void serializeBatchedAddResponseInto(BookieProtocol.BatchedAddResponse r, ByteBuf buf) {
+            buf.writeInt(BATCHED_ADD_RESPONSE_SIZE); // Frame size
+            buf.writeInt(PacketHeader.toInt(r.getProtocolVersion(), r.getOpCode(), (short) 0));
+            buf.writeInt(r.getErrorCode());
+            buf.writeLong(r.getLedgerId());
+            buf.writeLong(r.getEntryId());
+            buf.writeInt(r.getCount());
+        }
     }
 
     /**
@@ -504,6 +649,12 @@ public class BookieProtoEncoding {
                 ctx.write(msg, promise);
             } else if (msg instanceof BookkeeperProtocol.Response) {
                 ctx.write(repV3.encode(msg, ctx.alloc()), promise);
+            } else if (msg instanceof BookieProtocol.FileRegionReadResponse) {
+                // The header and the file region are written separately, so that the transport
+                // can send the entry payload with a zero-copy file transfer
+                BookieProtocol.FileRegionReadResponse rr = (BookieProtocol.FileRegionReadResponse) msg;
+                ctx.write(ResponseEnDeCoderPreV3.encodeReadResponseHeader(rr, ctx.alloc()), ctx.voidPromise());
+                ctx.write(rr.getData(), promise);
             } else if (msg instanceof BookieProtocol.Response) {
                 ctx.write(repPreV3.encode(msg, ctx.alloc()), promise);
             } else {
@@ -22,11 +22,14 @@ package org.apache.bookkeeper.proto;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.FileRegion;
 import io.netty.util.Recycler;
 import io.netty.util.Recycler.Handle;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ReferenceCounted;
+import java.util.List;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.AuthMessage;
+import org.apache.bookkeeper.util.ByteBufList;
 
 /**
  * The packets of the Bookie protocol all have a 4-byte integer indicating the
@@ -133,6 +136,25 @@ public interface BookieProtocol {
     byte WRITE_LAC = 5;
     byte GET_BOOKIE_INFO = 6;
 
+    /**
+     * The Batch read request payload will be the ledger number, the first entry
+     * number to read, a request id, the maximum number of entries and the maximum
+     * size in bytes of the response. The response payload will be a 4-byte error
+     * code, the ledger number, the first entry number and the request id, followed
+     * by the entries, each of them prefixed by its 4-byte length.
+     */
+    byte BATCH_READ_ENTRY = 7;
+
+    /**
+     * The Batch add request payload will be the master key and the number of
+     * entries, followed by consecutive entries of a single ledger, each of them
+     * prefixed by its 4-byte length and formatted exactly as in an add request.
+     * The entries are logged with a single journal submission and the response
+     * payload will be a 4-byte error code, the ledger number, the first entry
+     * number and the 4-byte number of entries.
+     */
+    byte BATCH_ADD_ENTRY = 8;
+
     /**
      * The error code that indicates success.
      */
@@ -305,6 +327,68 @@ public interface BookieProtocol {
         }
     }
 
+    /**
+     * A parsed add request carrying several consecutive entries of a ledger.
+     */
+    class BatchedAddRequest extends ParsedAddRequest {
+        List<ByteBuf> entries;
+
+        static BatchedAddRequest create(byte protocolVersion, long ledgerId, long entryId, short flags,
+                                        byte[] masterKey, List<ByteBuf> entries) {
+            BatchedAddRequest add = RECYCLER.get();
+            add.protocolVersion = protocolVersion;
+            add.opCode = BATCH_ADD_ENTRY;
+            add.ledgerId = ledgerId;
+            add.entryId = entryId;
+            add.flags = flags;
+            add.masterKey = masterKey;
+            add.entries = entries;
+            return add;
+        }
+
+        List<ByteBuf> getEntries() {
+            return entries;
+        }
+
+        int getCount() {
+            return entries.size();
+        }
+
+        @Override
+        void release() {
+            for (int i = 0; i < entries.size(); i++) {
+                ReferenceCountUtil.release(entries.get(i));
+            }
+        }
+
+        private final Handle<BatchedAddRequest> recyclerHandle;
+        private BatchedAddRequest(Handle<BatchedAddRequest> recyclerHandle) {
+            super(null);
+            this.recyclerHandle = recyclerHandle;
+        }
+
+        private static final Recycler<BatchedAddRequest> RECYCLER = new Recycler<BatchedAddRequest>() {
+            @Override
+            protected BatchedAddRequest newObject(Handle<BatchedAddRequest> handle) {
+                return new BatchedAddRequest(handle);
+            }
+        };
+
+        @Override
+        public String toString() {
+            return String.format("BatchAdd[Ledger:%d,Entry:%d,Count:%d]", ledgerId, entryId, entries.size());
+        }
+
+        @Override
+        public void recycle() {
+            ledgerId = -1;
+            entryId = -1;
+            masterKey = null;
+            entries = null;
+            recyclerHandle.recycle(this);
+        }
+    }
+
     /**
      * A Request that reads data.
      */
@@ -348,6 +432,74 @@ public interface BookieProtocol {
         }
     }
 
+    /**
+     * A Request that reads a batch of consecutive entries.
+     */
+    class BatchedReadRequest extends ReadRequest {
+
+        long requestId;
+        int maxCount;
+        long maxSize;
+
+        static BatchedReadRequest create(byte protocolVersion, long ledgerId, long entryId,
+                                         short flags, byte[] masterKey, long requestId, int maxCount, long maxSize) {
+            BatchedReadRequest request = RECYCLER.get();
+            request.protocolVersion = protocolVersion;
+            request.opCode = BATCH_READ_ENTRY;
+            request.ledgerId = ledgerId;
+            request.entryId = entryId;
+            request.flags = flags;
+            request.masterKey = masterKey;
+            request.requestId = requestId;
+            request.maxCount = maxCount;
+            request.maxSize = maxSize;
+            return request;
+        }
+
+        long getRequestId() {
+            return requestId;
+        }
+
+        int getMaxCount() {
+            return maxCount;
+        }
+
+        long getMaxSize() {
+            return maxSize;
+        }
+
+        private final Handle<BatchedReadRequest> recyclerHandle;
+
+        private BatchedReadRequest(Handle<BatchedReadRequest> recyclerHandle) {
+            super(null);
+            this.recyclerHandle = recyclerHandle;
+        }
+
+        private static final Recycler<BatchedReadRequest> RECYCLER = new Recycler<BatchedReadRequest>() {
+            @Override
+            protected BatchedReadRequest newObject(Handle<BatchedReadRequest> handle) {
+                return new BatchedReadRequest(handle);
+            }
+        };
+
+        @Override
+        public String toString() {
+            return String.format("BatchRead[Ledger:%d,Entry:%d,RequestId:%d,MaxCount:%d,MaxSize:%d]",
+                    ledgerId, entryId, requestId, maxCount, maxSize);
+        }
+
+        @Override
+        public void recycle() {
+            ledgerId = -1;
+            entryId = -1;
+            masterKey = null;
+            requestId = -1;
+            maxCount = -1;
+            maxSize = -1;
+            recyclerHandle.recycle(this);
+        }
+    }
+
     /**
      * An authentication request.
      */
@@ -479,6 +631,62 @@ public interface BookieProtocol {
         }
     }
 
+    /**
+     * A read response whose payload is a region of an entry log file. The region is written
+     * straight to the socket, so that the entry bytes never go through user space.
+     */
+    class FileRegionReadResponse extends Response implements ReferenceCounted {
+        final FileRegion data;
+
+        FileRegionReadResponse(byte protocolVersion, int errorCode, long ledgerId, long entryId, FileRegion data) {
+            init(protocolVersion, READENTRY, errorCode, ledgerId, entryId);
+            this.data = data;
+        }
+
+        FileRegion getData() {
+            return data;
+        }
+
+        @Override
+        public int refCnt() {
+            return data.refCnt();
+        }
+
+        @Override
+        public ReferenceCounted retain() {
+            data.retain();
+            return this;
+        }
+
+        @Override
+        public ReferenceCounted retain(int increment) {
+            data.retain(increment);
+            return this;
+        }
+
+        @Override
+        public ReferenceCounted touch() {
+            data.touch();
+            return this;
+        }
+
+        @Override
+        public ReferenceCounted touch(Object hint) {
+            data.touch(hint);
+            return this;
+        }
+
+        @Override
+        public boolean release() {
+            return data.release();
+        }
+
+        @Override
+        public boolean release(int decrement) {
+            return data.release(decrement);
+        }
+    }
+
     /**
      * A response that adds data.
      */
@@ -507,6 +715,22 @@ public interface BookieProtocol {
         }
     }
 
+    /**
+     * A response that acknowledges a batch of consecutive entries.
+     */
+    class BatchedAddResponse extends Response {
+        final int count;
+
+        BatchedAddResponse(byte protocolVersion, int errorCode, long ledgerId, long entryId, int count) {
+            init(protocolVersion, BATCH_ADD_ENTRY, errorCode, ledgerId, entryId);
+            this.count = count;
+        }
+
+        int getCount() {
+            return count;
+        }
+    }
+
     /**
      * An error response.
      */
@@ -517,6 +741,73 @@ public interface BookieProtocol {
         }
     }
 
+    /**
+     * A response that carries a batch of consecutive entries.
+     */
+    class BatchedReadResponse extends Response implements ReferenceCounted {
+
+        final long requestId;
+        final ByteBufList data;
+
+        BatchedReadResponse(byte protocolVersion, int errorCode, long ledgerId, long entryId, long requestId) {
+            this(protocolVersion, errorCode, ledgerId, entryId, requestId, ByteBufList.get());
+        }
+
+        BatchedReadResponse(byte protocolVersion, int errorCode, long ledgerId, long entryId, long requestId,
+                            ByteBufList data) {
+            init(protocolVersion, BATCH_READ_ENTRY, errorCode, ledgerId, entryId);
+            this.requestId = requestId;
+            this.data = data;
+        }
+
+        long getRequestId() {
+            return requestId;
+        }
+
+        ByteBufList getData() {
+            return data;
+        }
+
+        @Override
+        public int refCnt() {
+            return data.refCnt();
+        }
+
+        @Override
+        public ReferenceCounted retain() {
+            data.retain();
+            return this;
+        }
+
+        @Override
+        public ReferenceCounted retain(int increment) {
+            data.retain(increment);
+            return this;
+        }
+
+        @Override
+        public ReferenceCounted touch() {
+            data.touch();
+            return this;
+        }
+
+        @Override
+        public ReferenceCounted touch(Object hint) {
+            data.touch(hint);
+            return this;
+        }
+
+        @Override
+        public boolean release() {
+            return data.release();
+        }
+
+        @Override
+        public boolean release(int decrement) {
+            return data.release(decrement);
+        }
+    }
+
     /**
      * A response with an authentication message.
      */
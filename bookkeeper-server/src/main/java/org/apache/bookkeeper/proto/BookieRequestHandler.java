@@ -97,6 +97,15 @@ public class BookieRequestHandler extends ChannelInboundHandlerAdapter {
         BookieProtoEncoding.ResponseEnDeCoderPreV3.serializeAddResponseInto(rc, req, pendingSendResponses);
     }
 
+    public synchronized void prepareSendBatchedAddResponseV2(int rc, BookieProtocol.BatchedAddRequest req) {
+        if (pendingSendResponses == null) {
+            pendingSendResponses = ctx().alloc().directBuffer(maxPendingResponsesSize);
+        }
+        BookieProtocol.BatchedAddResponse response = new BookieProtocol.BatchedAddResponse(
+                req.getProtocolVersion(), rc, req.getLedgerId(), req.getEntryId(), req.getCount());
+        BookieProtoEncoding.ResponseEnDeCoderPreV3.serializeBatchedAddResponseInto(response, pendingSendResponses);
+    }
+
     public synchronized void flushPendingResponse() {
         if (pendingSendResponses != null) {
             maxPendingResponsesSize = (int) Math.max(
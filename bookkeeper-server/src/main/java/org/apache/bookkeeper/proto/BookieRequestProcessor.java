@@ -129,6 +129,16 @@ public class BookieRequestProcessor implements RequestProcessor {
 
     private final boolean throttleReadResponses;
 
+    /**
+     * Minimum size of an entry to send it as a file region, or -1 if zero-copy reads are disabled.
+     */
+    private final int zeroCopyReadMinEntrySize;
+
+    /**
+     * Upper bound of the size of a batch read response, so it always fits in a single frame.
+     */
+    private final long maxBatchReadSize;
+
     public BookieRequestProcessor(ServerConfiguration serverCfg, Bookie bookie, StatsLogger statsLogger,
                                   SecurityHandlerFactory shFactory, ByteBufAllocator allocator,
                                   ChannelGroup allChannels) throws SecurityException {
@@ -139,6 +149,9 @@ public class BookieRequestProcessor implements RequestProcessor {
         this.preserveMdcForTaskExecution = serverCfg.getPreserveMdcForTaskExecution();
         this.bookie = bookie;
         this.throttleReadResponses = serverCfg.isReadWorkerThreadsThrottlingEnabled();
+        this.zeroCopyReadMinEntrySize = serverCfg.isZeroCopyReadEnabled()
+                ? serverCfg.getZeroCopyReadMinEntrySize() : -1;
+        this.maxBatchReadSize = serverCfg.getNettyMaxFrameSizeBytes();
         this.readThreadPool = createExecutor(
                 this.serverCfg.getNumReadWorkerThreads(),
                 "BookieReadThreadPool",
@@ -351,6 +364,9 @@ public class BookieRequestProcessor implements RequestProcessor {
                     case GET_LIST_OF_ENTRIES_OF_LEDGER:
                         processGetListOfEntriesOfLedgerProcessorV3(r, requestHandler);
                         break;
+                    case BATCH_READ_ENTRY:
+                        processBatchReadRequestV3(r, requestHandler);
+                        break;
                     default:
                         LOG.info("Unknown operation type {}", header.getOperation());
                         BookkeeperProtocol.Response.Builder response =
@@ -373,10 +389,18 @@ public class BookieRequestProcessor implements RequestProcessor {
                     checkArgument(r instanceof BookieProtocol.ParsedAddRequest);
                     processAddRequest((BookieProtocol.ParsedAddRequest) r, requestHandler);
                     break;
+                case BookieProtocol.BATCH_ADD_ENTRY:
+                    checkArgument(r instanceof BookieProtocol.BatchedAddRequest);
+                    processBatchedAddRequest((BookieProtocol.BatchedAddRequest) r, requestHandler);
+                    break;
                 case BookieProtocol.READENTRY:
                     checkArgument(r instanceof BookieProtocol.ReadRequest);
                     processReadRequest((BookieProtocol.ReadRequest) r, requestHandler);
                     break;
+                case BookieProtocol.BATCH_READ_ENTRY:
+                    checkArgument(r instanceof BookieProtocol.BatchedReadRequest);
+                    processReadRequest((BookieProtocol.BatchedReadRequest) r, requestHandler);
+                    break;
                 case BookieProtocol.AUTH:
                     LOG.info("Ignoring auth operation from client {}",
                             requestHandler.ctx().channel().remoteAddress());
@@ -555,6 +579,32 @@ public class BookieRequestProcessor implements RequestProcessor {
         }
     }
 
+    private void processBatchReadRequestV3(final BookkeeperProtocol.Request r,
+                                           final BookieRequestHandler requestHandler) {
+        BatchReadEntryProcessorV3 batchRead = new BatchReadEntryProcessorV3(r, requestHandler, this,
+                maxBatchReadSize);
+        final OrderedExecutor threadPool = RequestUtils.isHighPriority(r) ? highPriorityThreadPool : readThreadPool;
+
+        if (null == threadPool) {
+            batchRead.run();
+        } else {
+            try {
+                threadPool.executeOrdered(r.getBatchReadRequest().getLedgerId(), batchRead);
+            } catch (RejectedExecutionException e) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Failed to process request to batch read entries at {}:{}. Too many pending requests",
+                              r.getBatchReadRequest().getLedgerId(), r.getBatchReadRequest().getStartEntryId());
+                }
+                getRequestStats().getReadEntryRejectedCounter().inc();
+                batchRead.sendResponse(BookkeeperProtocol.BatchReadResponse.newBuilder()
+                        .setLedgerId(r.getBatchReadRequest().getLedgerId())
+                        .setStartEntryId(r.getBatchReadRequest().getStartEntryId())
+                        .setStatus(BookkeeperProtocol.StatusCode.ETOOMANYREQUESTS)
+                        .build());
+            }
+        }
+    }
+
     private void processStartTLSRequestV3(final BookkeeperProtocol.Request r,
                                           final BookieRequestHandler requestHandler) {
         BookkeeperProtocol.Response.Builder response = BookkeeperProtocol.Response.newBuilder();
@@ -663,11 +713,50 @@ public class BookieRequestProcessor implements RequestProcessor {
         }
     }
 
+    private void processBatchedAddRequest(final BookieProtocol.BatchedAddRequest r,
+                                          final BookieRequestHandler requestHandler) {
+        BatchedWriteEntryProcessor write = new BatchedWriteEntryProcessor(r, requestHandler, this);
+
+        final OrderedExecutor threadPool;
+        if (r.isHighPriority()) {
+            threadPool = highPriorityThreadPool;
+        } else {
+            threadPool = writeThreadPool;
+        }
+
+        if (null == threadPool) {
+            write.run();
+        } else {
+            try {
+                threadPool.executeOrdered(r.getLedgerId(), write);
+            } catch (RejectedExecutionException e) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Failed to process request to add {} entries at {}:{}. Too many pending requests",
+                            r.getCount(), r.ledgerId, r.entryId);
+                }
+                getRequestStats().getAddEntryRejectedCounter().inc();
+
+                write.sendWriteReqResponse(
+                    BookieProtocol.ETOOMANYREQUESTS,
+                    ResponseBuilder.buildErrorResponse(BookieProtocol.ETOOMANYREQUESTS, r),
+                    requestStats.getAddRequestStats());
+                r.release();
+                r.recycle();
+            }
+        }
+    }
+
     private void processReadRequest(final BookieProtocol.ReadRequest r, final BookieRequestHandler requestHandler) {
         ExecutorService fenceThreadPool =
                 null == highPriorityThreadPool ? null : highPriorityThreadPool.chooseThread(requestHandler.ctx());
-        ReadEntryProcessor read = ReadEntryProcessor.create(r, requestHandler,
-                this, fenceThreadPool, throttleReadResponses);
+        final ReadEntryProcessor read;
+        if (r instanceof BookieProtocol.BatchedReadRequest) {
+            read = BatchedReadEntryProcessor.create((BookieProtocol.BatchedReadRequest) r, requestHandler,
+                    this, fenceThreadPool, throttleReadResponses, maxBatchReadSize);
+        } else {
+            read = ReadEntryProcessor.create(r, requestHandler,
+                    this, fenceThreadPool, throttleReadResponses);
+        }
 
         // If it's a high priority read (fencing or as part of recovery process), we want to make sure it
         // gets executed as fast as possible, so bypass the normal readThreadPool
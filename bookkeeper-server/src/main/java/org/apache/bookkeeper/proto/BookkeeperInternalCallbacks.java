@@ -36,6 +36,7 @@ import org.apache.bookkeeper.client.api.LedgerMetadata;
 import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.stats.OpStatsLogger;
 import org.apache.bookkeeper.util.AvailabilityOfEntriesOfLedger;
+import org.apache.bookkeeper.util.ByteBufList;
 import org.apache.bookkeeper.util.MathUtils;
 import org.apache.bookkeeper.versioning.Versioned;
 import org.apache.zookeeper.AsyncCallback;
@@ -209,6 +210,12 @@ public class BookkeeperInternalCallbacks {
     public interface ReadEntryCallbackCtx {
         void setLastAddConfirmed(long lac);
         long getLastAddConfirmed();
+
+        /**
+         * Set the time the bookie took to respond to the read, as measured by the channel.
+         */
+        default void setReadLatencyNanos(long latencyNanos) {
+        }
     }
 
     /**
@@ -221,6 +228,15 @@ public class BookkeeperInternalCallbacks {
         void readEntryComplete(int rc, long ledgerId, long entryId, ByteBuf buffer, Object ctx);
     }
 
+    /**
+     * Declaration of a callback implementation for batch reads from BookieClient objects.
+     * The buffers of the consecutive entries read starting from <i>startEntryId</i> are
+     * passed in <i>entries</i>, which is released once the callback returns.
+     */
+    public interface BatchedReadEntryCallback {
+        void readEntriesComplete(int rc, long ledgerId, long startEntryId, ByteBufList entries, Object ctx);
+    }
+
     /**
      * Listener on entries responded.
      */
@@ -37,6 +37,9 @@ import org.slf4j.LoggerFactory;
 /**
  *  Provide a simple round-robin style channel pool. We could improve it later to do more
  *  fantastic things.
+ *
+ *  <p>Operations are dispatched to the channels by key. Optionally, reads go through the least
+ *  loaded channel instead.
  */
 class DefaultPerChannelBookieClientPool implements PerChannelBookieClientPool,
         GenericCallback<PerChannelBookieClient> {
@@ -50,6 +53,7 @@ class DefaultPerChannelBookieClientPool implements PerChannelBookieClientPool,
     final PerChannelBookieClient[] clientsV3Enforced;
 
     final ClientConfiguration conf;
+    final boolean loadAwareReads;
     SecurityHandlerFactory shFactory;
 
     final AtomicInteger counter = new AtomicInteger(0);
@@ -62,6 +66,7 @@ class DefaultPerChannelBookieClientPool implements PerChannelBookieClientPool,
         this.factory = factory;
         this.address = address;
         this.conf = conf;
+        this.loadAwareReads = conf.isLoadAwareReadChannelSelectionEnabled();
 
         this.shFactory = SecurityProviderFactoryFactory.getSecurityProviderFactory(conf.getTLSProviderFactoryClass());
 
@@ -120,6 +125,34 @@ class DefaultPerChannelBookieClientPool implements PerChannelBookieClientPool,
         getClient(key, forceUseV3).connectIfNeededAndDoOp(callback);
     }
 
+    @Override
+    public void obtainForRead(GenericCallback<PerChannelBookieClient> callback, long key) {
+        if (loadAwareReads && clients.length > 1) {
+            getLeastLoadedClient(key).connectIfNeededAndDoOp(callback);
+        } else {
+            obtain(callback, key);
+        }
+    }
+
+    /**
+     * Pick the channel with the fewest pending requests. The scan starts at the channel of the key,
+     * so that the key sticks to its channel while the channels are evenly loaded.
+     */
+    PerChannelBookieClient getLeastLoadedClient(long key) {
+        int start = MathUtils.signSafeMod(key, clients.length);
+        PerChannelBookieClient selected = clients[start];
+        long minPending = selected.getNumPendingCompletionRequests();
+        for (int i = 1; i < clients.length && minPending > 0; i++) {
+            PerChannelBookieClient pcbc = clients[(start + i) % clients.length];
+            long pending = pcbc.getNumPendingCompletionRequests();
+            if (pending < minPending) {
+                selected = pcbc;
+                minPending = pending;
+            }
+        }
+        return selected;
+    }
+
     @Override
     public boolean isWritable(long key) {
         return getClient(key).isWritable();
@@ -173,4 +206,18 @@ class DefaultPerChannelBookieClientPool implements PerChannelBookieClientPool,
         }
         return numPending;
     }
+
+    @Override
+    public long getReadLatencyEstimateNanos() {
+        long sum = 0;
+        int count = 0;
+        for (PerChannelBookieClient pcbc : clients) {
+            long latency = pcbc.getReadLatencyEwmaNanos();
+            if (latency >= 0) {
+                sum += latency;
+                count++;
+            }
+        }
+        return count > 0 ? sum / count : -1L;
+    }
 }
@@ -54,7 +54,6 @@ import io.netty.handler.codec.CorruptedFrameException;
 import io.netty.handler.codec.DecoderException;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.TooLongFrameException;
-import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.incubator.channel.uring.IOUringChannelOption;
 import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
@@ -83,6 +82,7 @@ import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
@@ -102,6 +102,7 @@ import org.apache.bookkeeper.common.util.OrderedExecutor;
 import org.apache.bookkeeper.conf.ClientConfiguration;
 import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.net.BookieSocketAddress;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.BatchedReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetBookieInfoCallback;
@@ -115,6 +116,8 @@ import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteLacCallback;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.AddRequest;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.AddResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.BKPacketHeader;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BatchReadRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BatchReadResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ForceLedgerRequest;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ForceLedgerResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.GetBookieInfoRequest;
@@ -173,6 +176,9 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                         BKException.Code.DuplicateEntryIdException,
                         BKException.Code.WriteOnReadOnlyBookieException));
     private static final int DEFAULT_HIGH_PRIORITY_VALUE = 100; // We may add finer grained priority later.
+    private static final double READ_LATENCY_EWMA_ALPHA = 0.2;
+    // a read latency estimate is discarded if there were no reads on the channel for this long
+    private static final long READ_LATENCY_EXPIRY_NANOS = TimeUnit.SECONDS.toNanos(30);
     private static final AtomicLong txnIdGenerator = new AtomicLong(0);
 
     final BookieId bookieId;
@@ -293,6 +299,11 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         help = "channel stats for all operations flowing through netty pipeline"
     )
     private final OpStatsLogger nettyOpLogger;
+    @StatsDoc(
+        name = BookKeeperClientStats.CHANNEL_FRAMES_PER_FLUSH,
+        help = "the number of frames written to the channel with a single flush"
+    )
+    private final OpStatsLogger framesPerFlushLogger;
     @StatsDoc(
         name = BookKeeperClientStats.ACTIVE_NON_TLS_CHANNEL_COUNTER,
         help = "the number of active non-tls channels"
@@ -316,6 +327,10 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
 
     private final boolean useV2WireProtocol;
     private final boolean preserveMdcForTaskExecution;
+    private final int addBatchMaxEntries;
+    private final int addBatchMaxBytes;
+    // v2 adds waiting to be coalesced into batched add requests, guarded by itself
+    private final List<PendingBatchedAdd> pendingBatchedAdds = new ArrayList<>();
 
     /**
      * The following member variables do not need to be concurrent, or volatile
@@ -348,6 +363,8 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
     private final ExtensionRegistry extRegistry;
     private final SecurityHandlerFactory shFactory;
     private volatile boolean isWritable = true;
+    private volatile long readLatencyEwmaNanos = -1L;
+    private volatile long lastReadLatencyUpdateNanos = 0L;
     private long lastBookieUnavailableLogTimestamp = 0;
 
     public PerChannelBookieClient(OrderedExecutor executor, EventLoopGroup eventLoopGroup,
@@ -403,6 +420,8 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         this.startTLSTimeout = conf.getStartTLSTimeout();
         this.useV2WireProtocol = conf.getUseV2WireProtocol();
         this.preserveMdcForTaskExecution = conf.getPreserveMdcForTaskExecution();
+        this.addBatchMaxEntries = conf.getAddBatchMaxEntries();
+        this.addBatchMaxBytes = conf.getAddBatchMaxBytes();
 
         this.authProviderFactory = authProviderFactory;
         this.extRegistry = extRegistry;
@@ -437,6 +456,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         addEntryOutstanding = statsLogger.getCounter(BookKeeperClientStats.ADD_OP_OUTSTANDING);
         readEntryOutstanding = statsLogger.getCounter(BookKeeperClientStats.READ_OP_OUTSTANDING);
         nettyOpLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.NETTY_OPS);
+        framesPerFlushLogger = statsLogger.getOpStatsLogger(BookKeeperClientStats.CHANNEL_FRAMES_PER_FLUSH);
         activeNonTlsChannelCounter = statsLogger.getCounter(BookKeeperClientStats.ACTIVE_NON_TLS_CHANNEL_COUNTER);
         activeTlsChannelCounter = statsLogger.getCounter(BookKeeperClientStats.ACTIVE_TLS_CHANNEL_COUNTER);
         failedConnectionCounter = statsLogger.getCounter(BookKeeperClientStats.FAILED_CONNECTION_COUNTER);
@@ -529,6 +549,26 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         return completionObjects.size();
     }
 
+    /**
+     * Get the exponentially weighted moving average of the read response times on this channel.
+     *
+     * @return the average read latency in nanoseconds, or -1 if there were no recent reads
+     */
+    long getReadLatencyEwmaNanos() {
+        if (MathUtils.elapsedNanos(lastReadLatencyUpdateNanos) > READ_LATENCY_EXPIRY_NANOS) {
+            return -1L;
+        }
+        return readLatencyEwmaNanos;
+    }
+
+    private void recordReadLatency(long latencyNanos) {
+        // Concurrent updates may lose a sample, which doesn't matter for an estimate
+        long current = getReadLatencyEwmaNanos();
+        readLatencyEwmaNanos = current < 0 ? latencyNanos
+                : current + (long) (READ_LATENCY_EWMA_ALPHA * (latencyNanos - current));
+        lastReadLatencyUpdateNanos = MathUtils.nowInNano();
+    }
+
     protected ChannelFuture connect() {
         final long startTime = MathUtils.nowInNano();
         if (LOG.isDebugEnabled()) {
@@ -594,7 +634,6 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             @Override
             protected void initChannel(Channel ch) throws Exception {
                 ChannelPipeline pipeline = ch.pipeline();
-                pipeline.addLast("consolidation", new FlushConsolidationHandler(1024, true));
                 pipeline.addLast("bytebufList", ByteBufList.ENCODER);
                 pipeline.addLast("lengthbasedframedecoder",
                         new LengthFieldBasedFrameDecoder(maxFrameSize, 0, 4, 0, 4));
@@ -602,6 +641,9 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                 pipeline.addLast(
                     "bookieProtoDecoder",
                     new BookieProtoEncoding.ResponseDecoder(extRegistry, useV2WireProtocol, shFactory != null));
+                pipeline.addLast("consolidation", new PriorityFlushConsolidationHandler(
+                        conf.getClientFlushConsolidationMaxFlushes(),
+                        PriorityFlushConsolidationHandler.HIGH_PRIORITY_REQUEST, framesPerFlushLogger));
                 pipeline.addLast("authHandler", new AuthHandler.ClientSideHandler(authProviderFactory, txnIdGenerator,
                             connectionPeer, useV2WireProtocol));
                 pipeline.addLast("mainhandler", PerChannelBookieClient.this);
@@ -846,12 +888,182 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             errorOut(completionKey);
             ReferenceCountUtil.release(toSend);
             return;
+        } else if (useV2WireProtocol && addBatchMaxEntries > 1
+                && ((short) options & BookieProtocol.FLAG_RECOVERY_ADD) != BookieProtocol.FLAG_RECOVERY_ADD) {
+            enqueueBatchedAdd(c, completionKey, ledgerId, entryId, request, allowFastFail);
         } else {
             // addEntry times out on backpressure
             writeAndFlush(c, completionKey, request, allowFastFail);
         }
     }
 
+    private void enqueueBatchedAdd(Channel c, CompletionKey key, long ledgerId, long entryId, Object request,
+                                   boolean allowFastFail) {
+        boolean scheduleFlush;
+        synchronized (pendingBatchedAdds) {
+            pendingBatchedAdds.add(new PendingBatchedAdd(key, ledgerId, entryId, request, allowFastFail));
+            scheduleFlush = pendingBatchedAdds.size() == 1;
+        }
+        if (scheduleFlush) {
+            // the adds queued until the event loop picks up the task are sent together
+            try {
+                c.eventLoop().execute(() -> flushBatchedAdds(c));
+            } catch (RejectedExecutionException e) {
+                flushBatchedAdds(c);
+            }
+        }
+    }
+
+    private void flushBatchedAdds(Channel c) {
+        List<PendingBatchedAdd> adds;
+        synchronized (pendingBatchedAdds) {
+            adds = new ArrayList<>(pendingBatchedAdds);
+            pendingBatchedAdds.clear();
+        }
+
+        int start = 0;
+        while (start < adds.size()) {
+            PendingBatchedAdd first = adds.get(start);
+            int batchBytes = first.size();
+            int end = start + 1;
+            while (end < adds.size() && end - start < addBatchMaxEntries) {
+                PendingBatchedAdd next = adds.get(end);
+                // entries of the same ledger share the master key, so the headers only differ by flags
+                if (next.ledgerId != first.ledgerId
+                        || next.entryId != adds.get(end - 1).entryId + 1
+                        || next.packetHeader() != first.packetHeader()
+                        || batchBytes + next.size() > addBatchMaxBytes) {
+                    break;
+                }
+                batchBytes += next.size();
+                end++;
+            }
+
+            if (end - start == 1) {
+                writeAndFlush(c, first.key, first.request, first.allowFastFail);
+            } else {
+                writeBatchedAdd(c, adds.subList(start, end), batchBytes);
+            }
+            start = end;
+        }
+    }
+
+    private void writeBatchedAdd(Channel c, List<PendingBatchedAdd> batch, int batchBytes) {
+        PendingBatchedAdd first = batch.get(0);
+        if (first.allowFastFail && !c.isWritable()) {
+            LOG.warn("Batched add of {} entries at {}:{} failed: TooManyRequestsException",
+                    batch.size(), first.ledgerId, first.entryId);
+            for (PendingBatchedAdd add : batch) {
+                ReferenceCountUtil.release(add.request);
+                errorOut(add.key, BKException.Code.TooManyRequestsException);
+            }
+            return;
+        }
+
+        int frameSize = 4 /* packet header */ + BookieProtocol.MASTER_KEY_LENGTH + 4 /* count */
+                + 4 * batch.size() + batchBytes;
+        ByteBufList frame = ByteBufList.get();
+        ByteBuf out = null;
+        int encoded = 0;
+        try {
+            out = allocator.buffer(4 + Math.min(frameSize, BookieProtoEncoding.SMALL_ENTRY_SIZE_THRESHOLD));
+            out.writeInt(frameSize);
+            out.writeInt(BookieProtocol.PacketHeader.toInt(BookieProtocol.CURRENT_PROTOCOL_VERSION,
+                    BookieProtocol.BATCH_ADD_ENTRY, BookieProtocol.PacketHeader.getFlags(first.packetHeader())));
+            ByteBuf firstHeader = first.headerBuffer();
+            out.writeBytes(firstHeader, firstHeader.readerIndex() + 8, BookieProtocol.MASTER_KEY_LENGTH);
+            out.writeInt(batch.size());
+
+            for (; encoded < batch.size(); encoded++) {
+                PendingBatchedAdd add = batch.get(encoded);
+                out.writeInt(add.size());
+                ByteBuf header = add.headerBuffer();
+                out.writeBytes(header, header.readerIndex() + V2_ADD_PREFIX_SIZE,
+                        header.readableBytes() - V2_ADD_PREFIX_SIZE);
+                if (add.request instanceof ByteBufList) {
+                    // large entries are not copied, their payload is appended to the frame as is
+                    ByteBufList data = (ByteBufList) add.request;
+                    frame.add(out);
+                    out = null;
+                    for (int i = 1; i < data.size(); i++) {
+                        frame.add(data.getBuffer(i).retainedDuplicate());
+                    }
+                    out = allocator.buffer(BookieProtoEncoding.SMALL_ENTRY_SIZE_THRESHOLD);
+                }
+                ReferenceCountUtil.release(add.request);
+            }
+            frame.add(out);
+            out = null;
+
+            final long startTime = MathUtils.nowInNano();
+            ChannelPromise promise = c.newPromise().addListener(future -> {
+                if (future.isSuccess()) {
+                    nettyOpLogger.registerSuccessfulEvent(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
+                    for (PendingBatchedAdd add : batch) {
+                        CompletionValue completion = completionObjects.get(add.key);
+                        if (completion != null) {
+                            completion.setOutstanding();
+                        }
+                    }
+                } else {
+                    nettyOpLogger.registerFailedEvent(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
+                }
+            });
+            // from here the channel owns the frame, it is released even if the write fails
+            ByteBufList encodedFrame = frame;
+            frame = null;
+            c.writeAndFlush(encodedFrame, promise);
+        } catch (Throwable e) {
+            LOG.warn("Batched add of {} entries at {}:{} failed", batch.size(), first.ledgerId, first.entryId, e);
+            // release what was encoded before the failure and the requests not consumed yet
+            ReferenceCountUtil.safeRelease(out);
+            ReferenceCountUtil.safeRelease(frame);
+            for (int i = encoded; i < batch.size(); i++) {
+                ReferenceCountUtil.safeRelease(batch.get(i).request);
+            }
+            for (PendingBatchedAdd add : batch) {
+                errorOut(add.key);
+            }
+        }
+    }
+
+    // frame size, packet header and master key preceding the entry in a v2 add request
+    private static final int V2_ADD_PREFIX_SIZE = 4 + 4 + BookieProtocol.MASTER_KEY_LENGTH;
+
+    /**
+     * A v2 add request waiting to be coalesced with the following entries of the same ledger.
+     */
+    private static class PendingBatchedAdd {
+        final CompletionKey key;
+        final long ledgerId;
+        final long entryId;
+        final Object request;
+        final boolean allowFastFail;
+
+        PendingBatchedAdd(CompletionKey key, long ledgerId, long entryId, Object request, boolean allowFastFail) {
+            this.key = key;
+            this.ledgerId = ledgerId;
+            this.entryId = entryId;
+            this.request = request;
+            this.allowFastFail = allowFastFail;
+        }
+
+        ByteBuf headerBuffer() {
+            return request instanceof ByteBuf ? (ByteBuf) request : ((ByteBufList) request).getBuffer(0);
+        }
+
+        int packetHeader() {
+            ByteBuf header = headerBuffer();
+            return header.getInt(header.readerIndex() + 4);
+        }
+
+        // size of the entry, without the v2 add request prefix
+        int size() {
+            ByteBuf header = headerBuffer();
+            return header.getInt(header.readerIndex()) - 4 - BookieProtocol.MASTER_KEY_LENGTH;
+        }
+    }
+
     public void readLac(final long ledgerId, ReadLacCallback cb, Object ctx) {
         Object request = null;
         CompletionKey completionKey = null;
@@ -1001,12 +1213,66 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                     .build();
         }
 
-        ReadCompletion readCompletion = new ReadCompletion(completionKey, cb, ctx, ledgerId, entryId);
+        // long poll reads wait for new entries on the bookie, their response time says nothing about its load
+        boolean recordLatency = timeOutInMillis == null && !piggyBackEntry;
+        ReadCompletion readCompletion = new ReadCompletion(completionKey, cb, ctx, ledgerId, entryId, recordLatency);
         putCompletionKeyValue(completionKey, readCompletion);
 
         writeAndFlush(channel, completionKey, request, allowFastFail);
     }
 
+    /**
+     * Batch reads of consecutive entries.
+     */
+    public void batchReadEntries(final long ledgerId,
+                                 final long startEntryId,
+                                 final int maxCount,
+                                 final long maxSize,
+                                 BatchedReadEntryCallback cb,
+                                 Object ctx,
+                                 int flags,
+                                 byte[] masterKey,
+                                 boolean allowFastFail) {
+        // batch reads are matched by request id, for both protocols, since responses for
+        // overlapping ranges of the same ledger could not be told apart otherwise
+        final long txnId = getTxnId();
+        final CompletionKey completionKey = new V3CompletionKey(txnId, OperationType.BATCH_READ_ENTRY);
+        Object request;
+        if (useV2WireProtocol) {
+            request = BookieProtocol.BatchedReadRequest.create(BookieProtocol.CURRENT_PROTOCOL_VERSION,
+                    ledgerId, startEntryId, (short) flags, masterKey, txnId, maxCount, maxSize);
+        } else {
+            if (((short) flags & BookieProtocol.FLAG_DO_FENCING) == BookieProtocol.FLAG_DO_FENCING) {
+                // fencing is only supported by single entry reads in the v3 protocol
+                cb.readEntriesComplete(BKException.Code.IncorrectParameterException,
+                        ledgerId, startEntryId, null, ctx);
+                return;
+            }
+            BKPacketHeader.Builder headerBuilder = BKPacketHeader.newBuilder()
+                    .setVersion(ProtocolVersion.VERSION_THREE)
+                    .setOperation(OperationType.BATCH_READ_ENTRY)
+                    .setTxnId(txnId);
+            if (((short) flags & BookieProtocol.FLAG_HIGH_PRIORITY) == BookieProtocol.FLAG_HIGH_PRIORITY) {
+                headerBuilder.setPriority(DEFAULT_HIGH_PRIORITY_VALUE);
+            }
+            BatchReadRequest.Builder batchReadBuilder = BatchReadRequest.newBuilder()
+                    .setLedgerId(ledgerId)
+                    .setStartEntryId(startEntryId)
+                    .setMaxCount(maxCount)
+                    .setMaxSize(maxSize);
+            request = withRequestContext(Request.newBuilder())
+                    .setHeader(headerBuilder)
+                    .setBatchReadRequest(batchReadBuilder)
+                    .build();
+        }
+
+        BatchedReadCompletion batchedReadCompletion = new BatchedReadCompletion(completionKey, cb, ctx,
+                ledgerId, startEntryId);
+        putCompletionKeyValue(completionKey, batchedReadCompletion);
+
+        writeAndFlush(channel, completionKey, request, allowFastFail);
+    }
+
     public void getBookieInfo(final long requested, GetBookieInfoCallback cb, Object ctx) {
         final long txnId = getTxnId();
         final CompletionKey completionKey = new V3CompletionKey(txnId, OperationType.GET_BOOKIE_INFO);
@@ -1351,10 +1617,26 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
     }
 
     private void readV2Response(final BookieProtocol.Response response) {
+        if (response instanceof BookieProtocol.BatchedAddResponse) {
+            // complete each entry of the batch as if it had been acknowledged on its own
+            BookieProtocol.BatchedAddResponse batchedResponse = (BookieProtocol.BatchedAddResponse) response;
+            for (int i = 0; i < batchedResponse.getCount(); i++) {
+                readV2Response(BookieProtocol.AddResponse.create(batchedResponse.getProtocolVersion(),
+                        batchedResponse.getErrorCode(), batchedResponse.getLedgerId(),
+                        batchedResponse.getEntryId() + i));
+            }
+            return;
+        }
         OperationType operationType = getOperationType(response.getOpCode());
         StatusCode status = getStatusCodeFromErrorCode(response.errorCode);
 
-        CompletionKey key = acquireV2Key(response.ledgerId, response.entryId, operationType);
+        CompletionKey key;
+        if (OperationType.BATCH_READ_ENTRY == operationType) {
+            key = new V3CompletionKey(((BookieProtocol.BatchedReadResponse) response).getRequestId(),
+                    operationType);
+        } else {
+            key = acquireV2Key(response.ledgerId, response.entryId, operationType);
+        }
         CompletionValue completionValue = getCompletionValue(key);
         key.release();
 
@@ -1436,6 +1718,8 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                 return OperationType.WRITE_LAC;
             case BookieProtocol.GET_BOOKIE_INFO:
                 return OperationType.GET_BOOKIE_INFO;
+            case BookieProtocol.BATCH_READ_ENTRY:
+                return OperationType.BATCH_READ_ENTRY;
             default:
                 throw new IllegalArgumentException("Invalid operation type " + opCode);
         }
@@ -1618,7 +1902,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             this.mdcContextMap = preserveMdcForTaskExecution ? MDC.getCopyOfContextMap() : null;
         }
 
-        private long latency() {
+        long latency() {
             return MathUtils.elapsedNanos(startTime);
         }
 
@@ -1867,13 +2151,17 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
     // visible for testing
     class ReadCompletion extends CompletionValue {
         final ReadEntryCallback cb;
+        // whether the response time is a sample of the bookie read latency
+        final boolean recordLatency;
 
         public ReadCompletion(final CompletionKey key,
                               final ReadEntryCallback originalCallback,
                               final Object originalCtx,
-                              long ledgerId, final long entryId) {
+                              long ledgerId, final long entryId,
+                              boolean recordLatency) {
             super("Read", originalCtx, ledgerId, entryId,
                   readEntryOpLogger, readTimeoutOpLogger);
+            this.recordLatency = recordLatency;
 
             this.cb = new ReadEntryCallback() {
                     @Override
@@ -1957,8 +2245,17 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
 
             int rc = convertStatus(status, BKException.Code.ReadException);
 
-            if (maxLAC > INVALID_ENTRY_ID && (ctx instanceof ReadEntryCallbackCtx)) {
-                ((ReadEntryCallbackCtx) ctx).setLastAddConfirmed(maxLAC);
+            long latencyNanos = latency();
+            if (rc == BKException.Code.OK && recordLatency) {
+                recordReadLatency(latencyNanos);
+            }
+            if (ctx instanceof ReadEntryCallbackCtx) {
+                if (maxLAC > INVALID_ENTRY_ID) {
+                    ((ReadEntryCallbackCtx) ctx).setLastAddConfirmed(maxLAC);
+                }
+                if (rc == BKException.Code.OK && recordLatency) {
+                    ((ReadEntryCallbackCtx) ctx).setReadLatencyNanos(latencyNanos);
+                }
             }
             if (lacUpdateTimestamp > -1L && (ctx instanceof ReadLastConfirmedAndEntryContext)) {
                 ((ReadLastConfirmedAndEntryContext) ctx).setLacUpdateTimestamp(lacUpdateTimestamp);
@@ -1967,6 +2264,94 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         }
     }
 
+    class BatchedReadCompletion extends CompletionValue {
+        final BatchedReadEntryCallback cb;
+
+        public BatchedReadCompletion(final CompletionKey key,
+                                     final BatchedReadEntryCallback originalCallback,
+                                     final Object originalCtx,
+                                     long ledgerId, final long startEntryId) {
+            super("BatchedRead", originalCtx, ledgerId, startEntryId,
+                  readEntryOpLogger, readTimeoutOpLogger);
+
+            this.cb = new BatchedReadEntryCallback() {
+                    @Override
+                    public void readEntriesComplete(int rc, long ledgerId, long startEntryId,
+                                                    ByteBufList entries, Object ctx) {
+                        logOpResult(rc);
+                        originalCallback.readEntriesComplete(rc, ledgerId, startEntryId, entries, originalCtx);
+                        key.release();
+                    }
+                };
+        }
+
+        @Override
+        public void errorOut() {
+            errorOut(BKException.Code.BookieHandleNotAvailableException);
+        }
+
+        @Override
+        public void errorOut(final int rc) {
+            errorOutAndRunCallback(
+                    () -> cb.readEntriesComplete(rc, ledgerId, entryId, null, ctx));
+        }
+
+        @Override
+        public void setOutstanding() {
+            readEntryOutstanding.inc();
+        }
+
+        @Override
+        public void handleV2Response(long ledgerId, long entryId,
+                                     StatusCode status,
+                                     BookieProtocol.Response response) {
+            readEntryOutstanding.dec();
+            if (!(response instanceof BookieProtocol.BatchedReadResponse)) {
+                // the completion was already removed, so it would never time out: fail the read instead
+                ByteBufList entries = ByteBufList.get();
+                try {
+                    handleBatchReadResponse(ledgerId, entryId, StatusCode.EBADREQ, entries);
+                } finally {
+                    entries.release();
+                }
+                return;
+            }
+            BookieProtocol.BatchedReadResponse readResponse = (BookieProtocol.BatchedReadResponse) response;
+            handleBatchReadResponse(ledgerId, entryId, status, readResponse.getData());
+        }
+
+        @Override
+        public void handleV3Response(BookkeeperProtocol.Response response) {
+            readEntryOutstanding.dec();
+            BatchReadResponse batchReadResponse = response.getBatchReadResponse();
+            StatusCode status = response.getStatus() == StatusCode.EOK
+                ? batchReadResponse.getStatus() : response.getStatus();
+            ByteBufList entries = ByteBufList.get();
+            for (int i = 0; i < batchReadResponse.getBodiesCount(); i++) {
+                entries.add(Unpooled.wrappedBuffer(batchReadResponse.getBodies(i).asReadOnlyByteBuffer()));
+            }
+            try {
+                handleBatchReadResponse(batchReadResponse.getLedgerId(), batchReadResponse.getStartEntryId(),
+                        status, entries);
+            } finally {
+                entries.release();
+            }
+        }
+
+        private void handleBatchReadResponse(long ledgerId,
+                                             long startEntryId,
+                                             StatusCode status,
+                                             ByteBufList entries) {
+            if (LOG.isDebugEnabled()) {
+                logResponse(status, "ledger", ledgerId, "startEntry", startEntryId,
+                        "entries", entries.size(), "length", entries.readableBytes());
+            }
+
+            int rc = convertStatus(status, BKException.Code.ReadException);
+            cb.readEntriesComplete(rc, ledgerId, startEntryId, entries, ctx);
+        }
+    }
+
     class StartTLSCompletion extends CompletionValue {
         final StartTLSCallback cb;
 
@@ -40,6 +40,18 @@ public interface PerChannelBookieClientPool {
      */
     void obtain(GenericCallback<PerChannelBookieClient> callback, long key);
 
+    /**
+     * Obtain a channel from channel pool to execute a read operation. Reads don't need
+     * to be ordered with the other operations of the same key, so the pool is free to
+     * pick any of its channels.
+     *
+     * @param callback
+     *          callback to return channel from channel pool.
+     */
+    default void obtainForRead(GenericCallback<PerChannelBookieClient> callback, long key) {
+        obtain(callback, key);
+    }
+
     /**
      * Obtain a channel from channel pool by version to execute operations.
      *
@@ -92,4 +104,11 @@ public interface PerChannelBookieClientPool {
      * Get the number of pending completion requests in the channel.
      */
     long getNumPendingCompletionRequests();
+
+    /**
+     * Get the average of the recent read response times on the channels of the pool.
+     *
+     * @return the read latency estimate in nanoseconds, or -1 if there were no recent reads
+     */
+    long getReadLatencyEstimateNanos();
 }
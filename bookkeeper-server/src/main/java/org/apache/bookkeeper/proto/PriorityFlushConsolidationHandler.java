@@ -0,0 +1,195 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.concurrent.Future;
+import java.util.function.Predicate;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.apache.bookkeeper.util.ByteBufList;
+
+/**
+ * Consolidates the flushes of a channel so that several frames share a single write call.
+ *
+ * <p>Flushes issued while messages are being read from the channel are deferred until the
+ * read completes, and flushes issued outside of a read are deferred to the next event loop
+ * iteration. At most <i>maxFlushes</i> flushes are consolidated. A frame matched by the
+ * urgency predicate, such as a high priority request, is flushed right away together with
+ * the frames written before it.
+ *
+ * <p>The handler is meant to be placed after the protocol encoder, so that it sees one
+ * message per frame.
+ */
+class PriorityFlushConsolidationHandler extends ChannelDuplexHandler {
+
+    /**
+     * Urgency predicate for client channels, matching high priority requests.
+     */
+    static final Predicate<Object> HIGH_PRIORITY_REQUEST = PriorityFlushConsolidationHandler::isHighPriorityRequest;
+
+    private final int maxFlushes;
+    private final Predicate<Object> urgent;
+    private final OpStatsLogger framesPerFlush;
+    private final Runnable flushTask;
+
+    private ChannelHandlerContext ctx;
+    private int pendingFlushes;
+    private int pendingFrames;
+    private boolean urgentPending;
+    private boolean readInProgress;
+    private Future<?> nextScheduledFlush;
+
+    PriorityFlushConsolidationHandler(int maxFlushes, Predicate<Object> urgent, OpStatsLogger framesPerFlush) {
+        this.maxFlushes = maxFlushes;
+        this.urgent = urgent;
+        this.framesPerFlush = framesPerFlush;
+        this.flushTask = () -> {
+            nextScheduledFlush = null;
+            if (pendingFlushes > 0 && !readInProgress) {
+                flushNow(ctx);
+            }
+        };
+    }
+
+    static boolean isHighPriorityRequest(Object msg) {
+        if (msg instanceof BookkeeperProtocol.Request) {
+            BookkeeperProtocol.BKPacketHeader header = ((BookkeeperProtocol.Request) msg).getHeader();
+            return header.hasPriority() && header.getPriority() > 0;
+        }
+        ByteBuf frame;
+        if (msg instanceof ByteBuf) {
+            frame = (ByteBuf) msg;
+        } else if (msg instanceof ByteBufList && ((ByteBufList) msg).size() > 0) {
+            frame = ((ByteBufList) msg).getBuffer(0);
+        } else {
+            return false;
+        }
+        if (frame.readableBytes() < 8) {
+            return false;
+        }
+        // v2 requests written as raw frames: frame size followed by the packet header
+        int packetHeader = frame.getInt(frame.readerIndex() + 4);
+        return BookieProtocol.PacketHeader.getVersion(packetHeader) == BookieProtocol.CURRENT_PROTOCOL_VERSION
+                && (BookieProtocol.PacketHeader.getFlags(packetHeader) & BookieProtocol.FLAG_HIGH_PRIORITY) != 0;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        pendingFrames++;
+        if (urgent != null && urgent.test(msg)) {
+            urgentPending = true;
+        }
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        if (urgentPending || ++pendingFlushes >= maxFlushes) {
+            flushNow(ctx);
+        } else if (!readInProgress) {
+            // flushed at the end of the current read otherwise
+            scheduleFlush(ctx);
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        readInProgress = true;
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        resetReadAndFlushIfNeeded(ctx);
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        resetReadAndFlushIfNeeded(ctx);
+        ctx.fireExceptionCaught(cause);
+    }
+
+    @Override
+    public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        resetReadAndFlushIfNeeded(ctx);
+        ctx.disconnect(promise);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        resetReadAndFlushIfNeeded(ctx);
+        ctx.close(promise);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (!ctx.channel().isWritable()) {
+            // let the pending frames drain before the channel gets any more backlogged
+            flushIfNeeded(ctx);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        flushIfNeeded(ctx);
+    }
+
+    private void resetReadAndFlushIfNeeded(ChannelHandlerContext ctx) {
+        readInProgress = false;
+        flushIfNeeded(ctx);
+    }
+
+    private void flushIfNeeded(ChannelHandlerContext ctx) {
+        if (pendingFlushes > 0 || urgentPending) {
+            flushNow(ctx);
+        }
+    }
+
+    private void flushNow(ChannelHandlerContext ctx) {
+        if (nextScheduledFlush != null) {
+            nextScheduledFlush.cancel(false);
+            nextScheduledFlush = null;
+        }
+        if (pendingFrames > 0) {
+            framesPerFlush.registerSuccessfulValue(pendingFrames);
+        }
+        pendingFlushes = 0;
+        pendingFrames = 0;
+        urgentPending = false;
+        ctx.flush();
+    }
+
+    private void scheduleFlush(ChannelHandlerContext ctx) {
+        if (nextScheduledFlush == null) {
+            nextScheduledFlush = ctx.channel().eventLoop().submit(flushTask);
+        }
+    }
+}
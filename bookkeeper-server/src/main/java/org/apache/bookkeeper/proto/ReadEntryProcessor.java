@@ -18,8 +18,13 @@
 package org.apache.bookkeeper.proto;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.FileRegion;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.ssl.SslHandler;
 import io.netty.util.Recycler;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ReferenceCounted;
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -48,13 +53,21 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
                                             ExecutorService fenceThreadPool,
                                             boolean throttleReadResponses) {
         ReadEntryProcessor rep = RECYCLER.get();
-        rep.init(request, requestHandler, requestProcessor);
-        rep.fenceThreadPool = fenceThreadPool;
-        rep.throttleReadResponses = throttleReadResponses;
-        requestProcessor.onReadRequestStart(requestHandler.ctx().channel());
+        rep.init(request, requestHandler, requestProcessor, fenceThreadPool, throttleReadResponses);
         return rep;
     }
 
+    protected void init(ReadRequest request,
+                        BookieRequestHandler requestHandler,
+                        BookieRequestProcessor requestProcessor,
+                        ExecutorService fenceThreadPool,
+                        boolean throttleReadResponses) {
+        super.init(request, requestHandler, requestProcessor);
+        this.fenceThreadPool = fenceThreadPool;
+        this.throttleReadResponses = throttleReadResponses;
+        requestProcessor.onReadRequestStart(requestHandler.ctx().channel());
+    }
+
     @Override
     protected void processPacket() {
         if (LOG.isDebugEnabled()) {
@@ -69,7 +82,7 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
         }
         int errorCode = BookieProtocol.EOK;
         long startTimeNanos = MathUtils.nowInNano();
-        ByteBuf data = null;
+        ReferenceCounted data = null;
         try {
             CompletableFuture<Boolean> fenceResult = null;
             if (request.isFencing()) {
@@ -84,10 +97,7 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
                     throw BookieException.create(BookieException.Code.UnauthorizedAccessException);
                 }
             }
-            data = requestProcessor.getBookie().readEntry(request.getLedgerId(), request.getEntryId());
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("##### Read entry ##### {} -- ref-count: {}", data.readableBytes(), data.refCnt());
-            }
+            data = readData();
             if (fenceResult != null) {
                 handleReadResultForFenceRead(fenceResult, data, startTimeNanos);
                 return;
@@ -125,13 +135,54 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
         sendResponse(data, errorCode, startTimeNanos);
     }
 
-    private void sendResponse(ByteBuf data, int errorCode, long startTimeNanos) {
+    /**
+     * Read the data requested by this processor from the bookie.
+     *
+     * @return the data to send back to the client
+     * @throws Exception if the data could not be read
+     */
+    protected ReferenceCounted readData() throws Exception {
+        int zeroCopyMinEntrySize = requestProcessor.getZeroCopyReadMinEntrySize();
+        if (zeroCopyMinEntrySize >= 0 && canSendFileRegion()) {
+            FileRegion region = requestProcessor.getBookie().readEntryRegion(request.getLedgerId(),
+                    request.getEntryId(), zeroCopyMinEntrySize);
+            if (region != null) {
+                return region;
+            }
+        }
+        ByteBuf data = requestProcessor.getBookie().readEntry(request.getLedgerId(), request.getEntryId());
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("##### Read entry ##### {} -- ref-count: {}", data.readableBytes(), data.refCnt());
+        }
+        return data;
+    }
+
+    /**
+     * File regions can only be sent on plain socket channels: TLS needs to encrypt the payload in
+     * user space, and other transports don't support file transfers.
+     */
+    private boolean canSendFileRegion() {
+        Channel channel = requestHandler.ctx().channel();
+        return channel instanceof SocketChannel && channel.pipeline().get(SslHandler.class) == null;
+    }
+
+    /**
+     * Build the successful response for the data returned by {@link #readData()}.
+     */
+    protected BookieProtocol.Response buildReadResponse(ReferenceCounted data) {
+        if (data instanceof FileRegion) {
+            return ResponseBuilder.buildReadResponse((FileRegion) data, request);
+        }
+        return ResponseBuilder.buildReadResponse((ByteBuf) data, request);
+    }
+
+    private void sendResponse(ReferenceCounted data, int errorCode, long startTimeNanos) {
         final RequestStats stats = requestProcessor.getRequestStats();
         final OpStatsLogger logger = stats.getReadEntryStats();
         BookieProtocol.Response response;
         if (errorCode == BookieProtocol.EOK) {
             logger.registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
-            response = ResponseBuilder.buildReadResponse(data, request);
+            response = buildReadResponse(data);
         } else {
             if (data != null) {
                 ReferenceCountUtil.release(data);
@@ -144,13 +195,13 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
         recycle();
     }
 
-    private void sendFenceResponse(Boolean result, ByteBuf data, long startTimeNanos) {
+    private void sendFenceResponse(Boolean result, ReferenceCounted data, long startTimeNanos) {
         final int retCode = result != null && result ? BookieProtocol.EOK : BookieProtocol.EIO;
         sendResponse(data, retCode, startTimeNanos);
     }
 
     private void handleReadResultForFenceRead(CompletableFuture<Boolean> fenceResult,
-                                              ByteBuf data,
+                                              ReferenceCounted data,
                                               long startTimeNanos) {
         if (null != fenceThreadPool) {
             fenceResult.whenCompleteAsync(new FutureEventListener<Boolean>() {
@@ -188,7 +239,7 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
         return String.format("ReadEntry(%d, %d)", request.getLedgerId(), request.getEntryId());
     }
 
-    private void recycle() {
+    protected void recycle() {
         request.recycle();
         super.reset();
         this.recyclerHandle.recycle(this);
@@ -196,7 +247,7 @@ class ReadEntryProcessor extends PacketProcessorBase<ReadRequest> {
 
     private final Recycler.Handle<ReadEntryProcessor> recyclerHandle;
 
-    private ReadEntryProcessor(Recycler.Handle<ReadEntryProcessor> recyclerHandle) {
+    protected ReadEntryProcessor(Recycler.Handle<ReadEntryProcessor> recyclerHandle) {
         this.recyclerHandle = recyclerHandle;
     }
 
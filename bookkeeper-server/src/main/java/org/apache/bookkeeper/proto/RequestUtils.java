@@ -83,6 +83,14 @@ class RequestUtils {
                 stringHelper.add("timeOut", readRequest.getTimeOut());
             }
             return stringHelper.toString();
+        } else if (request.hasBatchReadRequest()) {
+            BookkeeperProtocol.BatchReadRequest batchReadRequest = request.getBatchReadRequest();
+            includeHeaderFields(stringHelper, header);
+            stringHelper.add("ledgerId", batchReadRequest.getLedgerId());
+            stringHelper.add("startEntryId", batchReadRequest.getStartEntryId());
+            stringHelper.add("maxCount", batchReadRequest.getMaxCount());
+            stringHelper.add("maxSize", batchReadRequest.getMaxSize());
+            return stringHelper.toString();
         } else if (request.hasWriteLacRequest()) {
             BookkeeperProtocol.WriteLacRequest writeLacRequest = request.getWriteLacRequest();
             includeHeaderFields(stringHelper, header);
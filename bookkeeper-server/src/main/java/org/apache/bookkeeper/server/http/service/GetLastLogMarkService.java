@@ -23,6 +23,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import java.io.File;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import org.apache.bookkeeper.bookie.Journal;
@@ -74,10 +75,12 @@ public class GetLastLogMarkService implements HttpEndpointService {
                  */
                 Map<String, String> output = Maps.newHashMap();
 
-                List<Journal> journals = Lists.newArrayListWithCapacity(conf.getJournalDirs().length);
-                int idx = 0;
-                for (File journalDir : conf.getJournalDirs()) {
-                    journals.add(new Journal(idx++, journalDir, conf, new LedgerDirsManager(conf, conf.getLedgerDirs(),
+                List<File> journalDirs = Journal.getJournalStripeDirectories(
+                        Arrays.asList(conf.getJournalDirs()), conf.getJournalsPerDirectory());
+                List<Journal> journals = Lists.newArrayListWithCapacity(journalDirs.size());
+                for (int idx = 0; idx < journalDirs.size(); idx++) {
+                    journals.add(new Journal(idx, journalDirs.get(idx), conf, new LedgerDirsManager(conf,
+                      conf.getLedgerDirs(),
                       new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()))));
                 }
                 for (Journal journal : journals) {
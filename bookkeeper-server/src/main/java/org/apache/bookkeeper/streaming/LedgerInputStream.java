@@ -23,10 +23,16 @@ package org.apache.bookkeeper.streaming;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
-import java.util.Enumeration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import org.apache.bookkeeper.client.BKException;
-import org.apache.bookkeeper.client.LedgerEntry;
 import org.apache.bookkeeper.client.LedgerHandle;
+import org.apache.bookkeeper.client.ReadAheadReadHandle;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
 
 /**
  * An input stream on reading data from a ledger.
@@ -34,12 +40,13 @@ import org.apache.bookkeeper.client.LedgerHandle;
 public class LedgerInputStream extends InputStream {
 
     private final LedgerHandle lh;
+    private final ReadHandle reader;
     private ByteBuffer bytebuff;
     byte[] bbytes;
     long lastEntry = 0;
     int increment = 50;
     int defaultSize = 1024 * 1024; // 1MB default size
-    Enumeration<LedgerEntry> ledgerSeq = null;
+    Iterator<byte[]> ledgerSeq = null;
 
     /**
      * construct a outputstream from a ledger handle.
@@ -50,12 +57,7 @@ public class LedgerInputStream extends InputStream {
      * @throws InterruptedException when opening a ledger input stream is interrupted.
      */
     public LedgerInputStream(LedgerHandle lh) throws BKException, InterruptedException {
-        this.lh = lh;
-        bbytes = new byte[defaultSize];
-        this.bytebuff = ByteBuffer.wrap(bbytes);
-        this.bytebuff.position(this.bytebuff.limit());
-        lastEntry = Math.min(lh.getLastAddConfirmed(), increment);
-        ledgerSeq = lh.readEntries(0, lastEntry);
+        this(lh, 1024 * 1024);
     }
 
     /**
@@ -69,12 +71,42 @@ public class LedgerInputStream extends InputStream {
      * @throws InterruptedException when opening a ledger input stream is interrupted.
      */
     public LedgerInputStream(LedgerHandle lh, int size) throws BKException, InterruptedException {
+        this(lh, size, 0);
+    }
+
+    /**
+     * construct a outputstream from a ledger handle, reading entries ahead of the stream position.
+     *
+     * @param lh
+     *            the ledger handle
+     * @param size
+     *            the size of the buffer
+     * @param readAheadEntries
+     *            the number of entries to read ahead, 0 to read the entries only when they are needed
+     * @throws BKException when encountered bookkeeper exceptions
+     * @throws InterruptedException when opening a ledger input stream is interrupted.
+     * @see ReadAheadReadHandle
+     */
+    public LedgerInputStream(LedgerHandle lh, int size, int readAheadEntries)
+            throws BKException, InterruptedException {
         this.lh = lh;
+        this.reader = readAheadEntries > 0
+                ? new ReadAheadReadHandle(lh, Math.max(readAheadEntries, increment), increment) : lh;
         bbytes = new byte[size];
         this.bytebuff = ByteBuffer.wrap(bbytes);
         this.bytebuff.position(this.bytebuff.limit());
         lastEntry = Math.min(lh.getLastAddConfirmed(), increment);
-        ledgerSeq = lh.readEntries(0, lastEntry);
+        ledgerSeq = readEntries(0, lastEntry);
+    }
+
+    private Iterator<byte[]> readEntries(long first, long last) throws BKException, InterruptedException {
+        try (LedgerEntries entries = FutureUtils.result(reader.readAsync(first, last), BKException.HANDLER)) {
+            List<byte[]> data = new ArrayList<>((int) (last - first + 1));
+            for (LedgerEntry entry : entries) {
+                data.add(entry.getEntryBytes());
+            }
+            return data.iterator();
+        }
     }
 
     /**
@@ -96,14 +128,14 @@ public class LedgerInputStream extends InputStream {
      */
     private synchronized boolean refill() throws IOException {
         bytebuff.clear();
-        if (!ledgerSeq.hasMoreElements() && lastEntry >= lh.getLastAddConfirmed()) {
+        if (!ledgerSeq.hasNext() && lastEntry >= lh.getLastAddConfirmed()) {
             return false;
         }
-        if (!ledgerSeq.hasMoreElements()) {
+        if (!ledgerSeq.hasNext()) {
             // do refill
             long last = Math.min(lastEntry + increment, lh.getLastAddConfirmed());
             try {
-                ledgerSeq = lh.readEntries(lastEntry + 1, last);
+                ledgerSeq = readEntries(lastEntry + 1, last);
             } catch (BKException bk) {
                 IOException ie = new IOException(bk.getMessage());
                 ie.initCause(bk);
@@ -113,8 +145,7 @@ public class LedgerInputStream extends InputStream {
             }
             lastEntry = last;
         }
-        LedgerEntry le = ledgerSeq.nextElement();
-        bbytes = le.getEntry();
+        bbytes = ledgerSeq.next();
         bytebuff = ByteBuffer.wrap(bbytes);
         return true;
     }
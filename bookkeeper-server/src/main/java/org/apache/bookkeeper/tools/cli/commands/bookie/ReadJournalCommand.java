@@ -176,10 +176,15 @@ public class ReadJournalCommand extends BookieCommand<ReadJournalCommand.ReadJou
 
     private synchronized List<Journal> getJournals(ServerConfiguration conf) throws IOException {
         if (null == journals) {
-            journals = Lists.newArrayListWithCapacity(conf.getJournalDirs().length);
-            int idx = 0;
+            List<File> journalDirs = Lists.newArrayListWithCapacity(conf.getJournalDirs().length);
             for (File journalDir : conf.getJournalDirs()) {
-                journals.add(new Journal(idx++, new File(journalDir, BookKeeperConstants.CURRENT_DIR), conf,
+                journalDirs.add(new File(journalDir, BookKeeperConstants.CURRENT_DIR));
+            }
+            List<File> journalStripeDirs =
+                    Journal.getJournalStripeDirectories(journalDirs, conf.getJournalsPerDirectory());
+            journals = Lists.newArrayListWithCapacity(journalStripeDirs.size());
+            for (int idx = 0; idx < journalStripeDirs.size(); idx++) {
+                journals.add(new Journal(idx, journalStripeDirs.get(idx), conf,
                          new LedgerDirsManager(conf, conf.getLedgerDirs(),
                                new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()))));
             }
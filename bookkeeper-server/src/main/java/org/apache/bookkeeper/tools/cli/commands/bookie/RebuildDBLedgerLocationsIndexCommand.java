@@ -18,7 +18,10 @@
  */
 package org.apache.bookkeeper.tools.cli.commands.bookie;
 
+import com.beust.jcommander.Parameter;
 import java.io.IOException;
+import lombok.Setter;
+import lombok.experimental.Accessors;
 import org.apache.bookkeeper.bookie.storage.ldb.LocationsIndexRebuildOp;
 import org.apache.bookkeeper.conf.ServerConfiguration;
 import org.apache.bookkeeper.tools.cli.helpers.BookieCommand;
@@ -30,7 +33,8 @@ import org.slf4j.LoggerFactory;
 /**
  * Command to rebuild DBLedgerStorage locations index.
  */
-public class RebuildDBLedgerLocationsIndexCommand extends BookieCommand<CliFlags> {
+public class RebuildDBLedgerLocationsIndexCommand
+    extends BookieCommand<RebuildDBLedgerLocationsIndexCommand.RebuildLocationsIndexFlags> {
 
     static final Logger LOG = LoggerFactory.getLogger(RebuildDBLedgerLocationsIndexCommand.class);
 
@@ -38,13 +42,30 @@ public class RebuildDBLedgerLocationsIndexCommand extends BookieCommand<CliFlags
     private static final String DESC = "Rbuild DBLedgerStorage locations index by scanning the entry logs";
 
     public RebuildDBLedgerLocationsIndexCommand() {
-        super(CliSpec.newBuilder().withName(NAME).withDescription(DESC).withFlags(new CliFlags()).build());
+        this(new RebuildLocationsIndexFlags());
+    }
+
+    public RebuildDBLedgerLocationsIndexCommand(RebuildLocationsIndexFlags flags) {
+        super(CliSpec.<RebuildLocationsIndexFlags>newBuilder().withName(NAME).withDescription(DESC)
+                .withFlags(flags).build());
     }
 
     @Override
-    public boolean apply(ServerConfiguration conf, CliFlags cmdFlags) {
-        LOG.info("=== Rebuilding DBStorage locations index ===");
+    public boolean apply(ServerConfiguration conf, RebuildLocationsIndexFlags cmdFlags) {
         ServerConfiguration serverConfiguration = new ServerConfiguration(conf);
+        if (cmdFlags.migrate) {
+            LOG.info("=== Migrating DBStorage locations index ===");
+            try {
+                new LocationsIndexRebuildOp(serverConfiguration).migrate();
+            } catch (IOException e) {
+                LOG.error("Failed to migrate DBStorage locations index", e);
+                return false;
+            }
+            LOG.info("-- Done migrating DBStorage locations index --");
+            return true;
+        }
+
+        LOG.info("=== Rebuilding DBStorage locations index ===");
         try {
             new LocationsIndexRebuildOp(serverConfiguration).initiate();
         } catch (IOException e) {
@@ -53,4 +74,16 @@ public class RebuildDBLedgerLocationsIndexCommand extends BookieCommand<CliFlags
         LOG.info("-- Done rebuilding DBStorage locations index --");
         return true;
     }
+
+    /**
+     * Flags for rebuild locations index command.
+     */
+    @Accessors(fluent = true)
+    @Setter
+    public static class RebuildLocationsIndexFlags extends CliFlags {
+        @Parameter(names = { "-m", "--migrate" },
+                description = "Convert the existing index to the storage set in dbStorage_entryLocationIndexType,"
+                        + " instead of scanning the entry logs")
+        private boolean migrate;
+    }
 }
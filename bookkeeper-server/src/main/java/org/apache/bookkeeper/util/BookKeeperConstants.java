@@ -32,6 +32,7 @@ public class BookKeeperConstants {
     public static final String PASSWD = "passwd";
     public static final String CURRENT_DIR = "current";
     public static final String METADATA_CACHE = "metadata-cache";
+    public static final String MAPPED_METADATA_CACHE = "metadata-cache-mapped";
     public static final String READONLY = "readonly";
 
     // //////////////////////////
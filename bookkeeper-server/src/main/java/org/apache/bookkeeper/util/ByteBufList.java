@@ -123,7 +123,10 @@ public class ByteBufList extends AbstractReferenceCounted {
         return buf;
     }
 
-    private static ByteBufList get() {
+    /**
+     * Get a new empty {@link ByteBufList} instance from the pool.
+     */
+    public static ByteBufList get() {
         ByteBufList buf = RECYCLER.get();
         buf.setRefCnt(1);
         return buf;
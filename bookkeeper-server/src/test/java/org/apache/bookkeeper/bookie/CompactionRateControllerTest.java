@@ -0,0 +1,79 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+public class CompactionRateControllerTest {
+
+    private final AtomicLong clock = new AtomicLong(0);
+
+    private void advance() {
+        clock.addAndGet(CompactionRateController.ADJUST_INTERVAL_NANOS);
+    }
+
+    @Test
+    public void rateBacksOffAboveTargetAndRecoversBelow() {
+        CompactionRateController controller = new CompactionRateController(1000, 10, clock::get);
+        assertEquals(1000, controller.getRate(), 0.0);
+
+        // no adjustment before the interval elapses
+        controller.recordForegroundLatency(TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1000, controller.getRate(), 0.0);
+
+        advance();
+        assertEquals(500, controller.getRate(), 0.0);
+
+        // the rate never goes below 1/20th of the configured rate
+        for (int i = 0; i < 10; i++) {
+            controller.recordForegroundLatency(TimeUnit.MILLISECONDS.toNanos(50));
+            advance();
+            controller.getRate();
+        }
+        assertEquals(50, controller.getRate(), 0.0);
+
+        controller.recordForegroundLatency(TimeUnit.MILLISECONDS.toNanos(1));
+        advance();
+        assertEquals(60, controller.getRate(), 0.001);
+
+        // idle disks let the rate grow back up to the configured rate, but not beyond
+        for (int i = 0; i < 100; i++) {
+            advance();
+            controller.getRate();
+        }
+        assertEquals(1000, controller.getRate(), 0.0);
+    }
+
+    @Test
+    public void cheapestEntryLogsToCompactReclaimMostPerIoByte() {
+        double empty = GarbageCollectorThread.reclaimedBytesPerIoByte(1000, 0);
+        double halfFull = GarbageCollectorThread.reclaimedBytesPerIoByte(1000, 500);
+        double almostFull = GarbageCollectorThread.reclaimedBytesPerIoByte(1000, 900);
+        assertEquals(1.0, empty, 0.0);
+        assertTrue(halfFull > almostFull);
+        assertEquals(0.0, GarbageCollectorThread.reclaimedBytesPerIoByte(0, 0), 0.0);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class DirectIOFileChannelTest {
+
+    private File tmpDir;
+    private final ServerConfiguration conf = new ServerConfiguration();
+
+    @BeforeEach
+    public void setup() throws Exception {
+        tmpDir = Files.createTempDirectory("direct-journal").toFile();
+    }
+
+    @AfterEach
+    public void teardown() throws Exception {
+        FileUtils.deleteDirectory(tmpDir);
+    }
+
+    @Test
+    public void unalignedSequentialWrites() throws Exception {
+        verifyWrites(false);
+    }
+
+    @Test
+    public void unalignedSequentialWritesWithDsync() throws Exception {
+        conf.setJournalDirectIODsync(true);
+        verifyWrites(true);
+    }
+
+    private void verifyWrites(boolean dsync) throws Exception {
+        File file = new File(tmpDir, "test.txn");
+        Random random = new Random(1);
+        byte[] expected = new byte[2 * 1024 * 1024];
+        random.nextBytes(expected);
+
+        DirectIOFileChannelProvider provider = new DirectIOFileChannelProvider();
+        BookieFileChannel channel = provider.open(file, conf);
+        FileChannel fc = channel.getFileChannel();
+
+        // pre-allocate past the written region, as the journal does
+        fc.write(ByteBuffer.allocate(512), expected.length + 4096);
+
+        int pos = 0;
+        while (pos < expected.length) {
+            int size = Math.min(expected.length - pos, 1 + random.nextInt(300 * 1024));
+            assertEquals(size, fc.write(ByteBuffer.wrap(expected, pos, size)));
+            pos += size;
+            assertEquals(pos, fc.position());
+            if (random.nextInt(4) == 0) {
+                fc.force(false);
+            }
+        }
+        fc.force(true);
+        provider.close(channel);
+
+        byte[] actual = Files.readAllBytes(file.toPath());
+        assertArrayEquals(expected, Arrays.copyOf(actual, expected.length));
+
+        // re-open and append from an unaligned position
+        channel = provider.open(file, conf);
+        fc = channel.getFileChannel();
+        fc.position(expected.length - 10);
+        fc.write(ByteBuffer.wrap(new byte[] { 1, 2, 3 }));
+        fc.force(false);
+        ByteBuffer read = ByteBuffer.allocate(13);
+        fc.position(expected.length - 13);
+        assertEquals(13, fc.read(read));
+        provider.close(channel);
+
+        byte[] tail = Arrays.copyOfRange(expected, expected.length - 13, expected.length);
+        tail[3] = 1;
+        tail[4] = 2;
+        tail[5] = 3;
+        assertArrayEquals(Arrays.copyOf(tail, 6), Arrays.copyOf(read.array(), 6));
+        actual = Files.readAllBytes(file.toPath());
+        assertArrayEquals(Arrays.copyOf(expected, expected.length - 10),
+                Arrays.copyOf(actual, expected.length - 10));
+    }
+
+    @Test
+    public void transferFromInvalidatesTheBufferedBlock() throws Exception {
+        File file = new File(tmpDir, "test.txn");
+        DirectIOFileChannelProvider provider = new DirectIOFileChannelProvider();
+        BookieFileChannel channel = provider.open(file, conf);
+        FileChannel fc = channel.getFileChannel();
+
+        byte[] expected = new byte[200];
+        Arrays.fill(expected, 0, 100, (byte) 1);
+        fc.write(ByteBuffer.wrap(expected, 0, 100));
+
+        // overwrite part of the block kept in the buffer, the next write must not restore the old content
+        Arrays.fill(expected, 10, 30, (byte) 2);
+        ReadableByteChannel src = Channels.newChannel(new ByteArrayInputStream(expected, 10, 20));
+        assertEquals(20, fc.transferFrom(src, 10, 20));
+        assertEquals(100, fc.position());
+
+        Arrays.fill(expected, 100, 200, (byte) 3);
+        fc.write(ByteBuffer.wrap(expected, 100, 100));
+        fc.force(false);
+        provider.close(channel);
+
+        assertArrayEquals(expected, Arrays.copyOf(Files.readAllBytes(file.toPath()), expected.length));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.bookkeeper.bookie.storage.EntryLogScanner;
+import org.apache.bookkeeper.bookie.storage.EntryLogger;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.junit.jupiter.api.Test;
+
+public class EntryLogCompactorTest {
+
+    private static final int ENTRIES_PER_LOG = 50;
+
+    @Test
+    public void entryLogsCanBeCompactedConcurrently() throws Exception {
+        ServerConfiguration conf = new ServerConfiguration()
+                .setCompactionMaxOutstandingRequests(10)
+                .setCompactionRateByEntries(Integer.MAX_VALUE);
+        EntryLogger entryLogger = mock(EntryLogger.class);
+        CompactableLedgerStorage ledgerStorage = mock(CompactableLedgerStorage.class);
+
+        // both scans run together, so the two compactions are really concurrent
+        CountDownLatch scansStarted = new CountDownLatch(2);
+        doAnswer(invocation -> {
+            long logId = invocation.getArgument(0);
+            EntryLogScanner scanner = invocation.getArgument(1);
+            scansStarted.countDown();
+            assertTrue(scansStarted.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < ENTRIES_PER_LOG; i++) {
+                ByteBuf entry = Unpooled.buffer(16);
+                entry.writeLong(logId);
+                entry.writeLong(i);
+                scanner.process(logId, i * 16L, entry);
+                entry.release();
+            }
+            return null;
+        }).when(entryLogger).scanEntryLog(anyLong(), any(EntryLogScanner.class));
+        AtomicLong nextLocation = new AtomicLong();
+        when(entryLogger.addEntry(anyLong(), any(ByteBuf.class))).thenAnswer(i -> nextLocation.incrementAndGet());
+
+        List<EntryLocation> updated = new ArrayList<>();
+        doAnswer(invocation -> {
+            Iterable<EntryLocation> locations = invocation.getArgument(0);
+            synchronized (updated) {
+                locations.forEach(updated::add);
+            }
+            return null;
+        }).when(ledgerStorage).updateEntriesLocations(any());
+
+        Set<Long> removed = ConcurrentHashMap.newKeySet();
+        EntryLogCompactor compactor = new EntryLogCompactor(conf, entryLogger, ledgerStorage, removed::add);
+        assertTrue(compactor.supportsParallelCompaction());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (long logId = 1; logId <= 2; logId++) {
+                EntryLogMetadata meta = new EntryLogMetadata(logId);
+                meta.addLedgerSize(logId, 100);
+                results.add(executor.submit(() -> compactor.compact(meta)));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(Set.of(1L, 2L), removed);
+        assertEquals(2 * ENTRIES_PER_LOG, updated.size());
+        assertEquals(ENTRIES_PER_LOG, updated.stream().filter(l -> l.ledger == 1L).count());
+    }
+}
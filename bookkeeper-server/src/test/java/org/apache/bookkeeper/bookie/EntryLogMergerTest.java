@@ -0,0 +1,115 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.bookkeeper.bookie.storage.CompactionEntryLog;
+import org.apache.bookkeeper.bookie.storage.EntryLogScanner;
+import org.apache.bookkeeper.bookie.storage.EntryLogger;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.junit.jupiter.api.Test;
+
+public class EntryLogMergerTest {
+
+    private static ByteBuf entry(long ledgerId, long entryId) {
+        ByteBuf entry = Unpooled.buffer(16);
+        entry.writeLong(ledgerId);
+        entry.writeLong(entryId);
+        return entry;
+    }
+
+    @Test
+    public void mergedEntriesAreSortedByLedgerAndEntry() throws Exception {
+        ServerConfiguration conf = new ServerConfiguration().setCompactionRateByEntries(Integer.MAX_VALUE);
+        EntryLogger entryLogger = mock(EntryLogger.class);
+        CompactableLedgerStorage ledgerStorage = mock(CompactableLedgerStorage.class);
+
+        // log 1 holds entries of ledgers 3 and 1, log 2 of ledgers 2 and 1, ledger 3 is deleted
+        doAnswer(invocation -> {
+            long logId = invocation.getArgument(0);
+            EntryLogScanner scanner = invocation.getArgument(1);
+            long[] ledgers = logId == 1 ? new long[] {3, 1, 3, 1} : new long[] {2, 1, 2};
+            long[] entries = logId == 1 ? new long[] {0, 1, 1, 0} : new long[] {0, 2, 1};
+            for (int i = 0; i < ledgers.length; i++) {
+                if (scanner.accept(ledgers[i])) {
+                    ByteBuf entry = entry(ledgers[i], entries[i]);
+                    scanner.process(ledgers[i], i * 100L, entry);
+                    entry.release();
+                }
+            }
+            return null;
+        }).when(entryLogger).scanEntryLog(anyLong(), any(EntryLogScanner.class));
+        when(entryLogger.readEntry(anyLong(), anyLong(), anyLong()))
+                .thenAnswer(i -> entry(i.getArgument(0), i.getArgument(1)));
+
+        CompactionEntryLog mergeLog = mock(CompactionEntryLog.class);
+        when(mergeLog.getDstLogId()).thenReturn(5L);
+        when(mergeLog.getSrcLogId()).thenReturn(1L);
+        List<String> written = new ArrayList<>();
+        when(mergeLog.addEntry(anyLong(), any(ByteBuf.class))).thenAnswer(i -> {
+            ByteBuf entry = i.getArgument(1);
+            written.add(entry.getLong(0) + ":" + entry.getLong(8));
+            return (5L << 32) | written.size();
+        });
+        when(entryLogger.newCompactionLog(1L)).thenReturn(mergeLog);
+
+        List<EntryLocation> updated = new ArrayList<>();
+        doAnswer(invocation -> {
+            Iterable<EntryLocation> locations = invocation.getArgument(0);
+            locations.forEach(updated::add);
+            return null;
+        }).when(ledgerStorage).updateEntriesLocations(any());
+
+        Set<Long> removed = ConcurrentHashMap.newKeySet();
+        EntryLogMerger merger = new EntryLogMerger(conf, entryLogger, ledgerStorage, removed::add);
+
+        EntryLogMetadata log1 = new EntryLogMetadata(1L);
+        log1.addLedgerSize(1L, 40);
+        EntryLogMetadata log2 = new EntryLogMetadata(2L);
+        log2.addLedgerSize(1L, 20);
+        log2.addLedgerSize(2L, 40);
+        assertTrue(merger.merge(Arrays.asList(log1, log2)));
+
+        assertEquals(Arrays.asList("1:0", "1:1", "1:2", "2:0", "2:1"), written);
+        assertEquals(5, updated.size());
+        // entry 1:2 is read back from offset 100 of log 2
+        verify(entryLogger).readEntry(1L, 2L, (2L << 32) | 104);
+        verify(mergeLog).markCompacted();
+        verify(mergeLog).makeAvailable();
+        verify(ledgerStorage).flushEntriesLocationsIndex();
+        assertEquals(Set.of(1L, 2L), removed);
+    }
+}
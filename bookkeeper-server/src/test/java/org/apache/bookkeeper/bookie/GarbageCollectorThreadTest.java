@@ -0,0 +1,157 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.storage.EntryLogger;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.jupiter.api.Test;
+
+public class GarbageCollectorThreadTest {
+
+    /**
+     * Garbage collector thread recording the entry logs it compacts instead of compacting them.
+     */
+    private static class RecordingGarbageCollectorThread extends GarbageCollectorThread {
+        final List<Long> compacted = new ArrayList<>();
+        final long compactionTimeMillis;
+
+        RecordingGarbageCollectorThread(ServerConfiguration conf, ScheduledExecutorService gcExecutor,
+                                        long compactionTimeMillis) throws Exception {
+            super(conf, mock(LedgerManager.class), mock(LedgerDirsManager.class),
+                    mock(CompactableLedgerStorage.class), mock(EntryLogger.class), NullStatsLogger.INSTANCE,
+                    gcExecutor);
+            this.compactionTimeMillis = compactionTimeMillis;
+        }
+
+        @Override
+        protected void compactEntryLog(EntryLogMetadata entryLogMeta) {
+            compacted.add(entryLogMeta.getEntryLogId());
+            try {
+                // like the compactor, remove the compacted entry log
+                getEntryLogMetaMap().remove(entryLogMeta.getEntryLogId());
+                Thread.sleep(compactionTimeMillis);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private static ServerConfiguration newConf() {
+        ServerConfiguration conf = new ServerConfiguration();
+        conf.setBookieId("bookie-1");
+        return conf
+                .setGcWaitTime(1000)
+                .setMinorCompactionThreshold(0.2)
+                .setMinorCompactionInterval(3600)
+                .setMajorCompactionThreshold(0.8)
+                .setMajorCompactionInterval(86400);
+    }
+
+    private static void addEntryLog(GarbageCollectorThread gc, long entryLogId, long totalSize, long remainingSize)
+            throws Exception {
+        EntryLogMetadata meta = new EntryLogMetadata(entryLogId);
+        meta.addLedgerSize(1L, remainingSize);
+        meta.addLedgerSize(2L, totalSize - remainingSize);
+        meta.removeLedgerIf(ledgerId -> ledgerId == 2L);
+        gc.getEntryLogMetaMap().put(entryLogId, meta);
+    }
+
+    @Test
+    public void entryLogsAreCompactedByReclaimedBytesPerIoByte() throws Exception {
+        RecordingGarbageCollectorThread gc = new RecordingGarbageCollectorThread(
+                newConf(), mock(ScheduledExecutorService.class), 0);
+        // reclaimed / (total + remaining): 50 / 150, 90 / 110, 70 / 130, the last one is above the threshold
+        addEntryLog(gc, 1L, 100, 50);
+        addEntryLog(gc, 2L, 100, 10);
+        addEntryLog(gc, 3L, 100, 30);
+        addEntryLog(gc, 4L, 100, 90);
+
+        assertTrue(gc.doCompactEntryLogs(0.8, 0));
+        assertEquals(Arrays.asList(2L, 3L, 1L), gc.compacted);
+    }
+
+    @Test
+    public void slicedCompactionIsLeftPendingAndResumed() throws Exception {
+        ScheduledExecutorService gcExecutor = mock(ScheduledExecutorService.class);
+        RecordingGarbageCollectorThread gc = new RecordingGarbageCollectorThread(
+                newConf().setCompactionTimeSliceMillis(50), gcExecutor, 30);
+        for (long entryLogId = 1; entryLogId <= 6; entryLogId++) {
+            addEntryLog(gc, entryLogId, 100, 10 * entryLogId);
+        }
+        long lastMajorCompactionTime = gc.lastMajorCompactionTime;
+
+        // a major compaction of 6 entry logs of 30ms does not fit in a slice of 50ms
+        gc.majorCompactionPending = true;
+        gc.resumeCompaction();
+        assertTrue(gc.majorCompactionPending);
+        assertTrue(gc.compacted.size() < 6);
+        assertEquals(lastMajorCompactionTime, gc.lastMajorCompactionTime);
+        verify(gcExecutor).schedule(any(Runnable.class), eq(50L), eq(TimeUnit.MILLISECONDS));
+
+        // each resumed slice continues with the remaining entry logs, until they are all compacted
+        for (int i = 0; i < 6 && gc.majorCompactionPending; i++) {
+            gc.resumeCompaction();
+        }
+        assertFalse(gc.majorCompactionPending);
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L), gc.compacted);
+        assertTrue(gc.lastMajorCompactionTime > lastMajorCompactionTime);
+    }
+
+    @Test
+    public void suspendedCompactionIsNotResumed() throws Exception {
+        ScheduledExecutorService gcExecutor = mock(ScheduledExecutorService.class);
+        RecordingGarbageCollectorThread gc = new RecordingGarbageCollectorThread(
+                newConf().setCompactionTimeSliceMillis(50), gcExecutor, 0);
+        addEntryLog(gc, 1L, 100, 10);
+
+        // the disk filled up since the last slice
+        gc.majorCompactionPending = true;
+        gc.suspendMajorGC();
+        gc.resumeCompaction();
+        assertTrue(gc.compacted.isEmpty());
+        assertTrue(gc.majorCompactionPending);
+        verify(gcExecutor, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+
+        gc.resumeMajorGC();
+        gc.resumeCompaction();
+        assertEquals(Arrays.asList(1L), gc.compacted);
+        assertFalse(gc.majorCompactionPending);
+        verify(gcExecutor, times(0)).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class JournalGroupCommitPolicyTest {
+
+    private static final long MAX_WAIT = TimeUnit.MILLISECONDS.toNanos(2);
+
+    @Test
+    public void keepsConfiguredValuesWithoutSamples() {
+        JournalGroupCommitPolicy policy = new JournalGroupCommitPolicy(MAX_WAIT, 0, 512 * 1024, false);
+        policy.recordFlush(10, 1000, 1_000_000);
+
+        assertEquals(MAX_WAIT, policy.getGroupWaitNanos());
+        assertEquals(0, policy.getEntriesThreshold());
+        assertEquals(512 * 1024, policy.getBytesThreshold());
+        assertFalse(policy.isFlushWhenQueueEmpty());
+        assertEquals(-1, policy.getFsyncLatencyMicros());
+    }
+
+    @Test
+    public void flushesOnEmptyQueueUnderLightLoad() {
+        JournalGroupCommitPolicy policy = new JournalGroupCommitPolicy(MAX_WAIT, 0, 512 * 1024, false);
+        // 1 entry every 10ms with a 500us fsync
+        policy.recordFsync(TimeUnit.MICROSECONDS.toNanos(500));
+        long now = TimeUnit.SECONDS.toNanos(1);
+        for (int i = 0; i < 10; i++) {
+            now += TimeUnit.MILLISECONDS.toNanos(10);
+            policy.recordFlush(1, 100, now);
+        }
+
+        assertTrue(policy.isFlushWhenQueueEmpty());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(500), policy.getGroupWaitNanos());
+        assertEquals(1, policy.getEntriesThreshold());
+        assertEquals(500, policy.getFsyncLatencyMicros());
+    }
+
+    @Test
+    public void sizesThresholdsToFsyncUnderHeavyLoad() {
+        JournalGroupCommitPolicy policy = new JournalGroupCommitPolicy(MAX_WAIT, 0, 512 * 1024, false);
+        // 100 entries of 1KB every 1ms with a 1ms fsync
+        policy.recordFsync(TimeUnit.MILLISECONDS.toNanos(1));
+        long now = TimeUnit.SECONDS.toNanos(1);
+        for (int i = 0; i < 10; i++) {
+            now += TimeUnit.MILLISECONDS.toNanos(1);
+            policy.recordFlush(100, 100 * 1024, now);
+        }
+
+        assertFalse(policy.isFlushWhenQueueEmpty());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1), policy.getGroupWaitNanos());
+        assertEquals(100, policy.getEntriesThreshold());
+        assertEquals(100 * 1024, policy.getBytesThreshold());
+
+        // A slow disk is bounded by the configured values
+        for (int i = 0; i < 50; i++) {
+            policy.recordFsync(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        now += TimeUnit.MILLISECONDS.toNanos(1);
+        policy.recordFlush(100, 100 * 1024, now);
+        assertEquals(MAX_WAIT, policy.getGroupWaitNanos());
+        assertEquals(512 * 1024, policy.getBytesThreshold());
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the journals hosted in the stripe directories of the journal directories.
+ */
+public class JournalStripeTest {
+
+    private File tmpDir;
+    private File journalDir1;
+    private File journalDir2;
+    private ServerConfiguration conf;
+    private LedgerDirsManager ledgerDirsManager;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        tmpDir = Files.createTempDirectory("journal-stripes").toFile();
+        journalDir1 = new File(tmpDir, "journal1");
+        journalDir2 = new File(tmpDir, "journal2");
+        File ledgerDir = new File(tmpDir, "ledgers");
+        BookieImpl.checkDirectoryStructure(BookieImpl.getCurrentDirectory(ledgerDir));
+
+        conf = TestBKConfiguration.newServerConfiguration();
+        conf.setJournalDirsName(new String[] { journalDir1.getPath(), journalDir2.getPath() });
+        conf.setLedgerDirNames(new String[] { ledgerDir.getPath() });
+        ledgerDirsManager = new LedgerDirsManager(conf, conf.getLedgerDirs(),
+                new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()));
+    }
+
+    @AfterEach
+    public void teardown() throws Exception {
+        FileUtils.deleteDirectory(tmpDir);
+    }
+
+    @Test
+    public void testStripeDirectoriesAreOrderedByStripe() {
+        List<File> dirs = Journal.getJournalStripeDirectories(Arrays.asList(journalDir1, journalDir2), 3);
+
+        assertEquals(Arrays.asList(
+                journalDir1, journalDir2,
+                new File(journalDir1, "stripe-1"), new File(journalDir2, "stripe-1"),
+                new File(journalDir1, "stripe-2"), new File(journalDir2, "stripe-2")), dirs);
+        assertEquals(Arrays.asList(journalDir1, journalDir2),
+                Journal.getJournalStripeDirectories(Arrays.asList(journalDir1, journalDir2), 1));
+    }
+
+    @Test
+    public void testLastMarkFileOfStripeJournals() throws Exception {
+        File currentDir = BookieImpl.getCurrentDirectory(journalDir1);
+        ServerConfiguration singleDirConf = new ServerConfiguration(conf);
+        singleDirConf.setJournalDirsName(new String[] { journalDir1.getPath() });
+        List<File> dirs = Journal.getJournalStripeDirectories(Lists.newArrayList(currentDir), 2);
+
+        Journal first = new Journal(0, dirs.get(0), singleDirConf, ledgerDirsManager);
+        first.setLastLogMark(3L, 100L);
+        first.checkpointComplete(first.newCheckpoint(), false);
+        Journal second = new Journal(1, dirs.get(1), singleDirConf, ledgerDirsManager);
+        second.setLastLogMark(5L, 200L);
+        second.checkpointComplete(second.newCheckpoint(), false);
+
+        // the first journal keeps the lastMark file of a bookie with a single journal
+        File ledgerCurrentDir = ledgerDirsManager.getAllLedgerDirs().get(0);
+        assertTrue(new File(ledgerCurrentDir, "lastMark").exists());
+        assertTrue(new File(ledgerCurrentDir, "lastMark.1").exists());
+
+        LogMark mark = new Journal(1, dirs.get(1), singleDirConf, ledgerDirsManager).getLastLogMark().getCurMark();
+        assertEquals(5L, mark.getLogFileId());
+        assertEquals(200L, mark.getLogFileOffset());
+        mark = new Journal(0, dirs.get(0), singleDirConf, ledgerDirsManager).getLastLogMark().getCurMark();
+        assertEquals(3L, mark.getLogFileId());
+        assertEquals(100L, mark.getLogFileOffset());
+    }
+
+    @Test
+    public void testOrphanedStripeDirectories() throws Exception {
+        List<File> journalDirs = Arrays.asList(journalDir1, journalDir2);
+        for (File dir : Journal.getJournalStripeDirectories(journalDirs, 3)) {
+            assertTrue(dir.mkdirs());
+        }
+        assertTrue(new File(journalDir1, "stripe-x").mkdirs());
+
+        assertTrue(Journal.getOrphanedJournalStripeDirectories(journalDirs, 3).isEmpty());
+        SortedMap<Integer, File> orphans = Journal.getOrphanedJournalStripeDirectories(journalDirs, 2);
+        assertEquals(2, orphans.size());
+        assertEquals(new File(journalDir1, "stripe-2"), orphans.get(4));
+        assertEquals(new File(journalDir2, "stripe-2"), orphans.get(5));
+        assertEquals(4, Journal.getOrphanedJournalStripeDirectories(journalDirs, 1).size());
+    }
+
+    @Test
+    public void testEntriesAfterLastMark() throws Exception {
+        File stripeDir = new File(journalDir1, "stripe-1");
+        assertTrue(stripeDir.mkdirs());
+        Journal journal = new Journal(2, stripeDir, conf, ledgerDirsManager);
+        assertFalse(journal.hasEntriesAfterLastMark());
+
+        journal.start();
+        CountDownLatch written = new CountDownLatch(1);
+        ByteBuf entry = Unpooled.buffer(32);
+        entry.writeLong(1L).writeLong(0L).writeLong(0L).writeLong(0L);
+        journal.logAddEntry(entry, false, (rc, ledgerId, entryId, addr, ctx) -> written.countDown(), null);
+        assertTrue(written.await(10, TimeUnit.SECONDS));
+        journal.shutdown();
+
+        assertTrue(new Journal(2, stripeDir, conf, ledgerDirsManager).hasEntriesAfterLastMark());
+
+        // the entries are not replayed anymore once checkpointed
+        journal.checkpointComplete(journal.newCheckpoint(), false);
+        assertFalse(new Journal(2, stripeDir, conf, ledgerDirsManager).hasEntriesAfterLastMark());
+    }
+
+    @Test
+    public void testSelectLeastLoadedJournal() {
+        Journal idle = mockJournal(0L, 0);
+        Journal busy = mockJournal(4096L, 2);
+        Journal queued = mockJournal(0L, 3);
+        List<Journal> journals = Arrays.asList(busy, queued, idle, busy);
+
+        assertEquals(2, BookieImpl.selectLeastLoadedJournal(journals, 0L));
+        assertEquals(2, BookieImpl.selectLeastLoadedJournal(journals, 7L));
+
+        // ties are broken in favour of the journal the ledger id hashes to
+        journals = Arrays.asList(idle, busy, idle, idle);
+        assertEquals(0, BookieImpl.selectLeastLoadedJournal(journals, 0L));
+        assertEquals(2, BookieImpl.selectLeastLoadedJournal(journals, 2L));
+        assertEquals(3, BookieImpl.selectLeastLoadedJournal(journals, 7L));
+        assertEquals(2, BookieImpl.selectLeastLoadedJournal(journals, 5L));
+    }
+
+    private static Journal mockJournal(long memoryUsage, int queueLength) {
+        Journal journal = mock(Journal.class);
+        when(journal.getMemoryUsage()).thenReturn(memoryUsage);
+        when(journal.getJournalQueueLength()).thenReturn(queueLength);
+        return journal;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.meta.LedgerManager.LedgerRange;
+import org.apache.bookkeeper.meta.LedgerManager.LedgerRangeIterator;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.LedgerMetadataListener;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.versioning.LongVersion;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test garbage collection with the live ledger set.
+ */
+public class LiveLedgerSetGcTest {
+
+    @Test
+    public void testOnlyLedgersMissingFromTheSetAreVerified() throws Exception {
+        LedgerManager ledgerManager = mock(LedgerManager.class);
+        LedgerRangeIterator ranges = mock(LedgerRangeIterator.class);
+        when(ranges.hasNext()).thenReturn(true, false);
+        when(ranges.next()).thenReturn(new LedgerRange(new HashSet<>(Arrays.asList(1L, 2L))));
+        when(ledgerManager.getLedgerRanges(anyLong())).thenReturn(ranges);
+
+        Map<Long, LedgerMetadataListener> listeners = new HashMap<>();
+        doAnswer(invocation -> {
+            listeners.put(invocation.getArgument(0), invocation.getArgument(1));
+            return null;
+        }).when(ledgerManager).registerLedgerMetadataListener(anyLong(), any());
+
+        CompletableFuture<Versioned<LedgerMetadata>> missing = new CompletableFuture<>();
+        missing.completeExceptionally(new BKException.BKNoSuchLedgerExistsOnMetadataServerException());
+        when(ledgerManager.readLedgerMetadata(2L)).thenReturn(missing);
+        when(ledgerManager.readLedgerMetadata(3L)).thenReturn(missing);
+        when(ledgerManager.readLedgerMetadata(4L)).thenReturn(CompletableFuture.completedFuture(
+                new Versioned<>(mock(LedgerMetadata.class), new LongVersion(0))));
+
+        CompactableLedgerStorage storage = mock(CompactableLedgerStorage.class);
+        when(storage.getActiveLedgersInRange(anyLong(), anyLong())).thenReturn(Arrays.asList(1L, 2L, 3L, 4L));
+
+        ServerConfiguration conf = new ServerConfiguration();
+        conf.setBookieId("bookie-1");
+        conf.setGcLiveLedgerSetEnabled(true);
+        conf.setGcLiveLedgerSetExpectedLedgers(1000);
+        ScanAndCompareGarbageCollector gc =
+                new ScanAndCompareGarbageCollector(ledgerManager, storage, conf, NullStatsLogger.INSTANCE);
+
+        List<Long> cleaned = new ArrayList<>();
+        gc.gc(cleaned::add);
+
+        // 3 is not in the metadata store and 4 was created after the scan
+        assertEquals(Arrays.asList(3L), cleaned);
+        verify(ledgerManager, never()).readLedgerMetadata(1L);
+        verify(ledgerManager, never()).readLedgerMetadata(2L);
+        assertEquals(4, listeners.size());
+
+        // ledger 2 is deleted, its watch reports it without another scan of the metadata store
+        when(storage.getActiveLedgersInRange(anyLong(), anyLong())).thenReturn(Arrays.asList(1L, 2L, 4L));
+        listeners.get(2L).onChanged(2L, null);
+        cleaned.clear();
+        gc.gc(cleaned::add);
+
+        assertEquals(Arrays.asList(2L), cleaned);
+        verify(ledgerManager, times(1)).getLedgerRanges(anyLong());
+        verify(ledgerManager, times(1)).readLedgerMetadata(4L);
+        verify(ledgerManager).unregisterLedgerMetadataListener(eq(3L), any());
+    }
+
+    @Test
+    public void testLedgersWithUnreadableMetadataAreVerifiedAgain() throws Exception {
+        LedgerManager ledgerManager = mock(LedgerManager.class);
+        LedgerRangeIterator ranges = mock(LedgerRangeIterator.class);
+        when(ranges.hasNext()).thenReturn(true, false);
+        when(ranges.next()).thenReturn(new LedgerRange(new HashSet<>(Arrays.asList(1L))));
+        when(ledgerManager.getLedgerRanges(anyLong())).thenReturn(ranges);
+
+        CompletableFuture<Versioned<LedgerMetadata>> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new BKException.ZKException());
+        when(ledgerManager.readLedgerMetadata(2L)).thenReturn(failed, failed, CompletableFuture.completedFuture(
+                new Versioned<>(mock(LedgerMetadata.class), new LongVersion(0))));
+
+        CompactableLedgerStorage storage = mock(CompactableLedgerStorage.class);
+        when(storage.getActiveLedgersInRange(anyLong(), anyLong())).thenReturn(Arrays.asList(1L, 2L));
+
+        ServerConfiguration conf = new ServerConfiguration();
+        conf.setBookieId("bookie-1");
+        conf.setGcLiveLedgerSetEnabled(true);
+        conf.setGcLiveLedgerSetExpectedLedgers(1000);
+        ScanAndCompareGarbageCollector gc =
+                new ScanAndCompareGarbageCollector(ledgerManager, storage, conf, NullStatsLogger.INSTANCE);
+
+        List<Long> cleaned = new ArrayList<>();
+        gc.gc(cleaned::add);
+        gc.gc(cleaned::add);
+        // the metadata could not be read, so the ledger is kept but not added to the set
+        verify(ledgerManager, times(2)).readLedgerMetadata(2L);
+
+        gc.gc(cleaned::add);
+        gc.gc(cleaned::add);
+        // once read, the ledger is in the set and is not verified anymore
+        verify(ledgerManager, times(3)).readLedgerMetadata(2L);
+        assertEquals(0, cleaned.size());
+    }
+
+    @Test
+    public void testWatchRegistrationsAreRateLimited() {
+        LedgerManager ledgerManager = mock(LedgerManager.class);
+        LiveLedgerSet liveLedgerSet = new LiveLedgerSet(ledgerManager, 1000, 1);
+
+        for (long ledgerId = 0; ledgerId < 100; ledgerId++) {
+            liveLedgerSet.watch(ledgerId);
+        }
+        // a single permit is available right away, the other ledgers are watched by the next runs
+        verify(ledgerManager, times(1)).registerLedgerMetadataListener(anyLong(), any());
+        verify(ledgerManager).registerLedgerMetadataListener(eq(0L), any());
+        assertEquals(1, liveLedgerSet.getNumWatchedLedgers());
+
+        // a watched ledger does not use a permit
+        liveLedgerSet.watch(0L);
+        verify(ledgerManager, times(1)).registerLedgerMetadataListener(anyLong(), any());
+
+        LiveLedgerSet unlimited = new LiveLedgerSet(ledgerManager, 1000, 0);
+        for (long ledgerId = 0; ledgerId < 100; ledgerId++) {
+            unlimited.watch(ledgerId);
+        }
+        assertEquals(100, unlimited.getNumWatchedLedgers());
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test {@link MappedEntryLogMetadataMap}.
+ */
+public class MappedEntryLogMetadataMapTest {
+
+    private File tmpDir;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        tmpDir = Files.createTempDirectory("mapped-metadata").toFile();
+    }
+
+    @AfterEach
+    public void teardown() throws Exception {
+        FileUtils.deleteDirectory(tmpDir);
+    }
+
+    @Test
+    public void testRemovedLedgersAreKeptAcrossRestarts() throws Exception {
+        MappedEntryLogMetadataMap map = new MappedEntryLogMetadataMap(tmpDir.getPath());
+        EntryLogMetadata meta = new EntryLogMetadata(7L);
+        for (long ledgerId = 10; ledgerId > 0; ledgerId--) {
+            meta.addLedgerSize(ledgerId, 100);
+        }
+        map.put(7L, meta);
+
+        map.forKey(7L, (entryLogId, mapped) -> {
+            assertTrue(mapped.containsLedger(3L));
+            mapped.removeLedgerIf(ledgerId -> ledgerId <= 3);
+            assertFalse(mapped.containsLedger(3L));
+            assertTrue(mapped.containsLedger(4L));
+            assertEquals(0.7, mapped.getUsage(), 0.001);
+        });
+        map.close();
+
+        map = new MappedEntryLogMetadataMap(tmpDir.getPath());
+        assertEquals(1, map.size());
+        map.forKey(7L, (entryLogId, mapped) -> {
+            assertEquals(1000L, mapped.getTotalSize());
+            assertEquals(700L, mapped.getRemainingSize());
+            assertEquals(7, mapped.getLedgersMap().size());
+            assertFalse(mapped.containsLedger(2L));
+            assertFalse(mapped.isEmpty());
+        });
+
+        map.remove(7L);
+        assertTrue(map.isEmpty());
+        assertEquals(0, new MappedEntryLogMetadataMap(tmpDir.getPath()).size());
+    }
+
+    @Test
+    public void testFileIsRewrittenOnceMostLedgersAreRemoved() throws Exception {
+        MappedEntryLogMetadataMap map = new MappedEntryLogMetadataMap(tmpDir.getPath());
+        EntryLogMetadata meta = new EntryLogMetadata(1L);
+        for (long ledgerId = 0; ledgerId < 4; ledgerId++) {
+            meta.addLedgerSize(ledgerId, 10);
+        }
+        map.put(1L, meta);
+        File file = new File(new File(tmpDir, "metadata-cache-mapped"), "1" + MappedEntryLogMetadataMap.FILE_SUFFIX);
+        assertEquals(32 + 16 * 4, file.length());
+
+        AtomicInteger removed = new AtomicInteger();
+        map.forEach((entryLogId, mapped) -> {
+            mapped.removeLedgerIf(ledgerId -> ledgerId == 0);
+            removed.incrementAndGet();
+            try {
+                map.put(entryLogId, mapped);
+            } catch (BookieException.EntryLogMetadataMapException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertEquals(1, removed.get());
+        assertEquals(32 + 16 * 4, file.length());
+
+        map.forKey(1L, (entryLogId, mapped) -> {
+            mapped.removeLedgerIf(ledgerId -> ledgerId < 3);
+            try {
+                map.put(entryLogId, mapped);
+            } catch (BookieException.EntryLogMetadataMapException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertEquals(32 + 16, file.length());
+        map.forKey(1L, (entryLogId, mapped) -> {
+            assertTrue(mapped.containsLedger(3L));
+            assertEquals(10L, mapped.getRemainingSize());
+            assertEquals(40L, mapped.getTotalSize());
+        });
+    }
+
+    @Test
+    public void testLedgersAddedToTheViewAreWrittenOnPut() throws Exception {
+        final MappedEntryLogMetadataMap map = new MappedEntryLogMetadataMap(tmpDir.getPath());
+        EntryLogMetadata meta = new EntryLogMetadata(2L);
+        meta.addLedgerSize(5L, 10);
+        meta.addLedgerSize(6L, 10);
+        map.put(2L, meta);
+
+        map.forKey(2L, (entryLogId, mapped) -> {
+            mapped.removeLedgerIf(ledgerId -> ledgerId == 6L);
+            mapped.addLedgerSize(5L, 5);
+            mapped.addLedgerSize(6L, 1);
+            mapped.addLedgerSize(1L, 20);
+            assertTrue(mapped.containsLedger(1L));
+            assertTrue(mapped.containsLedger(6L));
+            assertEquals(46L, mapped.getTotalSize());
+            assertEquals(36L, mapped.getRemainingSize());
+            assertEquals(3, mapped.getLedgersMap().size());
+            assertEquals(15L, mapped.getLedgersMap().get(5L));
+            assertEquals(1L, mapped.getLedgersMap().get(6L));
+            try {
+                map.put(entryLogId, mapped);
+            } catch (BookieException.EntryLogMetadataMapException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        map.close();
+
+        MappedEntryLogMetadataMap reloaded = new MappedEntryLogMetadataMap(tmpDir.getPath());
+        reloaded.forKey(2L, (entryLogId, mapped) -> {
+            assertEquals(46L, mapped.getTotalSize());
+            assertEquals(36L, mapped.getRemainingSize());
+            assertEquals(20L, mapped.getLedgersMap().get(1L));
+            assertEquals(15L, mapped.getLedgersMap().get(5L));
+
+            mapped.clear();
+            assertTrue(mapped.isEmpty());
+            assertEquals(0L, mapped.getRemainingSize());
+        });
+        reloaded.close();
+
+        // clearing the view removed the ledgers from the file
+        reloaded = new MappedEntryLogMetadataMap(tmpDir.getPath());
+        reloaded.forKey(2L, (entryLogId, mapped) -> assertTrue(mapped.isEmpty()));
+        reloaded.close();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+public class ClockReadCacheTest {
+
+    private static ByteBuf entry(long ledgerId, long entryId, int size) {
+        ByteBuf entry = Unpooled.buffer(size);
+        entry.writeLong(ledgerId);
+        entry.writeLong(entryId);
+        entry.writerIndex(size);
+        return entry;
+    }
+
+    @Test
+    public void putAndGet() {
+        ClockReadCache cache = new ClockReadCache(ByteBufAllocator.DEFAULT, 4 * 1024, 2, 2);
+
+        assertEquals(0, cache.count());
+        assertNull(cache.get(1, 0));
+
+        for (int i = 0; i < 4; i++) {
+            ByteBuf e = entry(1, i, 64);
+            cache.put(1, i, e);
+            e.release();
+        }
+
+        assertEquals(4, cache.count());
+        assertEquals(4 * 64, cache.size());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(cache.hasEntry(1, i));
+            ByteBuf res = cache.get(1, i);
+            assertNotNull(res);
+            assertEquals(64, res.readableBytes());
+            assertEquals(1, res.getLong(0));
+            assertEquals(i, res.getLong(8));
+            res.release();
+        }
+        assertFalse(cache.hasEntry(2, 0));
+
+        cache.close();
+    }
+
+    @Test
+    public void referencedEntriesSurviveEviction() {
+        // single stripe with 4 segments of 1KB
+        ClockReadCache cache = new ClockReadCache(ByteBufAllocator.DEFAULT, 4 * 1024, 1, 4);
+        assertEquals(1, cache.getStripesCount());
+        assertEquals(1024, cache.getSegmentSize());
+
+        ByteBuf hot = entry(1, 0, 512);
+        cache.put(1, 0, hot);
+        hot.release();
+
+        // keep reading the hot entry while filling the cache many times over with cold ones
+        for (int i = 1; i < 200; i++) {
+            ByteBuf e = entry(2, i, 512);
+            cache.put(2, i, e);
+            e.release();
+
+            ByteBuf res = cache.get(1, 0);
+            assertNotNull(res, "hot entry evicted after " + i + " puts");
+            res.release();
+        }
+
+        // cold entries have been evicted
+        assertFalse(cache.hasEntry(2, 1));
+        assertTrue(cache.hasEntry(2, 199));
+        assertTrue(cache.count() <= 8);
+
+        cache.close();
+    }
+
+    @Test
+    public void entryLargerThanSegment() {
+        ClockReadCache cache = new ClockReadCache(ByteBufAllocator.DEFAULT, 4 * 1024, 1, 4);
+
+        ByteBuf e = entry(1, 0, 2048);
+        cache.put(1, 0, e);
+        e.release();
+
+        assertEquals(0, cache.count());
+        assertNull(cache.get(1, 0));
+
+        cache.close();
+    }
+}
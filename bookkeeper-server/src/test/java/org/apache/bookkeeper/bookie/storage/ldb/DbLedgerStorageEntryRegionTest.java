@@ -0,0 +1,117 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.FileRegion;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import org.apache.bookkeeper.bookie.BookieImpl;
+import org.apache.bookkeeper.bookie.TestBookieImpl;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class DbLedgerStorageEntryRegionTest {
+
+    private static final int MIN_SIZE = 1024;
+
+    private DbLedgerStorage storage;
+    private File tmpDir;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        tmpDir = File.createTempFile("bkTest", ".dir");
+        tmpDir.delete();
+        tmpDir.mkdir();
+        BookieImpl.checkDirectoryStructure(BookieImpl.getCurrentDirectory(tmpDir));
+
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setLedgerStorageClass(DbLedgerStorage.class.getName());
+        conf.setLedgerDirNames(new String[] { tmpDir.toString() });
+        storage = (DbLedgerStorage) new TestBookieImpl(conf).getLedgerStorage();
+        storage.setMasterKey(1, "key".getBytes());
+    }
+
+    @AfterEach
+    public void teardown() throws Exception {
+        storage.shutdown();
+        FileUtils.deleteDirectory(tmpDir);
+    }
+
+    private static ByteBuf entry(long entryId, int payloadSize) {
+        ByteBuf entry = Unpooled.buffer();
+        entry.writeLong(1); // ledger id
+        entry.writeLong(entryId);
+        for (int i = 0; i < payloadSize; i++) {
+            entry.writeByte((int) (entryId + i));
+        }
+        return entry;
+    }
+
+    private static byte[] transfer(FileRegion region) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        while (region.transferred() < region.count()) {
+            region.transferTo(target, region.transferred());
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void regionMatchesStoredEntry() throws Exception {
+        storage.addEntry(entry(0, 4 * MIN_SIZE));
+        storage.addEntry(entry(1, 16));
+
+        // Entries in the write cache are served from memory
+        assertNull(storage.getEntryRegion(1, 0, MIN_SIZE));
+
+        storage.flush();
+
+        FileRegion region = storage.getEntryRegion(1, 0, MIN_SIZE);
+        assertNotNull(region);
+        try {
+            ByteBuf expected = storage.getEntry(1, 0);
+            assertEquals(expected.readableBytes(), region.count());
+            assertArrayEquals(ByteBufUtil.getBytes(expected), transfer(region));
+            expected.release();
+        } finally {
+            region.release();
+        }
+
+        // Too small to be worth a file transfer
+        assertNull(storage.getEntryRegion(1, 1, MIN_SIZE));
+        // Unknown entries are left to the regular read path
+        assertNull(storage.getEntryRegion(1, 2, MIN_SIZE));
+    }
+}
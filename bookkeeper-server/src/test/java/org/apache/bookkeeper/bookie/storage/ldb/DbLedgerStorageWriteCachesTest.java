@@ -0,0 +1,219 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.bookkeeper.bookie.BookieException.OperationRejectedException;
+import org.apache.bookkeeper.bookie.BookieImpl;
+import org.apache.bookkeeper.bookie.LedgerDirsManager;
+import org.apache.bookkeeper.bookie.TestBookieImpl;
+import org.apache.bookkeeper.bookie.storage.EntryLogger;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.test.TestStatsProvider;
+import org.apache.bookkeeper.test.TestStatsProvider.TestOpStatsLogger;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class DbLedgerStorageWriteCachesTest {
+
+    private static final int ENTRY_SIZE = 100 * 1024;
+
+    /**
+     * DbLedgerStorage whose entry log flushes can be held or failed by the test.
+     */
+    public static class ControlledFlushDbLedgerStorage extends DbLedgerStorage {
+        static volatile CountDownLatch flushGate;
+        static final AtomicInteger FLUSH_FAILURES = new AtomicInteger();
+        static volatile EntryLogger entryLogger;
+        static volatile TestStatsProvider statsProvider;
+
+        @Override
+        protected SingleDirectoryDbLedgerStorage newSingleDirectoryDbLedgerStorage(ServerConfiguration conf,
+                LedgerManager ledgerManager, LedgerDirsManager ledgerDirsManager, LedgerDirsManager indexDirsManager,
+                EntryLogger realEntryLogger, StatsLogger statsLogger, long writeCacheSize, long readCacheSize,
+                int readAheadCacheBatchSize) throws IOException {
+            EntryLogger controlled = mock(EntryLogger.class,
+                    withSettings().defaultAnswer(delegatesTo(realEntryLogger)));
+            doAnswer(invocation -> {
+                flushGate.await();
+                if (FLUSH_FAILURES.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                    throw new IOException("Injected entry log flush failure");
+                }
+                realEntryLogger.flush();
+                return null;
+            }).when(controlled).flush();
+            entryLogger = controlled;
+            statsProvider = new TestStatsProvider();
+            return super.newSingleDirectoryDbLedgerStorage(conf, ledgerManager, ledgerDirsManager, indexDirsManager,
+                    controlled, statsProvider.getStatsLogger(""), writeCacheSize, readCacheSize,
+                    readAheadCacheBatchSize);
+        }
+    }
+
+    private DbLedgerStorage storage;
+    private File tmpDir;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        ControlledFlushDbLedgerStorage.flushGate = new CountDownLatch(0);
+        ControlledFlushDbLedgerStorage.FLUSH_FAILURES.set(0);
+
+        tmpDir = File.createTempFile("bkTest", ".dir");
+        tmpDir.delete();
+        tmpDir.mkdir();
+        BookieImpl.checkDirectoryStructure(BookieImpl.getCurrentDirectory(tmpDir));
+
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setLedgerStorageClass(ControlledFlushDbLedgerStorage.class.getName());
+        conf.setLedgerDirNames(new String[] { tmpDir.toString() });
+        // 4 write caches of 1MB
+        conf.setProperty(DbLedgerStorage.WRITE_CACHE_MAX_SIZE_MB, 4);
+        conf.setProperty(DbLedgerStorage.WRITE_CACHES_COUNT, 4);
+        // a write waiting for a free write cache fails quickly
+        conf.setProperty(DbLedgerStorage.MAX_THROTTLE_TIME_MILLIS, 100);
+        storage = (DbLedgerStorage) new TestBookieImpl(conf).getLedgerStorage();
+        storage.setMasterKey(1, "key".getBytes());
+    }
+
+    @AfterEach
+    public void teardown() throws Exception {
+        ControlledFlushDbLedgerStorage.flushGate.countDown();
+        storage.shutdown();
+        FileUtils.deleteDirectory(tmpDir);
+    }
+
+    private static ByteBuf entry(long entryId) {
+        ByteBuf entry = Unpooled.buffer(16 + ENTRY_SIZE);
+        entry.writeLong(1); // ledger id
+        entry.writeLong(entryId);
+        for (int i = 0; i < ENTRY_SIZE; i++) {
+            entry.writeByte((int) (entryId + i));
+        }
+        return entry;
+    }
+
+    private void verifyEntries(int numEntries) throws Exception {
+        for (long entryId = 0; entryId < numEntries; entryId++) {
+            ByteBuf expected = entry(entryId);
+            ByteBuf read = storage.getEntry(1, entryId);
+            assertArrayEquals(ByteBufUtil.getBytes(expected), ByteBufUtil.getBytes(read));
+            read.release();
+        }
+    }
+
+    @Test
+    public void writesGoOnWhileSeveralWriteCachesWaitForTheFlush() throws Exception {
+        ControlledFlushDbLedgerStorage.flushGate = new CountDownLatch(1);
+
+        // fills 3 write caches, with the flush of the first one held: the writes are not throttled
+        int numEntries = 30;
+        for (long entryId = 0; entryId < numEntries; entryId++) {
+            storage.addEntry(entry(entryId));
+        }
+        // the entries of the write caches being flushed are still readable
+        verifyEntries(numEntries);
+
+        ControlledFlushDbLedgerStorage.flushGate.countDown();
+        storage.flush();
+        verifyEntries(numEntries);
+        assertFalse(storage.getLedgerStorageList().get(0).isFlushRequired());
+    }
+
+    @Test
+    public void writesAreRejectedOnceEveryWriteCacheWaitsForTheFlush() throws Exception {
+        ControlledFlushDbLedgerStorage.flushGate = new CountDownLatch(1);
+
+        assertThrows(OperationRejectedException.class, () -> {
+            for (long entryId = 0; entryId < 100; entryId++) {
+                storage.addEntry(entry(entryId));
+            }
+        });
+    }
+
+    @Test
+    public void failedFlushIsRetried() throws Exception {
+        int numEntries = 15;
+        for (long entryId = 0; entryId < numEntries; entryId++) {
+            storage.addEntry(entry(entryId));
+        }
+        // wait for the flush triggered by the first full write cache
+        storage.flush();
+
+        // not enough to fill a write cache and trigger a flush in background
+        int totalEntries = numEntries + 5;
+        for (long entryId = numEntries; entryId < totalEntries; entryId++) {
+            storage.addEntry(entry(entryId));
+        }
+        ControlledFlushDbLedgerStorage.FLUSH_FAILURES.set(1);
+        assertThrows(IOException.class, () -> storage.flush());
+        // the write cache whose flush failed is queued again and its entries are still readable
+        assertTrue(storage.getLedgerStorageList().get(0).isFlushRequired());
+        verifyEntries(totalEntries);
+
+        storage.flush();
+        assertFalse(storage.getLedgerStorageList().get(0).isFlushRequired());
+        verifyEntries(totalEntries);
+    }
+
+    @Test
+    public void checkpointWithEmptyWriteCachesDoesNotFlush() throws Exception {
+        storage.addEntry(entry(0));
+        storage.flush();
+        // the stats are scoped by ledger and index directory
+        AtomicReference<TestOpStatsLogger> flushStatsRef = new AtomicReference<>();
+        ControlledFlushDbLedgerStorage.statsProvider.forEachOpStatLogger((name, stats) -> {
+            if (name.endsWith(".flush")) {
+                flushStatsRef.set(stats);
+            }
+        });
+        TestOpStatsLogger flushStats = flushStatsRef.get();
+        verify(ControlledFlushDbLedgerStorage.entryLogger, times(1)).flush();
+        assertEquals(1, flushStats.getSuccessCount());
+
+        storage.flush();
+        verify(ControlledFlushDbLedgerStorage.entryLogger, times(1)).flush();
+        assertEquals(1, flushStats.getSuccessCount());
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.EntryLocation;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class EntryLocationIndexTest {
+
+    private File tmpDir;
+    private final ServerConfiguration conf = new ServerConfiguration();
+
+    @BeforeEach
+    public void setup() throws Exception {
+        tmpDir = Files.createTempDirectory("locations").toFile();
+        conf.setProperty(DbLedgerStorage.ENTRY_LOCATION_PACKING_ENABLED, true);
+        conf.setProperty(DbLedgerStorage.ENTRY_LOCATION_PACKING_IDLE_FLUSHES, 1);
+    }
+
+    @AfterEach
+    public void teardown() throws Exception {
+        FileUtils.deleteDirectory(tmpDir);
+    }
+
+    @Test
+    public void packedLocations() throws Exception {
+        long[] locations = new long[PackedEntryLocations.SEGMENT_SIZE];
+        for (int i = 10; i < 1000; i++) {
+            locations[i] = (3L << 32) + i * 100 + (i % 7 == 0 ? 5_000_000 : 0);
+        }
+        locations[500] = 0;
+
+        byte[] segment = PackedEntryLocations.encode(4096, locations);
+        assertEquals(4096 + 999, PackedEntryLocations.lastEntryId(segment));
+        for (int i = 0; i < locations.length; i++) {
+            assertEquals(locations[i], PackedEntryLocations.getLocation(segment, 4096 + i));
+        }
+
+        long[] decoded = new long[PackedEntryLocations.SEGMENT_SIZE];
+        PackedEntryLocations.decode(segment, decoded);
+        assertEquals(locations.length, decoded.length);
+        for (int i = 0; i < locations.length; i++) {
+            assertEquals(locations[i], decoded[i]);
+        }
+    }
+
+    @Test
+    public void packIdleLedgers() throws Exception {
+        EntryLocationIndex index = new EntryLocationIndex(conf, KeyValueStorageRocksDB.factory,
+                tmpDir.getAbsolutePath(), NullStatsLogger.INSTANCE);
+
+        for (long entryId = 0; entryId < 10_000; entryId++) {
+            index.addLocation(1, entryId, entryId + 1);
+        }
+        index.addLocation(2, 0, 100);
+
+        index.packIdleLedgers();
+        index.addLocation(2, 1, 101);
+        index.packIdleLedgers();
+
+        // Ledger 1 is packed, ledger 2 is still being written
+        assertEquals(1, index.getLocation(1, 0));
+        assertEquals(10_000, index.getLocation(1, 9_999));
+        assertEquals(0, index.getLocation(1, 10_000));
+        assertEquals(9_999, index.getLastEntryInLedger(1));
+        assertEquals(101, index.getLocation(2, 1));
+
+        // Updates and new entries after packing take precedence
+        index.updateLocations(Collections.singletonList(new EntryLocation(1, 5, 555)));
+        index.addLocation(1, 10_000, 10_001);
+        assertEquals(555, index.getLocation(1, 5));
+        assertEquals(10_000, index.getLastEntryInLedger(1));
+
+        index.packIdleLedgers();
+        index.packIdleLedgers();
+        assertEquals(555, index.getLocation(1, 5));
+        assertEquals(10_001, index.getLocation(1, 10_000));
+        assertEquals(10_000, index.getLastEntryInLedger(1));
+        assertEquals(1, index.getLastEntryInLedger(2));
+
+        index.delete(1);
+        index.removeOffsetFromDeletedLedgers();
+        assertEquals(0, index.getLocation(1, 5));
+        assertThrows(Bookie.NoEntryException.class, () -> index.getLastEntryInLedger(1));
+        assertEquals(100, index.getLocation(2, 0));
+
+        index.close();
+    }
+
+    @Test
+    public void missesDoNotReadSegmentsWithoutPacking() throws Exception {
+        conf.setProperty(DbLedgerStorage.ENTRY_LOCATION_PACKING_ENABLED, false);
+        KeyValueStorage[] storage = new KeyValueStorage[1];
+        KeyValueStorageFactory factory = (basePath, subPath, dbConfigType, conf) -> {
+            KeyValueStorage real = KeyValueStorageRocksDB.factory.newKeyValueStorage(basePath, subPath,
+                    dbConfigType, conf);
+            storage[0] = mock(KeyValueStorage.class, withSettings().defaultAnswer(delegatesTo(real)));
+            return storage[0];
+        };
+        EntryLocationIndex index = new EntryLocationIndex(conf, factory, tmpDir.getAbsolutePath(),
+                NullStatsLogger.INSTANCE);
+
+        index.addLocation(1, 0, 100);
+        assertEquals(100, index.getLocation(1, 0));
+        assertEquals(0, index.getLocation(1, 1));
+        verify(storage[0], never()).get(any(byte[].class));
+
+        index.close();
+    }
+
+    @Test
+    public void packedSegmentsAreFoundAfterDisablingPacking() throws Exception {
+        EntryLocationIndex index = new EntryLocationIndex(conf, KeyValueStorageRocksDB.factory,
+                tmpDir.getAbsolutePath(), NullStatsLogger.INSTANCE);
+        for (long entryId = 0; entryId < 100; entryId++) {
+            index.addLocation(1, entryId, entryId + 1);
+        }
+        index.packLedger(1);
+        index.close();
+
+        conf.setProperty(DbLedgerStorage.ENTRY_LOCATION_PACKING_ENABLED, false);
+        EntryLocationIndex reopened = new EntryLocationIndex(conf, KeyValueStorageRocksDB.factory,
+                tmpDir.getAbsolutePath(), NullStatsLogger.INSTANCE);
+        assertEquals(1, reopened.getLocation(1, 0));
+        assertEquals(100, reopened.getLocation(1, 99));
+        assertEquals(0, reopened.getLocation(1, 100));
+
+        reopened.close();
+    }
+}
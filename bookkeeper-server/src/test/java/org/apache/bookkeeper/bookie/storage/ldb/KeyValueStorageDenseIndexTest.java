@@ -0,0 +1,237 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map.Entry;
+import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorage.Batch;
+import org.apache.bookkeeper.bookie.storage.ldb.KeyValueStorage.CloseableIterator;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class KeyValueStorageDenseIndexTest {
+
+    private File tmpDir;
+    private final ServerConfiguration conf = new ServerConfiguration();
+
+    @BeforeEach
+    public void setup() throws Exception {
+        tmpDir = Files.createTempDirectory("dense-index").toFile();
+    }
+
+    @AfterEach
+    public void teardown() throws Exception {
+        FileUtils.deleteDirectory(tmpDir);
+    }
+
+    private KeyValueStorage open() throws Exception {
+        return new KeyValueStorageDenseIndex(tmpDir.toString(), "locations", conf, false);
+    }
+
+    private static byte[] key(long ledgerId, long entryId) {
+        return LongPairWrapper.get(ledgerId, entryId).array;
+    }
+
+    private static byte[] value(long location) {
+        byte[] value = new byte[8];
+        ArrayUtil.setLong(value, 0, location);
+        return value;
+    }
+
+    private static long location(KeyValueStorage db, long ledgerId, long entryId) throws Exception {
+        byte[] value = db.get(key(ledgerId, entryId));
+        return value == null ? 0 : ArrayUtil.getLong(value, 0);
+    }
+
+    private static void fill(KeyValueStorage db, long ledgerId, long firstEntryId, long lastEntryId)
+            throws Exception {
+        try (Batch batch = db.newBatch()) {
+            for (long entryId = firstEntryId; entryId <= lastEntryId; entryId++) {
+                batch.put(key(ledgerId, entryId), value(ledgerId * 1000 + entryId + 1));
+            }
+            batch.flush();
+        }
+    }
+
+    @Test
+    public void lookups() throws Exception {
+        KeyValueStorage db = open();
+        fill(db, 1, 0, 9);
+        fill(db, 3, 5, 7);
+
+        assertEquals(13, db.count());
+        assertEquals(1001, location(db, 1, 0));
+        assertEquals(3008, location(db, 3, 7));
+        assertEquals(0, location(db, 2, 0));
+        assertEquals(0, location(db, 3, 4));
+
+        Entry<byte[], byte[]> floor = db.getFloor(key(3, Long.MAX_VALUE));
+        assertEquals(3, ArrayUtil.getLong(floor.getKey(), 0));
+        assertEquals(7, ArrayUtil.getLong(floor.getKey(), 8));
+        floor = db.getFloor(key(3, 5));
+        assertEquals(1, ArrayUtil.getLong(floor.getKey(), 0));
+        assertEquals(9, ArrayUtil.getLong(floor.getKey(), 8));
+        assertNull(db.getFloor(key(1, 0)));
+
+        Entry<byte[], byte[]> ceil = db.getCeil(key(1, 10));
+        assertEquals(3, ArrayUtil.getLong(ceil.getKey(), 0));
+        assertEquals(5, ArrayUtil.getLong(ceil.getKey(), 8));
+        assertEquals(3006, ArrayUtil.getLong(ceil.getValue(), 0));
+        assertNull(db.getCeil(key(3, 8)));
+
+        int count = 0;
+        try (CloseableIterator<byte[]> keys = db.keys(key(1, 8), key(3, 6))) {
+            while (keys.hasNext()) {
+                keys.next();
+                count++;
+            }
+        }
+        assertEquals(3, count);
+
+        db.close();
+    }
+
+    @Test
+    public void deleteAndRecover() throws Exception {
+        KeyValueStorage db = open();
+        fill(db, 1, 0, 99);
+        fill(db, 2, 0, 99);
+        db.delete(key(2, 50));
+
+        try (Batch batch = db.newBatch()) {
+            batch.deleteRange(key(1, 0), key(1, Long.MAX_VALUE));
+            batch.flush();
+        }
+        assertEquals(99, db.count());
+        assertEquals(0, location(db, 1, 10));
+        assertEquals(0, location(db, 2, 50));
+        db.close();
+
+        // Replay the log
+        db = open();
+        assertEquals(99, db.count());
+        assertEquals(0, location(db, 1, 10));
+        assertEquals(0, location(db, 2, 50));
+        assertEquals(2050, location(db, 2, 49));
+
+        // Write a snapshot, then update on top of it
+        db.compact();
+        fill(db, 1, 0, 4);
+        db.delete(key(2, 0));
+        try (Batch batch = db.newBatch()) {
+            batch.deleteRange(key(2, 90), key(2, Long.MAX_VALUE));
+            batch.flush();
+        }
+        assertEquals(0, location(db, 2, 0));
+        assertEquals(2090, location(db, 2, 89));
+        assertEquals(0, location(db, 2, 95));
+        db.close();
+
+        db = open();
+        assertEquals(5 + 88, db.count());
+        assertEquals(1005, location(db, 1, 4));
+        assertEquals(0, location(db, 2, 0));
+        assertEquals(2002, location(db, 2, 1));
+        assertEquals(0, location(db, 2, 50));
+        assertEquals(0, location(db, 2, 95));
+
+        Entry<byte[], byte[]> floor = db.getFloor(key(2, Long.MAX_VALUE));
+        assertEquals(89, ArrayUtil.getLong(floor.getKey(), 8));
+
+        db.compact();
+        db.close();
+        assertFalse(new File(tmpDir, "locations/snapshot-1").exists());
+
+        db = open();
+        assertEquals(5 + 88, db.count());
+        assertEquals(2090, location(db, 2, 89));
+        db.close();
+    }
+
+    @Test
+    public void sparseEntryIds() throws Exception {
+        long far = 1_000_000_000_000L;
+        long farther = 1L << 62;
+        KeyValueStorage db = open();
+        fill(db, 1, 0, 2);
+        db.put(key(1, far), value(10));
+        db.put(key(1, farther), value(20));
+        fill(db, 2, 0, 0);
+        assertEquals(6, db.count());
+
+        for (int i = 0; i < 2; i++) {
+            // lookups must skip the holes instead of scanning them
+            assertEquals(10, location(db, 1, far));
+            assertEquals(0, location(db, 1, far + 1));
+            Entry<byte[], byte[]> ceil = db.getCeil(key(1, 3));
+            assertEquals(far, ArrayUtil.getLong(ceil.getKey(), 8));
+            ceil = db.getCeil(key(1, far + 1));
+            assertEquals(farther, ArrayUtil.getLong(ceil.getKey(), 8));
+            Entry<byte[], byte[]> floor = db.getFloor(key(1, far));
+            assertEquals(2, ArrayUtil.getLong(floor.getKey(), 8));
+            floor = db.getFloor(key(2, 0));
+            assertEquals(farther, ArrayUtil.getLong(floor.getKey(), 8));
+
+            // the same lookups against the snapshot
+            db.compact();
+        }
+
+        // tombstones on top of the snapshot
+        db.delete(key(1, far));
+        Entry<byte[], byte[]> ceil = db.getCeil(key(1, 3));
+        assertEquals(farther, ArrayUtil.getLong(ceil.getKey(), 8));
+        try (Batch batch = db.newBatch()) {
+            batch.deleteRange(key(1, 1), key(1, farther));
+            batch.flush();
+        }
+        assertEquals(3, db.count());
+        db.close();
+
+        db = open();
+        assertEquals(3, db.count());
+        assertEquals(1001, location(db, 1, 0));
+        assertEquals(0, location(db, 1, 2));
+        assertEquals(20, location(db, 1, farther));
+        db.compact();
+        Entry<byte[], byte[]> floor = db.getFloor(key(1, farther));
+        assertEquals(0, ArrayUtil.getLong(floor.getKey(), 8));
+        db.close();
+    }
+
+    @Test
+    public void refuseRocksDbDirectory() throws Exception {
+        KeyValueStorage rocksDb = new KeyValueStorageRocksDB(tmpDir.toString(), "locations",
+                KeyValueStorageFactory.DbConfigType.Default, conf);
+        rocksDb.close();
+
+        assertThrows(IOException.class, this::open);
+    }
+}
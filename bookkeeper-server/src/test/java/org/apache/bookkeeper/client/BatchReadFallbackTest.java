@@ -0,0 +1,115 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
+import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test the batch reads served by regular range reads.
+ */
+public class BatchReadFallbackTest {
+
+    private static LedgerEntries entries(long firstEntry, long lastEntry, int entrySize, List<ByteBuf> buffers) {
+        List<LedgerEntry> entries = new ArrayList<>();
+        for (long entryId = firstEntry; entryId <= lastEntry; entryId++) {
+            ByteBuf buf = Unpooled.buffer(entrySize).writerIndex(entrySize);
+            buffers.add(buf);
+            entries.add(LedgerEntryImpl.create(1L, entryId, entrySize, buf));
+        }
+        return LedgerEntriesImpl.create(entries);
+    }
+
+    private static int code(ExecutionException e) {
+        return ((org.apache.bookkeeper.client.api.BKException) e.getCause()).getCode();
+    }
+
+    @Test
+    public void defaultBatchReadReadsTheRangeUpToLastAddConfirmed() throws Exception {
+        ReadHandle handle = mock(ReadHandle.class, withSettings().defaultAnswer(Mockito.CALLS_REAL_METHODS));
+        when(handle.getLastAddConfirmed()).thenReturn(5L);
+        List<ByteBuf> buffers = new ArrayList<>();
+        when(handle.readAsync(3L, 5L)).thenReturn(CompletableFuture.completedFuture(entries(3, 5, 10, buffers)));
+
+        try (LedgerEntries result = handle.batchReadAsync(3L, 10, 1024).get()) {
+            assertEquals(5L, result.getEntry(5L).getEntryId());
+        }
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> handle.batchReadAsync(6L, 10, 1024).get());
+        assertEquals(BKException.Code.ReadException, code(e));
+        e = assertThrows(ExecutionException.class, () -> handle.batchReadAsync(0L, 0, 1024).get());
+        assertEquals(BKException.Code.IncorrectParameterException, code(e));
+        // only the valid range was read
+        verify(handle, times(1)).readAsync(anyLong(), anyLong());
+    }
+
+    @Test
+    public void entriesAreCutAtMaxSize() {
+        List<ByteBuf> buffers = new ArrayList<>();
+        LedgerEntries entries = entries(0, 9, 100, buffers);
+
+        LedgerEntries limited = LedgerHandle.limitEntriesSize(entries, 350);
+        long count = 0;
+        for (LedgerEntry entry : limited) {
+            assertEquals(count++, entry.getEntryId());
+        }
+        assertEquals(3, count);
+        // the entries which were cut are released
+        assertEquals(0, buffers.get(5).refCnt());
+        assertEquals(1, buffers.get(0).refCnt());
+        limited.close();
+        assertEquals(0, buffers.get(0).refCnt());
+    }
+
+    @Test
+    public void firstEntryIsKeptAboveMaxSize() {
+        LedgerEntries entries = entries(0, 2, 100, new ArrayList<>());
+        LedgerEntries limited = LedgerHandle.limitEntriesSize(entries, 10);
+        assertEquals(0L, limited.getEntry(0L).getEntryId());
+        assertThrows(IndexOutOfBoundsException.class, () -> limited.getEntry(1L));
+        limited.close();
+
+        LedgerEntries all = entries(0, 2, 100, new ArrayList<>());
+        assertSame(all, LedgerHandle.limitEntriesSize(all, 300));
+        all.close();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.BatchingWriteHandle.RecordPosition;
+import org.apache.bookkeeper.client.api.WriteHandle;
+import org.junit.jupiter.api.Test;
+
+public class BatchingWriteHandleTest {
+
+    private static ByteBuf record(String data) {
+        return Unpooled.copiedBuffer(data, StandardCharsets.UTF_8);
+    }
+
+    private static WriteHandle recordingHandle(List<ByteBuf> entries) {
+        WriteHandle handle = mock(WriteHandle.class);
+        when(handle.appendAsync(any(ByteBuf.class))).thenAnswer(invocation -> {
+            ByteBuf entry = invocation.getArgument(0);
+            synchronized (entries) {
+                entries.add(Unpooled.copiedBuffer(entry));
+                entry.release();
+                return CompletableFuture.completedFuture((long) entries.size() - 1);
+            }
+        });
+        return handle;
+    }
+
+    @Test
+    public void recordsArePackedIntoOneEntry() throws Exception {
+        List<ByteBuf> entries = new ArrayList<>();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            BatchingWriteHandle handle = new BatchingWriteHandle(recordingHandle(entries), scheduler,
+                    1024, 3, TimeUnit.SECONDS.toMicros(60));
+
+            CompletableFuture<RecordPosition> first = handle.appendRecordAsync(record("a"));
+            CompletableFuture<RecordPosition> second = handle.appendRecordAsync(record("bb"));
+            assertFalse(first.isDone());
+            CompletableFuture<RecordPosition> third = handle.appendRecordAsync(record("ccc"));
+            CompletableFuture<Long> fourth = handle.appendAsync(record("dddd"));
+
+            assertEquals(new RecordPosition(0, 0), first.get());
+            assertEquals(new RecordPosition(0, 1), second.get());
+            assertEquals(new RecordPosition(0, 2), third.get());
+            assertFalse(fourth.isDone());
+            handle.flush();
+            assertEquals(1L, fourth.get().longValue());
+
+            List<ByteBuf> records = BatchingWriteHandle.decodeRecords(entries.get(0));
+            assertEquals(3, records.size());
+            assertEquals("a", records.get(0).toString(StandardCharsets.UTF_8));
+            assertEquals("bb", records.get(1).toString(StandardCharsets.UTF_8));
+            assertEquals("ccc", records.get(2).toString(StandardCharsets.UTF_8));
+            assertEquals("dddd", BatchingWriteHandle.decodeRecords(entries.get(1)).get(0)
+                    .toString(StandardCharsets.UTF_8));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void batchIsWrittenWhenDelayExpires() throws Exception {
+        List<ByteBuf> entries = new ArrayList<>();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            BatchingWriteHandle handle = new BatchingWriteHandle(recordingHandle(entries), scheduler,
+                    1024, 100, TimeUnit.MILLISECONDS.toMicros(10));
+
+            CompletableFuture<RecordPosition> first = handle.appendRecordAsync(record("a"));
+            CompletableFuture<RecordPosition> second = handle.appendRecordAsync(record("b"));
+            assertEquals(new RecordPosition(0, 0), first.get(10, TimeUnit.SECONDS));
+            assertEquals(new RecordPosition(0, 1), second.get(10, TimeUnit.SECONDS));
+            assertEquals(1, entries.size());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failedAddFailsEveryRecord() {
+        WriteHandle failing = mock(WriteHandle.class);
+        CompletableFuture<Long> failure = new CompletableFuture<>();
+        failure.completeExceptionally(new BKException.BKLedgerClosedException());
+        when(failing.appendAsync(any(ByteBuf.class))).thenReturn(failure);
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            BatchingWriteHandle handle = new BatchingWriteHandle(failing, scheduler, 1024, 2, 1000);
+            CompletableFuture<RecordPosition> first = handle.appendRecordAsync(record("a"));
+            CompletableFuture<RecordPosition> second = handle.appendRecordAsync(record("b"));
+            assertThrows(ExecutionException.class, first::get);
+            assertThrows(ExecutionException.class, second::get);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void corruptedEntryIsRejected() {
+        ByteBuf huge = Unpooled.buffer();
+        huge.writeByte(BatchingWriteHandle.BATCH_VERSION);
+        huge.writeInt(Integer.MAX_VALUE);
+        huge.writeInt(1);
+        assertThrows(IllegalArgumentException.class, () -> BatchingWriteHandle.decodeRecords(huge));
+
+        // a count whose header size overflows an int
+        ByteBuf overflow = Unpooled.buffer();
+        overflow.writeByte(BatchingWriteHandle.BATCH_VERSION);
+        overflow.writeInt(Integer.MAX_VALUE / Integer.BYTES + 1);
+        assertThrows(IllegalArgumentException.class, () -> BatchingWriteHandle.decodeRecords(overflow));
+
+        ByteBuf truncated = Unpooled.buffer();
+        truncated.writeByte(BatchingWriteHandle.BATCH_VERSION);
+        truncated.writeInt(2);
+        truncated.writeInt(1);
+        truncated.writeInt(Integer.MAX_VALUE);
+        truncated.writeByte('a');
+        truncated.writeByte('b');
+        assertThrows(IllegalArgumentException.class, () -> BatchingWriteHandle.decodeRecords(truncated));
+
+        ByteBuf negative = Unpooled.buffer();
+        negative.writeByte(BatchingWriteHandle.BATCH_VERSION);
+        negative.writeInt(-1);
+        assertThrows(IllegalArgumentException.class, () -> BatchingWriteHandle.decodeRecords(negative));
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import org.apache.bookkeeper.test.TestStatsProvider;
+import org.junit.jupiter.api.Test;
+
+public class ClientEntryCacheTest {
+
+    @Test
+    public void hitsAndMissesAreCounted() {
+        TestStatsProvider statsProvider = new TestStatsProvider();
+        BookKeeperClientStats clientStats = BookKeeperClientStats.newInstance(statsProvider.getStatsLogger(""));
+
+        try (ClientEntryCache cache = new ClientEntryCache(ByteBufAllocator.DEFAULT, 1024 * 1024, clientStats)) {
+            assertNull(cache.get(1, 0));
+
+            ByteBuf entry = Unpooled.copiedBuffer("entry-0", StandardCharsets.UTF_8);
+            entry.readerIndex(2);
+            cache.put(1, 0, entry);
+            // the cache keeps its own copy of the readable bytes
+            assertEquals(1, entry.refCnt());
+            entry.release();
+
+            ByteBuf cached = cache.get(1, 0);
+            assertEquals("try-0", cached.toString(StandardCharsets.UTF_8));
+            cached.release();
+            assertNull(cache.get(2, 0));
+
+            assertEquals(1, cache.count());
+            assertEquals(1L, statsProvider.getCounter(BookKeeperClientStats.ENTRY_CACHE_HITS).get());
+            assertEquals(2L, statsProvider.getCounter(BookKeeperClientStats.ENTRY_CACHE_MISSES).get());
+            assertEquals(64L, statsProvider.getGauge(BookKeeperClientStats.ENTRY_CACHE_SIZE).getSample());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.LatencyAwareSpeculativeRequestExecutionPolicy.LatencyHistogram;
+import org.apache.bookkeeper.net.BookieId;
+import org.junit.jupiter.api.Test;
+
+public class LatencyAwareSpeculativeRequestExecutionPolicyTest {
+
+    private static final BookieId FAST = BookieId.parse("fast-bookie:3181");
+    private static final BookieId SLOW = BookieId.parse("slow-bookie:3181");
+
+    @Test
+    public void histogramBucketsBoundValues() {
+        for (long v = 0; v < 10_000_000; v = v * 3 / 2 + 1) {
+            long upper = LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketFor(v));
+            assertTrue(upper >= v, "upper bound " + upper + " for " + v);
+            assertTrue(upper <= v + v / 8 + 1, "upper bound " + upper + " for " + v);
+        }
+    }
+
+    @Test
+    public void timeoutFollowsEachBookiePercentile() {
+        LatencyAwareSpeculativeRequestExecutionPolicy policy =
+                new LatencyAwareSpeculativeRequestExecutionPolicy(100, 50, 95);
+        // the max timeout can't be lower than the first one
+        assertEquals(TimeUnit.MILLISECONDS.toMicros(100), policy.getSpeculativeRequestTimeoutMicros(null));
+        assertEquals(TimeUnit.MILLISECONDS.toMicros(100), policy.getSpeculativeRequestTimeoutMicros(FAST));
+
+        for (int i = 0; i < 1000; i++) {
+            // 96% of the reads take 1ms, the rest take 40ms
+            policy.recordResponseTime(FAST, TimeUnit.MILLISECONDS.toNanos(i % 25 == 0 ? 40 : 1));
+            policy.recordResponseTime(SLOW, TimeUnit.MILLISECONDS.toNanos(30));
+        }
+
+        long fastTimeout = policy.getSpeculativeRequestTimeoutMicros(FAST);
+        assertTrue(fastTimeout >= 1000 && fastTimeout < 1200, "fast timeout " + fastTimeout);
+        long slowTimeout = policy.getSpeculativeRequestTimeoutMicros(SLOW);
+        assertTrue(slowTimeout >= 30_000 && slowTimeout < 34_000, "slow timeout " + slowTimeout);
+
+        // A bookie slower than the max timeout is capped
+        for (int i = 0; i < 5000; i++) {
+            policy.recordResponseTime(SLOW, TimeUnit.SECONDS.toNanos(1));
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toMicros(100), policy.getSpeculativeRequestTimeoutMicros(SLOW));
+    }
+
+    @Test
+    public void issuesSpeculativeRequestAfterPercentile() throws Exception {
+        LatencyAwareSpeculativeRequestExecutionPolicy policy =
+                new LatencyAwareSpeculativeRequestExecutionPolicy(60_000, 60_000, 99);
+        for (int i = 0; i < 200; i++) {
+            policy.recordResponseTime(FAST, TimeUnit.MILLISECONDS.toNanos(5));
+        }
+
+        CountDownLatch issued = new CountDownLatch(1);
+        SpeculativeRequestExecutor executor = new SpeculativeRequestExecutor() {
+            @Override
+            public ListenableFuture<Boolean> issueSpeculativeRequest() {
+                issued.countDown();
+                return Futures.immediateFuture(false);
+            }
+
+            @Override
+            public BookieId getLastRequestedBookie() {
+                return FAST;
+            }
+        };
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            policy.initiateSpeculativeRequest(scheduler, executor);
+            // far sooner than the 60s first speculative timeout
+            assertTrue(issued.await(10, TimeUnit.SECONDS));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.meta.LedgerManager;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.LedgerMetadataListener;
+import org.apache.bookkeeper.test.TestStatsProvider;
+import org.apache.bookkeeper.versioning.LongVersion;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+public class LedgerMetadataCacheTest {
+
+    private static Versioned<LedgerMetadata> metadata(long ledgerId, boolean closed, long version) {
+        LedgerMetadataBuilder builder = LedgerMetadataBuilder.create()
+                .withId(ledgerId)
+                .withEnsembleSize(1).withWriteQuorumSize(1).withAckQuorumSize(1)
+                .newEnsembleEntry(0L, Collections.singletonList(BookieId.parse("bookie-0:3181")));
+        if (closed) {
+            builder.withClosedState().withLastEntryId(10L).withLength(100L);
+        }
+        return new Versioned<>(builder.build(), new LongVersion(version));
+    }
+
+    @Test
+    public void closedLedgersAreServedFromTheCacheUntilDeleted() throws Exception {
+        TestStatsProvider statsProvider = new TestStatsProvider();
+        BookKeeperClientStats clientStats = BookKeeperClientStats.newInstance(statsProvider.getStatsLogger(""));
+        LedgerManager ledgerManager = mock(LedgerManager.class);
+        Versioned<LedgerMetadata> closed = metadata(1L, true, 1L);
+        when(ledgerManager.readLedgerMetadata(1L)).thenReturn(CompletableFuture.completedFuture(closed));
+        LedgerMetadataCache cache = new LedgerMetadataCache(ledgerManager, Runnable::run, 16, clientStats);
+
+        assertSame(closed, cache.readLedgerMetadata(1L).get());
+        assertSame(closed, cache.readLedgerMetadata(1L).get());
+        verify(ledgerManager, times(1)).readLedgerMetadata(1L);
+        assertEquals(1L, statsProvider.getCounter(BookKeeperClientStats.LEDGER_METADATA_CACHE_HITS).get());
+        assertEquals(1L, statsProvider.getCounter(BookKeeperClientStats.LEDGER_METADATA_CACHE_MISSES).get());
+
+        ArgumentCaptor<LedgerMetadataListener> listener = ArgumentCaptor.forClass(LedgerMetadataListener.class);
+        verify(ledgerManager).registerLedgerMetadataListener(eq(1L), listener.capture());
+
+        // a newer version replaces the cached one, an older one is ignored
+        Versioned<LedgerMetadata> updated = metadata(1L, true, 2L);
+        listener.getValue().onChanged(1L, updated);
+        listener.getValue().onChanged(1L, closed);
+        assertSame(updated, cache.readLedgerMetadata(1L).get());
+
+        // deletion drops the ledger and unregisters its listener
+        listener.getValue().onChanged(1L, null);
+        assertEquals(0L, cache.size());
+        verify(ledgerManager).unregisterLedgerMetadataListener(1L, listener.getValue());
+        cache.readLedgerMetadata(1L).get();
+        verify(ledgerManager, times(2)).readLedgerMetadata(1L);
+    }
+
+    @Test
+    public void deletionReportedByTheRegistrationDropsTheLedger() throws Exception {
+        BookKeeperClientStats clientStats = BookKeeperClientStats.newInstance(
+                new TestStatsProvider().getStatsLogger(""));
+        LedgerManager ledgerManager = mock(LedgerManager.class);
+        when(ledgerManager.readLedgerMetadata(3L))
+                .thenReturn(CompletableFuture.completedFuture(metadata(3L, true, 1L)));
+        // the ledger is deleted after our read, the re-read of the registration reports it
+        doAnswer(invocation -> {
+            invocation.<LedgerMetadataListener>getArgument(1).onChanged(3L, null);
+            return null;
+        }).when(ledgerManager).registerLedgerMetadataListener(eq(3L), any());
+        LedgerMetadataCache cache = new LedgerMetadataCache(ledgerManager, Runnable::run, 16, clientStats);
+
+        cache.readLedgerMetadata(3L).get();
+        assertEquals(0L, cache.size());
+        verify(ledgerManager).unregisterLedgerMetadataListener(eq(3L), any());
+        cache.readLedgerMetadata(3L).get();
+        verify(ledgerManager, times(2)).readLedgerMetadata(3L);
+    }
+
+    @Test
+    public void openLedgersAreNotCached() throws Exception {
+        BookKeeperClientStats clientStats = BookKeeperClientStats.newInstance(
+                new TestStatsProvider().getStatsLogger(""));
+        LedgerManager ledgerManager = mock(LedgerManager.class);
+        when(ledgerManager.readLedgerMetadata(2L))
+                .thenReturn(CompletableFuture.completedFuture(metadata(2L, false, 1L)));
+        LedgerMetadataCache cache = new LedgerMetadataCache(ledgerManager, Runnable::run, 16, clientStats);
+
+        cache.readLedgerMetadata(2L).get();
+        cache.readLedgerMetadata(2L).get();
+        verify(ledgerManager, times(2)).readLedgerMetadata(2L);
+        verify(ledgerManager, times(0)).registerLedgerMetadataListener(eq(2L), any());
+        assertEquals(0L, cache.size());
+    }
+}
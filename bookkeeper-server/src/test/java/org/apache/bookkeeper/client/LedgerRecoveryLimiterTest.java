@@ -0,0 +1,81 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+
+public class LedgerRecoveryLimiterTest {
+
+    @Test
+    public void queuedRecoveriesStartAsRunningOnesComplete() throws Exception {
+        LedgerRecoveryLimiter limiter = new LedgerRecoveryLimiter(2, Runnable::run);
+        List<CompletableFuture<Integer>> recoveries = new ArrayList<>();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(limiter.submit(() -> {
+                CompletableFuture<Integer> recovery = new CompletableFuture<>();
+                recoveries.add(recovery);
+                return recovery;
+            }));
+        }
+        assertEquals(2, recoveries.size());
+        assertEquals(3, limiter.getPendingRecoveries());
+
+        recoveries.get(0).complete(0);
+        assertEquals(0, results.get(0).get().intValue());
+        assertEquals(3, recoveries.size());
+
+        recoveries.get(1).completeExceptionally(new BKException.BKLedgerFencedException());
+        assertTrue(results.get(1).isCompletedExceptionally());
+        assertEquals(4, recoveries.size());
+        assertFalse(results.get(2).isDone());
+
+        for (int i = 2; i < 5; i++) {
+            recoveries.get(i).complete(i);
+        }
+        assertEquals(5, recoveries.size());
+        assertEquals(0, limiter.getPendingRecoveries());
+        assertEquals(4, results.get(4).get().intValue());
+    }
+
+    @Test
+    public void failureToStartARecoveryReleasesItsSlot() throws Exception {
+        LedgerRecoveryLimiter limiter = new LedgerRecoveryLimiter(1, Runnable::run);
+        CompletableFuture<Object> failed = limiter.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+        assertTrue(failed.isCompletedExceptionally());
+        try {
+            failed.get();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(1, limiter.submit(() -> CompletableFuture.completedFuture(1)).get().intValue());
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.api.DigestType;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.common.util.OrderedScheduler;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookieClient;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
+import org.apache.bookkeeper.proto.checksum.DigestManager;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.apache.bookkeeper.versioning.LongVersion;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PendingReadOpCacheTest {
+
+    private static final byte[] PASSWORD = "password".getBytes(StandardCharsets.UTF_8);
+    private static final int NUM_ENTRIES = 1000;
+
+    private final List<BookieId> ensemble = Arrays.asList(
+            BookieId.parse("bookie-1:3181"), BookieId.parse("bookie-2:3181"));
+
+    private OrderedExecutor mainWorkerPool;
+    private OrderedScheduler scheduler;
+    private ClientEntryCache entryCache;
+    private ClientContext clientCtx;
+    private volatile CountDownLatch firstCacheHit;
+
+    @BeforeEach
+    public void setUp() {
+        mainWorkerPool = OrderedExecutor.newBuilder().name("test-main-worker").numThreads(1).build();
+        scheduler = OrderedScheduler.newSchedulerBuilder().name("test-scheduler").numThreads(1).build();
+        BookKeeperClientStats clientStats = BookKeeperClientStats.newInstance(NullStatsLogger.INSTANCE);
+        entryCache = spy(new ClientEntryCache(ByteBufAllocator.DEFAULT, 16 * 1024 * 1024, clientStats));
+        doAnswer(invocation -> {
+            Object cached = invocation.callRealMethod();
+            if (cached != null) {
+                firstCacheHit.countDown();
+            }
+            return cached;
+        }).when(entryCache).get(anyLong(), anyLong());
+
+        ClientConfiguration conf = new ClientConfiguration().setWaitTimeoutOnBackpressureMillis(-1);
+        BookieClient bookieClient = mock(BookieClient.class);
+        // like the bookie client, complete the reads on the ordered executor of the ledger, here
+        // at the same time as the cache hits
+        doAnswer(invocation -> {
+            long ledgerId = invocation.getArgument(1);
+            long entryId = invocation.getArgument(2);
+            ReadEntryCallback cb = invocation.getArgument(3);
+            Object ctx = invocation.getArgument(4);
+            ByteBuf entry = packageEntry(ledgerId, entryId);
+            CountDownLatch latch = firstCacheHit;
+            mainWorkerPool.executeOrdered(ledgerId, () -> {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                cb.readEntryComplete(BKException.Code.OK, ledgerId, entryId, entry, ctx);
+                entry.release();
+            });
+            return null;
+        }).when(bookieClient).readEntry(any(), anyLong(), anyLong(), any(), any(), anyInt());
+
+        clientCtx = mock(ClientContext.class);
+        when(clientCtx.getConf()).thenReturn(ClientInternalConf.fromConfig(conf));
+        when(clientCtx.getBookieClient()).thenReturn(bookieClient);
+        when(clientCtx.getByteBufAllocator()).thenReturn(ByteBufAllocator.DEFAULT);
+        when(clientCtx.getMainWorkerPool()).thenReturn(mainWorkerPool);
+        when(clientCtx.getScheduler()).thenReturn(scheduler);
+        when(clientCtx.getClientStats()).thenReturn(clientStats);
+        when(clientCtx.getEntryCache()).thenReturn(entryCache);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        entryCache.close();
+        mainWorkerPool.shutdown();
+        scheduler.shutdown();
+    }
+
+    private static ByteBuf packageEntry(long ledgerId, long entryId) throws GeneralSecurityException {
+        DigestManager digestManager = DigestManager.instantiate(ledgerId, PASSWORD,
+                BookKeeper.DigestType.toProtoDigestType(BookKeeper.DigestType.CRC32C), ByteBufAllocator.DEFAULT, false);
+        ByteBuf data = Unpooled.copiedBuffer("entry-" + entryId, StandardCharsets.UTF_8);
+        ByteBufList packaged = (ByteBufList) digestManager.computeDigestAndPackageForSending(
+                entryId, NUM_ENTRIES - 1, data.readableBytes(), data, PASSWORD, 0);
+        ByteBuf entry = ByteBufList.coalesce(packaged);
+        packaged.release();
+        return entry;
+    }
+
+    @Test
+    public void readOnlyHandleMixesCacheHitsAndBookieReads() throws Exception {
+        for (long ledgerId = 1; ledgerId <= 20; ledgerId++) {
+            // the second half is served from the cache, on the thread calling readAsync, while the
+            // ordered executor completes the bookie reads of the first half
+            firstCacheHit = new CountDownLatch(1);
+            for (long entryId = NUM_ENTRIES / 2; entryId < NUM_ENTRIES; entryId++) {
+                ByteBuf entry = packageEntry(ledgerId, entryId);
+                entryCache.put(ledgerId, entryId, entry);
+                entry.release();
+            }
+
+            LedgerMetadata metadata = LedgerMetadataBuilder.create()
+                    .withId(ledgerId)
+                    .withPassword(PASSWORD)
+                    .withDigestType(DigestType.CRC32C)
+                    .withEnsembleSize(2).withWriteQuorumSize(2).withAckQuorumSize(2)
+                    .newEnsembleEntry(0L, ensemble)
+                    .withClosedState().withLastEntryId(NUM_ENTRIES - 1).withLength(NUM_ENTRIES * 8L)
+                    .build();
+            ReadOnlyLedgerHandle lh = new ReadOnlyLedgerHandle(clientCtx, ledgerId,
+                    new Versioned<>(metadata, new LongVersion(0L)),
+                    BookKeeper.DigestType.CRC32C, PASSWORD, false);
+
+            try (LedgerEntries entries = lh.readAsync(0, NUM_ENTRIES - 1).get(10, TimeUnit.SECONDS)) {
+                long expectedEntryId = 0;
+                for (LedgerEntry entry : entries) {
+                    assertEquals(expectedEntryId, entry.getEntryId());
+                    assertEquals("entry-" + expectedEntryId,
+                            new String(entry.getEntryBytes(), StandardCharsets.UTF_8));
+                    expectedEntryId++;
+                }
+                assertEquals(NUM_ENTRIES, expectedEntryId);
+            }
+        }
+    }
+}
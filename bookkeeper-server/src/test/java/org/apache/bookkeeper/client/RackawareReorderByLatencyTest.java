@@ -0,0 +1,106 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.bookkeeper.net.BookieId;
+import org.junit.jupiter.api.Test;
+
+public class RackawareReorderByLatencyTest {
+
+    private static final List<BookieId> ENSEMBLE = Arrays.asList(
+            BookieId.parse("bookie-0:3181"),
+            BookieId.parse("bookie-1:3181"),
+            BookieId.parse("bookie-2:3181"));
+
+    private static BookiesHealthInfo healthInfo(Map<BookieId, Long> latencies, Map<BookieId, Long> pending) {
+        return new BookiesHealthInfo() {
+            @Override
+            public long getBookieFailureHistory(BookieId bookieSocketAddress) {
+                return -1L;
+            }
+
+            @Override
+            public long getBookiePendingRequests(BookieId bookieSocketAddress) {
+                return pending.getOrDefault(bookieSocketAddress, 0L);
+            }
+
+            @Override
+            public long getBookieReadLatencyNanos(BookieId bookieSocketAddress) {
+                return latencies.getOrDefault(bookieSocketAddress, -1L);
+            }
+        };
+    }
+
+    private static DistributionSchedule.WriteSet writeSet() {
+        return new RoundRobinDistributionSchedule(3, 2, 3).getWriteSet(0);
+    }
+
+    @Test
+    public void fastestBookieIsReadFirst() {
+        Map<BookieId, Long> latencies = new HashMap<>();
+        latencies.put(ENSEMBLE.get(0), 5_000_000L);
+        latencies.put(ENSEMBLE.get(1), 4_000_000L);
+        latencies.put(ENSEMBLE.get(2), 1_000_000L);
+
+        DistributionSchedule.WriteSet ws = writeSet();
+        assertTrue(new RackawareEnsemblePlacementPolicyImpl()
+                .reorderReadSequenceByLatency(ENSEMBLE, ws, healthInfo(latencies, new HashMap<>())));
+        assertEquals(2, ws.get(0));
+        assertEquals(1, ws.get(1));
+        assertEquals(0, ws.get(2));
+    }
+
+    @Test
+    public void pendingRequestsWeighTheLatency() {
+        Map<BookieId, Long> latencies = new HashMap<>();
+        latencies.put(ENSEMBLE.get(0), 2_000_000L);
+        latencies.put(ENSEMBLE.get(1), 1_000_000L);
+        latencies.put(ENSEMBLE.get(2), 3_000_000L);
+        Map<BookieId, Long> pending = new HashMap<>();
+        // 1ms * 4 is worse than 2ms * 1
+        pending.put(ENSEMBLE.get(1), 3L);
+
+        DistributionSchedule.WriteSet ws = writeSet();
+        new RackawareEnsemblePlacementPolicyImpl()
+                .reorderReadSequenceByLatency(ENSEMBLE, ws, healthInfo(latencies, pending));
+        assertEquals(0, ws.get(0));
+        assertEquals(2, ws.get(1));
+        assertEquals(1, ws.get(2));
+    }
+
+    @Test
+    public void unknownLatencyKeepsOriginalOrder() {
+        DistributionSchedule.WriteSet ws = writeSet();
+        assertFalse(new RackawareEnsemblePlacementPolicyImpl()
+                .reorderReadSequenceByLatency(ENSEMBLE, ws, healthInfo(new HashMap<>(), new HashMap<>())));
+        assertEquals(0, ws.get(0));
+        assertEquals(1, ws.get(1));
+        assertEquals(2, ws.get(2));
+    }
+}
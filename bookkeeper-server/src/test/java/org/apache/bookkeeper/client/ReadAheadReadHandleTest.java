@@ -0,0 +1,193 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.apache.bookkeeper.client.api.LastConfirmedAndEntry;
+import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.client.impl.LedgerEntriesImpl;
+import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.junit.jupiter.api.Test;
+
+public class ReadAheadReadHandleTest {
+
+    /**
+     * In-memory handle recording the ranges it is asked to read.
+     */
+    private static class RecordingReadHandle implements ReadHandle {
+        final List<long[]> reads = new ArrayList<>();
+        long lac;
+        long failingEntry = -1L;
+
+        RecordingReadHandle(long lac) {
+            this.lac = lac;
+        }
+
+        @Override
+        public synchronized CompletableFuture<LedgerEntries> readAsync(long firstEntry, long lastEntry) {
+            reads.add(new long[] { firstEntry, lastEntry });
+            if (firstEntry > lastEntry || lastEntry > lac
+                    || (failingEntry >= firstEntry && failingEntry <= lastEntry)) {
+                CompletableFuture<LedgerEntries> future = new CompletableFuture<>();
+                future.completeExceptionally(new BKException.BKReadException());
+                return future;
+            }
+            List<LedgerEntry> entries = new ArrayList<>();
+            for (long entryId = firstEntry; entryId <= lastEntry; entryId++) {
+                entries.add(LedgerEntryImpl.create(1L, entryId, entryId,
+                        Unpooled.copiedBuffer("entry-" + entryId, StandardCharsets.UTF_8)));
+            }
+            return CompletableFuture.completedFuture(LedgerEntriesImpl.create(entries));
+        }
+
+        @Override
+        public CompletableFuture<LedgerEntries> readUnconfirmedAsync(long firstEntry, long lastEntry) {
+            return readAsync(firstEntry, lastEntry);
+        }
+
+        @Override
+        public CompletableFuture<Long> readLastAddConfirmedAsync() {
+            return CompletableFuture.completedFuture(lac);
+        }
+
+        @Override
+        public CompletableFuture<Long> tryReadLastAddConfirmedAsync() {
+            return CompletableFuture.completedFuture(lac);
+        }
+
+        @Override
+        public long getLastAddConfirmed() {
+            return lac;
+        }
+
+        @Override
+        public long getLength() {
+            return 0;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+
+        @Override
+        public CompletableFuture<LastConfirmedAndEntry> readLastAddConfirmedAndEntryAsync(long entryId,
+                long timeOutInMillis, boolean parallel) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getId() {
+            return 1L;
+        }
+
+        @Override
+        public CompletableFuture<Void> closeAsync() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public LedgerMetadata getLedgerMetadata() {
+            return null;
+        }
+    }
+
+    private static void assertEntries(ReadHandle handle, long firstEntry, long lastEntry) throws Exception {
+        try (LedgerEntries entries = handle.readAsync(firstEntry, lastEntry).get()) {
+            long expected = firstEntry;
+            for (LedgerEntry entry : entries) {
+                assertEquals(expected, entry.getEntryId());
+                assertEquals("entry-" + expected, new String(entry.getEntryBytes(), StandardCharsets.UTF_8));
+                expected++;
+            }
+            assertEquals(lastEntry + 1, expected);
+        }
+    }
+
+    @Test
+    public void sequentialReadsAreServedFromReadAhead() throws Exception {
+        RecordingReadHandle handle = new RecordingReadHandle(100);
+        ReadAheadReadHandle readAhead = new ReadAheadReadHandle(handle, 8, 4);
+
+        assertEntries(readAhead, 0, 1);
+        assertEquals(1, handle.reads.size());
+
+        // sequential read: fetch the range, then fill the window in batches
+        assertEntries(readAhead, 2, 3);
+        assertEquals(4, handle.reads.size());
+        assertEquals(4, handle.reads.get(2)[0]);
+        assertEquals(7, handle.reads.get(2)[1]);
+        assertEquals(8, handle.reads.get(3)[0]);
+        assertEquals(11, handle.reads.get(3)[1]);
+
+        // served from the read ahead, the next batch is issued once it fits in the window
+        assertEntries(readAhead, 4, 5);
+        assertEquals(4, handle.reads.size());
+        assertEntries(readAhead, 6, 7);
+        assertEquals(5, handle.reads.size());
+        assertEquals(12, handle.reads.get(4)[0]);
+        assertEquals(15, handle.reads.get(4)[1]);
+    }
+
+    @Test
+    public void readAheadStopsAtLastAddConfirmed() throws Exception {
+        RecordingReadHandle handle = new RecordingReadHandle(5);
+        ReadAheadReadHandle readAhead = new ReadAheadReadHandle(handle, 8, 4);
+
+        assertEntries(readAhead, 0, 0);
+        assertEntries(readAhead, 1, 1);
+        assertEquals(5, handle.reads.get(handle.reads.size() - 1)[1]);
+
+        handle.lac = 20;
+        assertEntries(readAhead, 2, 5);
+        assertEntries(readAhead, 6, 6);
+        assertEntries(readAhead, 7, 13);
+    }
+
+    @Test
+    public void failureResetsReadAhead() throws Exception {
+        RecordingReadHandle handle = new RecordingReadHandle(100);
+        ReadAheadReadHandle readAhead = new ReadAheadReadHandle(handle, 8, 4);
+        handle.failingEntry = 5;
+
+        assertEntries(readAhead, 0, 0);
+        assertEntries(readAhead, 1, 1);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> readAhead.readAsync(2, 5).get());
+        assertEquals(BKException.BKReadException.class, e.getCause().getClass());
+
+        // the next read goes straight to the handle
+        handle.failingEntry = -1L;
+        int reads = handle.reads.size();
+        assertEntries(readAhead, 2, 5);
+        assertEquals(reads + 1, handle.reads.size());
+    }
+}
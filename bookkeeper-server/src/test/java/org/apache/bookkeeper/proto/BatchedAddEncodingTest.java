@@ -0,0 +1,91 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.apache.bookkeeper.proto.BookieProtoEncoding.RequestEnDeCoderPreV3;
+import org.apache.bookkeeper.proto.BookieProtoEncoding.ResponseEnDeCoderPreV3;
+import org.junit.jupiter.api.Test;
+
+public class BatchedAddEncodingTest {
+
+    private static ByteBuf entry(long ledgerId, long entryId, int payloadSize) {
+        ByteBuf entry = Unpooled.buffer();
+        entry.writeLong(ledgerId);
+        entry.writeLong(entryId);
+        entry.writeZero(payloadSize);
+        return entry;
+    }
+
+    @Test
+    public void decodeBatchedAddRequest() throws Exception {
+        byte[] masterKey = new byte[BookieProtocol.MASTER_KEY_LENGTH];
+        masterKey[0] = 1;
+
+        ByteBuf packet = Unpooled.buffer();
+        packet.writeInt(BookieProtocol.PacketHeader.toInt(BookieProtocol.CURRENT_PROTOCOL_VERSION,
+                BookieProtocol.BATCH_ADD_ENTRY, BookieProtocol.FLAG_NONE));
+        packet.writeBytes(masterKey);
+        packet.writeInt(3);
+        for (long entryId = 5; entryId < 8; entryId++) {
+            ByteBuf entry = entry(42L, entryId, (int) entryId);
+            packet.writeInt(entry.readableBytes());
+            packet.writeBytes(entry);
+        }
+
+        Object decoded = new RequestEnDeCoderPreV3(null).decode(packet);
+        assertTrue(decoded instanceof BookieProtocol.BatchedAddRequest);
+        BookieProtocol.BatchedAddRequest request = (BookieProtocol.BatchedAddRequest) decoded;
+        assertEquals(BookieProtocol.BATCH_ADD_ENTRY, request.getOpCode());
+        assertEquals(42L, request.getLedgerId());
+        assertEquals(5L, request.getEntryId());
+        assertEquals(3, request.getCount());
+        assertEquals(1, request.getMasterKey()[0]);
+        for (int i = 0; i < 3; i++) {
+            ByteBuf entry = request.getEntries().get(i);
+            assertEquals(16 + 5 + i, entry.readableBytes());
+            assertEquals(5L + i, entry.getLong(entry.readerIndex() + 8));
+        }
+        request.release();
+        assertEquals(1, packet.refCnt());
+    }
+
+    @Test
+    public void batchedAddResponseRoundTrip() throws Exception {
+        ResponseEnDeCoderPreV3 codec = new ResponseEnDeCoderPreV3(null);
+        ByteBuf encoded = (ByteBuf) codec.encode(new BookieProtocol.BatchedAddResponse(
+                BookieProtocol.CURRENT_PROTOCOL_VERSION, BookieProtocol.EFENCED, 42L, 5L, 3),
+                ByteBufAllocator.DEFAULT);
+
+        assertEquals(encoded.readableBytes() - 4, encoded.readInt());
+        BookieProtocol.BatchedAddResponse response = (BookieProtocol.BatchedAddResponse) codec.decode(encoded);
+        assertEquals(BookieProtocol.EFENCED, response.getErrorCode());
+        assertEquals(42L, response.getLedgerId());
+        assertEquals(5L, response.getEntryId());
+        assertEquals(3, response.getCount());
+        encoded.release();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.ExtensionRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import org.apache.bookkeeper.proto.BookieProtoEncoding.RequestEnDeCoderPreV3;
+import org.apache.bookkeeper.proto.BookieProtoEncoding.RequestEnDecoderV3;
+import org.apache.bookkeeper.proto.BookieProtoEncoding.ResponseEnDeCoderPreV3;
+import org.apache.bookkeeper.proto.BookieProtoEncoding.ResponseEnDecoderV3;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BKPacketHeader;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BatchReadRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BatchReadResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.ProtocolVersion;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.junit.jupiter.api.Test;
+
+public class BatchedReadEncodingTest {
+
+    private static ByteBuf toByteBuf(Object encoded) {
+        if (encoded instanceof ByteBuf) {
+            return (ByteBuf) encoded;
+        }
+        ByteBufList list = (ByteBufList) encoded;
+        ByteBuf buf = ByteBufList.coalesce(list);
+        list.release();
+        return buf;
+    }
+
+    @Test
+    public void batchedReadRequestRoundTrip() throws Exception {
+        byte[] masterKey = new byte[BookieProtocol.MASTER_KEY_LENGTH];
+        masterKey[0] = 1;
+        RequestEnDeCoderPreV3 codec = new RequestEnDeCoderPreV3(null);
+        ByteBuf encoded = toByteBuf(codec.encode(BookieProtocol.BatchedReadRequest.create(
+                BookieProtocol.CURRENT_PROTOCOL_VERSION, 42L, 5L, BookieProtocol.FLAG_DO_FENCING, masterKey,
+                7L, 10, 1024L), ByteBufAllocator.DEFAULT));
+
+        assertEquals(encoded.readableBytes() - 4, encoded.readInt());
+        Object decoded = codec.decode(encoded);
+        assertTrue(decoded instanceof BookieProtocol.BatchedReadRequest);
+        BookieProtocol.BatchedReadRequest request = (BookieProtocol.BatchedReadRequest) decoded;
+        assertEquals(BookieProtocol.BATCH_READ_ENTRY, request.getOpCode());
+        assertEquals(42L, request.getLedgerId());
+        assertEquals(5L, request.getEntryId());
+        assertEquals(7L, request.getRequestId());
+        assertEquals(10, request.getMaxCount());
+        assertEquals(1024L, request.getMaxSize());
+        assertEquals(1, request.getMasterKey()[0]);
+        request.recycle();
+        encoded.release();
+    }
+
+    @Test
+    public void batchedReadResponseRoundTrip() throws Exception {
+        // one batch small enough to be copied in the header buffer, one sent as a list of buffers
+        for (int entrySize : new int[] {16, 64 * 1024}) {
+            ByteBufList data = ByteBufList.get();
+            for (int i = 0; i < 3; i++) {
+                ByteBuf entry = Unpooled.buffer(entrySize);
+                entry.writeLong(42L);
+                entry.writeLong(5L + i);
+                entry.writeZero(entrySize - 16);
+                data.add(entry);
+            }
+            ResponseEnDeCoderPreV3 codec = new ResponseEnDeCoderPreV3(null);
+            ByteBuf encoded = toByteBuf(codec.encode(new BookieProtocol.BatchedReadResponse(
+                    BookieProtocol.CURRENT_PROTOCOL_VERSION, BookieProtocol.EOK, 42L, 5L, 7L, data),
+                    ByteBufAllocator.DEFAULT));
+
+            assertEquals(encoded.readableBytes() - 4, encoded.readInt());
+            BookieProtocol.BatchedReadResponse response = (BookieProtocol.BatchedReadResponse) codec.decode(encoded);
+            assertEquals(BookieProtocol.EOK, response.getErrorCode());
+            assertEquals(42L, response.getLedgerId());
+            assertEquals(5L, response.getEntryId());
+            assertEquals(7L, response.getRequestId());
+            assertEquals(3, response.getData().size());
+            for (int i = 0; i < 3; i++) {
+                ByteBuf entry = response.getData().getBuffer(i);
+                assertEquals(entrySize, entry.readableBytes());
+                assertEquals(5L + i, entry.getLong(entry.readerIndex() + 8));
+            }
+            assertTrue(response.retain() == response);
+            assertTrue(response.retain(2) == response);
+            response.release(3);
+            response.release();
+            encoded.release();
+            assertEquals(0, encoded.refCnt());
+        }
+    }
+
+    @Test
+    public void batchReadV3RoundTrip() throws Exception {
+        BKPacketHeader header = BKPacketHeader.newBuilder()
+                .setVersion(ProtocolVersion.VERSION_THREE)
+                .setOperation(OperationType.BATCH_READ_ENTRY)
+                .setTxnId(3L)
+                .build();
+        Request request = Request.newBuilder()
+                .setHeader(header)
+                .setBatchReadRequest(BatchReadRequest.newBuilder()
+                        .setLedgerId(42L).setStartEntryId(5L).setMaxCount(10).setMaxSize(1024L))
+                .build();
+        RequestEnDecoderV3 requestCodec = new RequestEnDecoderV3(ExtensionRegistry.newInstance());
+        ByteBuf encoded = toByteBuf(requestCodec.encode(request, ByteBufAllocator.DEFAULT));
+        assertEquals(encoded.readableBytes() - 4, encoded.readInt());
+        assertEquals(request, requestCodec.decode(encoded));
+        encoded.release();
+
+        Response response = Response.newBuilder()
+                .setHeader(header)
+                .setStatus(StatusCode.EOK)
+                .setBatchReadResponse(BatchReadResponse.newBuilder()
+                        .setStatus(StatusCode.EOK).setLedgerId(42L).setStartEntryId(5L)
+                        .addBodies(ByteString.copyFrom("entry-5", StandardCharsets.UTF_8))
+                        .addBodies(ByteString.copyFrom("entry-6", StandardCharsets.UTF_8)))
+                .build();
+        ResponseEnDecoderV3 responseCodec = new ResponseEnDecoderV3(ExtensionRegistry.newInstance());
+        encoded = toByteBuf(responseCodec.encode(response, ByteBufAllocator.DEFAULT));
+        assertEquals(encoded.readableBytes() - 4, encoded.readInt());
+        Response decoded = (Response) responseCodec.decode(encoded);
+        assertEquals(response, decoded);
+        assertEquals(2, decoded.getBatchReadResponse().getBodiesCount());
+        encoded.release();
+    }
+}
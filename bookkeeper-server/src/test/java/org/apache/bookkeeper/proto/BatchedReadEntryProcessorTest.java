@@ -0,0 +1,158 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BKPacketHeader;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BatchReadRequest;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BatchReadResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.ProtocolVersion;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
+import org.apache.bookkeeper.util.ByteBufList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of the batch limits applied by {@link BatchedReadEntryProcessor}
+ * and {@link BatchReadEntryProcessorV3}.
+ */
+public class BatchedReadEntryProcessorTest {
+
+    private static final long LEDGER_ID = 42L;
+    private static final int ENTRY_SIZE = 100;
+    private static final long LAST_ENTRY = 9L;
+
+    private Bookie bookie;
+    private BookieRequestHandler requestHandler;
+    private BookieRequestProcessor requestProcessor;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        bookie = mock(Bookie.class);
+        requestHandler = mock(BookieRequestHandler.class, RETURNS_DEEP_STUBS);
+        requestProcessor = mock(BookieRequestProcessor.class, RETURNS_DEEP_STUBS);
+        when(requestProcessor.getBookie()).thenReturn(bookie);
+        when(bookie.readEntry(eq(LEDGER_ID), anyLong())).thenAnswer(invocation -> {
+            long entryId = invocation.getArgument(1);
+            if (entryId > LAST_ENTRY) {
+                throw new Bookie.NoEntryException(LEDGER_ID, entryId);
+            }
+            ByteBuf entry = Unpooled.buffer(ENTRY_SIZE);
+            entry.writeLong(LEDGER_ID);
+            entry.writeLong(entryId);
+            entry.writeZero(ENTRY_SIZE - 16);
+            return entry;
+        });
+    }
+
+    private ByteBufList readV2(long startEntryId, int maxCount, long maxSize, long maxBatchReadSize)
+            throws Exception {
+        BookieProtocol.BatchedReadRequest request = BookieProtocol.BatchedReadRequest.create(
+                BookieProtocol.CURRENT_PROTOCOL_VERSION, LEDGER_ID, startEntryId, BookieProtocol.FLAG_NONE,
+                null, 1L, maxCount, maxSize);
+        BatchedReadEntryProcessor processor = BatchedReadEntryProcessor.create(request, requestHandler,
+                requestProcessor, null, false, maxBatchReadSize);
+        return (ByteBufList) processor.readData();
+    }
+
+    private BatchReadResponse readV3(long startEntryId, int maxCount, long maxSize, long maxBatchReadSize) {
+        Request request = Request.newBuilder()
+                .setHeader(BKPacketHeader.newBuilder()
+                        .setVersion(ProtocolVersion.VERSION_THREE)
+                        .setOperation(OperationType.BATCH_READ_ENTRY)
+                        .setTxnId(1L))
+                .setBatchReadRequest(BatchReadRequest.newBuilder()
+                        .setLedgerId(LEDGER_ID)
+                        .setStartEntryId(startEntryId)
+                        .setMaxCount(maxCount)
+                        .setMaxSize(maxSize))
+                .build();
+        return new BatchReadEntryProcessorV3(request, requestHandler, requestProcessor, maxBatchReadSize)
+                .getBatchReadResponse();
+    }
+
+    private static void assertEntries(ByteBufList data, long startEntryId, int count) {
+        assertEquals(count, data.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(startEntryId + i, data.getBuffer(i).getLong(8));
+        }
+        data.release();
+    }
+
+    private static void assertEntries(BatchReadResponse response, long startEntryId, int count) {
+        assertEquals(StatusCode.EOK, response.getStatus());
+        assertEquals(count, response.getBodiesCount());
+        for (int i = 0; i < count; i++) {
+            assertEquals(startEntryId + i, response.getBodies(i).asReadOnlyByteBuffer().getLong(8));
+        }
+    }
+
+    @Test
+    public void testMaxCount() throws Exception {
+        assertEntries(readV2(0L, 3, Long.MAX_VALUE, Long.MAX_VALUE), 0L, 3);
+        assertEntries(readV3(0L, 3, Long.MAX_VALUE, Long.MAX_VALUE), 0L, 3);
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+        // the v2 limit applies to the whole response frame, the v3 one to the entry bodies
+        long v2FrameSize = BatchedReadEntryProcessor.BATCH_READ_RESPONSE_HEADER_SIZE + 4L * (4 + ENTRY_SIZE);
+        assertEntries(readV2(0L, 0, v2FrameSize, Long.MAX_VALUE), 0L, 4);
+        assertEntries(readV2(0L, 0, v2FrameSize - 1, Long.MAX_VALUE), 0L, 3);
+        assertEntries(readV3(0L, 0, 4L * ENTRY_SIZE, Long.MAX_VALUE), 0L, 4);
+        assertEntries(readV3(0L, 0, 4L * ENTRY_SIZE - 1, Long.MAX_VALUE), 0L, 3);
+
+        // the server side limit caps what the client asked for
+        assertEntries(readV2(0L, 0, Long.MAX_VALUE, v2FrameSize), 0L, 4);
+        assertEntries(readV3(0L, 0, Long.MAX_VALUE, 4L * ENTRY_SIZE), 0L, 4);
+
+        // the first entry is always returned, even if it is bigger than the limit
+        assertEntries(readV2(0L, 0, 1L, Long.MAX_VALUE), 0L, 1);
+        assertEntries(readV3(0L, 0, 1L, Long.MAX_VALUE), 0L, 1);
+    }
+
+    @Test
+    public void testMissingFirstEntry() throws Exception {
+        assertThrows(Bookie.NoEntryException.class, () -> readV2(LAST_ENTRY + 1, 5, Long.MAX_VALUE, Long.MAX_VALUE));
+        BatchReadResponse response = readV3(LAST_ENTRY + 1, 5, Long.MAX_VALUE, Long.MAX_VALUE);
+        assertEquals(StatusCode.ENOENTRY, response.getStatus());
+        assertEquals(0, response.getBodiesCount());
+    }
+
+    @Test
+    public void testPartialBatch() throws Exception {
+        // the batch ends at the last entry of the ledger instead of failing the request
+        assertEntries(readV2(LAST_ENTRY - 1, 5, Long.MAX_VALUE, Long.MAX_VALUE), LAST_ENTRY - 1, 2);
+        assertEntries(readV3(LAST_ENTRY - 1, 5, Long.MAX_VALUE, Long.MAX_VALUE), LAST_ENTRY - 1, 2);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.channel.DefaultFileRegion;
+import java.io.File;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileRegionReadResponseTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testReferenceCounting() {
+        DefaultFileRegion region = new DefaultFileRegion(new File(tempDir, "entry.log"), 0, 16);
+        BookieProtocol.FileRegionReadResponse response = new BookieProtocol.FileRegionReadResponse(
+                BookieProtocol.CURRENT_PROTOCOL_VERSION, BookieProtocol.EOK, 1L, 2L, region);
+
+        assertSame(response, response.retain());
+        assertSame(response, response.retain(2));
+        assertSame(response, response.touch());
+        assertSame(response, response.touch("hint"));
+        assertEquals(4, response.refCnt());
+        assertEquals(4, region.refCnt());
+
+        assertFalse(response.release(3));
+        assertTrue(response.release());
+        assertEquals(0, region.refCnt());
+    }
+}
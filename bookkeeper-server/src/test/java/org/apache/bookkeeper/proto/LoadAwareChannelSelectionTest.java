@@ -0,0 +1,90 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
+import org.junit.jupiter.api.Test;
+
+public class LoadAwareChannelSelectionTest {
+
+    private final List<PerChannelBookieClient> channels = new ArrayList<>();
+
+    private DefaultPerChannelBookieClientPool newPool(boolean loadAwareReads) throws Exception {
+        ClientConfiguration conf = new ClientConfiguration()
+                .setLoadAwareReadChannelSelectionEnabled(loadAwareReads);
+        return new DefaultPerChannelBookieClientPool(conf, (address, pool, shFactory, forceUseV3) -> {
+            PerChannelBookieClient pcbc = mock(PerChannelBookieClient.class);
+            channels.add(pcbc);
+            return pcbc;
+        }, BookieId.parse("127.0.0.1:3181"), 3);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void readsGoThroughLeastLoadedChannel() throws Exception {
+        DefaultPerChannelBookieClientPool pool = newPool(true);
+        when(channels.get(0).getNumPendingCompletionRequests()).thenReturn(10L);
+        when(channels.get(1).getNumPendingCompletionRequests()).thenReturn(7L);
+        when(channels.get(2).getNumPendingCompletionRequests()).thenReturn(2L);
+
+        GenericCallback<PerChannelBookieClient> cb = mock(GenericCallback.class);
+        pool.obtainForRead(cb, 0L);
+        verify(channels.get(2)).connectIfNeededAndDoOp(cb);
+        verify(channels.get(0), never()).connectIfNeededAndDoOp(any());
+
+        // writes stay on the channel of the key
+        pool.obtain(cb, 0L);
+        verify(channels.get(0)).connectIfNeededAndDoOp(cb);
+    }
+
+    @Test
+    public void idleChannelOfKeyIsPreferred() throws Exception {
+        DefaultPerChannelBookieClientPool pool = newPool(true);
+        when(channels.get(1).getNumPendingCompletionRequests()).thenReturn(0L);
+        when(channels.get(2).getNumPendingCompletionRequests()).thenReturn(0L);
+
+        assertSame(channels.get(1), pool.getLeastLoadedClient(1L));
+        assertSame(channels.get(2), pool.getLeastLoadedClient(2L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void readsFollowKeyWhenDisabled() throws Exception {
+        DefaultPerChannelBookieClientPool pool = newPool(false);
+        when(channels.get(2).getNumPendingCompletionRequests()).thenReturn(0L);
+        when(channels.get(1).getNumPendingCompletionRequests()).thenReturn(100L);
+
+        GenericCallback<PerChannelBookieClient> cb = mock(GenericCallback.class);
+        pool.obtainForRead(cb, 1L);
+        verify(channels.get(1)).connectIfNeededAndDoOp(cb);
+    }
+}
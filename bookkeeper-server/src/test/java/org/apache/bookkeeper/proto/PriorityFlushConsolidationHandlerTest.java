@@ -0,0 +1,95 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.apache.bookkeeper.test.TestStatsProvider;
+import org.apache.bookkeeper.test.TestStatsProvider.TestOpStatsLogger;
+import org.junit.jupiter.api.Test;
+
+public class PriorityFlushConsolidationHandlerTest {
+
+    private static ByteBuf v2Frame(short flags) {
+        ByteBuf frame = Unpooled.buffer();
+        frame.writeInt(4);
+        frame.writeInt(BookieProtocol.PacketHeader.toInt(
+                BookieProtocol.CURRENT_PROTOCOL_VERSION, BookieProtocol.ADDENTRY, flags));
+        return frame;
+    }
+
+    @Test
+    public void flushesDuringReadAreConsolidated() {
+        TestOpStatsLogger framesPerFlush =
+                (TestOpStatsLogger) new TestStatsProvider().getStatsLogger("").getOpStatsLogger("frames");
+        EmbeddedChannel channel = new EmbeddedChannel(new PriorityFlushConsolidationHandler(
+                1024, PriorityFlushConsolidationHandler.HIGH_PRIORITY_REQUEST, framesPerFlush));
+
+        channel.pipeline().fireChannelRead("request");
+        for (int i = 0; i < 3; i++) {
+            channel.writeAndFlush(v2Frame(BookieProtocol.FLAG_NONE));
+        }
+        assertEquals(0, channel.outboundMessages().size());
+
+        channel.pipeline().fireChannelReadComplete();
+        assertEquals(3, channel.outboundMessages().size());
+        assertEquals(1, framesPerFlush.getSuccessCount());
+        assertEquals(3.0, framesPerFlush.getSuccessAverage());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void flushesOutsideOfReadAreDeferredToNextIteration() {
+        TestOpStatsLogger framesPerFlush =
+                (TestOpStatsLogger) new TestStatsProvider().getStatsLogger("").getOpStatsLogger("frames");
+        EmbeddedChannel channel = new EmbeddedChannel(new PriorityFlushConsolidationHandler(
+                1024, PriorityFlushConsolidationHandler.HIGH_PRIORITY_REQUEST, framesPerFlush));
+
+        // the pipeline is used directly, the embedded channel runs the pending tasks on writes and flushes
+        channel.pipeline().writeAndFlush(v2Frame(BookieProtocol.FLAG_NONE));
+        assertEquals(0, channel.outboundMessages().size());
+
+        channel.runPendingTasks();
+        assertEquals(1, channel.outboundMessages().size());
+        assertEquals(1, framesPerFlush.getSuccessCount());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void highPriorityRequestIsFlushedRightAway() {
+        TestOpStatsLogger framesPerFlush =
+                (TestOpStatsLogger) new TestStatsProvider().getStatsLogger("").getOpStatsLogger("frames");
+        EmbeddedChannel channel = new EmbeddedChannel(new PriorityFlushConsolidationHandler(
+                1024, PriorityFlushConsolidationHandler.HIGH_PRIORITY_REQUEST, framesPerFlush));
+
+        channel.pipeline().fireChannelRead("request");
+        channel.writeAndFlush(v2Frame(BookieProtocol.FLAG_NONE));
+        assertEquals(0, channel.outboundMessages().size());
+
+        channel.writeAndFlush(v2Frame(BookieProtocol.FLAG_HIGH_PRIORITY));
+        assertEquals(2, channel.outboundMessages().size());
+        assertEquals(2.0, framesPerFlush.getSuccessAverage());
+        channel.finishAndReleaseAll();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.net.BookieSocketAddress;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BKPacketHeader;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.ProtocolVersion;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
+import org.apache.bookkeeper.proto.PerChannelBookieClient.ReadCompletion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test which read responses are used to estimate the read latency of a channel.
+ */
+public class ReadLatencyEwmaTest {
+
+    private OrderedExecutor executor;
+    private EventLoopGroup eventLoopGroup;
+    private PerChannelBookieClient client;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        executor = OrderedExecutor.newBuilder().numThreads(1).name("read-latency-test").build();
+        eventLoopGroup = new NioEventLoopGroup(1);
+        client = new PerChannelBookieClient(executor, eventLoopGroup, BookieId.parse("127.0.0.1:3181"),
+                BookieSocketAddress.LEGACY_BOOKIEID_RESOLVER);
+    }
+
+    @AfterEach
+    public void teardown() throws Exception {
+        client.close();
+        eventLoopGroup.shutdownGracefully();
+        executor.shutdown();
+    }
+
+    private void complete(boolean recordLatency) {
+        ReadCompletion completion = client.new ReadCompletion(
+                client.newCompletionKey(1L, OperationType.READ_ENTRY), mock(ReadEntryCallback.class), null,
+                1L, 0L, recordLatency);
+        completion.handleV3Response(Response.newBuilder()
+                .setHeader(BKPacketHeader.newBuilder()
+                        .setVersion(ProtocolVersion.VERSION_THREE)
+                        .setOperation(OperationType.READ_ENTRY)
+                        .setTxnId(1L))
+                .setStatus(StatusCode.EOK)
+                .setReadResponse(ReadResponse.newBuilder()
+                        .setStatus(StatusCode.EOK)
+                        .setLedgerId(1L)
+                        .setEntryId(0L))
+                .build());
+    }
+
+    @Test
+    public void longPollReadsAreNotSampled() {
+        assertEquals(-1L, client.getReadLatencyEwmaNanos());
+
+        // long poll and piggyback reads
+        complete(false);
+        assertEquals(-1L, client.getReadLatencyEwmaNanos());
+
+        complete(true);
+        assertTrue(client.getReadLatencyEwmaNanos() >= 0);
+    }
+}
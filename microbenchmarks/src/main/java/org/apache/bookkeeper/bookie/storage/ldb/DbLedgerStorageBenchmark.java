@@ -0,0 +1,153 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.BookieImpl;
+import org.apache.bookkeeper.bookie.CheckpointSource;
+import org.apache.bookkeeper.bookie.Checkpointer;
+import org.apache.bookkeeper.bookie.LedgerDirsManager;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.util.DiskChecker;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for {@link DbLedgerStorage} addEntry and getEntry, with a single ledger directory in a temporary
+ * directory.
+ *
+ * <p>Reads are done on entries that were flushed to the entry logs, to exercise the location index and the read
+ * cache.
+ */
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+public class DbLedgerStorageBenchmark {
+
+    private static final int NUM_LEDGERS = 100;
+    private static final int ENTRIES_PER_LEDGER = 1000;
+
+    @State(Scope.Benchmark)
+    public static class TestState {
+        @Param({ "1024" })
+        private int entrySize;
+
+        @Param({ DbLedgerStorage.READ_CACHE_TYPE_SEGMENTED, DbLedgerStorage.READ_CACHE_TYPE_CLOCK })
+        private String readCacheType;
+
+        private File tmpDir;
+        private DbLedgerStorage storage;
+        private ByteBuf payload;
+        private long nextEntryId = ENTRIES_PER_LEDGER;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            tmpDir = Files.createTempDirectory("bk-storage").toFile();
+            File curDir = BookieImpl.getCurrentDirectory(tmpDir);
+            BookieImpl.checkDirectoryStructure(curDir);
+
+            ServerConfiguration conf = new ServerConfiguration();
+            conf.setAllowLoopback(true);
+            conf.setLedgerDirNames(new String[] { tmpDir.getPath() });
+            conf.setProperty(DbLedgerStorage.WRITE_CACHE_MAX_SIZE_MB, 64);
+            conf.setProperty(DbLedgerStorage.READ_AHEAD_CACHE_MAX_SIZE_MB, 64);
+            conf.setProperty(DbLedgerStorage.READ_CACHE_TYPE, readCacheType);
+            LedgerDirsManager ledgerDirsManager = new LedgerDirsManager(conf, conf.getLedgerDirs(),
+                    new DiskChecker(conf.getDiskUsageThreshold(), conf.getDiskUsageWarnThreshold()));
+
+            storage = new DbLedgerStorage();
+            storage.initialize(conf, null, ledgerDirsManager, ledgerDirsManager, NullStatsLogger.INSTANCE,
+                    ByteBufAllocator.DEFAULT);
+            storage.setCheckpointSource(CheckpointSource.DEFAULT);
+            storage.setCheckpointer(Checkpointer.NULL);
+
+            payload = Unpooled.directBuffer(entrySize);
+            payload.writerIndex(entrySize);
+
+            for (long ledgerId = 0; ledgerId < NUM_LEDGERS; ledgerId++) {
+                storage.setMasterKey(ledgerId, "key".getBytes());
+                for (long entryId = 0; entryId < ENTRIES_PER_LEDGER; entryId++) {
+                    ByteBuf entry = entry(ledgerId, entryId);
+                    storage.addEntry(entry);
+                    entry.release();
+                }
+            }
+            storage.flush();
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() throws Exception {
+            storage.shutdown();
+            payload.release();
+            FileUtils.deleteDirectory(tmpDir);
+        }
+
+        private ByteBuf entry(long ledgerId, long entryId) {
+            ByteBuf entry = Unpooled.buffer(16 + entrySize);
+            entry.writeLong(ledgerId);
+            entry.writeLong(entryId);
+            entry.writeBytes(payload, payload.readerIndex(), payload.readableBytes());
+            return entry;
+        }
+    }
+
+    @Benchmark
+    public void addEntry(TestState s) throws Exception {
+        long entryId;
+        synchronized (s) {
+            entryId = s.nextEntryId++;
+        }
+        ByteBuf entry = s.entry(entryId % NUM_LEDGERS, entryId / NUM_LEDGERS + ENTRIES_PER_LEDGER);
+        s.storage.addEntry(entry);
+        entry.release();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void getEntry(TestState s, Blackhole bh) throws Exception {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        ByteBuf entry = s.storage.getEntry(r.nextInt(NUM_LEDGERS), r.nextInt(ENTRIES_PER_LEDGER));
+        bh.consume(entry);
+        entry.release();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link EntryLocationIndex} batch inserts and lookups, for each index store type.
+ */
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+public class EntryLocationIndexBenchmark {
+
+    private static final int NUM_LEDGERS = 100;
+    private static final int ENTRIES_PER_LEDGER = 10_000;
+    private static final int BATCH_SIZE = 1000;
+
+    @State(Scope.Benchmark)
+    public static class TestState {
+        @Param({ "rocksdb", "dense" })
+        private String indexType;
+
+        private File tmpDir;
+        private EntryLocationIndex index;
+        private long nextLedgerId = NUM_LEDGERS;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            tmpDir = Files.createTempDirectory("bk-locations").toFile();
+            ServerConfiguration conf = new ServerConfiguration();
+            conf.setProperty(DbLedgerStorage.ENTRY_LOCATION_INDEX_TYPE, indexType);
+            index = new EntryLocationIndex(conf, EntryLocationIndex.getStorageFactory(conf, tmpDir.getPath()),
+                    tmpDir.getPath(), NullStatsLogger.INSTANCE);
+
+            for (long ledgerId = 0; ledgerId < NUM_LEDGERS; ledgerId++) {
+                try (KeyValueStorage.Batch batch = index.newBatch()) {
+                    for (long entryId = 0; entryId < ENTRIES_PER_LEDGER; entryId++) {
+                        index.addLocation(batch, ledgerId, entryId, location(ledgerId, entryId));
+                    }
+                    batch.flush();
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() throws IOException {
+            index.close();
+            FileUtils.deleteDirectory(tmpDir);
+        }
+    }
+
+    private static long location(long ledgerId, long entryId) {
+        return ((ledgerId + 1) << 32) + entryId * 128;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void batchInsert(TestState s) throws IOException {
+        long ledgerId;
+        synchronized (s) {
+            ledgerId = s.nextLedgerId++;
+        }
+        try (KeyValueStorage.Batch batch = s.index.newBatch()) {
+            for (long entryId = 0; entryId < BATCH_SIZE; entryId++) {
+                s.index.addLocation(batch, ledgerId, entryId, location(ledgerId, entryId));
+            }
+            batch.flush();
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long lookup(TestState s) throws IOException {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        return s.index.getLocation(r.nextInt(NUM_LEDGERS), r.nextInt(ENTRIES_PER_LEDGER));
+    }
+}
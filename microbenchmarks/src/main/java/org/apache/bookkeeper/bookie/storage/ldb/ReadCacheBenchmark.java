@@ -0,0 +1,109 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the read caches, with concurrent readers and writers.
+ *
+ * <p>The cache is smaller than the key space so that the writers keep evicting segments while the
+ * readers hit and miss.
+ */
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+public class ReadCacheBenchmark {
+
+    private static final long CACHE_SIZE = 64 * 1024 * 1024;
+    private static final int NUM_LEDGERS = 100;
+    private static final int NUM_ENTRIES = 200_000;
+
+    @State(Scope.Group)
+    public static class TestState {
+        @Param({ DbLedgerStorage.READ_CACHE_TYPE_SEGMENTED, DbLedgerStorage.READ_CACHE_TYPE_CLOCK })
+        private String cacheType;
+
+        @Param({ "1024" })
+        private int entrySize;
+
+        private EntryReadCache cache;
+        private ByteBuf entry;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            cache = DbLedgerStorage.READ_CACHE_TYPE_CLOCK.equals(cacheType)
+                    ? new ClockReadCache(ByteBufAllocator.DEFAULT, CACHE_SIZE)
+                    : new ReadCache(ByteBufAllocator.DEFAULT, CACHE_SIZE);
+            entry = Unpooled.directBuffer(entrySize);
+            entry.writerIndex(entrySize);
+            for (int i = 0; i < NUM_ENTRIES; i++) {
+                cache.put(i % NUM_LEDGERS, i / NUM_LEDGERS, entry);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() {
+            cache.close();
+            entry.release();
+        }
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void put(TestState s) {
+        int i = ThreadLocalRandom.current().nextInt(NUM_ENTRIES);
+        s.cache.put(i % NUM_LEDGERS, i / NUM_LEDGERS, s.entry);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public void get(TestState s, Blackhole bh) {
+        int i = ThreadLocalRandom.current().nextInt(NUM_ENTRIES);
+        ByteBuf entry = s.cache.get(i % NUM_LEDGERS, i / NUM_LEDGERS);
+        bh.consume(entry);
+        if (entry != null) {
+            entry.release();
+        }
+    }
+}
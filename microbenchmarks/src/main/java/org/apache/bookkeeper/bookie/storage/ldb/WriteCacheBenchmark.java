@@ -0,0 +1,132 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for {@link WriteCache} put, get and sorted iteration.
+ */
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+public class WriteCacheBenchmark {
+
+    private static final long CACHE_SIZE = 256 * 1024 * 1024;
+    private static final int NUM_LEDGERS = 100;
+    private static final int NUM_ENTRIES = 100_000;
+
+    /**
+     * A write cache for each thread, cleared when full.
+     */
+    @State(Scope.Thread)
+    public static class PutState {
+        @Param({ "100", "1024" })
+        private int entrySize;
+
+        private WriteCache cache;
+        private ByteBuf entry;
+        private long entryId;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            cache = new WriteCache(ByteBufAllocator.DEFAULT, CACHE_SIZE);
+            entry = Unpooled.directBuffer(entrySize);
+            entry.writerIndex(entrySize);
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() {
+            cache.close();
+            entry.release();
+        }
+    }
+
+    /**
+     * A write cache filled with {@link #NUM_ENTRIES} entries spread across {@link #NUM_LEDGERS} ledgers.
+     */
+    @State(Scope.Benchmark)
+    public static class FilledState {
+        @Param({ "100", "1024" })
+        private int entrySize;
+
+        private WriteCache cache;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            cache = new WriteCache(ByteBufAllocator.DEFAULT, CACHE_SIZE);
+            ByteBuf entry = Unpooled.directBuffer(entrySize);
+            entry.writerIndex(entrySize);
+            for (int i = 0; i < NUM_ENTRIES; i++) {
+                cache.put(i % NUM_LEDGERS, i / NUM_LEDGERS, entry);
+            }
+            entry.release();
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() {
+            cache.close();
+        }
+    }
+
+    @Benchmark
+    public void put(PutState s) {
+        long entryId = s.entryId++;
+        if (!s.cache.put(entryId % NUM_LEDGERS, entryId / NUM_LEDGERS, s.entry)) {
+            s.cache.clear();
+            s.cache.put(entryId % NUM_LEDGERS, entryId / NUM_LEDGERS, s.entry);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void get(FilledState s, Blackhole bh) {
+        int i = ThreadLocalRandom.current().nextInt(NUM_ENTRIES);
+        ByteBuf entry = s.cache.get(i % NUM_LEDGERS, i / NUM_LEDGERS);
+        bh.consume(entry);
+        entry.release();
+    }
+
+    @Benchmark
+    public void forEach(FilledState s, Blackhole bh) throws IOException {
+        s.cache.forEach((ledgerId, entryId, entry) -> bh.consume(entry));
+    }
+}